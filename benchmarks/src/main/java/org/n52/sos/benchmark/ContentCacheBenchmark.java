@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.sos.cache.InMemoryCacheImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads and writes of the {@link InMemoryCacheImpl} relations under
+ * contention: the {@code readWrite} group runs three reading threads against
+ * one writing thread, the {@code readOnly} group four reading threads.
+ *
+ * @since 5.0.2
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentCacheBenchmark {
+    private static final int PROCEDURES = 1000;
+    private static final int OFFERINGS_PER_PROCEDURE = 5;
+
+    private InMemoryCacheImpl cache;
+    private String[] procedures;
+    private String[] offerings;
+
+    @Setup
+    public void setup() {
+        this.cache = new InMemoryCacheImpl();
+        this.procedures = new String[PROCEDURES];
+        this.offerings = new String[PROCEDURES];
+        for (int i = 0; i < PROCEDURES; i++) {
+            String procedure = "procedure" + i;
+            this.procedures[i] = procedure;
+            this.offerings[i] = "offering" + i;
+            this.cache.addProcedure(procedure);
+            for (int j = 0; j < OFFERINGS_PER_PROCEDURE; j++) {
+                String offering = "offering" + i + "_" + j;
+                this.cache.addOfferingForProcedure(procedure, offering);
+                this.cache.addProcedureForOffering(offering, procedure);
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public Set<String> readWhileWriting(Cursor cursor) {
+        return cache.getOfferingsForProcedure(procedures[cursor.next()]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void write(Cursor cursor) {
+        int i = cursor.next();
+        cache.addOfferingForProcedure(procedures[i], offerings[i]);
+        cache.addProcedureForOffering(offerings[i], procedures[i]);
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(4)
+    public Set<String> read(Cursor cursor) {
+        return cache.getOfferingsForProcedure(procedures[cursor.next()]);
+    }
+
+    /**
+     * Deterministic per thread position in the procedures.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        int next() {
+            position = (position + 1) % PROCEDURES;
+            return position;
+        }
+    }
+}
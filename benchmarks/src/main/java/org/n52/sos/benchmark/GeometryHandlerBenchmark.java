@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.n52.faroe.ConfigurationError;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.util.JTSHelper;
+import org.n52.sos.util.GeometryHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transformation of point geometries from EPSG:31467 to EPSG:4326 with
+ * {@link GeometryHandler}, one by one and in bulk.
+ *
+ * @since 5.0.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryHandlerBenchmark {
+    private static final int EPSG_4326 = 4326;
+    private static final int EPSG_31467 = 31467;
+
+    @Param({ "100", "10000" })
+    private int size;
+
+    private GeometryHandler geometryHandler;
+    private List<Geometry> geometries;
+
+    @Setup
+    public void setup() throws ConfigurationError {
+        this.geometryHandler = new GeometryHandler();
+        this.geometryHandler.setAuthority("EPSG");
+        this.geometryHandler.setStorageEpsg(EPSG_4326);
+        this.geometryHandler.setSupportedCRS(EPSG_4326 + "," + EPSG_31467);
+        this.geometryHandler.setEpsgCodesWithNorthingFirstAxisOrder(EPSG_4326 + ";" + EPSG_31467);
+        this.geometryHandler.setDatasourceNorthingFirst(false);
+        this.geometryHandler.init();
+
+        GeometryFactory factory = JTSHelper.getGeometryFactoryForSRID(EPSG_31467);
+        this.geometries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            this.geometries.add(factory.createPoint(new Coordinate(5841822 + i, 3400029 + i)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.geometryHandler.destroy();
+    }
+
+    @Benchmark
+    public List<Geometry> transformSingle() throws OwsExceptionReport {
+        List<Geometry> transformed = new ArrayList<>(geometries.size());
+        for (Geometry geometry : geometries) {
+            transformed.add(geometryHandler.transform(geometry, EPSG_4326));
+        }
+        return transformed;
+    }
+
+    @Benchmark
+    public List<Geometry> transformBulk() throws OwsExceptionReport {
+        return geometryHandler.transform(geometries, EPSG_4326);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.sos.decode.kvp.v2.GetObservationKvpDecoderv20;
+import org.n52.svalbard.decode.exception.DecodingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * KVP decoding of GetObservation requests through the
+ * {@link org.n52.sos.decode.kvp.AbstractSosKvpDecoder} parameter handling.
+ *
+ * @since 5.0.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetObservationKvpDecoderBenchmark {
+    private GetObservationKvpDecoderv20 decoder;
+    private Map<String, String> minimal;
+    private Map<String, String> filtered;
+
+    @Setup
+    public void setup() {
+        this.decoder = new GetObservationKvpDecoderv20();
+
+        Map<String, String> map = new HashMap<>();
+        map.put("service", "SOS");
+        map.put("version", "2.0.0");
+        map.put("request", "GetObservation");
+        this.minimal = Collections.unmodifiableMap(new HashMap<>(map));
+
+        map.put("offering", "offering1,offering2,offering3");
+        map.put("observedProperty", "http://www.52north.org/test/observableProperty/1,"
+                + "http://www.52north.org/test/observableProperty/2");
+        map.put("procedure", "http://www.52north.org/test/procedure/1");
+        map.put("featureOfInterest", "http://www.52north.org/test/featureOfInterest/1,"
+                + "http://www.52north.org/test/featureOfInterest/2");
+        map.put("temporalFilter", "om:phenomenonTime,2012-11-19T14:00:00+01:00/2012-11-19T15:00:00+01:00");
+        map.put("spatialFilter", "om:featureOfInterest/*/sams:shape,0.0,0.0,60.0,60.0,"
+                + "http://www.opengis.net/def/crs/EPSG/0/4326");
+        map.put("responseFormat", "http://www.opengis.net/om/2.0");
+        this.filtered = Collections.unmodifiableMap(map);
+    }
+
+    @Benchmark
+    public GetObservationRequest decodeMinimal() throws DecodingException {
+        return decoder.decode(minimal);
+    }
+
+    @Benchmark
+    public GetObservationRequest decodeFiltered() throws DecodingException {
+        return decoder.decode(filtered);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.shetland.ogc.om.values.SweDataArrayValue;
+import org.n52.shetland.ogc.swe.SweDataArray;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
+import org.n52.sos.ds.hibernate.util.ResultValuesTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Block parsing of InsertResult result values as done by the
+ * {@link org.n52.sos.ds.hibernate.InsertResultHandler}: tokenizing the values
+ * and collecting the blocks in a SWE data array.
+ *
+ * @since 5.0.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InsertResultParsingBenchmark {
+
+    @Param({ "1000", "100000" })
+    private int blocks;
+
+    private String resultValues;
+    private SweDataRecord record;
+    private SweTextEncoding encoding;
+
+    @Setup
+    public void setup() {
+        this.resultValues = SweArrayFixture.createResultValues(blocks);
+        this.record = SweArrayFixture.createRecord();
+        this.encoding = SweArrayFixture.createEncoding();
+    }
+
+    @Benchmark
+    public int tokenize() {
+        int tokens = 0;
+        Iterator<List<String>> iterator = newTokenizer();
+        while (iterator.hasNext()) {
+            tokens += iterator.next().size();
+        }
+        return tokens;
+    }
+
+    @Benchmark
+    public SweDataArrayValue parseBlocks() {
+        SweDataArray dataArray = new SweDataArray();
+        dataArray.setElementType(record);
+        dataArray.setEncoding(encoding);
+        SweDataArrayValue dataArrayValue = new SweDataArrayValue();
+        dataArrayValue.setValue(dataArray);
+        Iterator<List<String>> iterator = newTokenizer();
+        while (iterator.hasNext()) {
+            dataArrayValue.addBlock(iterator.next());
+        }
+        return dataArrayValue;
+    }
+
+    private Iterator<List<String>> newTokenizer() {
+        return new ResultValuesTokenizer(resultValues, SweArrayFixture.TOKEN_SEPARATOR,
+                SweArrayFixture.BLOCK_SEPARATOR);
+    }
+}
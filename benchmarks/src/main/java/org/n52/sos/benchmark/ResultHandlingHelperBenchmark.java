@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.QuantityDatasetEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosResultEncoding;
+import org.n52.shetland.ogc.sos.SosResultStructure;
+import org.n52.sos.ds.hibernate.util.ResultHandlingHelper;
+import org.n52.svalbard.util.SweHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creation of GetResult result values from quantity observations with
+ * {@link ResultHandlingHelper#createResultValuesFromObservations}.
+ *
+ * @since 5.0.2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultHandlingHelperBenchmark {
+    private static final String NO_DATA_PLACEHOLDER = "noData";
+
+    @Param({ "1000", "100000" })
+    private int observations;
+
+    private Collection<DataEntity<?>> entities;
+    private SosResultEncoding resultEncoding;
+    private SosResultStructure resultStructure;
+    private ResultHandlingHelper helper;
+
+    @Setup
+    public void setup() {
+        PhenomenonEntity observableProperty = new PhenomenonEntity();
+        observableProperty.setIdentifier(SweArrayFixture.OBSERVABLE_PROPERTY);
+        DatasetEntity dataset = new QuantityDatasetEntity();
+        dataset.setObservableProperty(observableProperty);
+
+        List<DataEntity<?>> list = new ArrayList<>(observations);
+        for (int i = 0; i < observations; i++) {
+            Date time = SweArrayFixture.time(i).toDate();
+            QuantityDataEntity observation = new QuantityDataEntity();
+            observation.setValue(BigDecimal.valueOf(SweArrayFixture.value(i)));
+            observation.setSamplingTimeStart(time);
+            observation.setSamplingTimeEnd(time);
+            observation.setResultTime(time);
+            observation.setDataset(dataset);
+            list.add(observation);
+        }
+        this.entities = list;
+        this.resultEncoding = new SosResultEncoding(SweArrayFixture.createEncoding(), null);
+        this.resultStructure = new SosResultStructure(SweArrayFixture.createRecord(), null);
+        // the result structure contains no sampling geometry, so no geometry handler is needed
+        this.helper = new ResultHandlingHelper(null, new SweHelper());
+    }
+
+    @Benchmark
+    public String createResultValues() throws OwsExceptionReport {
+        return helper.createResultValuesFromObservations(entities, resultEncoding, resultStructure,
+                NO_DATA_PLACEHOLDER);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.benchmark;
+
+import java.util.Arrays;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.n52.shetland.ogc.om.MultiObservationValues;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.values.SweDataArrayValue;
+import org.n52.shetland.ogc.swe.SweDataArray;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
+
+/**
+ * Reproducible SWE array data (phenomenon time and one quantity per block) for
+ * the result handling benchmarks.
+ *
+ * @since 5.0.2
+ */
+final class SweArrayFixture {
+    static final String OBSERVABLE_PROPERTY = "http://www.52north.org/test/observableProperty/1";
+    static final String UNIT = "degC";
+    static final String TOKEN_SEPARATOR = ",";
+    static final String BLOCK_SEPARATOR = "@@";
+    static final DateTime START = new DateTime(2018, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private SweArrayFixture() {
+    }
+
+    static SweDataRecord createRecord() {
+        SweDataRecord record = new SweDataRecord();
+        SweTime time = new SweTime();
+        time.setDefinition(OmConstants.PHENOMENON_TIME);
+        time.setUom(OmConstants.PHEN_UOM_ISO8601);
+        record.addField(new SweField(OmConstants.PHENOMENON_TIME_NAME, time));
+        SweQuantity quantity = new SweQuantity();
+        quantity.setDefinition(OBSERVABLE_PROPERTY);
+        quantity.setUom(UNIT);
+        record.addField(new SweField("air_temperature", quantity));
+        return record;
+    }
+
+    static SweTextEncoding createEncoding() {
+        SweTextEncoding encoding = new SweTextEncoding();
+        encoding.setCollapseWhiteSpaces(false);
+        encoding.setDecimalSeparator(".");
+        encoding.setTokenSeparator(TOKEN_SEPARATOR);
+        encoding.setBlockSeparator(BLOCK_SEPARATOR);
+        return encoding;
+    }
+
+    static DateTime time(int block) {
+        return START.plusMinutes(block);
+    }
+
+    static double value(int block) {
+        return (block % 400) / 10.0;
+    }
+
+    /**
+     * @return the result values of an InsertResult request with the preceding
+     *         element count
+     */
+    static String createResultValues(int blocks) {
+        StringBuilder builder = new StringBuilder(blocks * 40);
+        builder.append(blocks);
+        for (int i = 0; i < blocks; i++) {
+            builder.append(BLOCK_SEPARATOR).append(time(i)).append(TOKEN_SEPARATOR).append(value(i));
+        }
+        return builder.toString();
+    }
+
+    static OmObservation createArrayObservation(int blocks) {
+        SweDataArray dataArray = new SweDataArray();
+        dataArray.setElementType(createRecord());
+        dataArray.setEncoding(createEncoding());
+        for (int i = 0; i < blocks; i++) {
+            dataArray.add(Arrays.asList(time(i).toString(), Double.toString(value(i))));
+        }
+        SweDataArrayValue dataArrayValue = new SweDataArrayValue();
+        dataArrayValue.setValue(dataArray);
+        MultiObservationValues<SweDataArray> values = new MultiObservationValues<>();
+        values.setValue(dataArrayValue);
+
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setObservableProperty(new OmObservableProperty(OBSERVABLE_PROPERTY));
+        constellation.setObservationType(OmConstants.OBS_TYPE_SWE_ARRAY_OBSERVATION);
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(constellation);
+        observation.setValue(values);
+        return observation;
+    }
+}
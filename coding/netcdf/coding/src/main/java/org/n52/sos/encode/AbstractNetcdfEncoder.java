@@ -31,6 +31,7 @@ package org.n52.sos.encode;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
@@ -41,6 +42,8 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import javax.inject.Inject;
 
@@ -102,6 +105,8 @@ import org.n52.svalbard.encode.EncodingContext;
 import org.n52.svalbard.encode.ObservationEncoder;
 import org.n52.svalbard.encode.exception.EncodingException;
 import org.n52.svalbard.encode.exception.UnsupportedEncoderInputException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.axiomalaska.cf4j.CFStandardNames;
 import com.axiomalaska.cf4j.constants.ACDDConstants;
@@ -142,6 +147,8 @@ import ucar.nc2.jni.netcdf.Nc4Iosp;
  */
 public abstract class AbstractNetcdfEncoder implements ObservationEncoder<BinaryAttachmentResponse, Object> {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractNetcdfEncoder.class);
+
     private final Set<SupportedType> SUPPORTED_TYPES =
             ImmutableSet.<SupportedType>builder().add(OmConstants.OBS_TYPE_TRUTH_OBSERVATION_TYPE).build();
 
@@ -312,6 +319,76 @@ public abstract class AbstractNetcdfEncoder implements ObservationEncoder<Binary
                 getNetcdfHelper().getChunkSizeTime()));
     }
 
+    /**
+     * Encode the sensor dataset to netCDF and return the content. The netCDF
+     * writer needs a file location, so the dataset is written to a temporary
+     * file that is deleted after it was read.
+     *
+     * @param sensorDataset
+     *            the sensor dataset to encode
+     * @param version
+     *            the netCDF version
+     * @return the encoded netCDF file
+     * @throws EncodingException
+     *             if the encoding fails
+     * @throws IOException
+     *             if the temporary file could not be written or read
+     */
+    protected byte[] encodeSensorDataToNetcdf(AbstractSensorDataset sensorDataset, Version version)
+            throws EncodingException, IOException {
+        File netcdfFile = createTempNetcdfFile();
+        try {
+            encodeSensorDataToNetcdf(netcdfFile, sensorDataset, version);
+            return Files.readAllBytes(netcdfFile.toPath());
+        } finally {
+            deleteTempNetcdfFile(netcdfFile);
+        }
+    }
+
+    /**
+     * Encode the sensor dataset to netCDF and write it as entry to the ZIP
+     * stream. The temporary file is copied to the stream and deleted before
+     * the next dataset is encoded.
+     *
+     * @param zip
+     *            the ZIP stream to write the entry to
+     * @param sensorDataset
+     *            the sensor dataset to encode
+     * @param version
+     *            the netCDF version
+     * @throws EncodingException
+     *             if the encoding fails
+     * @throws IOException
+     *             if the temporary file or the ZIP entry could not be written
+     */
+    protected void encodeSensorDataToZipEntry(ZipOutputStream zip, AbstractSensorDataset sensorDataset,
+            Version version) throws EncodingException, IOException {
+        File netcdfFile = createTempNetcdfFile();
+        try {
+            encodeSensorDataToNetcdf(netcdfFile, sensorDataset, version);
+            zip.putNextEntry(new ZipEntry(getFilename(sensorDataset)));
+            Files.copy(netcdfFile.toPath(), zip);
+            zip.closeEntry();
+        } finally {
+            deleteTempNetcdfFile(netcdfFile);
+        }
+    }
+
+    private File createTempNetcdfFile() throws IOException {
+        File netcdfFile = File.createTempFile("52n-sos-netcdf-", ".nc");
+        // the netCDF writer creates the file itself
+        Files.delete(netcdfFile.toPath());
+        return netcdfFile;
+    }
+
+    private void deleteTempNetcdfFile(File netcdfFile) {
+        try {
+            Files.deleteIfExists(netcdfFile.toPath());
+        } catch (IOException ex) {
+            LOGGER.warn("Couldn't delete temporary netCDF file {}", netcdfFile, ex);
+        }
+    }
+
     protected void encodeSensorDataToNetcdf(File netcdfFile, AbstractSensorDataset sensorDataset, Version version)
             throws EncodingException, IOException {
         String sensor = sensorDataset.getSensorIdentifier();
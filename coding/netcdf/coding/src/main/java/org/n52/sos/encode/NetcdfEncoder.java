@@ -28,7 +28,6 @@
  */
 package org.n52.sos.encode;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
@@ -56,7 +55,6 @@ import org.n52.svalbard.encode.exception.EncodingException;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 
 import ucar.nc2.NetcdfFileWriter.Version;
 
@@ -136,17 +134,12 @@ public class NetcdfEncoder extends AbstractBasicNetcdfEncoder {
         }
 
         AbstractSensorDataset sensorDataset = netCDFObservation.getSensorDatasets().get(0);
-        File tempDir = Files.createTempDir();
         String filename = getFilename(sensorDataset);
-        File netcdfFile = new File(tempDir, filename);
         try {
-            encodeSensorDataToNetcdf(netcdfFile, sensorDataset, version);
-            return new BinaryAttachmentResponse(Files.toByteArray(netcdfFile), getContentType(),
+            return new BinaryAttachmentResponse(encodeSensorDataToNetcdf(sensorDataset, version), getContentType(),
                     String.format(filename, makeDateSafe(new DateTime(DateTimeZone.UTC))));
         } catch (IOException e) {
             throw new EncodingException("Couldn't create netCDF file", e);
-        } finally {
-            tempDir.delete();
         }
     }
 
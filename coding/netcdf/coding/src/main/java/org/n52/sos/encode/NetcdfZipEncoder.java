@@ -29,13 +29,11 @@
 package org.n52.sos.encode;
 
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.joda.time.DateTime;
@@ -58,7 +56,6 @@ import org.n52.svalbard.encode.exception.EncodingException;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 
 import ucar.nc2.NetcdfFileWriter.Version;
 
@@ -129,43 +126,17 @@ public class NetcdfZipEncoder extends AbstractBasicNetcdfEncoder {
     @Override
     protected BinaryAttachmentResponse encodeNetCDFObsToNetcdf(List<NetCDFObservation> netCDFObsList, Version version)
             throws EncodingException {
-        File tempDir = Files.createTempDir();
-
-        for (NetCDFObservation netCDFObs : netCDFObsList) {
-            for (AbstractSensorDataset sensorDataset : netCDFObs.getSensorDatasets()) {
-                try {
-                    File netcdfFile = new File(tempDir, getFilename(sensorDataset));
-                    encodeSensorDataToNetcdf(netcdfFile, sensorDataset, version);
-                } catch (IOException ex) {
-                    throw new EncodingException(ex);
+        ByteArrayOutputStream zipBoas = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(zipBoas)) {
+            for (NetCDFObservation netCDFObs : netCDFObsList) {
+                for (AbstractSensorDataset sensorDataset : netCDFObs.getSensorDatasets()) {
+                    encodeSensorDataToZipEntry(zip, sensorDataset, version);
                 }
             }
-        }
-
-        BinaryAttachmentResponse response = null;
-        try(ByteArrayOutputStream zipBoas = createZip(tempDir)) {
-            response =
-                    new BinaryAttachmentResponse(zipBoas.toByteArray(), getContentType(), String.format(
-                            DOWNLOAD_FILENAME_FORMAT, makeDateSafe(new DateTime(DateTimeZone.UTC))));
         } catch (IOException e) {
             throw new EncodingException("Couldn't create netCDF zip file", e);
-        } finally {
-            tempDir.delete();
-        }
-
-        return response;
-    }
-
-    private static ByteArrayOutputStream createZip(File dirToZip) throws IOException {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        try (ZipOutputStream zipfile = new ZipOutputStream(bos)) {
-            ZipEntry zipentry = null;
-            for (File file : dirToZip.listFiles()) {
-                zipentry = new ZipEntry(file.getName());
-                zipfile.putNextEntry(zipentry);
-                zipfile.write(Files.toByteArray(file));
-            }
         }
-        return bos;
+        return new BinaryAttachmentResponse(zipBoas.toByteArray(), getContentType(),
+                String.format(DOWNLOAD_FILENAME_FORMAT, makeDateSafe(new DateTime(DateTimeZone.UTC))));
     }
 }
@@ -28,7 +28,6 @@
  */
 package org.n52.sos.encode;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
@@ -56,7 +55,6 @@ import org.n52.svalbard.encode.exception.EncodingException;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 
 import ucar.nc2.NetcdfFileWriter.Version;
 
@@ -137,20 +135,9 @@ private static final Logger LOGGER = LoggerFactory.getLogger(OceanSITESEncoder.c
         }
 
         AbstractSensorDataset sensorDataset = netCDFObservation.getSensorDatasets().get(0);
-        File tempDir = Files.createTempDir();
         String filename = getFilename(sensorDataset);
-        File netcdfFile = new File(tempDir, filename);
-        encodeSensorDataToNetcdf(netcdfFile, sensorDataset, version);
-
-        BinaryAttachmentResponse response = null;
-        try {
-            response = new BinaryAttachmentResponse(Files.toByteArray(netcdfFile), getContentType(),
-                    String.format(filename, makeDateSafe(new DateTime(DateTimeZone.UTC))));
-        } finally {
-            tempDir.delete();
-        }
-
-        return response;
+        return new BinaryAttachmentResponse(encodeSensorDataToNetcdf(sensorDataset, version), getContentType(),
+                String.format(filename, makeDateSafe(new DateTime(DateTimeZone.UTC))));
     }
 
     private void throwTooManyFeatureTypesOrSensorsException(List<NetCDFObservation> netCDFObsList,
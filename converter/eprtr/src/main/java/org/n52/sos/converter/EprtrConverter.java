@@ -31,7 +31,6 @@ package org.n52.sos.converter;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
 
@@ -162,24 +161,19 @@ public class EprtrConverter
     }
 
     private OwsServiceResponse mergeObservations(GetObservationResponse response) throws OwsExceptionReport {
-        response.setObservationCollection(ObservationStream.of((mergeObservations(mergeStreamingData(response.getObservationCollection())))));
-        checkObservationFeatures(response.getObservationCollection());
+        response.setObservationCollection(checkObservationFeatures(
+                ObservationStream.of(mergeObservations(mergeStreamingData(response.getObservationCollection())))));
         return response;
     }
 
-    private OwsServiceResponse checkGetObservationFeatures(GetObservationResponse response) throws NoSuchElementException, OwsExceptionReport {
-        response.setObservationCollection(ObservationStream.of(checkObservationFeatures(response.getObservationCollection())));
+    private OwsServiceResponse checkGetObservationFeatures(GetObservationResponse response) {
+        response.setObservationCollection(checkObservationFeatures(response.getObservationCollection()));
         return response;
     }
 
-    private List<OmObservation> checkObservationFeatures(ObservationStream observationStream) throws NoSuchElementException, OwsExceptionReport {
-        List<OmObservation> processed = new LinkedList<>();
-        while (observationStream.hasNext()) {
-            OmObservation omObservation = observationStream.next();
-            checkFeature(omObservation.getObservationConstellation().getFeatureOfInterest());
-            processed.add(omObservation);
-        }
-        return processed;
+    private ObservationStream checkObservationFeatures(ObservationStream observationStream) {
+        return observationStream.modify(
+                omObservation -> checkFeature(omObservation.getObservationConstellation().getFeatureOfInterest()));
     }
 
     private OwsServiceResponse checkFeatures(GetFeatureOfInterestResponse response) {
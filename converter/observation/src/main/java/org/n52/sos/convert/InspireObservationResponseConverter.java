@@ -44,6 +44,7 @@ import org.n52.iceland.cache.ContentCacheController;
 import org.n52.iceland.convert.RequestResponseModifier;
 import org.n52.iceland.convert.RequestResponseModifierFacilitator;
 import org.n52.iceland.convert.RequestResponseModifierKey;
+import org.n52.janmayen.AbstractThrowingIterator;
 import org.n52.shetland.inspire.omso.InspireOMSOConstants;
 import org.n52.shetland.inspire.omso.MultiPointObservation;
 import org.n52.shetland.inspire.omso.PointObservation;
@@ -161,7 +162,9 @@ public class InspireObservationResponseConverter
     }
 
     /**
-     * Check the {@link AbstractObservationResponse} with {@link StreamingValue}
+     * Check the {@link AbstractObservationResponse} with {@link StreamingValue}. Point observations are converted
+     * lazily while the response is encoded, only the observations that have to be merged are collected and appended
+     * after the last point observation.
      *
      * @param request
      *            The request
@@ -173,37 +176,39 @@ public class InspireObservationResponseConverter
     private void checkData(OwsServiceRequest request, AbstractObservationResponse response)
             throws OwsExceptionReport {
         Map<String, List<OmObservation>> map = Maps.newHashMap();
-        while (response.getObservationCollection().hasNext()) {
-            OmObservation omObservation = response.getObservationCollection().next();
-            if (omObservation.getValue() instanceof StreamingValue<?>) {
-                if (checkRequestedObservationTypeForOffering(omObservation, request)) {
-                    String observationType = checkForObservationTypeForStreaming(omObservation, request);
-                    while (((StreamingValue<?>) omObservation.getValue()).hasNext()) {
-                        OmObservation observation = ((StreamingValue<?>) omObservation.getValue()).next();
-                            if (InspireOMSOConstants.OBS_TYPE_PROFILE_OBSERVATION.equals(observationType)) {
-                                putOrAdd(map, InspireOMSOConstants.OBS_TYPE_PROFILE_OBSERVATION,
-                                        convertToProfileObservations(observation));
-                            } else if (InspireOMSOConstants.OBS_TYPE_TRAJECTORY_OBSERVATION.equals(observationType)) {
-                                putOrAdd(map, InspireOMSOConstants.OBS_TYPE_TRAJECTORY_OBSERVATION,
-                                        convertToTrajectoryObservations(observation));
-                            } else if (InspireOMSOConstants.OBS_TYPE_MULTI_POINT_OBSERVATION.equals(observationType)) {
-                                putOrAdd(map, InspireOMSOConstants.OBS_TYPE_MULTI_POINT_OBSERVATION,
-                                        convertToMultiPointObservations(observation));
-                            } else if (InspireOMSOConstants.OBS_TYPE_POINT_TIME_SERIES_OBSERVATION
-                                    .equals(observationType)) {
-                                putOrAdd(map, InspireOMSOConstants.OBS_TYPE_POINT_TIME_SERIES_OBSERVATION,
-                                        convertToPointTimeSeriesObservations(observation));
-                            } else if (InspireOMSOConstants.OBS_TYPE_POINT_OBSERVATION.equals(observationType)) {
-                                putOrAdd(map, InspireOMSOConstants.OBS_TYPE_POINT_OBSERVATION,
-                                        convertToPointObservations(observation));
-                            }
-                    }
+        ObservationStream pointObservations = ObservationStreams.flatMap(response.getObservationCollection(),
+                omObservation -> checkData(request, omObservation, map));
+        response.setObservationCollection(ObservationStreams.concat(pointObservations, () -> mergeObservations(map)));
+    }
+
+    private ObservationStream checkData(OwsServiceRequest request, OmObservation omObservation,
+            Map<String, List<OmObservation>> map) throws OwsExceptionReport {
+        if (omObservation.getValue() instanceof StreamingValue<?>
+                && checkRequestedObservationTypeForOffering(omObservation, request)) {
+            String observationType = checkForObservationTypeForStreaming(omObservation, request);
+            StreamingValue<?> value = (StreamingValue<?>) omObservation.getValue();
+            if (InspireOMSOConstants.OBS_TYPE_POINT_OBSERVATION.equals(observationType)) {
+                return ObservationStreams.flatMap(new StreamingValueObservationStream(value),
+                        observation -> ObservationStream.of(convertToPointObservations(observation)));
+            }
+            while (value.hasNext()) {
+                OmObservation observation = value.next();
+                if (InspireOMSOConstants.OBS_TYPE_PROFILE_OBSERVATION.equals(observationType)) {
+                    putOrAdd(map, InspireOMSOConstants.OBS_TYPE_PROFILE_OBSERVATION,
+                            convertToProfileObservations(observation));
+                } else if (InspireOMSOConstants.OBS_TYPE_TRAJECTORY_OBSERVATION.equals(observationType)) {
+                    putOrAdd(map, InspireOMSOConstants.OBS_TYPE_TRAJECTORY_OBSERVATION,
+                            convertToTrajectoryObservations(observation));
+                } else if (InspireOMSOConstants.OBS_TYPE_MULTI_POINT_OBSERVATION.equals(observationType)) {
+                    putOrAdd(map, InspireOMSOConstants.OBS_TYPE_MULTI_POINT_OBSERVATION,
+                            convertToMultiPointObservations(observation));
+                } else if (InspireOMSOConstants.OBS_TYPE_POINT_TIME_SERIES_OBSERVATION.equals(observationType)) {
+                    putOrAdd(map, InspireOMSOConstants.OBS_TYPE_POINT_TIME_SERIES_OBSERVATION,
+                            convertToPointTimeSeriesObservations(observation));
                 }
-            } else if (omObservation.getValue() instanceof StreamingValue<?>) {
-                // TODO
             }
         }
-        response.setObservationCollection(mergeObservations(map));
+        return ObservationStream.empty();
     }
 
     /**
@@ -519,4 +524,21 @@ public class InspireObservationResponseConverter
         return super.getFacilitator().setMerger(true);
     }
 
+
+    /**
+     * {@link ObservationStream} of the observations of a {@link StreamingValue}.
+     */
+    private static final class StreamingValueObservationStream
+            extends AbstractThrowingIterator<OmObservation, OwsExceptionReport> implements ObservationStream {
+        private final StreamingValue<?> value;
+
+        StreamingValueObservationStream(StreamingValue<?> value) {
+            this.value = value;
+        }
+
+        @Override
+        protected OmObservation computeNext() throws OwsExceptionReport {
+            return value.hasNext() ? value.next() : endOfData();
+        }
+    }
 }
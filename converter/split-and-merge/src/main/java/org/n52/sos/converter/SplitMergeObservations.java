@@ -32,7 +32,6 @@ import static java.util.stream.Collectors.toSet;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -50,7 +49,6 @@ import org.n52.shetland.ogc.gml.time.Time;
 import org.n52.shetland.ogc.gml.time.TimeInstant;
 import org.n52.shetland.ogc.om.AbstractPhenomenon;
 import org.n52.shetland.ogc.om.ObservationMergeIndicator;
-import org.n52.shetland.ogc.om.ObservationStream;
 import org.n52.shetland.ogc.om.ObservationValue;
 import org.n52.shetland.ogc.om.OmConstants;
 import org.n52.shetland.ogc.om.OmObservation;
@@ -73,7 +71,6 @@ import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
 import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
 import org.n52.shetland.ogc.sos.response.AbstractObservationResponse;
-import org.n52.shetland.ogc.sos.response.AbstractStreaming;
 import org.n52.shetland.ogc.sos.response.GetObservationResponse;
 import org.n52.shetland.ogc.sos.response.InsertObservationResponse;
 import org.n52.shetland.ogc.swe.SweDataRecord;
@@ -83,6 +80,7 @@ import org.n52.shetland.ogc.swe.simpleType.SweBoolean;
 import org.n52.shetland.ogc.swes.SwesExtension;
 import org.n52.shetland.util.DateTimeHelper;
 import org.n52.shetland.util.OMHelper;
+import org.n52.sos.convert.ObservationStreams;
 import org.n52.sos.service.SosSettings;
 import org.n52.sos.service.profile.ProfileHandler;
 import org.n52.svalbard.encode.EncoderKey;
@@ -347,20 +345,10 @@ public class SplitMergeObservations
         ObservationMergeIndicator indicator =
                 ObservationMergeIndicator.sameObservationConstellation().setResultTime(includeResultTimeForMerging);
         if (checkForMergeObservationsInResponse || checkEncoderForMergeObservations) {
-            ObservationStream observationStream = response.getObservationCollection().merge(indicator);
-            List<OmObservation> processed = new LinkedList<>();
-            while (observationStream.hasNext()) {
-                OmObservation observation = observationStream.next();
-                if (observation.getValue() instanceof AbstractStreaming) {
-                    ObservationStream valueStream = ((AbstractStreaming) observation.getValue()).merge(indicator);
-                    while (valueStream.hasNext()) {
-                        processed.add(valueStream.next());
-                    }
-                } else {
-                    processed.add(observation);
-                }
-            }
-            response.setObservationCollection(ObservationStream.of(processed));
+            // the encoder expects one observation per constellation, so every series is materialized when it is
+            // merged, one series at a time
+            response.setObservationCollection(ObservationStreams
+                    .unfoldStreamingValues(response.getObservationCollection().merge(indicator), indicator));
         }
         return response;
     }
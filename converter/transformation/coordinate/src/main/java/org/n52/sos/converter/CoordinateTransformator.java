@@ -30,6 +30,7 @@ package org.n52.sos.converter;
 
 import static java.util.stream.Collectors.toList;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -923,8 +924,15 @@ public class CoordinateTransformator
 
     private void checkMultiPointCoverageForGeometry(MultiPointCoverage value, int targetCRS)
             throws OwsExceptionReport {
+        List<PointValuePair> pairs = new ArrayList<>();
+        List<Geometry> points = new ArrayList<>();
         for (PointValuePair pvp : value.getValue()) {
-            pvp.setPoint((Point) getGeomtryHandler().transform(pvp.getPoint(), targetCRS));
+            pairs.add(pvp);
+            points.add(pvp.getPoint());
+        }
+        List<Geometry> transformed = getGeomtryHandler().transform(points, targetCRS);
+        for (int i = 0; i < pairs.size(); i++) {
+            pairs.get(i).setPoint((Point) transformed.get(i));
         }
     }
 
@@ -934,8 +942,15 @@ public class CoordinateTransformator
     }
 
     private void checkTLVTValueForGeometry(TLVTValue value, int targetCRS) throws OwsExceptionReport {
+        List<TimeLocationValueTriple> triples = new ArrayList<>();
+        List<Geometry> locations = new ArrayList<>();
         for (TimeLocationValueTriple tlvt : value.getValue()) {
-            tlvt.setLocation(getGeomtryHandler().transform(tlvt.getLocation(), targetCRS));
+            triples.add(tlvt);
+            locations.add(tlvt.getLocation());
+        }
+        List<Geometry> transformed = getGeomtryHandler().transform(locations, targetCRS);
+        for (int i = 0; i < triples.size(); i++) {
+            triples.get(i).setLocation(transformed.get(i));
         }
     }
 
@@ -0,0 +1,479 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+
+import org.joda.time.DateTime;
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory index of the data availability of the stored datasets. It is used to answer GetDataAvailability
+ * requests without querying the datasets for every request.
+ * <p>
+ * The index is built by the datasource from the first/last value times of all datasets (see {@link #startBuild()}
+ * and {@link #completeBuild(Collection)}), extended by the cache updates of observation and result insertions and
+ * {@link #refresh(Collection) refreshed} with the datasets that were changed outside of the service. Updates that
+ * arrive while the index is built are applied to the built entries. Modifications the index can not follow, like
+ * deletions, insertions into unknown datasets or complete cache updates, {@link #clear() clear} it, so that it is
+ * built again.
+ * <p>
+ * The observation counts of built datasets are increased by the counts of the insertions. Insertions that arrive
+ * during a build may already be contained in the built entries, so these datasets, and datasets extended by
+ * insertions of an unknown count, get an unknown count until the next build. An insertion that is committed before
+ * the build queries the datasets, but is reported only after the build completed, is counted twice.
+ * <p>
+ * The entries are indexed by their procedure, observable property, feature and offering identifiers, so that
+ * queries only look at the datasets of the most selective requested identifiers.
+ *
+ * @since 5.0.2
+ */
+public class DataAvailabilityIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(DataAvailabilityIndex.class);
+    private static final int KEY_SIZE = 4;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<List<String>, List<Entry>> entries = new HashMap<>();
+    private final List<Map<String, Set<List<String>>>> keysByIdentifier = new ArrayList<>(KEY_SIZE);
+    private final List<BooleanSupplier> pending = new LinkedList<>();
+    private State state = State.EMPTY;
+    private boolean invalidated;
+
+    public DataAvailabilityIndex() {
+        for (int i = 0; i < KEY_SIZE; i++) {
+            keysByIdentifier.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * @return {@code true} if the index was built and contains all stored datasets
+     */
+    public boolean isInitialized() {
+        lock.readLock().lock();
+        try {
+            return state == State.READY;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Starts a build of the index if it is neither built nor being built. Only the caller that gets {@code true}
+     * queries the datasets and has to call {@link #completeBuild(Collection)} or {@link #abortBuild()}.
+     *
+     * @return {@code true} if the caller has to build the index
+     */
+    public boolean startBuild() {
+        lock.writeLock().lock();
+        try {
+            if (state != State.EMPTY) {
+                return false;
+            }
+            state = State.BUILDING;
+            invalidated = false;
+            pending.clear();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Completes the build with the entries of all stored datasets. The updates that arrived during the build are
+     * applied to them. If the index was cleared during the build, or an update refers to a dataset that is not
+     * contained in the entries, the build is discarded.
+     *
+     * @param datasets
+     *                 the entries of all datasets
+     *
+     * @return {@code true} if the index was built
+     */
+    public boolean completeBuild(Collection<Entry> datasets) {
+        lock.writeLock().lock();
+        try {
+            if (state != State.BUILDING) {
+                return false;
+            }
+            state = State.EMPTY;
+            if (invalidated) {
+                LOG.debug("Data availability index was cleared during the build");
+                return false;
+            }
+            clearEntries();
+            for (Entry entry : datasets) {
+                addEntry(entry);
+            }
+            for (BooleanSupplier modification : pending) {
+                if (!modification.getAsBoolean()) {
+                    clearEntries();
+                    return false;
+                }
+            }
+            state = State.READY;
+            LOG.debug("Data availability index built with {} datasets and {} updates", datasets.size(),
+                    pending.size());
+            return true;
+        } finally {
+            pending.clear();
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Aborts a failed build, so that the next caller of {@link #startBuild()} builds the index.
+     */
+    public void abortBuild() {
+        lock.writeLock().lock();
+        try {
+            if (state == State.BUILDING) {
+                state = State.EMPTY;
+                pending.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Discards the content of the index, so that it is built again.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            clearEntries();
+            if (state == State.BUILDING) {
+                invalidated = true;
+                pending.clear();
+            } else {
+                state = State.EMPTY;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Extends the dataset of the constellation with inserted observations. If the index does not contain exactly
+     * one dataset for the constellation, it is cleared.
+     *
+     * @param procedure
+     *                           the procedure identifier
+     * @param observableProperty
+     *                           the observable property identifier
+     * @param featureOfInterest
+     *                           the feature identifier
+     * @param offering
+     *                           the offering identifier
+     * @param phenomenonTime
+     *                           the phenomenon time of the observations
+     * @param count
+     *                           the number of inserted observations, or a negative value if unknown
+     */
+    public void update(String procedure, String observableProperty, String featureOfInterest, String offering,
+            Time phenomenonTime, long count) {
+        Update update = new Update(Arrays.asList(procedure, observableProperty, featureOfInterest, offering),
+                phenomenonTime, count);
+        lock.writeLock().lock();
+        try {
+            if (state == State.BUILDING) {
+                if (!invalidated) {
+                    // the built entries may already contain the insertion
+                    pending.add(() -> apply(update, -1));
+                }
+            } else if (state == State.READY && !apply(update, update.count)) {
+                LOG.debug("Data availability index cleared after insertion for unknown dataset {}", update.key);
+                clearEntries();
+                state = State.EMPTY;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the entries of datasets that were created or changed outside of the service. If the index contains
+     * several datasets for the key of a changed dataset, it is cleared.
+     *
+     * @param datasets
+     *                 the current entries of the changed datasets
+     */
+    public void refresh(Collection<Entry> datasets) {
+        if (datasets.isEmpty()) {
+            return;
+        }
+        Map<List<String>, List<Entry>> changed = new HashMap<>();
+        for (Entry entry : datasets) {
+            changed.computeIfAbsent(entry.getKey(), key -> new LinkedList<>()).add(entry);
+        }
+        lock.writeLock().lock();
+        try {
+            if (state == State.BUILDING) {
+                if (!invalidated) {
+                    pending.add(() -> replace(changed));
+                }
+            } else if (state == State.READY && !replace(changed)) {
+                LOG.debug("Data availability index cleared after change of ambiguous datasets");
+                clearEntries();
+                state = State.EMPTY;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean replace(Map<List<String>, List<Entry>> changed) {
+        for (Map.Entry<List<String>, List<Entry>> datasets : changed.entrySet()) {
+            List<Entry> existing = entries.get(datasets.getKey());
+            if (existing == null) {
+                datasets.getValue().forEach(this::addEntry);
+            } else if (existing.size() == 1 && datasets.getValue().size() == 1) {
+                existing.set(0, datasets.getValue().get(0));
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean apply(Update update, long count) {
+        List<Entry> datasets = entries.get(update.key);
+        if (datasets == null || datasets.size() != 1) {
+            return false;
+        }
+        datasets.set(0, datasets.get(0).extend(update.phenomenonTime, count));
+        return true;
+    }
+
+    private void addEntry(Entry entry) {
+        List<String> key = entry.getKey();
+        entries.computeIfAbsent(key, k -> new LinkedList<>()).add(entry);
+        for (int i = 0; i < KEY_SIZE; i++) {
+            keysByIdentifier.get(i).computeIfAbsent(key.get(i), id -> new HashSet<>()).add(key);
+        }
+    }
+
+    private void clearEntries() {
+        entries.clear();
+        keysByIdentifier.forEach(Map::clear);
+    }
+
+    /**
+     * Returns the entries of all datasets matching the identifiers. Empty sets match all datasets.
+     *
+     * @param procedures
+     *                            the procedure identifiers
+     * @param observableProperties
+     *                            the observable property identifiers
+     * @param featuresOfInterest
+     *                            the feature identifiers
+     * @param offerings
+     *                            the offering identifiers
+     *
+     * @return the matching entries
+     */
+    public List<Entry> query(Set<String> procedures, Set<String> observableProperties,
+            Set<String> featuresOfInterest, Set<String> offerings) {
+        List<Set<String>> filters = Arrays.asList(procedures, observableProperties, featuresOfInterest, offerings);
+        lock.readLock().lock();
+        try {
+            // start with the datasets of the most selective filter
+            Collection<List<String>> candidates = entries.keySet();
+            for (int i = 0; i < KEY_SIZE; i++) {
+                Set<String> filter = filters.get(i);
+                if (filter != null && !filter.isEmpty()) {
+                    Set<List<String>> keys = new HashSet<>();
+                    for (String identifier : filter) {
+                        keys.addAll(keysByIdentifier.get(i).getOrDefault(identifier, Collections.emptySet()));
+                    }
+                    if (keys.size() < candidates.size()) {
+                        candidates = keys;
+                    }
+                }
+            }
+            List<Entry> matching = new LinkedList<>();
+            for (List<String> key : candidates) {
+                if (matches(filters, key)) {
+                    matching.addAll(entries.get(key));
+                }
+            }
+            return matching;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean matches(List<Set<String>> filters, List<String> key) {
+        for (int i = 0; i < KEY_SIZE; i++) {
+            Set<String> filter = filters.get(i);
+            if (filter != null && !filter.isEmpty() && !filter.contains(key.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The availability of a single dataset. Entries are immutable, updates replace them.
+     */
+    public static final class Entry {
+        private final ReferenceType procedure;
+        private final ReferenceType observableProperty;
+        private final ReferenceType featureOfInterest;
+        private final ReferenceType offering;
+        private final String procedureDescriptionFormat;
+        private final DateTime start;
+        private final DateTime end;
+        private final long count;
+
+        /**
+         * @param procedure
+         *                                   the procedure, identifier as href and name as title
+         * @param observableProperty
+         *                                   the observable property
+         * @param featureOfInterest
+         *                                   the feature of interest
+         * @param offering
+         *                                   the offering
+         * @param procedureDescriptionFormat
+         *                                   the description format of the procedure
+         * @param start
+         *                                   the time of the first value, {@code null} if the dataset is empty
+         * @param end
+         *                                   the time of the last value, {@code null} if the dataset is empty
+         * @param count
+         *                                   the number of observations, or a negative value if unknown
+         */
+        public Entry(ReferenceType procedure, ReferenceType observableProperty, ReferenceType featureOfInterest,
+                ReferenceType offering, String procedureDescriptionFormat, DateTime start, DateTime end,
+                long count) {
+            this.procedure = procedure;
+            this.observableProperty = observableProperty;
+            this.featureOfInterest = featureOfInterest;
+            this.offering = offering;
+            this.procedureDescriptionFormat = procedureDescriptionFormat;
+            this.start = start;
+            this.end = end;
+            this.count = count;
+        }
+
+        public ReferenceType getProcedure() {
+            return procedure;
+        }
+
+        public ReferenceType getObservableProperty() {
+            return observableProperty;
+        }
+
+        public ReferenceType getFeatureOfInterest() {
+            return featureOfInterest;
+        }
+
+        public ReferenceType getOffering() {
+            return offering;
+        }
+
+        public String getProcedureDescriptionFormat() {
+            return procedureDescriptionFormat;
+        }
+
+        public DateTime getStart() {
+            return start;
+        }
+
+        public DateTime getEnd() {
+            return end;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        List<String> getKey() {
+            return Arrays.asList(procedure.getHref(), observableProperty.getHref(), featureOfInterest.getHref(),
+                    offering.getHref());
+        }
+
+        Entry extend(Time phenomenonTime, long inserted) {
+            DateTime newStart = start;
+            DateTime newEnd = end;
+            for (DateTime time : getBounds(phenomenonTime)) {
+                if (time != null) {
+                    newStart = newStart == null || time.isBefore(newStart) ? time : newStart;
+                    newEnd = newEnd == null || time.isAfter(newEnd) ? time : newEnd;
+                }
+            }
+            return new Entry(procedure, observableProperty, featureOfInterest, offering, procedureDescriptionFormat,
+                    newStart, newEnd, count < 0 || inserted < 0 ? -1 : count + inserted);
+        }
+
+        private static List<DateTime> getBounds(Time time) {
+            if (time instanceof TimeInstant) {
+                return Collections.singletonList(((TimeInstant) time).getValue());
+            } else if (time instanceof TimePeriod) {
+                return Arrays.asList(((TimePeriod) time).getStart(), ((TimePeriod) time).getEnd());
+            }
+            return Collections.emptyList();
+        }
+    }
+
+    private enum State {
+        EMPTY, BUILDING, READY
+    }
+
+    /**
+     * An insertion into a dataset.
+     */
+    private static final class Update {
+        private final List<String> key;
+        private final Time phenomenonTime;
+        private final long count;
+
+        Update(List<String> key, Time phenomenonTime, long count) {
+            this.key = key;
+            this.phenomenonTime = phenomenonTime;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory spatial index of the envelopes of the stored features of interest. It is used to preselect candidate
+ * features for spatial filters on non-spatial datasources before any feature is loaded.
+ * <p>
+ * The envelopes are held in a bulk loaded {@link STRtree}. As such a tree can not be modified after it was built,
+ * envelopes added later are kept in a small pending map that is searched linearly and merged into a new tree once
+ * it grows beyond {@link #REBUILD_THRESHOLD} entries or a tenth of the index.
+ * <p>
+ * The index is built by the datasource in the background with the envelopes of the stored geometries (see
+ * {@link #startBuild()} and {@link #completeBuild(Map)}). The new content is swapped in at once, until then the
+ * previous content is served. Cache updates that insert features only mark their identifiers as unresolved, as the
+ * geometries of the requests may differ from the stored ones; the datasource resolves them before the next query.
+ *
+ * @since 5.0.2
+ */
+public class FeatureSpatialIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(FeatureSpatialIndex.class);
+    private static final int REBUILD_THRESHOLD = 1024;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Envelope> envelopes = new HashMap<>();
+    private final Map<String, Envelope> pending = new HashMap<>();
+    private final Set<String> stale = new HashSet<>();
+    private final Set<String> unresolved = new HashSet<>();
+    private final Set<String> modifiedDuringBuild = new HashSet<>();
+    private STRtree tree = emptyTree();
+    private boolean initialized;
+    private boolean outdated;
+    private boolean building;
+
+    /**
+     * @return {@code true} if the index was built with all stored features
+     */
+    public boolean isInitialized() {
+        lock.readLock().lock();
+        try {
+            return initialized;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Starts a build of the index if it was never built or is outdated and no build is running. Only the caller
+     * that gets {@code true} loads the envelopes and has to call {@link #completeBuild(Map)} or
+     * {@link #abortBuild()}.
+     *
+     * @return {@code true} if the caller has to build the index
+     */
+    public boolean startBuild() {
+        lock.writeLock().lock();
+        try {
+            if (building || initialized && !outdated) {
+                return false;
+            }
+            building = true;
+            outdated = false;
+            modifiedDuringBuild.clear();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the content of the index with the envelopes of all stored features. Features that were inserted or
+     * resolved during the build may be missing in the envelopes or be outdated, so they are marked as unresolved.
+     *
+     * @param featureEnvelopes
+     *                         the envelopes per feature identifier, features without geometry may be omitted
+     *
+     * @return {@code true} if the index was built
+     */
+    public boolean completeBuild(Map<String, Envelope> featureEnvelopes) {
+        lock.writeLock().lock();
+        try {
+            if (!building) {
+                return false;
+            }
+            building = false;
+            envelopes.clear();
+            featureEnvelopes.forEach((identifier, envelope) -> {
+                if (envelope != null && !envelope.isNull()) {
+                    envelopes.put(identifier, envelope);
+                }
+            });
+            unresolved.clear();
+            unresolved.addAll(modifiedDuringBuild);
+            modifiedDuringBuild.clear();
+            rebuild();
+            initialized = true;
+            LOG.debug("Spatial index built with {} feature envelopes", envelopes.size());
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Aborts a failed build, so that the next caller of {@link #startBuild()} builds the index. The previous
+     * content is still served.
+     */
+    public void abortBuild() {
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                building = false;
+                outdated = true;
+                modifiedDuringBuild.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the content of the index as outdated, e.g. because the datasource may have been modified externally,
+     * so that it is built again. The current content is served until the new one is complete.
+     */
+    public void markOutdated() {
+        lock.writeLock().lock();
+        try {
+            outdated = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks features whose stored geometry is not known to the index, e.g. because they were just inserted. They
+     * are returned as candidates of every query until their envelope is {@link #put(String, Envelope) put}.
+     *
+     * @param identifiers
+     *                    the feature identifiers
+     */
+    public void invalidate(Collection<String> identifiers) {
+        lock.writeLock().lock();
+        try {
+            if (initialized) {
+                unresolved.addAll(identifiers);
+            }
+            if (building) {
+                modifiedDuringBuild.addAll(identifiers);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the identifiers of the features whose envelope has to be resolved
+     */
+    public Set<String> getUnresolved() {
+        lock.readLock().lock();
+        try {
+            return unresolved.isEmpty() ? Collections.emptySet() : new HashSet<>(unresolved);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces the envelope of a feature.
+     *
+     * @param identifier
+     *                   the feature identifier
+     * @param envelope
+     *                   the envelope of the stored geometry, or {@code null} if the feature has no geometry
+     */
+    public void put(String identifier, Envelope envelope) {
+        lock.writeLock().lock();
+        try {
+            unresolved.remove(identifier);
+            if (building) {
+                modifiedDuringBuild.add(identifier);
+            }
+            if (envelopes.containsKey(identifier)) {
+                stale.add(identifier);
+            }
+            pending.remove(identifier);
+            if (envelope == null || envelope.isNull()) {
+                envelopes.remove(identifier);
+            } else {
+                envelopes.put(identifier, envelope);
+                pending.put(identifier, envelope);
+            }
+            if (pending.size() + stale.size() > Math.max(REBUILD_THRESHOLD, envelopes.size() / 10)) {
+                rebuild();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the identifiers of all features whose envelope intersects the given envelope, and of all unresolved
+     * features. The result is a superset of the features matching the filter, the exact check is left to the
+     * caller.
+     *
+     * @param envelope
+     *                 the filter envelope
+     *
+     * @return the candidate feature identifiers
+     */
+    public Set<String> query(Envelope envelope) {
+        lock.readLock().lock();
+        try {
+            Set<String> candidates = new HashSet<>(unresolved);
+            for (Object item : tree.query(envelope)) {
+                String identifier = (String) item;
+                if (!stale.contains(identifier)) {
+                    candidates.add(identifier);
+                }
+            }
+            pending.forEach((identifier, featureEnvelope) -> {
+                if (featureEnvelope.intersects(envelope)) {
+                    candidates.add(identifier);
+                }
+            });
+            return candidates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void rebuild() {
+        STRtree newTree = emptyTree();
+        envelopes.forEach((identifier, envelope) -> newTree.insert(envelope, identifier));
+        // build now, as querying an unbuilt tree modifies it
+        newTree.build();
+        tree = newTree;
+        pending.clear();
+        stale.clear();
+    }
+
+    private static STRtree emptyTree() {
+        STRtree tree = new STRtree();
+        tree.build();
+        return tree;
+    }
+}
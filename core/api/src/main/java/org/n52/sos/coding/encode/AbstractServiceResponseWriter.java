@@ -28,8 +28,12 @@
  */
 package org.n52.sos.coding.encode;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Set;
 
@@ -39,9 +43,11 @@ import org.n52.iceland.coding.encode.ResponseWriter;
 import org.n52.iceland.coding.encode.ResponseWriterKey;
 import org.n52.iceland.coding.encode.ResponseWriterRepository;
 import org.n52.janmayen.http.MediaType;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.ows.service.OwsOperationKey;
 import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
 import org.n52.shetland.ogc.ows.service.ResponseFormat;
+import org.n52.sos.response.StreamingGetResultResponse;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.EncoderRepository;
 import org.n52.svalbard.encode.OperationResponseEncoderKey;
@@ -78,25 +84,81 @@ public class AbstractServiceResponseWriter extends AbstractResponseWriter<OwsSer
             throws IOException, EncodingException {
         Encoder<Object, OwsServiceResponse> encoder = getEncoder(asr);
         if (encoder != null) {
-            if (encoder instanceof StreamingEncoder) {
-                ((StreamingEncoder<?, OwsServiceResponse>) encoder).encode(asr, out);
+            if (isStreamingResultValues(asr)) {
+                writeStreamingResultValues(encoder, (StreamingGetResultResponse) asr, out, responseProxy);
             } else {
-                // use encoded Object specific writer, e.g. XmlResponseWriter
-                Object encode = encoder.encode(asr);
-                if (encode != null) {
-                    ResponseWriter<Object> writer = this.responseWriterRepository.getWriter(encode.getClass());
-                    if (writer == null) {
-                        throw new RuntimeException("no writer for " + encode.getClass() + " found!");
-                    }
-                    writer.write(encode, out, responseProxy);
+                write(encoder, asr, out, responseProxy);
+            }
+        }
+    }
+
+    private void write(Encoder<Object, OwsServiceResponse> encoder, OwsServiceResponse asr, OutputStream out,
+            ResponseProxy responseProxy) throws IOException, EncodingException {
+        if (encoder instanceof StreamingEncoder) {
+            ((StreamingEncoder<?, OwsServiceResponse>) encoder).encode(asr, out);
+        } else {
+            // use encoded Object specific writer, e.g. XmlResponseWriter
+            Object encode = encoder.encode(asr);
+            if (encode != null) {
+                ResponseWriter<Object> writer = this.responseWriterRepository.getWriter(encode.getClass());
+                if (writer == null) {
+                    throw new RuntimeException("no writer for " + encode.getClass() + " found!");
                 }
+                writer.write(encode, out, responseProxy);
             }
         }
     }
 
+    /**
+     * Encode the response with a placeholder for the result values and write
+     * the result values in place of the placeholder while they are created.
+     * If the placeholder is not found in the UTF-8 encoded document, the
+     * response is written with the complete result values.
+     */
+    private void writeStreamingResultValues(Encoder<Object, OwsServiceResponse> encoder,
+            StreamingGetResultResponse response, OutputStream out, ResponseProxy responseProxy)
+            throws IOException, EncodingException {
+        ByteArrayOutputStream document = new ByteArrayOutputStream();
+        byte[] placeholder = response.startStreaming().getBytes(StandardCharsets.UTF_8);
+        try {
+            write(encoder, response, document, responseProxy);
+        } finally {
+            response.stopStreaming();
+        }
+        byte[] bytes = document.toByteArray();
+        int index = indexOf(bytes, placeholder);
+        if (index < 0) {
+            write(encoder, response, out, responseProxy);
+            return;
+        }
+        out.write(bytes, 0, index);
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        try {
+            response.writeResultValues(new XmlTextAppendable(writer));
+        } catch (OwsExceptionReport owse) {
+            throw new EncodingException("Error while creating result values!", owse);
+        }
+        writer.flush();
+        int end = index + placeholder.length;
+        out.write(bytes, end, bytes.length - end);
+    }
+
+    private static int indexOf(byte[] bytes, byte[] search) {
+        for (int i = 0; i <= bytes.length - search.length; i++) {
+            int j = 0;
+            while (j < search.length && bytes[i + j] == search[j]) {
+                j++;
+            }
+            if (j == search.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     @Override
     public boolean supportsGZip(OwsServiceResponse asr) {
-        return !isStreaming(asr);
+        return !isStreaming(asr) && !isStreamingResultValues(asr);
     }
 
     /**
@@ -140,6 +202,25 @@ public class AbstractServiceResponseWriter extends AbstractResponseWriter<OwsSer
         return getEncoder(getEncoderKey(asr)) instanceof StreamingEncoder;
     }
 
+    /**
+     * Check if the result values of a GetResult response can be written in
+     * place to an XML document
+     *
+     * @param asr
+     *            {@link OwsServiceResponse} to check
+     * @return <code>true</code>, if the response has a result values writer
+     *         and is encoded as XML
+     */
+    private boolean isStreamingResultValues(OwsServiceResponse asr) {
+        if (asr instanceof StreamingGetResultResponse
+                && ((StreamingGetResultResponse) asr).isSetResultValuesWriter()) {
+            MediaType contentType = getEncodedContentType(asr);
+            return contentType != null
+                    && ("xml".equals(contentType.getSubtype()) || contentType.getSubtype().endsWith("+xml"));
+        }
+        return false;
+    }
+
     @Override
     public Set<ResponseWriterKey> getKeys() {
         return Collections.singleton(KEY);
@@ -149,4 +230,49 @@ public class AbstractServiceResponseWriter extends AbstractResponseWriter<OwsSer
         OperationResponseEncoderKey key = new OperationResponseEncoderKey(new OwsOperationKey(asr), getEncodedContentType(asr));
         return key;
     }
+
+    /**
+     * Escapes the characters of XML text content.
+     */
+    private static class XmlTextAppendable implements Appendable {
+        private final Appendable out;
+
+        XmlTextAppendable(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            for (int i = start; i < end; i++) {
+                append(csq.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            switch (c) {
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '\r':
+                    out.append("&#13;");
+                    break;
+                default:
+                    out.append(c);
+            }
+            return this;
+        }
+    }
 }
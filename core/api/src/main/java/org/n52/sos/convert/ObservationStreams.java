@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.convert;
+
+import java.util.Objects;
+
+import org.n52.janmayen.AbstractThrowingIterator;
+import org.n52.janmayen.function.ThrowingFunction;
+import org.n52.shetland.ogc.om.ObservationMergeIndicator;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.response.AbstractStreaming;
+
+/**
+ * Lazy operations on {@link ObservationStream}s for {@link org.n52.iceland.convert.RequestResponseModifier}s. The
+ * returned streams pull from their source only when they are consumed, e.g. by the response encoder, so a streamed
+ * response passes a modifier without being held in memory. Use {@link ObservationStream#modify} for in place
+ * modifications of single observations.
+ *
+ * @since 5.0.2
+ */
+public final class ObservationStreams {
+
+    private ObservationStreams() {
+    }
+
+    /**
+     * Replace each observation by the observations of the returned stream.
+     *
+     * @param stream
+     *            the source stream
+     * @param mapper
+     *            the function returning the observations to replace an observation with, may return {@code null}
+     *            to drop the observation
+     * @return the lazy stream
+     */
+    public static ObservationStream flatMap(ObservationStream stream,
+            ThrowingFunction<OmObservation, ObservationStream, OwsExceptionReport> mapper) {
+        return new FlatMappingObservationStream(stream, mapper);
+    }
+
+    /**
+     * Replace each observation with an {@link AbstractStreaming} value by the observations merged from the
+     * streaming value. Other observations are passed unchanged.
+     * <p>
+     * The streaming values are merged one after the other while the returned stream is consumed. Merging drains
+     * a streaming value, so the values of the current series are held in memory until the next series is merged,
+     * but never the values of all series at once.
+     *
+     * @param stream
+     *            the source stream
+     * @param indicator
+     *            the indicator to merge the values of streaming observations with
+     * @return the lazy stream
+     */
+    public static ObservationStream unfoldStreamingValues(ObservationStream stream,
+            ObservationMergeIndicator indicator) {
+        return flatMap(stream, observation -> {
+            if (observation.getValue() instanceof AbstractStreaming) {
+                return ((AbstractStreaming) observation.getValue()).merge(indicator);
+            }
+            return ObservationStream.of(observation);
+        });
+    }
+
+    /**
+     * Append the stream returned by {@code next} to {@code stream}. {@code next} is called once {@code stream} is
+     * exhausted, so it may depend on side effects of consuming {@code stream}.
+     *
+     * @param stream
+     *            the first stream
+     * @param next
+     *            the supplier of the second stream
+     * @return the lazy stream
+     */
+    public static ObservationStream concat(ObservationStream stream, StreamSupplier next) {
+        return new ConcatenatingObservationStream(stream, next);
+    }
+
+    /**
+     * Supplier of a deferred {@link ObservationStream}.
+     */
+    @FunctionalInterface
+    public interface StreamSupplier {
+        ObservationStream get() throws OwsExceptionReport;
+    }
+
+    private static final class FlatMappingObservationStream
+            extends AbstractThrowingIterator<OmObservation, OwsExceptionReport> implements ObservationStream {
+        private final ObservationStream source;
+        private final ThrowingFunction<OmObservation, ObservationStream, OwsExceptionReport> mapper;
+        private ObservationStream current;
+
+        FlatMappingObservationStream(ObservationStream source,
+                ThrowingFunction<OmObservation, ObservationStream, OwsExceptionReport> mapper) {
+            this.source = Objects.requireNonNull(source);
+            this.mapper = Objects.requireNonNull(mapper);
+        }
+
+        @Override
+        protected OmObservation computeNext() throws OwsExceptionReport {
+            while (current == null || !current.hasNext()) {
+                if (!source.hasNext()) {
+                    return endOfData();
+                }
+                current = mapper.apply(source.next());
+            }
+            return current.next();
+        }
+    }
+
+    private static final class ConcatenatingObservationStream
+            extends AbstractThrowingIterator<OmObservation, OwsExceptionReport> implements ObservationStream {
+        private final StreamSupplier next;
+        private ObservationStream current;
+        private boolean appended;
+
+        ConcatenatingObservationStream(ObservationStream first, StreamSupplier next) {
+            this.current = Objects.requireNonNull(first);
+            this.next = Objects.requireNonNull(next);
+        }
+
+        @Override
+        protected OmObservation computeNext() throws OwsExceptionReport {
+            while (current == null || !current.hasNext()) {
+                if (appended) {
+                    return endOfData();
+                }
+                current = next.get();
+                appended = true;
+            }
+            return current.next();
+        }
+    }
+}
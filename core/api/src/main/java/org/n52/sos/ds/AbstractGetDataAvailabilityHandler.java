@@ -59,6 +59,7 @@ public abstract class AbstractGetDataAvailabilityHandler extends AbstractOperati
     public static final String SHOW_COUNT = "ShowCount";
     private boolean forceValueCount = false;
     private boolean forceGDAv20Response = true;
+    private boolean fromCache = false;
 
     public AbstractGetDataAvailabilityHandler(String service) {
         super(service, GetDataAvailabilityConstants.OPERATION_NAME);
@@ -117,6 +118,18 @@ public abstract class AbstractGetDataAvailabilityHandler extends AbstractOperati
         this.forceGDAv20Response = forceGDAv20Response;
     }
 
+    /**
+     * @return if requests should be answered from the data availability index
+     */
+    protected boolean isFromCache() {
+        return fromCache;
+    }
+
+    @Setting(GetDataAvailabilitySettings.GDA_FROM_CACHE)
+    public void setFromCache(boolean fromCache) {
+        this.fromCache = fromCache;
+    }
+
     @Override
     public Set<String> getConformanceClasses(String service, String version) {
         return Sets.newHashSet(ResultFilterConstants.CONFORMANCE_CLASS_RF, SosSpatialFilterConstants.CONFORMANCE_CLASS_SF);
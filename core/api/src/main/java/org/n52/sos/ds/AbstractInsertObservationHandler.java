@@ -60,6 +60,37 @@ public abstract class AbstractInsertObservationHandler extends AbstractOperation
     public abstract InsertObservationResponse insertObservation(InsertObservationRequest request)
             throws OwsExceptionReport;
 
+    /**
+     * Check if {@link #insertObservation(InsertObservationRequest)} only queues the request. The handler then
+     * publishes the {@link org.n52.sos.event.events.ObservationInsertion} itself after the observations are
+     * committed.
+     *
+     * @param request
+     *            the request
+     * @return if the request is inserted asynchronously
+     */
+    public boolean isWriteBehind(InsertObservationRequest request) {
+        return false;
+    }
+
+    /**
+     * Insert the observations of the request or only queue them, as decided by a preceding call of
+     * {@link #isWriteBehind(InsertObservationRequest)}, so that the request is handled as announced even if the
+     * configuration changed in between.
+     *
+     * @param request
+     *            the request
+     * @param writeBehind
+     *            the result of {@link #isWriteBehind(InsertObservationRequest)} for the request
+     * @return the response
+     * @throws OwsExceptionReport
+     *             if the request could not be inserted or queued
+     */
+    public InsertObservationResponse insertObservation(InsertObservationRequest request, boolean writeBehind)
+            throws OwsExceptionReport {
+        return insertObservation(request);
+    }
+
     @Override
     protected Set<OwsDomain> getOperationParameters(String service, String version) throws OwsExceptionReport {
         return new HashSet<>(Arrays.asList(
@@ -55,6 +55,36 @@ public abstract class AbstractInsertResultHandler extends AbstractResultHandling
 
     public abstract InsertResultResponse insertResult(InsertResultRequest request) throws OwsExceptionReport;
 
+    /**
+     * Check if {@link #insertResult(InsertResultRequest)} only queues the request. The handler then publishes the
+     * {@link org.n52.sos.event.events.ResultInsertion} itself after the observations are committed.
+     *
+     * @param request
+     *            the request
+     * @return if the request is inserted asynchronously
+     */
+    public boolean isWriteBehind(InsertResultRequest request) {
+        return false;
+    }
+
+    /**
+     * Insert the result values of the request or only queue them, as decided by a preceding call of
+     * {@link #isWriteBehind(InsertResultRequest)}, so that the request is handled as announced even if the
+     * configuration changed in between.
+     *
+     * @param request
+     *            the request
+     * @param writeBehind
+     *            the result of {@link #isWriteBehind(InsertResultRequest)} for the request
+     * @return the response
+     * @throws OwsExceptionReport
+     *             if the request could not be inserted or queued
+     */
+    public InsertResultResponse insertResult(InsertResultRequest request, boolean writeBehind)
+            throws OwsExceptionReport {
+        return insertResult(request);
+    }
+
     @Override
     protected Set<OwsDomain> getOperationParameters(String service, String version) throws OwsExceptionReport {
         return new HashSet<>(Arrays.asList(
@@ -39,4 +39,18 @@ public interface DeleteDeletedObservationDAO {
 
     void deleteDeletedObservations() throws OwsExceptionReport;
 
+    /**
+     * Delete the deleted observations and report the progress. Implementations should check
+     * {@link DeleteDeletedObservationsProgress#isCancelRequested()} regularly and return early if it is set.
+     *
+     * @param progress
+     *            the progress to report to
+     *
+     * @throws OwsExceptionReport
+     *             if the deletion fails
+     */
+    default void deleteDeletedObservations(DeleteDeletedObservationsProgress progress) throws OwsExceptionReport {
+        deleteDeletedObservations();
+    }
+
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.DateTime;
+
+/**
+ * Progress of a {@link DeleteDeletedObservationDAO#deleteDeletedObservations(DeleteDeletedObservationsProgress)} run.
+ * The DAO reports the processed datasets and deleted observations and checks {@link #isCancelRequested()} between
+ * chunks, the caller marks the run as started, finished or failed. All methods are thread safe.
+ *
+ * @since 5.0.2
+ */
+public class DeleteDeletedObservationsProgress {
+
+    /**
+     * The state of a run.
+     */
+    public enum State {
+        PENDING, RUNNING, FINISHED, CANCELLED, FAILED
+    }
+
+    private final AtomicLong deletedObservations = new AtomicLong();
+    private final AtomicInteger processedDatasets = new AtomicInteger();
+    private volatile int datasets;
+    private volatile State state = State.PENDING;
+    private volatile boolean cancelRequested;
+    private volatile DateTime start;
+    private volatile DateTime end;
+    private volatile String error;
+
+    public void start() {
+        this.start = DateTime.now();
+        this.state = State.RUNNING;
+    }
+
+    public void finish() {
+        this.end = DateTime.now();
+        this.state = cancelRequested ? State.CANCELLED : State.FINISHED;
+    }
+
+    public void fail(Throwable cause) {
+        this.end = DateTime.now();
+        this.error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getName();
+        this.state = State.FAILED;
+    }
+
+    /**
+     * Request the cancellation of the run. The run stops after the current chunk.
+     */
+    public void cancel() {
+        this.cancelRequested = true;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public void setDatasets(int datasets) {
+        this.datasets = datasets;
+    }
+
+    public void datasetProcessed() {
+        processedDatasets.incrementAndGet();
+    }
+
+    public void observationsDeleted(long count) {
+        deletedObservations.addAndGet(count);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isRunning() {
+        return state == State.PENDING || state == State.RUNNING;
+    }
+
+    public int getDatasets() {
+        return datasets;
+    }
+
+    public int getProcessedDatasets() {
+        return processedDatasets.get();
+    }
+
+    public long getDeletedObservations() {
+        return deletedObservations.get();
+    }
+
+    public DateTime getStart() {
+        return start;
+    }
+
+    public DateTime getEnd() {
+        return end;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
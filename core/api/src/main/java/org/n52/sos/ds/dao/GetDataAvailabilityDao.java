@@ -28,6 +28,7 @@
  */
 package org.n52.sos.ds.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -46,6 +47,24 @@ public interface GetDataAvailabilityDao extends DefaultDao {
 
     List<TimeInstant> getResultTimes(DataAvailability dataAvailability, GetDataAvailabilityRequest request) throws OwsExceptionReport;
 
+    /**
+     * Get the result times of the datasets with one grouped query per chunk of
+     * datasets.
+     *
+     * @param datasets
+     *            the ids of the datasets
+     * @param request
+     *            the GetDataAvailability request
+     * @param connection
+     *            the session of the request
+     * @return the ascending result times per dataset id, datasets without
+     *         matching observations are not contained
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    Map<Long, List<TimeInstant>> getResultTimes(Collection<Long> datasets, GetDataAvailabilityRequest request,
+            Object connection) throws OwsExceptionReport;
+
     Map<String, NamedValue<?>> getMetadata(DataAvailability dataAvailability) throws OwsExceptionReport;
 
 }
@@ -28,14 +28,15 @@
  */
 package org.n52.sos.request.operator;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -44,7 +45,6 @@ import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.cache.ContentCacheController;
 import org.n52.iceland.convert.ConverterRepository;
-import org.n52.iceland.convert.RequestResponseModifier;
 import org.n52.iceland.convert.RequestResponseModifierRepository;
 import org.n52.iceland.event.events.RequestEvent;
 import org.n52.iceland.event.events.ResponseEvent;
@@ -55,7 +55,9 @@ import org.n52.iceland.request.handler.OperationHandlerRepository;
 import org.n52.iceland.request.operator.RequestOperator;
 import org.n52.iceland.request.operator.RequestOperatorKey;
 import org.n52.iceland.service.operator.ServiceOperatorRepository;
+import org.n52.janmayen.event.Event;
 import org.n52.janmayen.event.EventBus;
+import org.n52.janmayen.event.EventListener;
 import org.n52.shetland.ogc.filter.BinaryLogicFilter;
 import org.n52.shetland.ogc.filter.ComparisonFilter;
 import org.n52.shetland.ogc.filter.Filter;
@@ -95,6 +97,7 @@ import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.coding.encode.ProcedureDescriptionFormatRepository;
 import org.n52.sos.coding.encode.ResponseFormatRepository;
+import org.n52.sos.event.events.ServiceConfigurationChanged;
 import org.n52.sos.exception.ows.concrete.InvalidResponseFormatParameterException;
 import org.n52.sos.exception.ows.concrete.InvalidValueReferenceException;
 import org.n52.sos.exception.ows.concrete.MissingProcedureParameterException;
@@ -123,7 +126,7 @@ import com.google.common.collect.Sets;
  */
 @Configurable
 public abstract class AbstractRequestOperator<D extends OperationHandler, Q extends OwsServiceRequest, A extends OwsServiceResponse>
-        implements RequestOperator {
+        implements RequestOperator, EventListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractRequestOperator.class);
 
     public static final String EXPOSE_CHILD_OBSERVABLE_PROPERTIES = "service.exposeChildObservableProperties";
@@ -151,6 +154,11 @@ public abstract class AbstractRequestOperator<D extends OperationHandler, Q exte
     private ResponseFormatRepository responseFormatRepository;
     private ConverterRepository converterRepository;
     private EncoderRepository encoderRepository;
+    private final Map<RequestResponseModifierChain.Key, RequestResponseModifierChain> requestModifierChains =
+            new ConcurrentHashMap<>();
+    private final Map<RequestResponseModifierChain.Key, RequestResponseModifierChain> responseModifierChains =
+            new ConcurrentHashMap<>();
+    private final RequestResponseModifierTimings modifierTimings = new RequestResponseModifierTimings();
 
     public AbstractRequestOperator(String service,
                                    String version,
@@ -182,6 +190,7 @@ public abstract class AbstractRequestOperator<D extends OperationHandler, Q exte
     @Inject
     public void setRequestResponseModifierRepository(RequestResponseModifierRepository repo) {
         this.requestResponseModifierRepository = repo;
+        invalidateModifierChains();
     }
 
     public RequestResponseModifierRepository getRequestResponseModifierRepository() {
@@ -337,66 +346,68 @@ public abstract class AbstractRequestOperator<D extends OperationHandler, Q exte
     }
 
     private void checkForModifierAndProcess(OwsServiceRequest request) throws OwsExceptionReport {
-        if (this.requestResponseModifierRepository.hasRequestResponseModifier(request)) {
-            List<RequestResponseModifier> splitter = new ArrayList<>();
-            List<RequestResponseModifier> remover = new ArrayList<>();
-            List<RequestResponseModifier> defaultMofifier = new ArrayList<>();
-            for (RequestResponseModifier modifier : this.requestResponseModifierRepository.getRequestResponseModifier(request)) {
-                if (modifier.getFacilitator().isSplitter()) {
-                    splitter.add(modifier);
-                } else if (modifier.getFacilitator().isAdderRemover()) {
-                    remover.add( modifier);
-                } else {
-                    defaultMofifier.add(modifier);
-                }
-            }
-            // execute adder/remover
-            for (RequestResponseModifier modifier : remover) {
-                modifier.modifyRequest(request);
-            }
-            // execute default
-            for (RequestResponseModifier modifier : defaultMofifier) {
-                modifier.modifyRequest(request);
-            }
-            // execute splitter
-            for (RequestResponseModifier modifier : splitter) {
-                modifier.modifyRequest(request);
-            }
+        RequestResponseModifierChain chain = requestModifierChains.computeIfAbsent(
+                new RequestResponseModifierChain.Key(request), key -> createRequestModifierChain(request));
+        if (!chain.isEmpty()) {
+            chain.modifyRequest(request, modifierTimings);
         }
     }
 
     private OwsServiceResponse checkForModifierAndProcess(OwsServiceRequest request,
             OwsServiceResponse response) throws OwsExceptionReport {
-        if (this.requestResponseModifierRepository.hasRequestResponseModifier(request, response)) {
-            List<RequestResponseModifier> defaultModifier = new ArrayList<>();
-            List<RequestResponseModifier> remover = new ArrayList<>();
-            List<RequestResponseModifier> merger = new ArrayList<>();
-            for (RequestResponseModifier modifier : this.requestResponseModifierRepository.getRequestResponseModifier(request, response)) {
-                if (modifier.getFacilitator().isMerger()) {
-                    merger.add(modifier);
-                } else if (modifier.getFacilitator().isAdderRemover()) {
-                    remover.add(modifier);
-                } else {
-                    defaultModifier.add(modifier);
-                }
+        RequestResponseModifierChain chain = responseModifierChains.computeIfAbsent(
+                new RequestResponseModifierChain.Key(request, response),
+                key -> createResponseModifierChain(request, response));
+        if (!chain.isEmpty()) {
+            chain.modifyResponse(request, response, modifierTimings);
+        }
+        return response;
+    }
 
-            }
-            // execute merger
-            for (RequestResponseModifier modifier : merger) {
-                modifier.modifyResponse(request, response);
-            }
-            // execute default
-            for (RequestResponseModifier modifier : defaultModifier) {
-                modifier.modifyResponse(request, response);
-            }
+    private RequestResponseModifierChain createRequestModifierChain(OwsServiceRequest request) {
+        if (this.requestResponseModifierRepository.hasRequestResponseModifier(request)) {
+            return RequestResponseModifierChain
+                    .forRequest(this.requestResponseModifierRepository.getRequestResponseModifier(request));
+        }
+        return RequestResponseModifierChain.EMPTY;
+    }
 
-            // execute adder/remover
-            for (RequestResponseModifier modifier : remover) {
-                modifier.modifyResponse(request, response);
-            }
-            return response;
+    private RequestResponseModifierChain createResponseModifierChain(OwsServiceRequest request,
+            OwsServiceResponse response) {
+        if (this.requestResponseModifierRepository.hasRequestResponseModifier(request, response)) {
+            return RequestResponseModifierChain.forResponse(
+                    this.requestResponseModifierRepository.getRequestResponseModifier(request, response));
         }
-        return response;
+        return RequestResponseModifierChain.EMPTY;
+    }
+
+    /**
+     * Discard the cached modifier chains, e.g. after the modifiers of the
+     * {@link RequestResponseModifierRepository} changed or the service
+     * configuration was changed in the administration interface. The chains
+     * are resolved again on the next request.
+     */
+    public void invalidateModifierChains() {
+        this.requestModifierChains.clear();
+        this.responseModifierChains.clear();
+    }
+
+    /**
+     * @return the invocation counts and execution times of the request and
+     *         response modifiers applied by this operator
+     */
+    public RequestResponseModifierTimings getModifierTimings() {
+        return modifierTimings;
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return Collections.singleton(ServiceConfigurationChanged.class);
+    }
+
+    @Override
+    public void handle(Event event) {
+        invalidateModifierChains();
     }
 
     protected abstract A receive(Q request) throws OwsExceptionReport;
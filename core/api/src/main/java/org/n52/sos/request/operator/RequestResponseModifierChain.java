@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.n52.iceland.convert.RequestResponseModifier;
+import org.n52.iceland.convert.RequestResponseModifierFacilitator;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+
+/**
+ * The ordered {@link RequestResponseModifier}s to apply to a request or response. The modifiers are classified by
+ * their {@link RequestResponseModifierFacilitator} once when the chain is created: requests are modified by
+ * adders/removers, then the default modifiers and finally the splitters; responses by mergers, then the default
+ * modifiers and finally the adders/removers.
+ *
+ * @since 5.0.2
+ */
+final class RequestResponseModifierChain {
+    static final RequestResponseModifierChain EMPTY = new RequestResponseModifierChain(Collections.emptyList());
+
+    private final List<RequestResponseModifier> modifiers;
+
+    private RequestResponseModifierChain(List<RequestResponseModifier> modifiers) {
+        this.modifiers = modifiers;
+    }
+
+    List<RequestResponseModifier> getModifiers() {
+        return Collections.unmodifiableList(modifiers);
+    }
+
+    boolean isEmpty() {
+        return modifiers.isEmpty();
+    }
+
+    void modifyRequest(OwsServiceRequest request, RequestResponseModifierTimings timings)
+            throws OwsExceptionReport {
+        for (RequestResponseModifier modifier : modifiers) {
+            long start = System.nanoTime();
+            try {
+                modifier.modifyRequest(request);
+            } finally {
+                timings.record(modifier, System.nanoTime() - start);
+            }
+        }
+    }
+
+    void modifyResponse(OwsServiceRequest request, OwsServiceResponse response,
+            RequestResponseModifierTimings timings) throws OwsExceptionReport {
+        for (RequestResponseModifier modifier : modifiers) {
+            long start = System.nanoTime();
+            try {
+                modifier.modifyResponse(request, response);
+            } finally {
+                timings.record(modifier, System.nanoTime() - start);
+            }
+        }
+    }
+
+    static RequestResponseModifierChain forRequest(Iterable<RequestResponseModifier> modifiers) {
+        List<RequestResponseModifier> splitter = new ArrayList<>();
+        List<RequestResponseModifier> remover = new ArrayList<>();
+        List<RequestResponseModifier> defaultModifier = new ArrayList<>();
+        for (RequestResponseModifier modifier : modifiers) {
+            RequestResponseModifierFacilitator facilitator = modifier.getFacilitator();
+            if (facilitator.isSplitter()) {
+                splitter.add(modifier);
+            } else if (facilitator.isAdderRemover()) {
+                remover.add(modifier);
+            } else {
+                defaultModifier.add(modifier);
+            }
+        }
+        return of(remover, defaultModifier, splitter);
+    }
+
+    static RequestResponseModifierChain forResponse(Iterable<RequestResponseModifier> modifiers) {
+        List<RequestResponseModifier> merger = new ArrayList<>();
+        List<RequestResponseModifier> remover = new ArrayList<>();
+        List<RequestResponseModifier> defaultModifier = new ArrayList<>();
+        for (RequestResponseModifier modifier : modifiers) {
+            RequestResponseModifierFacilitator facilitator = modifier.getFacilitator();
+            if (facilitator.isMerger()) {
+                merger.add(modifier);
+            } else if (facilitator.isAdderRemover()) {
+                remover.add(modifier);
+            } else {
+                defaultModifier.add(modifier);
+            }
+        }
+        return of(merger, defaultModifier, remover);
+    }
+
+    @SafeVarargs
+    private static RequestResponseModifierChain of(List<RequestResponseModifier>... stages) {
+        List<RequestResponseModifier> modifiers = new ArrayList<>();
+        for (List<RequestResponseModifier> stage : stages) {
+            modifiers.addAll(stage);
+        }
+        return modifiers.isEmpty() ? EMPTY : new RequestResponseModifierChain(modifiers);
+    }
+
+    /**
+     * The key a chain is cached under: the service, version and the types of request and response.
+     */
+    static final class Key {
+        private final String service;
+        private final String version;
+        private final Class<?> requestType;
+        private final Class<?> responseType;
+
+        Key(OwsServiceRequest request) {
+            this(request, null);
+        }
+
+        Key(OwsServiceRequest request, OwsServiceResponse response) {
+            this.service = request.getService();
+            this.version = request.getVersion();
+            this.requestType = request.getClass();
+            this.responseType = response == null ? null : response.getClass();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(service, version, requestType, responseType);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return Objects.equals(service, that.service) && Objects.equals(version, that.version)
+                    && Objects.equals(requestType, that.requestType)
+                    && Objects.equals(responseType, that.responseType);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.n52.iceland.convert.RequestResponseModifier;
+
+/**
+ * Invocation counters and accumulated execution times of {@link RequestResponseModifier}s, keyed by the class name
+ * of the modifier.
+ *
+ * @since 5.0.2
+ */
+public class RequestResponseModifierTimings {
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    void record(RequestResponseModifier modifier, long nanos) {
+        counters.computeIfAbsent(modifier.getClass().getName(), k -> new Counter()).record(nanos);
+    }
+
+    /**
+     * @return a snapshot of the timings, sorted by the class name of the modifier
+     */
+    public Map<String, Timing> getTimings() {
+        Map<String, Timing> timings = new TreeMap<>();
+        counters.forEach((name, counter) -> timings.put(name, counter.toTiming()));
+        return Collections.unmodifiableMap(timings);
+    }
+
+    public void reset() {
+        counters.clear();
+    }
+
+    private static final class Counter {
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+        void record(long duration) {
+            invocations.increment();
+            nanos.add(duration);
+            maxNanos.accumulate(duration);
+        }
+
+        Timing toTiming() {
+            return new Timing(invocations.sum(), nanos.sum(), maxNanos.get());
+        }
+    }
+
+    /**
+     * The timing of a single modifier.
+     */
+    public static final class Timing {
+        private final long invocations;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        Timing(long invocations, long totalNanos, long maxNanos) {
+            this.invocations = invocations;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getMeanNanos() {
+            return invocations == 0 ? 0 : totalNanos / invocations;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d invocations, %d us total, %d us mean, %d us max", invocations,
+                    TimeUnit.NANOSECONDS.toMicros(totalNanos), TimeUnit.NANOSECONDS.toMicros(getMeanNanos()),
+                    TimeUnit.NANOSECONDS.toMicros(maxNanos));
+        }
+    }
+}
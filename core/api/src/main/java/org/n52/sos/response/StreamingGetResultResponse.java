@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.response;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.response.GetResultResponse;
+
+/**
+ * {@link GetResultResponse} whose result values are created while the
+ * response is written. The
+ * {@link org.n52.sos.coding.encode.AbstractServiceResponseWriter} encodes the
+ * response with a placeholder and writes the result values in its place
+ * directly to the output. All other consumers get the complete result values
+ * from {@link #getResultValues()}.
+ *
+ * @since 5.0.2
+ */
+public class StreamingGetResultResponse extends GetResultResponse {
+
+    private final String placeholder = "resultValues" + UUID.randomUUID().toString().replace("-", "");
+
+    private ResultValuesWriter resultValuesWriter;
+
+    private boolean streaming;
+
+    public void setResultValuesWriter(ResultValuesWriter resultValuesWriter) {
+        this.resultValuesWriter = resultValuesWriter;
+        // keep the result values set for encoders checking the plain value
+        super.setResultValues(resultValuesWriter != null ? placeholder : null);
+    }
+
+    public boolean isSetResultValuesWriter() {
+        return resultValuesWriter != null;
+    }
+
+    @Override
+    public void setResultValues(String resultValues) {
+        this.resultValuesWriter = null;
+        super.setResultValues(resultValues);
+    }
+
+    @Override
+    public String getResultValues() {
+        if (streaming) {
+            return placeholder;
+        } else if (resultValuesWriter != null) {
+            StringBuilder builder = new StringBuilder();
+            try {
+                writeResultValues(builder);
+            } catch (OwsExceptionReport | IOException e) {
+                throw new IllegalStateException("Error while creating result values!", e);
+            }
+            setResultValues(builder.toString());
+        }
+        return super.getResultValues();
+    }
+
+    /**
+     * Let {@link #getResultValues()} return the placeholder instead of the
+     * result values until {@link #stopStreaming()} is called.
+     *
+     * @return the placeholder
+     */
+    public String startStreaming() {
+        this.streaming = true;
+        return placeholder;
+    }
+
+    public void stopStreaming() {
+        this.streaming = false;
+    }
+
+    /**
+     * Write the result values. The values are created only once, afterwards
+     * the result values are empty.
+     *
+     * @param out
+     *            the output to write to
+     * @throws OwsExceptionReport
+     *             if the result values can not be created
+     * @throws IOException
+     *             if writing to the output fails
+     */
+    public void writeResultValues(Appendable out) throws OwsExceptionReport, IOException {
+        ResultValuesWriter writer = this.resultValuesWriter;
+        this.resultValuesWriter = null;
+        super.setResultValues("");
+        if (writer != null) {
+            writer.write(out);
+        }
+    }
+
+    /**
+     * Creates the result values of the response.
+     */
+    @FunctionalInterface
+    public interface ResultValuesWriter {
+        void write(Appendable out) throws OwsExceptionReport, IOException;
+    }
+}
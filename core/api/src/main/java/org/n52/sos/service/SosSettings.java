@@ -36,11 +36,24 @@ public interface SosSettings {
     String STRICT_SPATIAL_FILTERING_PROFILE  = "service.strictSpatialFilteringProfile";
     String EXPOSE_CHILD_OBSERVABLE_PROPERTIES = "service.exposeChildObservableProperties";
     String LIST_ONLY_PARENT_OFFERINGS = "service.capabilities.listOnlyParentOfferings";
+    String CAPABILITIES_CACHE = "service.capabilities.cache";
+    String DESCRIBE_SENSOR_CACHE_SIZE = "service.describeSensor.cacheSize";
+    String SNAPSHOT_CACHE = "service.cache.snapshot";
+    String CACHE_DELTA_UPDATE_INTERVAL = "service.cache.deltaUpdateInterval";
     String UPDATE_FEATURE_GEOMETRY = "service.updateFeatureGeometry";
     String CACHE_FILE_FOLDER = "service.cacheFileFolder";
+    String CACHE_PERSISTENCE_DELAY = "service.cachePersistenceDelay";
+    String CACHE_PERSISTENCE_COMPRESSION = "service.cache.persistence.compress";
     String CREATE_FOI_GEOM_FROM_SAMPLING_GEOMS = "service.createFeatureGeometryFromSamplingGeometries";
     String ALLOW_TEMPLATE_WITHOUT_PROCEDURE_FEATURE = "service.allowTemplateWithoutProcedureAndFeature";
     String INCLUDE_RESULT_TIME_FOR_MERGING = "service.includeResultTimeForMerging";
     String CHECK_FOR_DUPLICITY = "service.checkForDuplicity";
+    String CONCURRENT_INGEST = "service.transactional.concurrentIngest";
+    String BATCHED_INSERTION = "service.transactional.batchedInsertion";
+    String WRITE_BEHIND_INGEST = "service.transactional.writeBehind";
+    String WRITE_BEHIND_INGEST_FOLDER = "service.transactional.writeBehind.folder";
+    String WRITE_BEHIND_INGEST_LIMIT = "service.transactional.writeBehind.limit";
+    String WRITE_BEHIND_INGEST_THREADS = "service.transactional.writeBehind.threads";
+    String BULK_LOAD = "service.transactional.bulkLoad";
 
 }
@@ -31,13 +31,16 @@ package org.n52.sos.util;
 import static java.util.stream.Collectors.toSet;
 import static org.geotools.referencing.ReferencingFactoryFinder.getCRSAuthorityFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.geotools.factory.Hints;
+import org.geotools.geometry.jts.GeometryCoordinateSequenceTransformer;
 import org.geotools.geometry.jts.JTS;
 import org.geotools.referencing.CRS;
 import org.geotools.referencing.factory.AbstractAuthorityFactory;
@@ -76,6 +79,8 @@ import org.n52.svalbard.CodingSettings;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -97,6 +102,7 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
     private static GeometryHandler instance;
     private static final String EPSG = "EPSG";
     private static final String EPSG_PREFIX = EPSG + ":";
+    private static final int MAX_CACHED_TRANSFORMS = 256;
     private boolean datasoureUsesNorthingFirst;
     private final List<Range> epsgsWithNorthingFirstAxisOrder = Lists.newArrayList();
     private int storageEPSG;
@@ -108,6 +114,12 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
     private String authority;
     private CRSAuthorityFactory crsAuthority;
     private final Map<Integer, CoordinateReferenceSystem> crsCache = Maps.newConcurrentMap();
+    /*
+     * keyed by source and target EPSG code, the axis order is fixed by the
+     * hints of the CRS authority
+     */
+    private final Cache<Long, MathTransform> transformCache =
+            CacheBuilder.newBuilder().maximumSize(MAX_CACHED_TRANSFORMS).build();
     private String srsNamePrefixUrl;
 
     @Setting(CodingSettings.SRS_NAME_PREFIX_URL)
@@ -594,19 +606,91 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
         if (sourceCRS.equals(targetCRS)) {
             return geometry;
         }
+        GeometryCoordinateSequenceTransformer transformer = new GeometryCoordinateSequenceTransformer();
+        transformer.setMathTransform(getMathTransform(geometry.getSRID(), targetSRID));
+        return transform(geometry, targetSRID, transformer);
+    }
+
+    private Geometry transform(Geometry geometry, int targetSRID, GeometryCoordinateSequenceTransformer transformer)
+            throws OwsExceptionReport {
         Geometry switchedCoordiantes = switchCoordinateAxisIfNeeded(geometry, targetSRID);
         try {
-            MathTransform transform = CRS.findMathTransform(sourceCRS, targetCRS);
-            Geometry transformed = JTS
-                    .transform(switchedCoordiantes, transform);
+            Geometry transformed = transformer.transform(switchedCoordiantes);
             transformed.setSRID(targetSRID);
             return transformed;
-        } catch (FactoryException | MismatchedDimensionException | TransformException fe) {
+        } catch (MismatchedDimensionException | TransformException fe) {
             throw new NoApplicableCodeException().causedBy(fe)
                     .withMessage("The EPSG code '%s' is not supported!", switchedCoordiantes.getSRID());
         }
     }
 
+    /**
+     * Transform geometries to this EPSG code. In contrast to transforming each geometry with
+     * {@link #transform(Geometry, int)}, the CRS lookup and the coordinate transformer are shared by all geometries
+     * with the same EPSG code.
+     *
+     * @param geometries Geometries to transform
+     * @param targetSRID Target EPSG code
+     *
+     * @return Transformed geometries in the order of the given geometries
+     *
+     * @throws OwsExceptionReport If a geometry EPSG code is not supported
+     */
+    public List<Geometry> transform(Collection<? extends Geometry> geometries, int targetSRID)
+            throws OwsExceptionReport {
+        List<Geometry> transformed = new ArrayList<>(geometries.size());
+        // null values for source EPSG codes with the same CRS as the target
+        Map<Integer, GeometryCoordinateSequenceTransformer> transformers = new HashMap<>();
+        CoordinateReferenceSystem targetCRS = null;
+        for (Geometry geometry : geometries) {
+            if (geometry == null || geometry.isEmpty() || geometry.getSRID() == targetSRID) {
+                transformed.add(geometry);
+                continue;
+            }
+            int sourceSRID = geometry.getSRID();
+            if (!transformers.containsKey(sourceSRID)) {
+                if (targetCRS == null) {
+                    targetCRS = getCRS(targetSRID);
+                }
+                GeometryCoordinateSequenceTransformer transformer = null;
+                if (!getCRS(sourceSRID).equals(targetCRS)) {
+                    transformer = new GeometryCoordinateSequenceTransformer();
+                    transformer.setMathTransform(getMathTransform(sourceSRID, targetSRID));
+                }
+                transformers.put(sourceSRID, transformer);
+            }
+            GeometryCoordinateSequenceTransformer transformer = transformers.get(sourceSRID);
+            transformed.add(transformer == null ? geometry : transform(geometry, targetSRID, transformer));
+        }
+        return transformed;
+    }
+
+    /**
+     * Get the (cached) math transform between two EPSG codes.
+     *
+     * @param sourceSRID Source EPSG code
+     * @param targetSRID Target EPSG code
+     *
+     * @return the math transform
+     *
+     * @throws OwsExceptionReport If an EPSG code is not supported
+     */
+    private MathTransform getMathTransform(int sourceSRID, int targetSRID) throws OwsExceptionReport {
+        Long key = ((long) sourceSRID << Integer.SIZE) | (targetSRID & 0xFFFFFFFFL);
+        MathTransform transform = transformCache.getIfPresent(key);
+        if (transform == null) {
+            try {
+                transform = CRS.findMathTransform(getCRS(sourceSRID), getCRS(targetSRID));
+            } catch (FactoryException fe) {
+                throw new NoApplicableCodeException().causedBy(fe)
+                        .withMessage("The EPSG code '%s' is not supported!", sourceSRID);
+            }
+            // math transforms are immutable and may be shared between threads
+            transformCache.put(key, transform);
+        }
+        return transform;
+    }
+
     /**
      * Get CRS from EPSG code.
      *
@@ -671,15 +755,10 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
      */
     public Envelope transformEnvelope(Envelope envelope, int sourceSRID, int targetSRID) throws OwsExceptionReport {
         if (envelope != null && !envelope.isNull() && targetSRID > 0 && sourceSRID != targetSRID) {
-            CoordinateReferenceSystem sourceCRS = getCRS(sourceSRID);
-            CoordinateReferenceSystem targetCRS = getCRS(targetSRID);
+            MathTransform transform = getMathTransform(sourceSRID, targetSRID);
             try {
-                MathTransform transform = CRS.findMathTransform(sourceCRS, targetCRS);
                 Envelope transformed = JTS.transform(envelope, transform);
                 return transformed;
-            } catch (FactoryException fe) {
-                throw new NoApplicableCodeException().causedBy(fe).withMessage("The EPSG code '%s' is not supported!",
-                                                                               sourceSRID);
             } catch (MismatchedDimensionException mde) {
                 throw new NoApplicableCodeException().causedBy(mde).withMessage(
                         "Transformation from EPSG code '%s' to '%s' fails!", sourceSRID, targetSRID);
@@ -697,6 +776,7 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
     @VisibleForTesting
     protected void clearSupportedCRSMap() {
         crsCache.clear();
+        transformCache.invalidateAll();
     }
 
     public Set<String> addAuthorityCrsPrefix(Collection<Integer> crses) {
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+
+import com.google.common.collect.Sets;
+
+public class DataAvailabilityIndexTest {
+
+    private static final DateTime START = new DateTime(2020, 1, 1, 0, 0);
+
+    private static final DateTime END = new DateTime(2020, 1, 2, 0, 0);
+
+    private DataAvailabilityIndex index;
+
+    @Before
+    public void setUp() {
+        index = new DataAvailabilityIndex();
+        assertThat(index.startBuild(), is(true));
+        assertThat(index.completeBuild(entries()), is(true));
+    }
+
+    @Test
+    public void should_filter_entries() {
+        assertThat(index.isInitialized(), is(true));
+        assertThat(index.query(null, null, null, null), hasSize(3));
+        assertThat(index.query(Collections.singleton("p1"), null, null, null), hasSize(2));
+        assertThat(index.query(Collections.singleton("p1"), Collections.singleton("op1"), null, null), hasSize(1));
+        assertThat(index.query(null, null, Collections.singleton("f2"), Collections.singleton("o1")), hasSize(0));
+        assertThat(index.query(Sets.newHashSet("p1", "p2"), null, null, Collections.singleton("o2")), hasSize(1));
+        assertThat(index.query(Collections.singleton("p3"), null, null, null), hasSize(0));
+        assertThat(index.query(null, Collections.singleton("op1"), Collections.emptySet(), null), hasSize(2));
+    }
+
+    @Test
+    public void should_extend_known_dataset() {
+        index.update("p1", "op1", "f1", "o1", new TimeInstant(END.plusDays(1)), 1);
+        List<DataAvailabilityIndex.Entry> entries =
+                index.query(Collections.singleton("p1"), Collections.singleton("op1"), null, null);
+        assertThat(entries, hasSize(1));
+        assertThat(entries.get(0).getStart(), is(START));
+        assertThat(entries.get(0).getEnd(), is(END.plusDays(1)));
+        assertThat(entries.get(0).getCount(), is(11L));
+
+        index.update("p1", "op1", "f1", "o1", new TimePeriod(START.minusDays(1), START), 2);
+        entries = index.query(Collections.singleton("p1"), Collections.singleton("op1"), null, null);
+        assertThat(entries.get(0).getStart(), is(START.minusDays(1)));
+        assertThat(entries.get(0).getEnd(), is(END.plusDays(1)));
+        assertThat(entries.get(0).getCount(), is(13L));
+    }
+
+    @Test
+    public void should_forget_count_after_insertion_of_unknown_size() {
+        index.update("p1", "op1", "f1", "o1", new TimeInstant(END.plusDays(1)), -1);
+        index.update("p1", "op1", "f1", "o1", new TimeInstant(END.plusDays(2)), 1);
+        List<DataAvailabilityIndex.Entry> entries =
+                index.query(Collections.singleton("p1"), Collections.singleton("op1"), null, null);
+        assertThat(entries.get(0).getEnd(), is(END.plusDays(2)));
+        assertThat(entries.get(0).getCount(), is(-1L));
+        entries = index.query(Collections.singleton("p1"), Collections.singleton("op2"), null, null);
+        assertThat(entries.get(0).getCount(), is(10L));
+    }
+
+    @Test
+    public void should_refresh_changed_datasets() {
+        index.refresh(Arrays.asList(entry("p1", "op1", "f1", "o1", START.plusDays(1), END, 5),
+                entry("p3", "op1", "f1", "o1", START, END, 1)));
+        assertThat(index.isInitialized(), is(true));
+        assertThat(index.query(null, null, null, null), hasSize(4));
+        List<DataAvailabilityIndex.Entry> entries =
+                index.query(Collections.singleton("p1"), Collections.singleton("op1"), null, null);
+        assertThat(entries, hasSize(1));
+        assertThat(entries.get(0).getStart(), is(START.plusDays(1)));
+        assertThat(entries.get(0).getCount(), is(5L));
+        assertThat(index.query(Collections.singleton("p3"), null, null, null), hasSize(1));
+        assertThat(index.query(Collections.singleton("p2"), null, null, null).get(0).getCount(), is(10L));
+    }
+
+    @Test
+    public void should_refresh_datasets_after_build() {
+        index.clear();
+        assertThat(index.startBuild(), is(true));
+        index.refresh(Collections.singletonList(entry("p1", "op1", "f1", "o1", START, END.plusDays(1), 12)));
+        assertThat(index.completeBuild(entries()), is(true));
+        List<DataAvailabilityIndex.Entry> entries =
+                index.query(Collections.singleton("p1"), Collections.singleton("op1"), null, null);
+        assertThat(entries.get(0).getEnd(), is(END.plusDays(1)));
+        assertThat(entries.get(0).getCount(), is(12L));
+    }
+
+    @Test
+    public void should_clear_on_refresh_of_ambiguous_datasets() {
+        index.refresh(Arrays.asList(entry("p1", "op1", "f1", "o1", START, END, 1),
+                entry("p1", "op1", "f1", "o1", START, END, 2)));
+        assertThat(index.isInitialized(), is(false));
+    }
+
+    @Test
+    public void should_clear_on_unknown_dataset() {
+        index.update("p3", "op1", "f1", "o1", new TimeInstant(END), 1);
+        assertThat(index.isInitialized(), is(false));
+        assertThat(index.query(null, null, null, null), hasSize(0));
+    }
+
+    @Test
+    public void should_build_only_once() {
+        index.clear();
+        assertThat(index.startBuild(), is(true));
+        assertThat(index.startBuild(), is(false));
+        assertThat(index.isInitialized(), is(false));
+        assertThat(index.completeBuild(entries()), is(true));
+        assertThat(index.startBuild(), is(false));
+    }
+
+    @Test
+    public void should_apply_updates_during_build() {
+        index.clear();
+        assertThat(index.startBuild(), is(true));
+        index.update("p1", "op1", "f1", "o1", new TimeInstant(END.plusDays(1)), 1);
+        // the build may already contain the insertion
+        List<DataAvailabilityIndex.Entry> built = Arrays.asList(entry("p1", "op1", "f1", "o1", START,
+                END.plusDays(1), 11), entry("p1", "op2", "f1", "o1", START, END, 10));
+        assertThat(index.completeBuild(built), is(true));
+        List<DataAvailabilityIndex.Entry> entries =
+                index.query(Collections.singleton("p1"), Collections.singleton("op1"), null, null);
+        assertThat(entries, hasSize(1));
+        assertThat(entries.get(0).getEnd(), is(END.plusDays(1)));
+        assertThat(entries.get(0).getCount(), is(-1L));
+        entries = index.query(Collections.singleton("p1"), Collections.singleton("op2"), null, null);
+        assertThat(entries.get(0).getCount(), is(10L));
+    }
+
+    @Test
+    public void should_discard_build_after_unknown_update() {
+        index.clear();
+        assertThat(index.startBuild(), is(true));
+        index.update("p3", "op1", "f1", "o1", new TimeInstant(END), 1);
+        assertThat(index.completeBuild(entries()), is(false));
+        assertThat(index.isInitialized(), is(false));
+        assertThat(index.startBuild(), is(true));
+    }
+
+    @Test
+    public void should_discard_build_after_clear() {
+        index.clear();
+        assertThat(index.startBuild(), is(true));
+        index.clear();
+        assertThat(index.startBuild(), is(false));
+        assertThat(index.completeBuild(entries()), is(false));
+        assertThat(index.isInitialized(), is(false));
+        assertThat(index.query(null, null, null, null), hasSize(0));
+        assertThat(index.startBuild(), is(true));
+    }
+
+    @Test
+    public void should_restart_after_aborted_build() {
+        index.clear();
+        assertThat(index.startBuild(), is(true));
+        index.abortBuild();
+        assertThat(index.isInitialized(), is(false));
+        assertThat(index.startBuild(), is(true));
+    }
+
+    private static List<DataAvailabilityIndex.Entry> entries() {
+        return Arrays.asList(entry("p1", "op1", "f1", "o1", START, END, 10),
+                entry("p1", "op2", "f1", "o1", START, END, 10), entry("p2", "op1", "f2", "o2", START, END, 10));
+    }
+
+    private static DataAvailabilityIndex.Entry entry(String procedure, String observableProperty,
+            String featureOfInterest, String offering, DateTime start, DateTime end, long count) {
+        return new DataAvailabilityIndex.Entry(new ReferenceType(procedure), new ReferenceType(observableProperty),
+                new ReferenceType(featureOfInterest), new ReferenceType(offering), "pdf", start, end, count);
+    }
+}
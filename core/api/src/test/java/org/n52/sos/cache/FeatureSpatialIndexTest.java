@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+
+public class FeatureSpatialIndexTest {
+
+    private FeatureSpatialIndex index;
+
+    @Before
+    public void setUp() {
+        index = new FeatureSpatialIndex();
+        Map<String, Envelope> envelopes = new HashMap<>();
+        envelopes.put("a", new Envelope(0, 1, 0, 1));
+        envelopes.put("b", new Envelope(10, 11, 10, 11));
+        envelopes.put("c", null);
+        assertThat(index.startBuild(), is(true));
+        assertThat(index.completeBuild(envelopes), is(true));
+    }
+
+    @Test
+    public void should_return_intersecting_features() {
+        assertThat(index.isInitialized(), is(true));
+        assertThat(index.query(new Envelope(-1, 2, -1, 2)), containsInAnyOrder("a"));
+        assertThat(index.query(new Envelope(-1, 20, -1, 20)), containsInAnyOrder("a", "b"));
+        assertThat(index.query(new Envelope(5, 6, 5, 6)), is(empty()));
+    }
+
+    @Test
+    public void should_return_unresolved_features_until_put() {
+        index.invalidate(Collections.singleton("d"));
+        assertThat(index.query(new Envelope(5, 6, 5, 6)), containsInAnyOrder("d"));
+        index.put("d", new Envelope(20, 21, 20, 21));
+        assertThat(index.getUnresolved(), is(empty()));
+        assertThat(index.query(new Envelope(5, 6, 5, 6)), is(empty()));
+        assertThat(index.query(new Envelope(19, 22, 19, 22)), containsInAnyOrder("d"));
+    }
+
+    @Test
+    public void should_replace_moved_features() {
+        index.put("a", new Envelope(5, 6, 5, 6));
+        assertThat(index.query(new Envelope(-1, 2, -1, 2)), is(empty()));
+        assertThat(index.query(new Envelope(4, 7, 4, 7)), containsInAnyOrder("a"));
+        index.put("b", null);
+        assertThat(index.query(new Envelope(-1, 20, -1, 20)), containsInAnyOrder("a"));
+    }
+
+    @Test
+    public void should_serve_previous_content_until_rebuilt() {
+        assertThat(index.startBuild(), is(false));
+        index.markOutdated();
+        assertThat(index.startBuild(), is(true));
+        assertThat(index.startBuild(), is(false));
+        assertThat(index.isInitialized(), is(true));
+        assertThat(index.query(new Envelope(-1, 2, -1, 2)), containsInAnyOrder("a"));
+        assertThat(index.completeBuild(Collections.singletonMap("b", new Envelope(0, 1, 0, 1))), is(true));
+        assertThat(index.query(new Envelope(-1, 2, -1, 2)), containsInAnyOrder("b"));
+        assertThat(index.startBuild(), is(false));
+    }
+
+    @Test
+    public void should_resolve_features_modified_during_build() {
+        index.markOutdated();
+        assertThat(index.startBuild(), is(true));
+        index.invalidate(Collections.singleton("d"));
+        index.put("d", new Envelope(20, 21, 20, 21));
+        index.completeBuild(Collections.singletonMap("a", new Envelope(0, 1, 0, 1)));
+        assertThat(index.getUnresolved(), containsInAnyOrder("d"));
+        assertThat(index.query(new Envelope(5, 6, 5, 6)), containsInAnyOrder("d"));
+    }
+
+    @Test
+    public void should_build_again_after_abort() {
+        index.markOutdated();
+        assertThat(index.startBuild(), is(true));
+        index.abortBuild();
+        assertThat(index.isInitialized(), is(true));
+        assertThat(index.query(new Envelope(-1, 20, -1, 20)), containsInAnyOrder("a", "b"));
+        assertThat(index.startBuild(), is(true));
+        assertThat(index.completeBuild(Collections.emptyMap()), is(true));
+        assertThat(index.query(new Envelope(-1, 20, -1, 20)), is(empty()));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.convert;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.n52.shetland.ogc.om.ObservationStream;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+public class ObservationStreamsTest {
+
+    private final OmObservation a = new OmObservation();
+    private final OmObservation b = new OmObservation();
+    private final OmObservation c = new OmObservation();
+
+    @Test
+    public void shouldFlatMapLazily() throws OwsExceptionReport {
+        AtomicInteger calls = new AtomicInteger();
+        ObservationStream stream = ObservationStreams.flatMap(ObservationStream.of(Arrays.asList(a, b)), o -> {
+            calls.incrementAndGet();
+            return o == a ? ObservationStream.empty() : ObservationStream.of(Arrays.asList(o, c));
+        });
+        assertThat(calls.get(), is(0));
+        assertThat(toList(stream), contains(b, c));
+        assertThat(calls.get(), is(2));
+    }
+
+    @Test
+    public void shouldConcatDeferred() throws OwsExceptionReport {
+        List<OmObservation> collected = new ArrayList<>();
+        ObservationStream first = ObservationStreams.flatMap(ObservationStream.of(Arrays.asList(a, b)), o -> {
+            collected.add(o);
+            return ObservationStream.of(Arrays.asList(o));
+        });
+        ObservationStream stream = ObservationStreams.concat(first, () -> {
+            assertThat(collected, contains(a, b));
+            return ObservationStream.of(Arrays.asList(c));
+        });
+        assertThat(toList(stream), contains(a, b, c));
+    }
+
+    private static List<OmObservation> toList(ObservationStream stream) throws OwsExceptionReport {
+        List<OmObservation> list = new ArrayList<>();
+        while (stream.hasNext()) {
+            list.add(stream.next());
+        }
+        return list;
+    }
+}
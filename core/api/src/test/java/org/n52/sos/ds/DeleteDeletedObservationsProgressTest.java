@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.n52.sos.ds.DeleteDeletedObservationsProgress.State;
+
+public class DeleteDeletedObservationsProgressTest {
+
+    @Test
+    public void shouldFinish() {
+        DeleteDeletedObservationsProgress progress = new DeleteDeletedObservationsProgress();
+        assertThat(progress.isRunning(), is(true));
+        progress.start();
+        progress.setDatasets(2);
+        progress.observationsDeleted(1000);
+        progress.observationsDeleted(10);
+        progress.datasetProcessed();
+        progress.finish();
+        assertThat(progress.getState(), is(State.FINISHED));
+        assertThat(progress.isRunning(), is(false));
+        assertThat(progress.getDeletedObservations(), is(1010L));
+        assertThat(progress.getProcessedDatasets(), is(1));
+    }
+
+    @Test
+    public void shouldBeCancelled() {
+        DeleteDeletedObservationsProgress progress = new DeleteDeletedObservationsProgress();
+        progress.start();
+        progress.cancel();
+        assertThat(progress.isCancelRequested(), is(true));
+        progress.finish();
+        assertThat(progress.getState(), is(State.CANCELLED));
+    }
+
+    @Test
+    public void shouldFail() {
+        DeleteDeletedObservationsProgress progress = new DeleteDeletedObservationsProgress();
+        progress.start();
+        progress.fail(new IllegalStateException("failure"));
+        assertThat(progress.getState(), is(State.FAILED));
+        assertThat(progress.getError(), is("failure"));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.request.operator;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.n52.iceland.convert.RequestResponseModifier;
+import org.n52.iceland.convert.RequestResponseModifierFacilitator;
+import org.n52.iceland.convert.RequestResponseModifierKey;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+
+public class RequestResponseModifierChainTest {
+
+    private final List<String> invocations = new ArrayList<>();
+
+    private final Modifier splitter = new Modifier("splitter", new RequestResponseModifierFacilitator()
+            .setSplitter(true));
+
+    private final Modifier merger = new Modifier("merger", new RequestResponseModifierFacilitator()
+            .setMerger(true));
+
+    private final Modifier remover = new Modifier("remover", new RequestResponseModifierFacilitator()
+            .setAdderRemover(true));
+
+    private final Modifier other = new Modifier("default", new RequestResponseModifierFacilitator());
+
+    @Test
+    public void shouldOrderRequestModifiers() throws Exception {
+        RequestResponseModifierTimings timings = new RequestResponseModifierTimings();
+        RequestResponseModifierChain.forRequest(Arrays.asList(splitter, other, remover)).modifyRequest(null,
+                timings);
+        assertThat(invocations, contains("remover", "default", "splitter"));
+        assertThat(timings.getTimings().get(Modifier.class.getName()).getInvocations(), is(3L));
+    }
+
+    @Test
+    public void shouldOrderResponseModifiers() throws Exception {
+        RequestResponseModifierChain.forResponse(Arrays.asList(remover, other, merger)).modifyResponse(null, null,
+                new RequestResponseModifierTimings());
+        assertThat(invocations, contains("merger", "default", "remover"));
+    }
+
+    @Test
+    public void shouldShareEmptyChain() {
+        assertThat(RequestResponseModifierChain.forRequest(Collections.emptyList()),
+                is(RequestResponseModifierChain.EMPTY));
+        assertThat(RequestResponseModifierChain.EMPTY.isEmpty(), is(true));
+    }
+
+    private class Modifier implements RequestResponseModifier {
+        private final String name;
+        private final RequestResponseModifierFacilitator facilitator;
+
+        Modifier(String name, RequestResponseModifierFacilitator facilitator) {
+            this.name = name;
+            this.facilitator = facilitator;
+        }
+
+        @Override
+        public Set<RequestResponseModifierKey> getKeys() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public OwsServiceRequest modifyRequest(OwsServiceRequest request) {
+            invocations.add(name);
+            return request;
+        }
+
+        @Override
+        public OwsServiceResponse modifyResponse(OwsServiceRequest request, OwsServiceResponse response) {
+            invocations.add(name);
+            return response;
+        }
+
+        @Override
+        public RequestResponseModifierFacilitator getFacilitator() {
+            return facilitator;
+        }
+    }
+}
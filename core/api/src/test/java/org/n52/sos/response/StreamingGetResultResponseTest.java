@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.response;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class StreamingGetResultResponseTest {
+
+    @Test
+    public void shouldCreateResultValuesOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        StreamingGetResultResponse response = new StreamingGetResultResponse();
+        response.setResultValuesWriter(out -> {
+            calls.incrementAndGet();
+            out.append("2@a,1@b,2");
+        });
+        assertThat(response.getResultValues(), is("2@a,1@b,2"));
+        assertThat(response.getResultValues(), is("2@a,1@b,2"));
+        assertThat(calls.get(), is(1));
+        assertThat(response.isSetResultValuesWriter(), is(false));
+    }
+
+    @Test
+    public void shouldReturnPlaceholderWhileStreaming() throws Exception {
+        StreamingGetResultResponse response = new StreamingGetResultResponse();
+        response.setResultValuesWriter(out -> out.append("1@a,1"));
+        String placeholder = response.startStreaming();
+        assertThat(placeholder, is(not(nullValue())));
+        assertThat(response.getResultValues(), is(placeholder));
+        response.stopStreaming();
+        StringBuilder builder = new StringBuilder();
+        response.writeResultValues(builder);
+        assertThat(builder.toString(), is("1@a,1"));
+        assertThat(response.getResultValues(), is(""));
+    }
+
+    @Test
+    public void shouldNotHaveResultValuesWithoutWriter() {
+        assertThat(new StreamingGetResultResponse().getResultValues(), is(nullValue()));
+    }
+}
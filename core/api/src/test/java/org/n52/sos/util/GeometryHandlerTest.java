@@ -29,9 +29,13 @@
 package org.n52.sos.util;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -129,6 +133,20 @@ public class GeometryHandlerTest {
         assertThat((transformToStorageEpsg.distance(get31467Geometry()) < DISTANCE_TRANSFORMED), is(true));
     }
 
+    @Test
+    public void shouldTransformGeometriesInBulk() throws OwsExceptionReport {
+        geometryHandler.clearSupportedCRSMap();
+        List<Geometry> transformed = geometryHandler.transform(
+                Arrays.asList(get31467Geometry(), null, get4326Geometry(), get31467Geometry()), EPSG_4326);
+        assertEquals(4, transformed.size());
+        assertThat(transformed.get(1), is(nullValue()));
+        for (int i : new int[] { 0, 2, 3 }) {
+            assertEquals(EPSG_4326, transformed.get(i).getSRID());
+            assertThat((transformed.get(i).distance(get4326Geometry()) < DISTANCE_TRANSFORMED), is(true));
+        }
+        assertEquals(geometryHandler.transform(get31467Geometry(), EPSG_4326), transformed.get(0));
+    }
+
     @Test
     public void shouldSwitchGeometryForDatasourceNorthingFalseEpsg4326() throws OwsExceptionReport {
         geometryHandler.clearSupportedCRSMap();
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Estimated heap footprint of the identifier relations of a cache, comparing the dictionary encoded storage with
+ * synchronized {@code Map<String, Set<String>>}s. Created by {@link InMemoryCacheImpl#getMemoryReport()} and
+ * shown in the cache summary of the administration interface.
+ *
+ * @since 5.0.2
+ */
+public class CacheMemoryReport {
+    private final List<Relation> relations = new ArrayList<>();
+    private int dictionarySize;
+    private long dictionaryBytes;
+
+    void setDictionary(int size, long bytes) {
+        this.dictionarySize = size;
+        this.dictionaryBytes = bytes;
+    }
+
+    void add(Relation relation) {
+        this.relations.add(relation);
+    }
+
+    public List<Relation> getRelations() {
+        return Collections.unmodifiableList(relations);
+    }
+
+    /**
+     * @return the number of identifiers in the dictionary
+     */
+    public int getDictionarySize() {
+        return dictionarySize;
+    }
+
+    public long getDictionaryBytes() {
+        return dictionaryBytes;
+    }
+
+    /**
+     * @return the estimated bytes of the dictionary encoded relations, including the dictionary
+     */
+    public long getEncodedBytes() {
+        return dictionaryBytes + relations.stream().mapToLong(Relation::getEncodedBytes).sum();
+    }
+
+    /**
+     * @return the estimated bytes of the relations as maps of string sets, if all strings were shared
+     */
+    public long getHashBytes() {
+        return relations.stream().mapToLong(Relation::getHashBytes).sum();
+    }
+
+    /**
+     * @return the estimated bytes of the relations as maps of string sets, if no string was shared
+     */
+    public long getHashBytesWithStrings() {
+        return getHashBytes() + relations.stream().mapToLong(Relation::getStringBytes).sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%-45s %10s %12s %14s %14s %14s%n", "relation", "keys",
+                "relations", "encoded", "hash", "hash+strings"));
+        for (Relation relation : relations) {
+            builder.append(String.format(Locale.ROOT, "%-45s %10d %12d %14d %14d %14d%n", relation.getName(),
+                    relation.getKeys(), relation.getRelations(), relation.getEncodedBytes(),
+                    relation.getHashBytes(), relation.getHashBytes() + relation.getStringBytes()));
+        }
+        builder.append(String.format(Locale.ROOT, "%-45s %10d %12s %14d%n", "dictionary", dictionarySize, "",
+                dictionaryBytes));
+        builder.append(String.format(Locale.ROOT, "%-45s %10s %12s %14d %14d %14d%n", "total", "", "",
+                getEncodedBytes(), getHashBytes(), getHashBytesWithStrings()));
+        return builder.toString();
+    }
+
+    /**
+     * The estimates of a single relation map.
+     */
+    public static class Relation {
+        private final String name;
+        private final int keys;
+        private final long relations;
+        private final long encodedBytes;
+        private final long hashBytes;
+        private final long stringBytes;
+
+        Relation(String name, RelationMap map) {
+            this.name = name;
+            this.keys = map.size();
+            this.relations = map.getRelationCount();
+            this.encodedBytes = map.estimateBytes();
+            this.hashBytes = map.estimateHashBytes();
+            this.stringBytes = map.estimateStringBytes();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getKeys() {
+            return keys;
+        }
+
+        public long getRelations() {
+            return relations;
+        }
+
+        public long getEncodedBytes() {
+            return encodedBytes;
+        }
+
+        public long getHashBytes() {
+            return hashBytes;
+        }
+
+        public long getStringBytes() {
+            return stringBytes;
+        }
+    }
+}
@@ -31,18 +31,23 @@ package org.n52.sos.cache;
 
 import javax.inject.Inject;
 
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.cache.WritableContentCache;
 import org.n52.iceland.cache.ctrl.ContentCacheFactory;
 import org.n52.iceland.coding.SupportedTypeRepository;
+import org.n52.sos.service.SosSettings;
 
 /**
  * TODO JavaDoc
  *
  * @author Christian Autermann
  */
+@Configurable
 public class ContentCacheFactoryImpl implements ContentCacheFactory {
 
     private SupportedTypeRepository supportedTypeRepository;
+    private boolean snapshotCache;
 
     @Inject
     public void setSupportedTypeRepository(SupportedTypeRepository supportedTypeRepository) {
@@ -53,9 +58,19 @@ public class ContentCacheFactoryImpl implements ContentCacheFactory {
         return supportedTypeRepository;
     }
 
+    @Setting(SosSettings.SNAPSHOT_CACHE)
+    public void setSnapshotCache(boolean snapshotCache) {
+        this.snapshotCache = snapshotCache;
+    }
+
+    public boolean isSnapshotCache() {
+        return snapshotCache;
+    }
+
     @Override
     public WritableContentCache get() {
-        return (InMemoryCacheImpl) new InMemoryCacheImpl().setSupportedTypeRepository(getSupportedTypeRepository());
+        AbstractStaticSosContentCache cache = isSnapshotCache() ? new SnapshotCacheImpl() : new InMemoryCacheImpl();
+        return (WritableContentCache) cache.setSupportedTypeRepository(getSupportedTypeRepository());
     }
 
 }
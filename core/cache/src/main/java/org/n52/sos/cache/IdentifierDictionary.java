@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary mapping the identifiers of a cache to dense {@code int} indices, so every identifier is stored once.
+ * Entries are never removed: a dictionary lives as long as the cache instance, which is replaced by each complete
+ * update. Lookups are lock-free, additions are synchronized.
+ *
+ * @since 5.0.2
+ */
+class IdentifierDictionary implements Serializable {
+    private static final long serialVersionUID = 2052427318549716475L;
+    private static final int INITIAL_CAPACITY = 64;
+    private transient Map<String, Integer> indices = new ConcurrentHashMap<>();
+    private transient volatile String[] values = new String[INITIAL_CAPACITY];
+    private transient volatile int size;
+
+    /**
+     * Get the index of the identifier, adding it if it is not yet contained.
+     *
+     * @param identifier
+     *            the identifier
+     * @return the index
+     */
+    int intern(String identifier) {
+        Integer index = indices.get(identifier);
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            index = indices.get(identifier);
+            if (index != null) {
+                return index;
+            }
+            int i = size;
+            if (i == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[i] = identifier;
+            size = i + 1;
+            indices.put(identifier, i);
+            return i;
+        }
+    }
+
+    /**
+     * @return the index of the identifier or {@code -1} if it is not contained
+     */
+    int indexOf(Object identifier) {
+        Integer index = identifier == null ? null : indices.get(identifier);
+        return index == null ? -1 : index;
+    }
+
+    String get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the estimated heap size of the dictionary in bytes
+     */
+    long estimateBytes() {
+        long bytes = MemoryEstimates.concurrentHashMap(size) + MemoryEstimates.array(values.length, 4);
+        for (int i = 0; i < size; i++) {
+            bytes += MemoryEstimates.string(values[i]) + MemoryEstimates.INTEGER;
+        }
+        return bytes;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        int n = size;
+        out.writeInt(n);
+        for (int i = 0; i < n; i++) {
+            out.writeObject(values[i]);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int n = in.readInt();
+        String[] read = new String[Math.max(INITIAL_CAPACITY, n)];
+        Map<String, Integer> index = new ConcurrentHashMap<>(n);
+        for (int i = 0; i < n; i++) {
+            read[i] = (String) in.readObject();
+            index.put(read[i], i);
+        }
+        this.indices = index;
+        this.values = read;
+        this.size = n;
+    }
+}
@@ -31,10 +31,12 @@ package org.n52.sos.cache;
 import static java.util.stream.Collectors.toSet;
 import static org.n52.sos.util.SosHelper.getHierarchy;
 
+import java.lang.reflect.Field;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
@@ -68,43 +70,51 @@ import org.locationtech.jts.geom.Envelope;
 
 public class InMemoryCacheImpl extends AbstractStaticSosContentCache implements SosWritableContentCache, CacheConstants {
     private static final Logger LOG = LoggerFactory.getLogger(InMemoryCacheImpl.class);
-    private static final long serialVersionUID = 3630601584420744019L;
+    /**
+     * Changed with the dictionary encoded relation maps, so that cache files of older versions are not loaded but
+     * rebuilt from the datasource.
+     */
+    private static final long serialVersionUID = -9133027715250228739L;
 
+    /**
+     * The dictionary shared by the relation maps; after deserialization it is only referenced by the maps.
+     */
+    private final transient IdentifierDictionary identifiers = new IdentifierDictionary();
     private final Map<String, DateTime> maxPhenomenonTimeForOfferings = newSynchronizedMap();
     private final Map<String, DateTime> minPhenomenonTimeForOfferings = newSynchronizedMap();
     private final Map<String, DateTime> maxResultTimeForOfferings = newSynchronizedMap();
     private final Map<String, DateTime> minResultTimeForOfferings = newSynchronizedMap();
     private final Map<String, DateTime> maxPhenomenonTimeForProcedures = newSynchronizedMap();
     private final Map<String, DateTime> minPhenomenonTimeForProcedures = newSynchronizedMap();
-    private final Map<String, Set<String>> allowedObservationTypeForOfferings = newSynchronizedMap();
-    private final Map<String, Set<String>> allowedFeatureOfInterestTypeForOfferings = newSynchronizedMap();
-    private final Map<String, Set<String>> childFeaturesForFeatureOfInterest = newSynchronizedMap();
-    private final Map<String, Set<String>> childProceduresForProcedures = newSynchronizedMap();
-    private final Map<String, Set<String>> childOfferingsForOfferings = newSynchronizedMap();
-    private final Map<String, Set<String>> compositePhenomenonsForProcedure = newSynchronizedMap();
-    private final Map<String, Set<String>> compositePhenomenonsForOffering = newSynchronizedMap();
-    private final Map<String, Set<String>> compositePhenomenonsForObservableProperty = newSynchronizedMap();
-    private final Map<String, Set<String>> featuresOfInterestForOfferings = newSynchronizedMap();
-    private final Map<String, Set<String>> offeringsForFeaturesOfInterest = newSynchronizedMap();
-    private final Map<String, Set<String>> featuresOfInterestForResultTemplates = newSynchronizedMap();
-    private final Map<String, Set<String>> observablePropertiesForCompositePhenomenons = newSynchronizedMap();
-    private final Map<String, Set<String>> observablePropertiesForOfferings = newSynchronizedMap();
-    private final Map<String, Set<String>> observablePropertiesForProcedures = newSynchronizedMap();
-    private final Map<String, Set<String>> observationTypesForOfferings = newSynchronizedMap();
-    private final Map<String, Set<String>> featureOfInterestTypesForOfferings = newSynchronizedMap();
-    private final Map<String, Set<String>> observedPropertiesForResultTemplates = newSynchronizedMap();
-    private final Map<String, Set<String>> offeringsForObservableProperties = newSynchronizedMap();
-    private final Map<String, Set<String>> offeringsForProcedures = newSynchronizedMap();
-    private final Map<String, Set<String>> parentFeaturesForFeaturesOfInterest = newSynchronizedMap();
-    private final Map<String, Set<String>> parentProceduresForProcedures = newSynchronizedMap();
-    private final Map<String, Set<String>> parentOfferingsForOfferings = newSynchronizedMap();
-    private final Map<String, Set<String>> proceduresForFeaturesOfInterest = newSynchronizedMap();
-    private final Map<String, Set<String>> proceduresForObservableProperties = newSynchronizedMap();
-    private final Map<String, Set<String>> proceduresForOfferings = newSynchronizedMap();
-    private final Map<String, Set<String>> hiddenChildProceduresForOfferings = newSynchronizedMap();
-    private final Map<String, Set<String>> relatedFeaturesForOfferings = newSynchronizedMap();
-    private final Map<String, Set<String>> resultTemplatesForOfferings = newSynchronizedMap();
-    private final Map<String, Set<String>> rolesForRelatedFeatures = newSynchronizedMap();
+    private final Map<String, Set<String>> allowedObservationTypeForOfferings = newRelationMap();
+    private final Map<String, Set<String>> allowedFeatureOfInterestTypeForOfferings = newRelationMap();
+    private final Map<String, Set<String>> childFeaturesForFeatureOfInterest = newRelationMap();
+    private final Map<String, Set<String>> childProceduresForProcedures = newRelationMap();
+    private final Map<String, Set<String>> childOfferingsForOfferings = newRelationMap();
+    private final Map<String, Set<String>> compositePhenomenonsForProcedure = newRelationMap();
+    private final Map<String, Set<String>> compositePhenomenonsForOffering = newRelationMap();
+    private final Map<String, Set<String>> compositePhenomenonsForObservableProperty = newRelationMap();
+    private final Map<String, Set<String>> featuresOfInterestForOfferings = newRelationMap();
+    private final Map<String, Set<String>> offeringsForFeaturesOfInterest = newRelationMap();
+    private final Map<String, Set<String>> featuresOfInterestForResultTemplates = newRelationMap();
+    private final Map<String, Set<String>> observablePropertiesForCompositePhenomenons = newRelationMap();
+    private final Map<String, Set<String>> observablePropertiesForOfferings = newRelationMap();
+    private final Map<String, Set<String>> observablePropertiesForProcedures = newRelationMap();
+    private final Map<String, Set<String>> observationTypesForOfferings = newRelationMap();
+    private final Map<String, Set<String>> featureOfInterestTypesForOfferings = newRelationMap();
+    private final Map<String, Set<String>> observedPropertiesForResultTemplates = newRelationMap();
+    private final Map<String, Set<String>> offeringsForObservableProperties = newRelationMap();
+    private final Map<String, Set<String>> offeringsForProcedures = newRelationMap();
+    private final Map<String, Set<String>> parentFeaturesForFeaturesOfInterest = newRelationMap();
+    private final Map<String, Set<String>> parentProceduresForProcedures = newRelationMap();
+    private final Map<String, Set<String>> parentOfferingsForOfferings = newRelationMap();
+    private final Map<String, Set<String>> proceduresForFeaturesOfInterest = newRelationMap();
+    private final Map<String, Set<String>> proceduresForObservableProperties = newRelationMap();
+    private final Map<String, Set<String>> proceduresForOfferings = newRelationMap();
+    private final Map<String, Set<String>> hiddenChildProceduresForOfferings = newRelationMap();
+    private final Map<String, Set<String>> relatedFeaturesForOfferings = newRelationMap();
+    private final Map<String, Set<String>> resultTemplatesForOfferings = newRelationMap();
+    private final Map<String, Set<String>> rolesForRelatedFeatures = newRelationMap();
     private final Map<String, ReferencedEnvelope> envelopeForOfferings = newSynchronizedMap();
     private final Map<String, String> nameForOfferings = newSynchronizedMap();
     private final Map<String, MultilingualString> i18nNameForOfferings = newSynchronizedMap();
@@ -126,11 +136,11 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache implements
     private final BiMap<String, String> offeringIdentifierHumanReadableName = newSynchronizedBiMap();
     private final Map<TypeInstance, Set<String>> typeInstanceProcedures = newSynchronizedMap();
     private final Map<ComponentAggregation, Set<String>> componentAggregationProcedures = newSynchronizedMap();
-    private final Map<String, Set<String>> typeOfProceduresMap = newSynchronizedMap();
+    private final Map<String, Set<String>> typeOfProceduresMap = newRelationMap();
     private int defaultEpsgCode = 4326;
     private ReferencedEnvelope globalEnvelope = new ReferencedEnvelope(null, defaultEpsgCode);
     private DateTime updateTime;
-    private final Map<String, Set<String>> procedureProcedureDescriptionFormats = newSynchronizedMap();
+    private final Map<String, Set<String>> procedureProcedureDescriptionFormats = newRelationMap();
     private Set<String> publishedFeatureOfInterest = newSynchronizedSet();
     private Set<String> publishedProcedure= newSynchronizedSet();
     private Set<String> publishedOffering = newSynchronizedSet();
@@ -3130,6 +3140,36 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache implements
         return getProcedureRequestSettingProvider().isShowOnlyAggregatedProcedures();
     }
 
+    /**
+     * Estimate the heap footprint of the identifier relations of this cache.
+     *
+     * @return the report
+     */
+    public CacheMemoryReport getMemoryReport() {
+        CacheMemoryReport report = new CacheMemoryReport();
+        Set<IdentifierDictionary> dictionaries = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Field field : InMemoryCacheImpl.class.getDeclaredFields()) {
+            if (Map.class.isAssignableFrom(field.getType())) {
+                try {
+                    Object value = field.get(this);
+                    if (value instanceof RelationMap) {
+                        report.add(new CacheMemoryReport.Relation(field.getName(), (RelationMap) value));
+                        dictionaries.add(((RelationMap) value).getDictionary());
+                    }
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        report.setDictionary(dictionaries.stream().mapToInt(IdentifierDictionary::size).sum(),
+                dictionaries.stream().mapToLong(IdentifierDictionary::estimateBytes).sum());
+        return report;
+    }
+
+    private Map<String, Set<String>> newRelationMap() {
+        return new RelationMap(identifiers);
+    }
+
     private static <X, T> Function<X, Set<T>> createSynchronizedSet() {
         return Suppliers.<X, Set<T>>asFunction(HashSet<T>::new).andThen(Collections::synchronizedSet);
     }
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Set of {@code int} values. Small or sparse sets are stored as a sorted array, large and dense sets as a bitmap,
+ * choosing the representation by the same rule as a roaring bitmap container: the bitmap is used once it is smaller
+ * than the array. Not thread safe.
+ *
+ * @since 5.0.2
+ */
+final class IntSet implements Serializable {
+    private static final long serialVersionUID = -3000465367916009383L;
+    private static final int[] EMPTY = new int[0];
+    private static final int MIN_BITMAP_SIZE = 1024;
+    private int[] values = EMPTY;
+    private BitSet bitmap;
+    private int size;
+
+    /**
+     * Create a set of the values, which may be unsorted and contain duplicates.
+     *
+     * @param values
+     *            the values, the array is used by the set
+     * @return the set
+     */
+    static IntSet of(int[] values) {
+        IntSet set = new IntSet();
+        if (values.length > 0) {
+            Arrays.sort(values);
+            int n = 1;
+            for (int i = 1; i < values.length; i++) {
+                if (values[i] != values[n - 1]) {
+                    values[n++] = values[i];
+                }
+            }
+            set.values = values;
+            set.size = n;
+            set.optimize();
+        }
+        return set;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        if (bitmap != null) {
+            return bitmap.get(value);
+        }
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    boolean add(int value) {
+        if (bitmap != null) {
+            if (bitmap.get(value)) {
+                return false;
+            }
+            bitmap.set(value);
+            size++;
+            return true;
+        }
+        int i = Arrays.binarySearch(values, 0, size, value);
+        if (i >= 0) {
+            return false;
+        }
+        int insert = -(i + 1);
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(values, insert, values, insert + 1, size - insert);
+        values[insert] = value;
+        size++;
+        optimize();
+        return true;
+    }
+
+    boolean remove(int value) {
+        if (!contains(value)) {
+            return false;
+        }
+        if (bitmap != null) {
+            bitmap.clear(value);
+            size--;
+        } else {
+            int i = Arrays.binarySearch(values, 0, size, value);
+            System.arraycopy(values, i + 1, values, i, size - i - 1);
+            size--;
+        }
+        optimize();
+        return true;
+    }
+
+    void clear() {
+        values = EMPTY;
+        bitmap = null;
+        size = 0;
+    }
+
+    /**
+     * @return the values in ascending order
+     */
+    int[] toArray() {
+        if (bitmap != null) {
+            return bitmap.stream().toArray();
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * @return the estimated heap size of the set in bytes
+     */
+    long estimateBytes() {
+        long bytes = MemoryEstimates.align(24);
+        if (bitmap != null) {
+            return bytes + MemoryEstimates.align(24) + MemoryEstimates.array(bitmap.size() / Long.SIZE, Long.BYTES);
+        }
+        return bytes + MemoryEstimates.array(values.length, Integer.BYTES);
+    }
+
+    private void optimize() {
+        if (bitmap == null) {
+            if (size >= MIN_BITMAP_SIZE && bitmapBytes(values[size - 1]) < (long) size * Integer.BYTES) {
+                BitSet bits = new BitSet(values[size - 1] + 1);
+                for (int i = 0; i < size; i++) {
+                    bits.set(values[i]);
+                }
+                bitmap = bits;
+                values = EMPTY;
+            } else if (values.length > size * 2 && values.length > 4) {
+                values = Arrays.copyOf(values, size);
+            }
+        } else if (size < MIN_BITMAP_SIZE / 2 || bitmapBytes(bitmap.length() - 1) > (long) size * Integer.BYTES * 2) {
+            values = bitmap.stream().toArray();
+            bitmap = null;
+        }
+    }
+
+    private static long bitmapBytes(int maxValue) {
+        return maxValue / Byte.SIZE + 1;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+/**
+ * Rough heap size estimates of the structures used by the caches, assuming a 64 bit JVM with compressed object
+ * pointers. They are meant to compare representations, not to measure the heap.
+ *
+ * @since 5.0.2
+ */
+final class MemoryEstimates {
+    static final long REFERENCE = 4;
+    static final long INTEGER = 16;
+    static final long HASH_NODE = 32;
+    static final long HASH_MAP = 48;
+    static final long HASH_SET = 16 + HASH_MAP;
+    static final long SYNCHRONIZED_WRAPPER = 24;
+    static final long CONCURRENT_HASH_MAP = 64;
+    private static final long ARRAY_HEADER = 16;
+    private static final long STRING = 24;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private MemoryEstimates() {
+    }
+
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    static long array(int length, long elementSize) {
+        return align(ARRAY_HEADER + length * elementSize);
+    }
+
+    static long string(String value) {
+        return align(STRING) + array(value.length(), 2);
+    }
+
+    static long hashTable(int entries) {
+        int capacity = Integer.highestOneBit(Math.max(1, (int) (entries / LOAD_FACTOR)) * 2 - 1);
+        return array(Math.max(16, capacity), REFERENCE) + entries * HASH_NODE;
+    }
+
+    static long hashMap(int entries) {
+        return HASH_MAP + hashTable(entries);
+    }
+
+    static long hashSet(int entries) {
+        return HASH_SET + hashTable(entries);
+    }
+
+    static long concurrentHashMap(int entries) {
+        return CONCURRENT_HASH_MAP + hashTable(entries);
+    }
+}
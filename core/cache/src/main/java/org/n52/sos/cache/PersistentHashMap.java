@@ -0,0 +1,523 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Hash array mapped trie that can be forked in constant time. A fork shares all nodes with its origin; both maps
+ * copy a node only when they modify it for the first time, so a modification after a fork copies at most the path
+ * to the changed entry (O(log<sub>32</sub> n)) instead of the whole map. Iterators are weakly consistent. Not
+ * thread safe, but a map that is no longer modified may be read concurrently.
+ *
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ *
+ * @since 5.0.2
+ */
+final class PersistentHashMap<K, V> extends AbstractMap<K, V> implements Serializable {
+    private static final long serialVersionUID = 4187259123564061822L;
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final Object[] EMPTY = new Object[0];
+    private Node root;
+    private int size;
+    private Edit edit;
+    private transient Set<Map.Entry<K, V>> entrySet;
+
+    PersistentHashMap() {
+        this.edit = new Edit();
+        this.root = new Node(edit, 0, EMPTY);
+    }
+
+    PersistentHashMap(Map<? extends K, ? extends V> map) {
+        this();
+        putAll(map);
+    }
+
+    private PersistentHashMap(Node root, int size) {
+        this.edit = new Edit();
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Create a copy of this map in constant time. The nodes are copied lazily by the first modification of either
+     * map.
+     *
+     * @return the copy
+     */
+    PersistentHashMap<K, V> fork() {
+        // this map may no longer modify the shared nodes in place
+        this.edit = new Edit();
+        return new PersistentHashMap<>(root, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        Leaf<K, V> leaf = find(key);
+        return leaf == null ? null : leaf.value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Change change = new Change();
+        root = put(root, edit, 0, new Leaf<>(hash(key), key, value), change);
+        if (change.added) {
+            size++;
+        }
+        return cast(change.previous);
+    }
+
+    @Override
+    public V remove(Object key) {
+        Change change = new Change();
+        root = remove(root, edit, 0, key, hash(key), change);
+        if (change.removed) {
+            size--;
+        }
+        return cast(change.previous);
+    }
+
+    @Override
+    public void clear() {
+        root = new Node(edit, 0, EMPTY);
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Leaf<K, V> find(Object key) {
+        int hash = hash(key);
+        Node node = root;
+        int shift = 0;
+        while (true) {
+            int bit = bit(hash, shift);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[index(node.bitmap, bit)];
+            if (slot instanceof Node) {
+                node = (Node) slot;
+                shift += BITS;
+            } else if (slot instanceof Leaf) {
+                Leaf<K, V> leaf = (Leaf<K, V>) slot;
+                return leaf.matches(hash, key) ? leaf : null;
+            } else {
+                Collision collision = (Collision) slot;
+                int i = collision.hash == hash ? collision.indexOf(key) : -1;
+                return i < 0 ? null : (Leaf<K, V>) collision.leaves[i];
+            }
+        }
+    }
+
+    private static Node put(Node node, Edit edit, int shift, Leaf<?, ?> leaf, Change change) {
+        int bit = bit(leaf.hash, shift);
+        int index = index(node.bitmap, bit);
+        if ((node.bitmap & bit) == 0) {
+            Node editable = node.editable(edit);
+            editable.slots = insert(editable.slots, index, leaf);
+            editable.bitmap |= bit;
+            change.added = true;
+            return editable;
+        }
+        Object slot = node.slots[index];
+        Object replacement;
+        if (slot instanceof Node) {
+            replacement = put((Node) slot, edit, shift + BITS, leaf, change);
+        } else if (slot instanceof Leaf) {
+            Leaf<?, ?> current = (Leaf<?, ?>) slot;
+            if (current.matches(leaf.hash, leaf.key)) {
+                change.previous = current.value;
+                replacement = current.value == leaf.value ? current : leaf;
+            } else if (current.hash == leaf.hash) {
+                change.added = true;
+                replacement = new Collision(leaf.hash, new Object[] { current, leaf });
+            } else {
+                change.added = true;
+                replacement = merge(edit, shift + BITS, current, current.hash, leaf, leaf.hash);
+            }
+        } else {
+            Collision collision = (Collision) slot;
+            if (collision.hash == leaf.hash) {
+                replacement = collision.put(leaf, change);
+            } else {
+                change.added = true;
+                replacement = merge(edit, shift + BITS, collision, collision.hash, leaf, leaf.hash);
+            }
+        }
+        return replace(node, edit, index, slot, replacement);
+    }
+
+    private static Node remove(Node node, Edit edit, int shift, Object key, int hash, Change change) {
+        int bit = bit(hash, shift);
+        if ((node.bitmap & bit) == 0) {
+            return node;
+        }
+        int index = index(node.bitmap, bit);
+        Object slot = node.slots[index];
+        Object replacement;
+        if (slot instanceof Node) {
+            Node child = remove((Node) slot, edit, shift + BITS, key, hash, change);
+            replacement = child.bitmap == 0 ? null : child;
+        } else if (slot instanceof Leaf) {
+            Leaf<?, ?> leaf = (Leaf<?, ?>) slot;
+            if (!leaf.matches(hash, key)) {
+                return node;
+            }
+            change.removed = true;
+            change.previous = leaf.value;
+            replacement = null;
+        } else {
+            Collision collision = (Collision) slot;
+            replacement = collision.hash == hash ? collision.remove(key, change) : collision;
+        }
+        if (replacement == null) {
+            Node editable = node.editable(edit);
+            editable.slots = delete(editable.slots, index);
+            editable.bitmap &= ~bit;
+            return editable;
+        }
+        return replace(node, edit, index, slot, replacement);
+    }
+
+    private static Node replace(Node node, Edit edit, int index, Object slot, Object replacement) {
+        if (replacement == slot) {
+            return node;
+        }
+        Node editable = node.editable(edit);
+        editable.slots[index] = replacement;
+        return editable;
+    }
+
+    /**
+     * Create the node holding two leaves or collisions with different hashes.
+     */
+    private static Node merge(Edit edit, int shift, Object first, int firstHash, Object second, int secondHash) {
+        int firstIndex = (firstHash >>> shift) & MASK;
+        int secondIndex = (secondHash >>> shift) & MASK;
+        if (firstIndex == secondIndex) {
+            Node child = merge(edit, shift + BITS, first, firstHash, second, secondHash);
+            return new Node(edit, 1 << firstIndex, new Object[] { child });
+        }
+        int bitmap = (1 << firstIndex) | (1 << secondIndex);
+        return new Node(edit, bitmap,
+                firstIndex < secondIndex ? new Object[] { first, second } : new Object[] { second, first });
+    }
+
+    private static Object[] insert(Object[] slots, int index, Object slot) {
+        Object[] inserted = new Object[slots.length + 1];
+        System.arraycopy(slots, 0, inserted, 0, index);
+        inserted[index] = slot;
+        System.arraycopy(slots, index, inserted, index + 1, slots.length - index);
+        return inserted;
+    }
+
+    private static Object[] delete(Object[] slots, int index) {
+        Object[] deleted = new Object[slots.length - 1];
+        System.arraycopy(slots, 0, deleted, 0, index);
+        System.arraycopy(slots, index + 1, deleted, index, deleted.length - index);
+        return deleted;
+    }
+
+    private static int hash(Object key) {
+        int hash = Objects.hashCode(key);
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(Object value) {
+        return (V) value;
+    }
+
+    /**
+     * Identity of the map that may modify a node in place.
+     */
+    private static final class Edit implements Serializable {
+        private static final long serialVersionUID = -2297366468185542381L;
+    }
+
+    /**
+     * Result of a modification.
+     */
+    private static final class Change {
+        private boolean added;
+        private boolean removed;
+        private Object previous;
+    }
+
+    private static final class Node implements Serializable {
+        private static final long serialVersionUID = 6573612826436658931L;
+        private final Edit edit;
+        private int bitmap;
+        /**
+         * The slots, either {@link Node}, {@link Leaf} or {@link Collision}. Owned arrays are only modified by
+         * replacing a slot; insertions and deletions create a new array, so iterators keep a consistent view.
+         */
+        private Object[] slots;
+
+        Node(Edit edit, int bitmap, Object[] slots) {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        Node editable(Edit owner) {
+            return edit == owner ? this : new Node(owner, bitmap, slots.clone());
+        }
+    }
+
+    private static final class Leaf<K, V> implements Map.Entry<K, V>, Serializable {
+        private static final long serialVersionUID = -1939373893961939563L;
+        private final int hash;
+        private final K key;
+        private final V value;
+
+        Leaf(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        boolean matches(int otherHash, Object otherKey) {
+            return hash == otherHash && Objects.equals(key, otherKey);
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return Objects.equals(key, other.getKey()) && Objects.equals(value, other.getValue());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * Immutable list of leaves with equal hashes.
+     */
+    private static final class Collision implements Serializable {
+        private static final long serialVersionUID = 5170153466400539186L;
+        private final int hash;
+        private final Object[] leaves;
+
+        Collision(int hash, Object[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        int indexOf(Object key) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (Objects.equals(((Leaf<?, ?>) leaves[i]).key, key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Object put(Leaf<?, ?> leaf, Change change) {
+            int i = indexOf(leaf.key);
+            if (i < 0) {
+                change.added = true;
+                return new Collision(hash, insert(leaves, leaves.length, leaf));
+            }
+            Leaf<?, ?> current = (Leaf<?, ?>) leaves[i];
+            change.previous = current.value;
+            if (current.value == leaf.value) {
+                return this;
+            }
+            Object[] replaced = leaves.clone();
+            replaced[i] = leaf;
+            return new Collision(hash, replaced);
+        }
+
+        Object remove(Object key, Change change) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return this;
+            }
+            change.removed = true;
+            change.previous = ((Leaf<?, ?>) leaves[i]).value;
+            Object[] remaining = delete(leaves, i);
+            return remaining.length == 1 ? remaining[0] : new Collision(hash, remaining);
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            Leaf<K, V> leaf = find(entry.getKey());
+            return leaf != null && Objects.equals(leaf.value, entry.getValue());
+        }
+
+        @Override
+        public void clear() {
+            PersistentHashMap.this.clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        // seven levels of nodes and one of collisions
+        private final Object[][] arrays = new Object[8][];
+        private final int[] positions = new int[8];
+        private int depth;
+        private Leaf<K, V> next;
+        private Leaf<K, V> last;
+
+        EntryIterator() {
+            arrays[0] = root.slots;
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Object[] slots = arrays[depth];
+                if (positions[depth] >= slots.length) {
+                    depth--;
+                    continue;
+                }
+                Object slot = slots[positions[depth]++];
+                if (slot instanceof Leaf) {
+                    next = (Leaf<K, V>) slot;
+                    return;
+                }
+                depth++;
+                arrays[depth] = slot instanceof Node ? ((Node) slot).slots : ((Collision) slot).leaves;
+                positions[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            PersistentHashMap.this.remove(last.key);
+            last = null;
+        }
+    }
+}
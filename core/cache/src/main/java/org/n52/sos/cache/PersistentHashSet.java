@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * {@link java.util.Set} backed by a {@link PersistentHashMap}, so it can be forked in constant time.
+ *
+ * @param <T>
+ *            the element type
+ *
+ * @since 5.0.2
+ */
+final class PersistentHashSet<T> extends AbstractSet<T> implements Serializable {
+    private static final long serialVersionUID = -6619465164400829455L;
+    private final PersistentHashMap<T, Boolean> map;
+
+    PersistentHashSet() {
+        this(new PersistentHashMap<>());
+    }
+
+    PersistentHashSet(Collection<? extends T> values) {
+        this();
+        addAll(values);
+    }
+
+    private PersistentHashSet(PersistentHashMap<T, Boolean> map) {
+        this.map = map;
+    }
+
+    /**
+     * Create a copy of this set in constant time.
+     *
+     * @return the copy
+     * @see PersistentHashMap#fork()
+     */
+    PersistentHashSet<T> fork() {
+        return new PersistentHashSet<>(map.fork());
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return map.keySet().iterator();
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return map.containsKey(o);
+    }
+
+    @Override
+    public boolean add(T e) {
+        return map.put(e, Boolean.TRUE) == null;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return map.remove(o) != null;
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+}
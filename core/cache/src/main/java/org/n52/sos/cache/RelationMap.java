@@ -0,0 +1,350 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Map of identifiers to sets of identifiers that stores both as indices of an {@link IdentifierDictionary} shared by
+ * all relations of a cache, and the sets as {@link IntSet}s. It is used like the synchronized
+ * {@code Map<String, Set<String>>} it replaces: {@link #get(Object)} and {@link #computeIfAbsent(Object, Function)}
+ * return live views that can be modified, values passed to {@link #put(String, Set)} are copied. All operations
+ * synchronize on the map; iterators work on a copy of the elements taken when they are created.
+ *
+ * @since 5.0.2
+ */
+class RelationMap extends AbstractMap<String, Set<String>> implements Serializable {
+    private static final long serialVersionUID = 7365925484806591839L;
+    private final IdentifierDictionary dictionary;
+    private final Map<Integer, IntSet> relations = new HashMap<>();
+
+    RelationMap(IdentifierDictionary dictionary) {
+        this.dictionary = Objects.requireNonNull(dictionary);
+    }
+
+    IdentifierDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public synchronized int size() {
+        return relations.size();
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return relations.isEmpty();
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        int index = dictionary.indexOf(key);
+        return index >= 0 && relations.containsKey(index);
+    }
+
+    @Override
+    public synchronized Set<String> get(Object key) {
+        int index = dictionary.indexOf(key);
+        IntSet set = index < 0 ? null : relations.get(index);
+        return set == null ? null : new View(set);
+    }
+
+    @Override
+    public synchronized Set<String> put(String key, Set<String> value) {
+        Objects.requireNonNull(value);
+        return decode(relations.put(dictionary.intern(key), encode(value)));
+    }
+
+    @Override
+    public synchronized Set<String> remove(Object key) {
+        int index = dictionary.indexOf(key);
+        return index < 0 ? null : decode(relations.remove(index));
+    }
+
+    @Override
+    public synchronized void clear() {
+        relations.clear();
+    }
+
+    @Override
+    public synchronized Set<String> computeIfAbsent(String key,
+            Function<? super String, ? extends Set<String>> mappingFunction) {
+        int index = dictionary.intern(key);
+        IntSet set = relations.get(index);
+        if (set == null) {
+            Set<String> value = mappingFunction.apply(key);
+            if (value == null) {
+                return null;
+            }
+            set = encode(value);
+            relations.put(index, set);
+        }
+        return new View(set);
+    }
+
+    @Override
+    public Set<Entry<String, Set<String>>> entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * @return the number of relations, i.e. the sum of the sizes of all sets
+     */
+    synchronized long getRelationCount() {
+        return relations.values().stream().mapToLong(IntSet::size).sum();
+    }
+
+    /**
+     * @return the estimated heap size of this map in bytes, without the dictionary
+     */
+    synchronized long estimateBytes() {
+        long bytes = MemoryEstimates.align(24) + MemoryEstimates.hashMap(relations.size())
+                + relations.size() * MemoryEstimates.INTEGER;
+        for (IntSet set : relations.values()) {
+            bytes += set.estimateBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the estimated heap size in bytes of this map stored as synchronized
+     *         {@code Map<String, Set<String>>}, without the strings
+     */
+    synchronized long estimateHashBytes() {
+        long bytes = MemoryEstimates.SYNCHRONIZED_WRAPPER + MemoryEstimates.hashMap(relations.size());
+        for (IntSet set : relations.values()) {
+            bytes += MemoryEstimates.SYNCHRONIZED_WRAPPER + MemoryEstimates.hashSet(set.size());
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the estimated heap size in bytes of the strings of this map, if each key and element were a string
+     *         instance of its own
+     */
+    synchronized long estimateStringBytes() {
+        long bytes = 0;
+        for (Entry<Integer, IntSet> entry : relations.entrySet()) {
+            bytes += MemoryEstimates.string(dictionary.get(entry.getKey()));
+            for (int value : entry.getValue().toArray()) {
+                bytes += MemoryEstimates.string(dictionary.get(value));
+            }
+        }
+        return bytes;
+    }
+
+    private IntSet encode(Collection<String> values) {
+        Object[] elements = values.toArray();
+        int[] indices = new int[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            indices[i] = dictionary.intern((String) Objects.requireNonNull(elements[i]));
+        }
+        return IntSet.of(indices);
+    }
+
+    private Set<String> decode(IntSet set) {
+        if (set == null) {
+            return null;
+        }
+        int[] values = set.toArray();
+        Set<String> decoded = new HashSet<>(values.length * 2);
+        for (int value : values) {
+            decoded.add(dictionary.get(value));
+        }
+        return decoded;
+    }
+
+    /**
+     * Iterator over a copy of indices, removing through the given callback.
+     */
+    private abstract class IndexIterator<T> implements Iterator<T> {
+        private final int[] indices;
+        private int next;
+        private boolean removable;
+
+        IndexIterator(int[] indices) {
+            this.indices = indices;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < indices.length;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            removable = true;
+            return map(indices[next++]);
+        }
+
+        @Override
+        public void remove() {
+            if (!removable) {
+                throw new IllegalStateException();
+            }
+            removable = false;
+            synchronized (RelationMap.this) {
+                remove(indices[next - 1]);
+            }
+        }
+
+        abstract T map(int index);
+
+        abstract void remove(int index);
+    }
+
+    /**
+     * Live view of a set of the map.
+     */
+    private class View extends AbstractSet<String> {
+        private final IntSet set;
+
+        View(IntSet set) {
+            this.set = set;
+        }
+
+        @Override
+        public int size() {
+            synchronized (RelationMap.this) {
+                return set.size();
+            }
+        }
+
+        @Override
+        public boolean isEmpty() {
+            synchronized (RelationMap.this) {
+                return set.isEmpty();
+            }
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            int index = dictionary.indexOf(o);
+            synchronized (RelationMap.this) {
+                return index >= 0 && set.contains(index);
+            }
+        }
+
+        @Override
+        public boolean add(String e) {
+            int index = dictionary.intern(Objects.requireNonNull(e));
+            synchronized (RelationMap.this) {
+                return set.add(index);
+            }
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int index = dictionary.indexOf(o);
+            synchronized (RelationMap.this) {
+                return index >= 0 && set.remove(index);
+            }
+        }
+
+        @Override
+        public void clear() {
+            synchronized (RelationMap.this) {
+                set.clear();
+            }
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            int[] indices;
+            synchronized (RelationMap.this) {
+                indices = set.toArray();
+            }
+            return new IndexIterator<String>(indices) {
+                @Override
+                String map(int index) {
+                    return dictionary.get(index);
+                }
+
+                @Override
+                void remove(int index) {
+                    set.remove(index);
+                }
+            };
+        }
+    }
+
+    /**
+     * View of the entries of the map.
+     */
+    private class EntrySet extends AbstractSet<Entry<String, Set<String>>> {
+        @Override
+        public int size() {
+            return RelationMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            RelationMap.this.clear();
+        }
+
+        @Override
+        public Iterator<Entry<String, Set<String>>> iterator() {
+            int[] keys;
+            synchronized (RelationMap.this) {
+                keys = relations.keySet().stream().mapToInt(Integer::intValue).toArray();
+            }
+            return new IndexIterator<Entry<String, Set<String>>>(keys) {
+                @Override
+                Entry<String, Set<String>> map(int index) {
+                    IntSet set;
+                    synchronized (RelationMap.this) {
+                        set = relations.get(index);
+                    }
+                    // an entry removed in the meantime is returned as empty set
+                    return new SimpleImmutableEntry<>(dictionary.get(index),
+                            new View(set == null ? new IntSet() : set));
+                }
+
+                @Override
+                void remove(int index) {
+                    relations.remove(index);
+                }
+            };
+        }
+    }
+}
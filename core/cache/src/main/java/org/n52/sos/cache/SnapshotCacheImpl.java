@@ -0,0 +1,3374 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import static org.n52.sos.util.SosHelper.getHierarchy;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.joda.time.DateTime;
+import org.locationtech.jts.geom.Envelope;
+import org.n52.janmayen.function.Predicates;
+import org.n52.janmayen.i18n.LocalizedString;
+import org.n52.janmayen.i18n.MultilingualString;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.util.CollectionHelper;
+import org.n52.shetland.util.DateTimeHelper;
+import org.n52.shetland.util.ReferencedEnvelope;
+import org.n52.sos.request.ProcedureRequestSettingProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+
+/**
+ * {@link SosWritableContentCache} that keeps its content in an immutable {@link Snapshot} published through a
+ * volatile reference.
+ * <p>
+ * Readers never lock and never copy: they work on the currently published snapshot and get unmodifiable views of
+ * its sets. Writers are serialized by a lock and work on a modifiable version of the snapshot that shares all
+ * collections with its predecessor until they are touched. Indexes and top level sets are
+ * {@link PersistentHashMap}s and {@link PersistentHashSet}s, so the first write to them in a version copies only
+ * the trie nodes on the path to the changed entry; value sets of the indexes are copied as a whole, as are the
+ * maps of human readable names, which are written rarely. Every
+ * single modification publishes a new version, unless it is part of an update window opened with
+ * {@link #beginUpdate()}, in which case the version is published by the matching {@link #endUpdate()}. While an
+ * update window is open, only the thread that opened it sees the unpublished state; all other readers keep
+ * reading the last published snapshot.
+ *
+ * @since 5.0.2
+ */
+public class SnapshotCacheImpl extends AbstractStaticSosContentCache implements SosWritableContentCache, CacheConstants {
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotCacheImpl.class);
+    private static final long serialVersionUID = -4283624926186563297L;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Snapshot snapshot = new Snapshot();
+    private transient Snapshot working;
+    private transient int updateDepth;
+    private transient volatile Thread updater;
+
+    /**
+     * Opens an update window. Modifications made until the matching call to {@link #endUpdate()} are published as
+     * a single new version. Windows may be nested.
+     */
+    public void beginUpdate() {
+        writeLock.lock();
+        try {
+            if (updateDepth++ == 0) {
+                if (working == null) {
+                    working = snapshot.modify();
+                }
+                updater = Thread.currentThread();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Closes an update window and publishes the modifications made within the outermost window.
+     *
+     * @throws IllegalStateException if no update window is open
+     */
+    public void endUpdate() {
+        writeLock.lock();
+        try {
+            if (updateDepth == 0) {
+                throw new IllegalStateException("No update in progress!");
+            }
+            if (--updateDepth == 0) {
+                snapshot = working.seal();
+                working = null;
+                updater = null;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean isLockFreeRead() {
+        // other threads keep reading the published version while an update window is open
+        return updater != Thread.currentThread() && !writeLock.isHeldByCurrentThread();
+    }
+
+    private <T> T read(Function<Snapshot, T> reader) {
+        if (isLockFreeRead()) {
+            return reader.apply(snapshot);
+        }
+        writeLock.lock();
+        try {
+            return reader.apply(working != null ? working : snapshot);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private <T> Set<T> readSet(Function<Snapshot, Set<T>> reader) {
+        if (isLockFreeRead()) {
+            // published sets are never modified again
+            Set<T> set = reader.apply(snapshot);
+            return set == null ? Collections.emptySet() : Collections.unmodifiableSet(set);
+        }
+        writeLock.lock();
+        try {
+            return copyOf(reader.apply(working != null ? working : snapshot));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private ReferencedEnvelope readEnvelope(Function<Snapshot, ReferencedEnvelope> reader) {
+        // envelopes are mutable, so they are always copied
+        return copyOf(read(reader));
+    }
+
+    private void write(Consumer<Snapshot> writer) {
+        writeLock.lock();
+        try {
+            if (working == null) {
+                working = snapshot.modify();
+            }
+            boolean completed = false;
+            try {
+                writer.accept(working);
+                completed = true;
+            } finally {
+                if (writeLock.getHoldCount() == 1 && updateDepth == 0) {
+                    if (completed) {
+                        snapshot = working.seal();
+                    }
+                    working = null;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public DateTime getLastUpdateTime() {
+        return read(s -> s.updateTime);
+    }
+
+    @Override
+    public void setLastUpdateTime(DateTime time) {
+        write(s -> s.updateTime = time);
+    }
+
+    @Override
+    public DateTime getMaxPhenomenonTime() {
+        return read(s -> s.maxPhenomenonTime);
+    }
+
+    @Override
+    public void setMaxPhenomenonTime(DateTime maxEventTime) {
+        LOG.trace("Setting Maximal EventTime to {}", maxEventTime);
+        write(s -> s.maxPhenomenonTime = DateTimeHelper.toUTC(maxEventTime));
+    }
+
+    @Override
+    public DateTime getMinPhenomenonTime() {
+        return read(s -> s.minPhenomenonTime);
+    }
+
+    @Override
+    public void setMinPhenomenonTime(DateTime minEventTime) {
+        LOG.trace("Setting Minimal EventTime to {}", minEventTime);
+        write(s -> s.minPhenomenonTime = DateTimeHelper.toUTC(minEventTime));
+    }
+
+    public DateTime getUpdateTime() {
+        return getLastUpdateTime();
+    }
+
+    public void setUpdateTime(DateTime updateTime) {
+        setLastUpdateTime(updateTime);
+    }
+
+    public void setDefaultEPSGCode(int defaultEpsgCode) {
+        write(s -> s.defaultEpsgCode = defaultEpsgCode);
+    }
+
+    @Override
+    public int getDefaultEPSGCode() {
+        return read(s -> s.defaultEpsgCode);
+    }
+
+    @Override
+    public Set<Integer> getEpsgCodes() {
+        return readSet(s -> s.epsgCodes);
+    }
+
+    @Override
+    public Set<String> getFeaturesOfInterest() {
+        return readSet(s -> s.featuresOfInterest);
+    }
+
+    @Override
+    public void setFeaturesOfInterest(Collection<String> featuresOfInterest) {
+        noNullOrEmptyValues(FEATURES_OF_INTEREST, featuresOfInterest);
+        LOG.trace("Setting FeaturesOfInterest");
+        write(s -> s.featuresOfInterest = s.addAll(new PersistentHashSet<>(), featuresOfInterest));
+    }
+
+    @Override
+    public Set<String> getProcedures() {
+        return readSet(s -> s.procedures);
+    }
+
+    @Override
+    public void setProcedures(Collection<String> procedures) {
+        noNullOrEmptyValues(PROCEDURES, procedures);
+        LOG.trace("Setting Procedures");
+        write(s -> s.procedures = s.addAll(new PersistentHashSet<>(), procedures));
+    }
+
+    @Override
+    public Set<String> getResultTemplates() {
+        return readSet(s -> s.resultTemplates);
+    }
+
+    @Override
+    public ReferencedEnvelope getGlobalEnvelope() {
+        return readEnvelope(s -> s.globalEnvelope);
+    }
+
+    @Override
+    public void setGlobalEnvelope(ReferencedEnvelope globalEnvelope) {
+        write(s -> {
+            if (globalEnvelope == null) {
+                s.globalEnvelope = new ReferencedEnvelope(new Envelope(), s.defaultEpsgCode);
+            } else {
+                s.globalEnvelope = copyOf(globalEnvelope);
+            }
+            LOG.trace("Global envelope updated to '{}' with '{}'", s.globalEnvelope, globalEnvelope);
+        });
+    }
+
+    @Override
+    public Set<String> getOfferings() {
+        return readSet(s -> s.offerings);
+    }
+
+    @Override
+    public void setOfferings(Collection<String> offerings) {
+        noNullOrEmptyValues(OFFERINGS, offerings);
+        write(s -> s.offerings = s.addAll(new PersistentHashSet<>(), offerings));
+    }
+
+    @Override
+    public Set<String> getOfferingsForObservableProperty(String observableProperty) {
+        return readSet(s -> s.offeringsForObservableProperties.get(observableProperty));
+    }
+
+    @Override
+    public Set<String> getOfferingsForProcedure(String procedure) {
+        return readSet(s -> s.offeringsForProcedures.get(procedure));
+    }
+
+    @Override
+    public Set<String> getProceduresForFeatureOfInterest(String featureOfInterest) {
+        return readSet(s -> s.proceduresForFeaturesOfInterest.get(featureOfInterest));
+    }
+
+    @Override
+    public Set<String> getProceduresForObservableProperty(String observableProperty) {
+        return readSet(s -> s.proceduresForObservableProperties.get(observableProperty));
+    }
+
+    @Override
+    public Set<String> getProceduresForOffering(String offering) {
+        return readSet(s -> s.proceduresForOfferings.get(offering));
+    }
+
+    @Override
+    public Set<String> getHiddenChildProceduresForOffering(String offering) {
+        return readSet(s -> s.hiddenChildProceduresForOfferings.get(offering));
+    }
+
+    @Override
+    public Set<String> getRelatedFeaturesForOffering(String offering) {
+        return readSet(s -> s.relatedFeaturesForOfferings.get(offering));
+    }
+
+    @Override
+    public Set<String> getResultTemplatesForOffering(String offering) {
+        return readSet(s -> s.resultTemplatesForOfferings.get(offering));
+    }
+
+    @Override
+    public Set<String> getRolesForRelatedFeature(String relatedFeature) {
+        return readSet(s -> s.rolesForRelatedFeatures.get(relatedFeature));
+    }
+
+    @Override
+    public ReferencedEnvelope getEnvelopeForOffering(String offering) {
+        return readEnvelope(s -> s.envelopeForOfferings.get(offering));
+    }
+
+    @Override
+    public String getNameForOffering(String offering) {
+        return read(s -> s.nameForOfferings.get(offering));
+    }
+
+    @Override
+    public LocalizedString getI18nNameForOffering(String offering, Locale i18n) {
+        return Optional.ofNullable(getI18nNamesForOffering(offering))
+                .flatMap(m -> m.getLocalization(i18n)).orElse(null);
+    }
+
+    @Override
+    public MultilingualString getI18nNamesForOffering(String offering) {
+        return read(s -> s.i18nNameForOfferings.get(offering));
+    }
+
+    @Override
+    public boolean hasI18NNamesForOffering(String offering, Locale i18n) {
+        return Optional.ofNullable(getI18nNamesForOffering(offering)).filter(m -> m.hasLocale(i18n)).isPresent();
+    }
+
+    @Override
+    public LocalizedString getI18nDescriptionForOffering(String offering, Locale i18n) {
+        return Optional.ofNullable(getI18nDescriptionsForOffering(offering))
+                .flatMap(m -> m.getLocalization(i18n)).orElse(null);
+    }
+
+    @Override
+    public MultilingualString getI18nDescriptionsForOffering(String offering) {
+        return read(s -> s.i18nDescriptionForOfferings.get(offering));
+    }
+
+    @Override
+    public boolean hasI18NDescriptionForOffering(String offering, Locale i18n) {
+        return Optional.ofNullable(getI18nDescriptionsForOffering(offering)).filter(m -> m.hasLocale(i18n))
+                .isPresent();
+    }
+
+    @Override
+    public DateTime getMaxPhenomenonTimeForOffering(String offering) {
+        return read(s -> s.maxPhenomenonTimeForOfferings.get(offering));
+    }
+
+    @Override
+    public DateTime getMinPhenomenonTimeForOffering(String offering) {
+        return read(s -> s.minPhenomenonTimeForOfferings.get(offering));
+    }
+
+    @Override
+    public DateTime getMaxPhenomenonTimeForProcedure(String procedure) {
+        return read(s -> s.getMaxPhenomenonTimeForProcedure(procedure));
+    }
+
+    @Override
+    public DateTime getMinPhenomenonTimeForProcedure(String procedure) {
+        return read(s -> s.getMinPhenomenonTimeForProcedure(procedure));
+    }
+
+    @Override
+    public Set<String> getAllowedObservationTypesForOffering(String offering) {
+        return readSet(s -> s.allowedObservationTypeForOfferings.get(offering));
+    }
+
+    @Override
+    public Set<String> getAllObservationTypesForOffering(final String offering) {
+        return read(s -> {
+            Set<String> observationTypes = new HashSet<>();
+            observationTypes.addAll(s.allowedObservationTypeForOfferings.getOrDefault(offering,
+                    Collections.emptySet()));
+            observationTypes.addAll(s.observationTypesForOfferings.getOrDefault(offering, Collections.emptySet()));
+            return observationTypes;
+        });
+    }
+
+    @Override
+    public Set<String> getFeaturesOfInterestForOffering(String offering) {
+        return readSet(s -> s.featuresOfInterestForOfferings.get(offering));
+    }
+
+    @Override
+    public Set<String> getOfferingsForFeatureOfInterest(final String featureOfInterest) {
+        return readSet(s -> s.offeringsForFeaturesOfInterest.get(featureOfInterest));
+    }
+
+    @Override
+    public Set<String> getFeaturesOfInterestForResultTemplate(String resultTemplate) {
+        return readSet(s -> s.featuresOfInterestForResultTemplates.get(resultTemplate));
+    }
+
+    @Override
+    public Set<String> getObservablePropertiesForOffering(String offering) {
+        return readSet(s -> s.observablePropertiesForOfferings.get(offering));
+    }
+
+    @Override
+    public Set<String> getObservablePropertiesForProcedure(String procedure) {
+        return readSet(s -> s.observablePropertiesForProcedures.get(procedure));
+    }
+
+    @Override
+    public boolean hasObservablePropertyForProcedure(String procedure, String observableProperty) {
+        return read(s -> Snapshot.contains(s.observablePropertiesForProcedures, procedure, observableProperty));
+    }
+
+    @Override
+    public Set<String> getObservationTypesForOffering(String offering) {
+        return readSet(s -> s.observationTypesForOfferings.get(offering));
+    }
+
+    @Override
+    public Set<String> getObservablePropertiesForResultTemplate(String resultTemplate) {
+        return readSet(s -> s.observedPropertiesForResultTemplates.get(resultTemplate));
+    }
+
+    @Override
+    public Set<String> getParentProcedures(String procedureIdentifier, boolean fullHierarchy, boolean includeSelf) {
+        return read(s -> getHierarchy(s.parentProceduresForProcedures, procedureIdentifier, fullHierarchy,
+                includeSelf));
+    }
+
+    @Override
+    public Set<String> getParentProcedures(final Set<String> procedureIdentifiers, final boolean fullHierarchy,
+            final boolean includeSelves) {
+        return read(s -> getHierarchy(s.parentProceduresForProcedures, procedureIdentifiers, fullHierarchy,
+                includeSelves));
+    }
+
+    @Override
+    public Set<String> getParentFeatures(final String featureIdentifier, final boolean fullHierarchy,
+            final boolean includeSelf) {
+        return read(s -> getHierarchy(s.parentFeaturesForFeaturesOfInterest, featureIdentifier, fullHierarchy,
+                includeSelf));
+    }
+
+    @Override
+    public Set<String> getParentFeatures(final Set<String> featureIdentifiers, final boolean fullHierarchy,
+            final boolean includeSelves) {
+        return read(s -> getHierarchy(s.parentFeaturesForFeaturesOfInterest, featureIdentifiers, fullHierarchy,
+                includeSelves));
+    }
+
+    @Override
+    public Set<String> getChildProcedures(final String procedureIdentifier, final boolean fullHierarchy,
+            final boolean includeSelf) {
+        return read(s -> getHierarchy(s.childProceduresForProcedures, procedureIdentifier, fullHierarchy,
+                includeSelf));
+    }
+
+    @Override
+    public Set<String> getChildProcedures(Set<String> procedureIdentifiers, boolean fullHierarchy,
+            boolean includeSelves) {
+        return read(s -> getHierarchy(s.childProceduresForProcedures, procedureIdentifiers, fullHierarchy,
+                includeSelves));
+    }
+
+    @Override
+    public Set<String> getParentOfferings(final String offeringIdentifier, final boolean fullHierarchy,
+            final boolean includeSelf) {
+        return read(s -> getHierarchy(s.parentOfferingsForOfferings, offeringIdentifier, fullHierarchy,
+                includeSelf));
+    }
+
+    @Override
+    public Set<String> getParentOfferings(final Set<String> offeringIdentifiers, final boolean fullHierarchy,
+            final boolean includeSelves) {
+        return read(s -> getHierarchy(s.parentOfferingsForOfferings, offeringIdentifiers, fullHierarchy,
+                includeSelves));
+    }
+
+    @Override
+    public Set<String> getChildOfferings(final String offeringIdentifier, final boolean fullHierarchy,
+            final boolean includeSelf) {
+        return read(s -> getHierarchy(s.childOfferingsForOfferings, offeringIdentifier, fullHierarchy,
+                includeSelf));
+    }
+
+    @Override
+    public Set<String> getChildOfferings(final Set<String> offeringIdentifiers, final boolean fullHierarchy,
+            final boolean includeSelves) {
+        return read(s -> getHierarchy(s.childOfferingsForOfferings, offeringIdentifiers, fullHierarchy,
+                includeSelves));
+    }
+
+    @Override
+    public boolean hasParentOfferings(String offering) {
+        return read(s -> s.parentOfferingsForOfferings.containsKey(offering));
+    }
+
+    @Override
+    public Set<String> getChildFeatures(final String featureIdentifier, final boolean fullHierarchy,
+            final boolean includeSelf) {
+        return read(s -> getHierarchy(s.childFeaturesForFeatureOfInterest, featureIdentifier, fullHierarchy,
+                includeSelf));
+    }
+
+    @Override
+    public Set<String> getFeaturesOfInterestWithResultTemplate() {
+        return read(s -> CollectionHelper.unionOfListOfLists(s.featuresOfInterestForResultTemplates.values()));
+    }
+
+    @Override
+    public Set<String> getObservableProperties() {
+        return read(s -> CollectionHelper.unionOfListOfLists(s.observablePropertiesForOfferings.values()));
+    }
+
+    @Override
+    public Set<String> getObservablePropertiesWithResultTemplate() {
+        return read(s -> CollectionHelper.unionOfListOfLists(s.observedPropertiesForResultTemplates.values()));
+    }
+
+    @Override
+    public Set<String> getOfferingsWithResultTemplate() {
+        return read(s -> copyOf(s.resultTemplatesForOfferings.keySet()));
+    }
+
+    @Override
+    public Set<String> getRelatedFeatures() {
+        return read(s -> CollectionHelper.unionOfListOfLists(s.relatedFeaturesForOfferings.values()));
+    }
+
+    @Override
+    public boolean hasFeatureOfInterest(String featureOfInterest) {
+        return read(s -> s.featuresOfInterest.contains(featureOfInterest));
+    }
+
+    @Override
+    public boolean hasObservableProperty(String observableProperty) {
+        return read(s -> Snapshot.containsValue(s.observablePropertiesForOfferings, observableProperty));
+    }
+
+    @Override
+    public boolean hasObservationType(String observationType) {
+        return getObservationTypes().contains(observationType);
+    }
+
+    @Override
+    public boolean hasOffering(String offering) {
+        return read(s -> s.offerings.contains(offering));
+    }
+
+    @Override
+    public boolean hasProcedure(String procedure) {
+        return read(s -> s.procedures.contains(procedure));
+    }
+
+    @Override
+    public boolean hasRelatedFeature(String relatedFeature) {
+        return read(s -> Snapshot.containsValue(s.relatedFeaturesForOfferings, relatedFeature));
+    }
+
+    @Override
+    public boolean hasResultTemplate(String resultTemplate) {
+        return read(s -> s.resultTemplates.contains(resultTemplate));
+    }
+
+    @Override
+    public boolean hasEpsgCode(Integer epsgCode) {
+        return read(s -> s.epsgCodes.contains(epsgCode));
+    }
+
+    @Override
+    public boolean hasMaxPhenomenonTimeForOffering(String offering) {
+        return getMaxPhenomenonTimeForOffering(offering) != null;
+    }
+
+    @Override
+    public boolean hasMinPhenomenonTimeForOffering(String offering) {
+        return getMinPhenomenonTimeForOffering(offering) != null;
+    }
+
+    @Override
+    public boolean hasMaxPhenomenonTimeForProcedure(String procedure) {
+        return getMaxPhenomenonTimeForProcedure(procedure) != null;
+    }
+
+    @Override
+    public boolean hasMinPhenomenonTimeForProcedure(String procedure) {
+        return getMinPhenomenonTimeForProcedure(procedure) != null;
+    }
+
+    @Override
+    public boolean hasEnvelopeForOffering(String offering) {
+        return read(s -> isSetEnvelope(s.envelopeForOfferings.get(offering)));
+    }
+
+    @Override
+    public boolean hasMaxPhenomenonTime() {
+        return getMaxPhenomenonTime() != null;
+    }
+
+    @Override
+    public boolean hasMinPhenomenonTime() {
+        return getMinPhenomenonTime() != null;
+    }
+
+    @Override
+    public boolean hasGlobalEnvelope() {
+        return read(s -> isSetEnvelope(s.globalEnvelope));
+    }
+
+    @Override
+    public DateTime getMaxResultTime() {
+        return read(s -> s.maxResultTime);
+    }
+
+    @Override
+    public void setMaxResultTime(DateTime maxResultTime) {
+        LOG.trace("Setting Maximal ResultTime to {}", maxResultTime);
+        write(s -> s.maxResultTime = DateTimeHelper.toUTC(maxResultTime));
+    }
+
+    @Override
+    public boolean hasMaxResultTime() {
+        return getMaxResultTime() != null;
+    }
+
+    @Override
+    public DateTime getMaxResultTimeForOffering(String offering) {
+        return read(s -> s.maxResultTimeForOfferings.get(offering));
+    }
+
+    @Override
+    public boolean hasMaxResultTimeForOffering(String offering) {
+        return getMaxResultTimeForOffering(offering) != null;
+    }
+
+    @Override
+    public DateTime getMinResultTime() {
+        return read(s -> s.minResultTime);
+    }
+
+    @Override
+    public void setMinResultTime(DateTime minResultTime) {
+        LOG.trace("Setting Minimal ResultTime to {}", minResultTime);
+        write(s -> s.minResultTime = DateTimeHelper.toUTC(minResultTime));
+    }
+
+    @Override
+    public boolean hasMinResultTime() {
+        return getMinResultTime() != null;
+    }
+
+    @Override
+    public DateTime getMinResultTimeForOffering(String offering) {
+        return read(s -> s.minResultTimeForOfferings.get(offering));
+    }
+
+    @Override
+    public boolean hasMinResultTimeForOffering(String offering) {
+        return getMinResultTimeForOffering(offering) != null;
+    }
+
+    @Override
+    public boolean isRelatedFeatureSampled(String relatedFeatureIdentifier) {
+        return Optional.ofNullable(relatedFeatureIdentifier)
+                .filter(Predicates.not(String::isEmpty))
+                .filter(id -> read(s -> Snapshot.containsValue(s.relatedFeaturesForOfferings, id)
+                        && !getHierarchy(s.childFeaturesForFeatureOfInterest, id, true, false).isEmpty()))
+                .isPresent();
+    }
+
+    @Override
+    public ReferencedEnvelope getSpatialFilteringProfileEnvelopeForOffering(String offering) {
+        return readEnvelope(s -> s.spatialFilteringProfileEnvelopeForOfferings.get(offering));
+    }
+
+    @Override
+    public boolean hasSpatialFilteringProfileEnvelopeForOffering(String offering) {
+        return read(s -> isSetEnvelope(s.spatialFilteringProfileEnvelopeForOfferings.get(offering)));
+    }
+
+    @Override
+    public boolean hasFeatureOfInterestType(String featureOfInterestType) {
+        return getFeatureOfInterestTypes().contains(featureOfInterestType);
+    }
+
+    @Override
+    public Set<String> getFeatureOfInterestTypesForOffering(String offering) {
+        return readSet(s -> s.featureOfInterestTypesForOfferings.get(offering));
+    }
+
+    @Override
+    public Set<String> getAllowedFeatureOfInterestTypesForOffering(String offering) {
+        return readSet(s -> s.allowedFeatureOfInterestTypeForOfferings.get(offering));
+    }
+
+    @Override
+    public Set<Locale> getSupportedLanguages() {
+        return readSet(s -> s.supportedLanguages);
+    }
+
+    @Override
+    public boolean hasSupportedLanguage() {
+        return read(s -> !s.supportedLanguages.isEmpty());
+    }
+
+    @Override
+    public boolean isLanguageSupported(Locale language) {
+        return read(s -> s.supportedLanguages.contains(language));
+    }
+
+    @Override
+    public String getFeatureOfInterestIdentifierForHumanReadableName(String humanReadableName) {
+        return read(s -> s.featureOfInterestIdentifierHumanReadableName.inverse()
+                .getOrDefault(humanReadableName, humanReadableName));
+    }
+
+    @Override
+    public String getFeatureOfInterestHumanReadableNameForIdentifier(String identifier) {
+        return read(s -> s.featureOfInterestIdentifierHumanReadableName.getOrDefault(identifier, identifier));
+    }
+
+    @Override
+    public String getObservablePropertyIdentifierForHumanReadableName(String humanReadableName) {
+        return read(s -> s.observablePropertyIdentifierHumanReadableName.inverse()
+                .getOrDefault(humanReadableName, humanReadableName));
+    }
+
+    @Override
+    public String getObservablePropertyHumanReadableNameForIdentifier(String identifier) {
+        return read(s -> s.observablePropertyIdentifierHumanReadableName.getOrDefault(identifier, identifier));
+    }
+
+    @Override
+    public String getProcedureIdentifierForHumanReadableName(String humanReadableName) {
+        return read(s -> s.procedureIdentifierHumanReadableName.inverse()
+                .getOrDefault(humanReadableName, humanReadableName));
+    }
+
+    @Override
+    public String getProcedureHumanReadableNameForIdentifier(String identifier) {
+        return read(s -> s.procedureIdentifierHumanReadableName.getOrDefault(identifier, identifier));
+    }
+
+    @Override
+    public String getOfferingIdentifierForHumanReadableName(String humanReadableName) {
+        return read(s -> s.offeringIdentifierHumanReadableName.inverse()
+                .getOrDefault(humanReadableName, humanReadableName));
+    }
+
+    @Override
+    public String getOfferingHumanReadableNameForIdentifier(String identifier) {
+        return read(s -> s.offeringIdentifierHumanReadableName.getOrDefault(identifier, identifier));
+    }
+
+    @Override
+    public void removeResultTemplates(Collection<String> resultTemplates) {
+        noNullOrEmptyValues(RESULT_TEMPLATES, resultTemplates);
+        LOG.trace("Removing SosResultTemplates {}", resultTemplates);
+        write(s -> s.resultTemplates = s.removeAll(s.resultTemplates, resultTemplates));
+    }
+
+    @Override
+    public void addEpsgCode(Integer epsgCode) {
+        greaterZero(EPSG_CODE, epsgCode);
+        LOG.trace("Adding EpsgCode {}", epsgCode);
+        write(s -> s.epsgCodes = s.add(s.epsgCodes, epsgCode));
+    }
+
+    @Override
+    public void addFeatureOfInterest(String featureOfInterest) {
+        notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
+        LOG.trace("Adding FeatureOfInterest {}", featureOfInterest);
+        write(s -> s.featuresOfInterest = s.add(s.featuresOfInterest, featureOfInterest));
+    }
+
+    @Override
+    public void addProcedure(String procedure) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Adding procedure {}", procedure);
+        write(s -> s.procedures = s.add(s.procedures, procedure));
+    }
+
+    @Override
+    public void addResultTemplate(String resultTemplate) {
+        notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
+        LOG.trace("Adding SosResultTemplate {}", resultTemplate);
+        write(s -> s.resultTemplates = s.add(s.resultTemplates, resultTemplate));
+    }
+
+    @Override
+    public void addResultTemplates(Collection<String> resultTemplates) {
+        noNullOrEmptyValues(RESULT_TEMPLATES, resultTemplates);
+        LOG.trace("Adding SosResultTemplates {}", resultTemplates);
+        write(s -> s.resultTemplates = s.addAll(s.resultTemplates, resultTemplates));
+    }
+
+    @Override
+    public void addEpsgCodes(Collection<Integer> epsgCodes) {
+        noNullValues(EPSG_CODES, epsgCodes);
+        epsgCodes.forEach(epsgCode -> greaterZero(EPSG_CODE, epsgCode));
+        LOG.trace("Adding EpsgCodes {}", epsgCodes);
+        write(s -> s.epsgCodes = s.addAll(s.epsgCodes, epsgCodes));
+    }
+
+    @Override
+    public void addFeaturesOfInterest(Collection<String> featuresOfInterest) {
+        noNullOrEmptyValues(FEATURES_OF_INTEREST, featuresOfInterest);
+        LOG.trace("Adding FeaturesOfInterest {}", featuresOfInterest);
+        write(s -> s.featuresOfInterest = s.addAll(s.featuresOfInterest, featuresOfInterest));
+    }
+
+    @Override
+    public void addProcedures(Collection<String> procedures) {
+        noNullOrEmptyValues(PROCEDURES, procedures);
+        LOG.trace("Adding procedures {}", procedures);
+        write(s -> s.procedures = s.addAll(s.procedures, procedures));
+    }
+
+    @Override
+    public void removeFeatureOfInterest(String featureOfInterest) {
+        notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
+        LOG.trace("Removing FeatureOfInterest {}", featureOfInterest);
+        write(s -> s.featuresOfInterest = s.remove(s.featuresOfInterest, featureOfInterest));
+    }
+
+    @Override
+    public void removeFeaturesOfInterest(Collection<String> featuresOfInterest) {
+        noNullOrEmptyValues(FEATURES_OF_INTEREST, featuresOfInterest);
+        LOG.trace("Removing FeaturesOfInterest {}", featuresOfInterest);
+        write(s -> s.featuresOfInterest = s.removeAll(s.featuresOfInterest, featuresOfInterest));
+    }
+
+    @Override
+    public void removeProcedure(String procedure) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Removing Procedure {}", procedure);
+        write(s -> s.procedures = s.remove(s.procedures, procedure));
+    }
+
+    @Override
+    public void removeProcedures(Collection<String> procedures) {
+        noNullOrEmptyValues(PROCEDURES, procedures);
+        LOG.trace("Removing Procedures {}", procedures);
+        write(s -> s.procedures = s.removeAll(s.procedures, procedures));
+    }
+
+    @Override
+    public void removeResultTemplate(String resultTemplate) {
+        notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
+        LOG.trace("Removing SosResultTemplate {}", resultTemplate);
+        write(s -> s.resultTemplates = s.remove(s.resultTemplates, resultTemplate));
+    }
+
+    @Override
+    public void setObservablePropertiesForOffering(String offering, Collection<String> observableProperties) {
+        LOG.trace("Setting ObservableProperties for Offering {} to {}", offering, observableProperties);
+        write(s -> s.observablePropertiesForOfferings =
+                s.set(s.observablePropertiesForOfferings, offering, observableProperties));
+    }
+
+    @Override
+    public void setObservablePropertiesForProcedure(String procedure, Collection<String> observableProperties) {
+        LOG.trace("Setting ObservableProperties for Procedure {} to {}", procedure, observableProperties);
+        write(s -> s.observablePropertiesForProcedures =
+                s.set(s.observablePropertiesForProcedures, procedure, observableProperties));
+    }
+
+    @Override
+    public void setObservationTypesForOffering(String offering, Collection<String> observationTypes) {
+        LOG.trace("Setting ObservationTypes for Offering {} to {}", offering, observationTypes);
+        write(s -> s.observationTypesForOfferings = s.set(s.observationTypesForOfferings, offering, observationTypes));
+    }
+
+    @Override
+    public void setOfferingsForObservableProperty(String observableProperty, Collection<String> offerings) {
+        LOG.trace("Setting Offerings for ObservableProperty {} to {}", observableProperty, offerings);
+        write(s -> s.offeringsForObservableProperties =
+                s.set(s.offeringsForObservableProperties, observableProperty, offerings));
+    }
+
+    @Override
+    public void setOfferingsForProcedure(String procedure, Collection<String> offerings) {
+        LOG.trace("Setting Offerings for Procedure {} to {}", procedure, offerings);
+        write(s -> s.offeringsForProcedures = s.set(s.offeringsForProcedures, procedure, offerings));
+    }
+
+    @Override
+    public void setProceduresForFeatureOfInterest(String featureOfInterest, Collection<String> procedures) {
+        LOG.trace("Setting Procedures for FeatureOfInterest {} to {}", featureOfInterest, procedures);
+        write(s -> s.proceduresForFeaturesOfInterest =
+                s.set(s.proceduresForFeaturesOfInterest, featureOfInterest, procedures));
+    }
+
+    @Override
+    public void setProceduresForObservableProperty(String observableProperty, Collection<String> procedures) {
+        LOG.trace("Setting Procedures for ObservableProperty {} to {}", observableProperty, procedures);
+        write(s -> s.proceduresForObservableProperties =
+                s.set(s.proceduresForObservableProperties, observableProperty, procedures));
+    }
+
+    @Override
+    public void setProceduresForOffering(String offering, Collection<String> procedures) {
+        LOG.trace("Setting Procedures for Offering {} to {}", offering, procedures);
+        write(s -> s.proceduresForOfferings = s.set(s.proceduresForOfferings, offering, procedures));
+    }
+
+    @Override
+    public void setRelatedFeaturesForOffering(String offering, Collection<String> relatedFeatures) {
+        LOG.trace("Setting Related Features for Offering {} to {}", offering, relatedFeatures);
+        write(s -> s.relatedFeaturesForOfferings = s.set(s.relatedFeaturesForOfferings, offering, relatedFeatures));
+    }
+
+    @Override
+    public void setResultTemplatesForOffering(String offering, Collection<String> resultTemplates) {
+        LOG.trace("Setting ResultTemplates for Offering {} to {}", offering, resultTemplates);
+        write(s -> s.resultTemplatesForOfferings = s.set(s.resultTemplatesForOfferings, offering, resultTemplates));
+    }
+
+    @Override
+    public void setRolesForRelatedFeature(String relatedFeature, Collection<String> roles) {
+        LOG.trace("Setting Roles for RelatedFeature {} to {}", relatedFeature, roles);
+        write(s -> s.rolesForRelatedFeatures = s.set(s.rolesForRelatedFeatures, relatedFeature, roles));
+    }
+
+    @Override
+    public void setPhenomenonTime(DateTime minEventTime, DateTime maxEventTime) {
+        LOG.trace("Setting EventTime to {}/{}", minEventTime, maxEventTime);
+        write(s -> {
+            s.minPhenomenonTime = DateTimeHelper.toUTC(minEventTime);
+            s.maxPhenomenonTime = DateTimeHelper.toUTC(maxEventTime);
+        });
+    }
+
+    @Override
+    public void setMaxPhenomenonTimeForOffering(String offering, DateTime maxTime) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Setting maximal EventTime for Offering {} to {}", offering, maxTime);
+        write(s -> s.maxPhenomenonTimeForOfferings = s.putTime(s.maxPhenomenonTimeForOfferings, offering, maxTime));
+    }
+
+    @Override
+    public void setMinPhenomenonTimeForOffering(String offering, DateTime minTime) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Setting minimal EventTime for Offering {} to {}", offering, minTime);
+        write(s -> s.minPhenomenonTimeForOfferings = s.putTime(s.minPhenomenonTimeForOfferings, offering, minTime));
+    }
+
+    @Override
+    public void setMaxPhenomenonTimeForProcedure(String procedure, DateTime maxTime) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Setting maximal phenomenon time for procedure {} to {}", procedure, maxTime);
+        write(s -> s.maxPhenomenonTimeForProcedures =
+                s.putTime(s.maxPhenomenonTimeForProcedures, procedure, maxTime));
+    }
+
+    @Override
+    public void setMinPhenomenonTimeForProcedure(String procedure, DateTime minTime) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Setting minimal phenomenon time for procedure {} to {}", procedure, minTime);
+        write(s -> s.minPhenomenonTimeForProcedures =
+                s.putTime(s.minPhenomenonTimeForProcedures, procedure, minTime));
+    }
+
+    @Override
+    public void setNameForOffering(String offering, String name) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(NAME, name);
+        LOG.trace("Setting Name of Offering {} to {}", offering, name);
+        write(s -> s.nameForOfferings = s.put(s.nameForOfferings, offering, name));
+    }
+
+    @Override
+    public void setI18nNameForOffering(String offering, MultilingualString name) {
+        notNullOrEmpty(OFFERING, offering);
+        Objects.requireNonNull(name, NAME);
+        LOG.trace("Setting I18N Name of Offering {} to {}", offering, name);
+        write(s -> s.i18nNameForOfferings = s.put(s.i18nNameForOfferings, offering, name));
+    }
+
+    @Override
+    public void setI18nDescriptionForOffering(String offering, MultilingualString description) {
+        notNullOrEmpty(OFFERING, offering);
+        Objects.requireNonNull(description, DESCRIPTION);
+        LOG.trace("Setting I18N Description of Offering {} to {}", offering, description);
+        write(s -> s.i18nDescriptionForOfferings = s.put(s.i18nDescriptionForOfferings, offering, description));
+    }
+
+    @Override
+    public void setEnvelopeForOffering(String offering, ReferencedEnvelope envelope) {
+        LOG.trace("Setting Envelope for Offering {} to {}", offering, envelope);
+        write(s -> s.envelopeForOfferings = s.put(s.envelopeForOfferings, offering, copyOf(envelope)));
+    }
+
+    @Override
+    public Set<String> getFeaturesOfInterestWithOffering() {
+        return read(s -> CollectionHelper.unionOfListOfLists(s.featuresOfInterestForOfferings.values()));
+    }
+
+    @Override
+    public Set<String> getOfferingWithFeaturesOfInterest() {
+        return read(s -> CollectionHelper.unionOfListOfLists(s.offeringsForFeaturesOfInterest.values()));
+    }
+
+    @Override
+    public void addAllowedObservationTypeForOffering(String offering, String allowedObservationType) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(ALLOWED_OBSERVATION_TYPE, allowedObservationType);
+        LOG.trace("Adding AllowedObservationType {} to Offering {}", allowedObservationType, offering);
+        write(s -> s.allowedObservationTypeForOfferings =
+                s.add(s.allowedObservationTypeForOfferings, offering, allowedObservationType));
+    }
+
+    @Override
+    public void addAllowedObservationTypesForOffering(String offering, Collection<String> allowedObservationTypes) {
+        notNullOrEmpty(OFFERING, offering);
+        noNullValues(ALLOWED_OBSERVATION_TYPES, allowedObservationTypes);
+        LOG.trace("Adding AllowedObservationTypes {} to Offering {}", allowedObservationTypes, offering);
+        write(s -> s.allowedObservationTypeForOfferings =
+                s.addAll(s.allowedObservationTypeForOfferings, offering, allowedObservationTypes));
+    }
+
+    @Override
+    public void addFeatureOfInterestForOffering(String offering, String featureOfInterest) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
+        LOG.trace("Adding featureOfInterest {} to Offering {}", featureOfInterest, offering);
+        write(s -> {
+            s.featuresOfInterestForOfferings = s.add(s.featuresOfInterestForOfferings, offering, featureOfInterest);
+            s.offeringsForFeaturesOfInterest = s.add(s.offeringsForFeaturesOfInterest, featureOfInterest, offering);
+        });
+    }
+
+    @Override
+    public void addFeatureOfInterestForResultTemplate(String resultTemplate, String featureOfInterest) {
+        notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
+        notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
+        LOG.trace("Adding FeatureOfInterest {} to SosResultTemplate {}", featureOfInterest, resultTemplate);
+        write(s -> s.featuresOfInterestForResultTemplates =
+                s.add(s.featuresOfInterestForResultTemplates, resultTemplate, featureOfInterest));
+    }
+
+    @Override
+    public void addFeaturesOfInterestForResultTemplate(String resultTemplate, Collection<String> featuresOfInterest) {
+        notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
+        noNullValues(FEATURES_OF_INTEREST, featuresOfInterest);
+        LOG.trace("Adding FeatureOfInterest {} to SosResultTemplate {}", featuresOfInterest, resultTemplate);
+        write(s -> s.featuresOfInterestForResultTemplates =
+                s.addAll(s.featuresOfInterestForResultTemplates, resultTemplate, featuresOfInterest));
+    }
+
+    @Override
+    public void addObservablePropertyForOffering(String offering, String observableProperty) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
+        LOG.trace("Adding observableProperty {} to offering {}", observableProperty, offering);
+        write(s -> s.observablePropertiesForOfferings =
+                s.add(s.observablePropertiesForOfferings, offering, observableProperty));
+    }
+
+    @Override
+    public void addObservablePropertyForProcedure(String procedure, String observableProperty) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
+        LOG.trace("Adding observableProperty {} to procedure {}", observableProperty, procedure);
+        write(s -> s.observablePropertiesForProcedures =
+                s.add(s.observablePropertiesForProcedures, procedure, observableProperty));
+    }
+
+    @Override
+    public void addObservablePropertyForResultTemplate(String resultTemplate, String observableProperty) {
+        notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
+        notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
+        LOG.trace("Adding observableProperty {} to resultTemplate {}", observableProperty, resultTemplate);
+        write(s -> s.observedPropertiesForResultTemplates =
+                s.add(s.observedPropertiesForResultTemplates, resultTemplate, observableProperty));
+    }
+
+    @Override
+    public void addObservationTypesForOffering(String offering, String observationType) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(OBSERVATION_TYPE, observationType);
+        LOG.trace("Adding observationType {} to offering {}", observationType, offering);
+        write(s -> s.observationTypesForOfferings = s.add(s.observationTypesForOfferings, offering, observationType));
+    }
+
+    @Override
+    public void addOfferingForObservableProperty(String observableProperty, String offering) {
+        notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Adding offering {} to observableProperty {}", offering, observableProperty);
+        write(s -> s.offeringsForObservableProperties =
+                s.add(s.offeringsForObservableProperties, observableProperty, offering));
+    }
+
+    @Override
+    public void addOfferingForProcedure(String procedure, String offering) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Adding offering {} to procedure {}", offering, procedure);
+        write(s -> s.offeringsForProcedures = s.add(s.offeringsForProcedures, procedure, offering));
+    }
+
+    @Override
+    public void addProcedureForFeatureOfInterest(String featureOfInterest, String procedure) {
+        notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Adding procedure {} to featureOfInterest {}", procedure, featureOfInterest);
+        write(s -> s.proceduresForFeaturesOfInterest =
+                s.add(s.proceduresForFeaturesOfInterest, featureOfInterest, procedure));
+    }
+
+    @Override
+    public void addProcedureForObservableProperty(String observableProperty, String procedure) {
+        notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Adding procedure {} to observableProperty {}", procedure, observableProperty);
+        write(s -> s.proceduresForObservableProperties =
+                s.add(s.proceduresForObservableProperties, observableProperty, procedure));
+    }
+
+    @Override
+    public void addProcedureForOffering(String offering, String procedure) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Adding procedure {} to offering {}", procedure, offering);
+        write(s -> s.proceduresForOfferings = s.add(s.proceduresForOfferings, offering, procedure));
+    }
+
+    @Override
+    public void addRelatedFeatureForOffering(String offering, String relatedFeature) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(RELATED_FEATURE, relatedFeature);
+        LOG.trace("Adding relatedFeature {} to offering {}", relatedFeature, offering);
+        write(s -> s.relatedFeaturesForOfferings = s.add(s.relatedFeaturesForOfferings, offering, relatedFeature));
+    }
+
+    @Override
+    public void addRelatedFeaturesForOffering(String offering, Collection<String> relatedFeature) {
+        notNullOrEmpty(OFFERING, offering);
+        noNullValues(RELATED_FEATURE, relatedFeature);
+        LOG.trace("Adding relatedFeatures {} to offering {}", relatedFeature, offering);
+        write(s -> s.relatedFeaturesForOfferings = s.addAll(s.relatedFeaturesForOfferings, offering, relatedFeature));
+    }
+
+    @Override
+    public void addResultTemplateForOffering(String offering, String resultTemplate) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
+        LOG.trace("Adding resultTemplate {} to offering {}", resultTemplate, offering);
+        write(s -> s.resultTemplatesForOfferings = s.add(s.resultTemplatesForOfferings, offering, resultTemplate));
+    }
+
+    @Override
+    public void addRoleForRelatedFeature(String relatedFeature, String role) {
+        notNullOrEmpty(RELATED_FEATURE, relatedFeature);
+        notNullOrEmpty(ROLE, role);
+        LOG.trace("Adding role {} to relatedFeature {}", role, relatedFeature);
+        write(s -> s.rolesForRelatedFeatures = s.add(s.rolesForRelatedFeatures, relatedFeature, role));
+    }
+
+    @Override
+    public void removeAllowedObservationTypeForOffering(String offering, String allowedObservationType) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(ALLOWED_OBSERVATION_TYPE, allowedObservationType);
+        LOG.trace("Removing allowedObservationType {} from offering {}", allowedObservationType, offering);
+        write(s -> s.allowedObservationTypeForOfferings =
+                s.remove(s.allowedObservationTypeForOfferings, offering, allowedObservationType));
+    }
+
+    @Override
+    public void removeAllowedObservationTypesForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing allowedObservationTypes for offering {}", offering);
+        write(s -> s.allowedObservationTypeForOfferings = s.removeKey(s.allowedObservationTypeForOfferings, offering));
+    }
+
+    @Override
+    public void removeEnvelopeForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing envelope for offering {}", offering);
+        write(s -> s.envelopeForOfferings = s.removeKey(s.envelopeForOfferings, offering));
+    }
+
+    @Override
+    public void removeEpsgCode(Integer epsgCode) {
+        Objects.requireNonNull(epsgCode, EPSG_CODE);
+        LOG.trace("Removing epsgCode {}", epsgCode);
+        write(s -> s.epsgCodes = s.remove(s.epsgCodes, epsgCode));
+    }
+
+    @Override
+    public void removeEpsgCodes(Collection<Integer> epsgCodes) {
+        noNullValues(EPSG_CODES, epsgCodes);
+        LOG.trace("Removing epsgCodes {}", epsgCodes);
+        write(s -> s.epsgCodes = s.removeAll(s.epsgCodes, epsgCodes));
+    }
+
+    @Override
+    public void removeFeatureOfInterestForOffering(String offering, String featureOfInterest) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
+        LOG.trace("Removing featureOfInterest {} from offering {}", featureOfInterest, offering);
+        write(s -> {
+            s.featuresOfInterestForOfferings =
+                    s.remove(s.featuresOfInterestForOfferings, offering, featureOfInterest);
+            s.offeringsForFeaturesOfInterest =
+                    s.remove(s.offeringsForFeaturesOfInterest, featureOfInterest, offering);
+        });
+    }
+
+    @Override
+    public void removeFeatureOfInterestForResultTemplate(String resultTemplate, String featureOfInterest) {
+        notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
+        notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
+        LOG.trace("Removing featureOfInterest {} from resultTemplate {}", featureOfInterest, resultTemplate);
+        write(s -> s.featuresOfInterestForResultTemplates =
+                s.remove(s.featuresOfInterestForResultTemplates, resultTemplate, featureOfInterest));
+    }
+
+    @Override
+    public void removeFeaturesOfInterestForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing featuresOfInterest for offering {}", offering);
+        write(s -> {
+            for (String featureOfInterest : s.featuresOfInterestForOfferings.getOrDefault(offering,
+                    Collections.emptySet())) {
+                s.offeringsForFeaturesOfInterest =
+                        s.remove(s.offeringsForFeaturesOfInterest, featureOfInterest, offering);
+            }
+            s.featuresOfInterestForOfferings = s.removeKey(s.featuresOfInterestForOfferings, offering);
+        });
+    }
+
+    @Override
+    public void removeFeaturesOfInterestForResultTemplate(String resultTemplate) {
+        notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
+        LOG.trace("Removing featuresOfInterest for resultTemplate {}", resultTemplate);
+        write(s -> s.featuresOfInterestForResultTemplates =
+                s.removeKey(s.featuresOfInterestForResultTemplates, resultTemplate));
+    }
+
+    @Override
+    public void removeMaxPhenomenonTimeForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing maxEventTime for offering {}", offering);
+        write(s -> s.maxPhenomenonTimeForOfferings = s.removeKey(s.maxPhenomenonTimeForOfferings, offering));
+    }
+
+    @Override
+    public void removeMinPhenomenonTimeForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing minEventTime for offering {}", offering);
+        write(s -> s.minPhenomenonTimeForOfferings = s.removeKey(s.minPhenomenonTimeForOfferings, offering));
+    }
+
+    @Override
+    public void removeMaxPhenomenonTimeForProcedure(String procedure) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Removing maxEventTime for procedure {}", procedure);
+        write(s -> s.maxPhenomenonTimeForProcedures = s.removeKey(s.maxPhenomenonTimeForProcedures, procedure));
+    }
+
+    @Override
+    public void removeMinPhenomenonTimeForProcedure(String procedure) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Removing minEventTime for procedure {}", procedure);
+        write(s -> s.minPhenomenonTimeForProcedures = s.removeKey(s.minPhenomenonTimeForProcedures, procedure));
+    }
+
+    @Override
+    public void removeNameForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing name for offering {}", offering);
+        write(s -> s.nameForOfferings = s.removeKey(s.nameForOfferings, offering));
+    }
+
+    @Override
+    public void removeObservablePropertiesForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing observableProperties for offering {}", offering);
+        write(s -> s.observablePropertiesForOfferings = s.removeKey(s.observablePropertiesForOfferings, offering));
+    }
+
+    @Override
+    public void removeObservablePropertiesForProcedure(String procedure) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Removing observableProperties for procedure {}", procedure);
+        write(s -> s.observablePropertiesForProcedures =
+                s.removeKey(s.observablePropertiesForProcedures, procedure));
+    }
+
+    @Override
+    public void removeObservablePropertiesForResultTemplate(String resultTemplate) {
+        notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
+        LOG.trace("Removing observableProperties for resultTemplate {}", resultTemplate);
+        write(s -> s.observedPropertiesForResultTemplates =
+                s.removeKey(s.observedPropertiesForResultTemplates, resultTemplate));
+    }
+
+    @Override
+    public void removeObservablePropertyForOffering(String offering, String observableProperty) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
+        LOG.trace("Removing observableProperty {} from offering {}", observableProperty, offering);
+        write(s -> s.observablePropertiesForOfferings =
+                s.remove(s.observablePropertiesForOfferings, offering, observableProperty));
+    }
+
+    @Override
+    public void removeObservablePropertyForProcedure(String procedure, String observableProperty) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
+        LOG.trace("Removing observableProperty {} from procedure {}", observableProperty, procedure);
+        write(s -> s.observablePropertiesForProcedures =
+                s.remove(s.observablePropertiesForProcedures, procedure, observableProperty));
+    }
+
+    @Override
+    public void removeObservablePropertyForResultTemplate(String resultTemplate, String observableProperty) {
+        notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
+        notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
+        LOG.trace("Removing observableProperty {} from resultTemplate {}", observableProperty, resultTemplate);
+        write(s -> s.observedPropertiesForResultTemplates =
+                s.remove(s.observedPropertiesForResultTemplates, resultTemplate, observableProperty));
+    }
+
+    @Override
+    public void removeObservationTypeForOffering(String offering, String observationType) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(OBSERVATION_TYPE, observationType);
+        LOG.trace("Removing observationType {} from offering {}", observationType, offering);
+        write(s -> s.observationTypesForOfferings =
+                s.remove(s.observationTypesForOfferings, offering, observationType));
+    }
+
+    @Override
+    public void removeObservationTypesForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing observationTypes for offering {}", offering);
+        write(s -> s.observationTypesForOfferings = s.removeKey(s.observationTypesForOfferings, offering));
+    }
+
+    @Override
+    public void removeOfferingForObservableProperty(String observableProperty, String offering) {
+        notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing offering {} from observableProperty {}", offering, observableProperty);
+        write(s -> s.offeringsForObservableProperties =
+                s.remove(s.offeringsForObservableProperties, observableProperty, offering));
+    }
+
+    @Override
+    public void removeOfferingForProcedure(String procedure, String offering) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing offering {} from procedure {}", offering, procedure);
+        write(s -> s.offeringsForProcedures = s.remove(s.offeringsForProcedures, procedure, offering));
+    }
+
+    @Override
+    public void removeOfferingsForObservableProperty(String observableProperty) {
+        notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
+        LOG.trace("Removing offerings for observableProperty {}", observableProperty);
+        write(s -> s.offeringsForObservableProperties =
+                s.removeKey(s.offeringsForObservableProperties, observableProperty));
+    }
+
+    @Override
+    public void removeOfferingsForProcedure(String procedure) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Removing offering for procedure {}", procedure);
+        write(s -> s.offeringsForProcedures = s.removeKey(s.offeringsForProcedures, procedure));
+    }
+
+    @Override
+    public void removeProcedureForFeatureOfInterest(String featureOfInterest, String procedure) {
+        notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Removing procedure {} from featureOfInterest {}", procedure, featureOfInterest);
+        write(s -> s.proceduresForFeaturesOfInterest =
+                s.remove(s.proceduresForFeaturesOfInterest, featureOfInterest, procedure));
+    }
+
+    @Override
+    public void removeProcedureForObservableProperty(String observableProperty, String procedure) {
+        notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Removing procedure {} from observableProperty {}", procedure, observableProperty);
+        write(s -> s.proceduresForObservableProperties =
+                s.remove(s.proceduresForObservableProperties, observableProperty, procedure));
+    }
+
+    @Override
+    public void removeProcedureForOffering(String offering, String procedure) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Removing procedure {} from offering {}", procedure, offering);
+        write(s -> s.proceduresForOfferings = s.remove(s.proceduresForOfferings, offering, procedure));
+    }
+
+    @Override
+    public void removeProceduresForFeatureOfInterest(String featureOfInterest) {
+        notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
+        LOG.trace("Removing procedures for featureOfInterest {}", featureOfInterest);
+        write(s -> s.proceduresForFeaturesOfInterest =
+                s.removeKey(s.proceduresForFeaturesOfInterest, featureOfInterest));
+    }
+
+    @Override
+    public void removeProceduresForObservableProperty(String observableProperty) {
+        notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
+        LOG.trace("Removing procedures for observableProperty {}", observableProperty);
+        write(s -> s.proceduresForObservableProperties =
+                s.removeKey(s.proceduresForObservableProperties, observableProperty));
+    }
+
+    @Override
+    public void removeProceduresForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing procedures for offering {}", offering);
+        write(s -> s.proceduresForOfferings = s.removeKey(s.proceduresForOfferings, offering));
+    }
+
+    @Override
+    public void removeRelatedFeatureForOffering(String offering, String relatedFeature) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(RELATED_FEATURE, relatedFeature);
+        LOG.trace("Removing relatedFeature {} from offering {}", relatedFeature, offering);
+        write(s -> s.relatedFeaturesForOfferings = s.remove(s.relatedFeaturesForOfferings, offering, relatedFeature));
+    }
+
+    @Override
+    public void removeRelatedFeaturesForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing RelatedFeatures for offering {}", offering);
+        write(s -> s.relatedFeaturesForOfferings = s.removeKey(s.relatedFeaturesForOfferings, offering));
+    }
+
+    @Override
+    public void removeResultTemplateForOffering(String offering, String resultTemplate) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
+        LOG.trace("Removing resultTemplate {} from offering {}", resultTemplate, offering);
+        write(s -> s.resultTemplatesForOfferings = s.remove(s.resultTemplatesForOfferings, offering, resultTemplate));
+    }
+
+    @Override
+    public void removeResultTemplatesForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing ResultTemplates for offering {}", offering);
+        write(s -> s.resultTemplatesForOfferings = s.removeKey(s.resultTemplatesForOfferings, offering));
+    }
+
+    @Override
+    public void removeRoleForRelatedFeature(String relatedFeature, String role) {
+        notNullOrEmpty(RELATED_FEATURE, relatedFeature);
+        notNullOrEmpty(ROLE, role);
+        LOG.trace("Removing role {} from relatedFeature {}", role, relatedFeature);
+        write(s -> s.rolesForRelatedFeatures = s.remove(s.rolesForRelatedFeatures, relatedFeature, role));
+    }
+
+    @Override
+    public void removeRolesForRelatedFeature(String relatedFeature) {
+        notNullOrEmpty(RELATED_FEATURE, relatedFeature);
+        LOG.trace("Removing roles for relatedFeature {}", relatedFeature);
+        write(s -> s.rolesForRelatedFeatures = s.removeKey(s.rolesForRelatedFeatures, relatedFeature));
+    }
+
+    @Override
+    public void removeRolesForRelatedFeatureNotIn(Collection<String> relatedFeatures) {
+        Objects.requireNonNull(relatedFeatures, RELATED_FEATURES);
+        write(s -> s.rolesForRelatedFeatures = s.retainKeys(s.rolesForRelatedFeatures, relatedFeatures));
+    }
+
+    @Override
+    public void setAllowedObservationTypeForOffering(String offering, Collection<String> observationTypes) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Setting allowedObservationTypes for offering {} to {}", offering, observationTypes);
+        write(s -> s.allowedObservationTypeForOfferings =
+                s.set(s.allowedObservationTypeForOfferings, offering, observationTypes));
+    }
+
+    @Override
+    public void setAllowedFeatureOfInterestTypeForOffering(String offering, Collection<String> featureTypes) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Setting allowedFeatureOfInterestTypes for offering {} to {}", offering, featureTypes);
+        write(s -> s.allowedFeatureOfInterestTypeForOfferings =
+                s.set(s.allowedFeatureOfInterestTypeForOfferings, offering, featureTypes));
+    }
+
+    @Override
+    public void setFeaturesOfInterestForOffering(String offering, Collection<String> featureOfInterest) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Setting featureOfInterest for offering {} to {}", offering, featureOfInterest);
+        write(s -> s.featuresOfInterestForOfferings =
+                s.set(s.featuresOfInterestForOfferings, offering, featureOfInterest));
+    }
+
+    @Override
+    public void addOfferingForFeaturesOfInterest(final String offering, final Collection<String> featuresOfInterest) {
+        notNullOrEmpty(OFFERING, offering);
+        noNullOrEmptyValues(FEATURES_OF_INTEREST, featuresOfInterest);
+        LOG.trace("Adding offering {} to featureOfInterest {}", offering, featuresOfInterest);
+        write(s -> {
+            for (String featureOfInterest : featuresOfInterest) {
+                s.offeringsForFeaturesOfInterest = s.add(s.offeringsForFeaturesOfInterest, featureOfInterest, offering);
+            }
+        });
+    }
+
+    @Override
+    public void setObservablePropertiesForResultTemplate(String resultTemplate,
+                                                         Collection<String> observableProperties) {
+        notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
+        LOG.trace("Setting observableProperties for resultTemplate {} to {}", resultTemplate, observableProperties);
+        write(s -> s.observedPropertiesForResultTemplates =
+                s.set(s.observedPropertiesForResultTemplates, resultTemplate, observableProperties));
+    }
+
+    @Override
+    public void addParentFeature(String featureOfInterest, String parentFeature) {
+        notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
+        notNullOrEmpty(PARENT_FEATURE, parentFeature);
+        LOG.trace("Adding parentFeature {} to featureOfInterest {}", parentFeature, featureOfInterest);
+        write(s -> {
+            s.parentFeaturesForFeaturesOfInterest =
+                    s.add(s.parentFeaturesForFeaturesOfInterest, featureOfInterest, parentFeature);
+            s.childFeaturesForFeatureOfInterest =
+                    s.add(s.childFeaturesForFeatureOfInterest, parentFeature, featureOfInterest);
+        });
+    }
+
+    @Override
+    public void addParentFeatures(String featureOfInterest, Collection<String> parentFeatures) {
+        notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
+        noNullOrEmptyValues(PARENT_FEATURES, parentFeatures);
+        LOG.trace("Adding parentFeature {} to featureOfInterest {}", parentFeatures, featureOfInterest);
+        write(s -> {
+            s.parentFeaturesForFeaturesOfInterest =
+                    s.addAll(s.parentFeaturesForFeaturesOfInterest, featureOfInterest, parentFeatures);
+            for (String parentFeature : parentFeatures) {
+                s.childFeaturesForFeatureOfInterest =
+                        s.add(s.childFeaturesForFeatureOfInterest, parentFeature, featureOfInterest);
+            }
+        });
+    }
+
+    @Override
+    public void addParentProcedure(String procedure, String parentProcedure) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        notNullOrEmpty(PARENT_PROCEDURE, parentProcedure);
+        LOG.trace("Adding parentProcedure {} to procedure {}", parentProcedure, procedure);
+        write(s -> {
+            s.parentProceduresForProcedures = s.add(s.parentProceduresForProcedures, procedure, parentProcedure);
+            s.childProceduresForProcedures = s.add(s.childProceduresForProcedures, parentProcedure, procedure);
+        });
+    }
+
+    @Override
+    public void addParentProcedures(String procedure, Collection<String> parentProcedures) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        noNullOrEmptyValues(PARENT_PROCEDURES, parentProcedures);
+        LOG.trace("Adding parentProcedures {} to procedure {}", parentProcedures, procedure);
+        write(s -> {
+            s.parentProceduresForProcedures = s.addAll(s.parentProceduresForProcedures, procedure, parentProcedures);
+            for (String parentProcedure : parentProcedures) {
+                s.childProceduresForProcedures = s.add(s.childProceduresForProcedures, parentProcedure, procedure);
+            }
+        });
+    }
+
+    @Override
+    public void addParentOffering(final String offering, final String parentOffering) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(PARENT_OFFERING, parentOffering);
+        LOG.trace("Adding parentOffering {} to offering {}", parentOffering, offering);
+        write(s -> {
+            s.parentOfferingsForOfferings = s.add(s.parentOfferingsForOfferings, offering, parentOffering);
+            s.childOfferingsForOfferings = s.add(s.childOfferingsForOfferings, parentOffering, offering);
+        });
+    }
+
+    @Override
+    public void addParentOfferings(final String offering, final Collection<String> parentOfferings) {
+        notNullOrEmpty(OFFERING, offering);
+        noNullOrEmptyValues(PARENT_OFFERINGS, parentOfferings);
+        LOG.trace("Adding parentOfferings {} to offering {}", parentOfferings, offering);
+        write(s -> {
+            s.parentOfferingsForOfferings = s.addAll(s.parentOfferingsForOfferings, offering, parentOfferings);
+            for (String parentOffering : parentOfferings) {
+                s.childOfferingsForOfferings = s.add(s.childOfferingsForOfferings, parentOffering, offering);
+            }
+        });
+    }
+
+    @Override
+    public void updateEnvelopeForOffering(final String offering, final Envelope envelope) {
+        notNullOrEmpty(OFFERING, offering);
+        Objects.requireNonNull(envelope, ENVELOPE);
+        LOG.trace("Expanding envelope for offering {} to include {}", offering, envelope);
+        write(s -> s.envelopeForOfferings = s.expand(s.envelopeForOfferings, offering, envelope));
+    }
+
+    @Override
+    public void updatePhenomenonTime(Time eventTime) {
+        Objects.requireNonNull(eventTime, EVENT_TIME);
+        final TimePeriod tp = toTimePeriod(eventTime);
+        LOG.trace("Expanding global EventTime to include {}", tp);
+        write(s -> {
+            if (s.minPhenomenonTime == null || s.minPhenomenonTime.isAfter(tp.getStart())) {
+                s.minPhenomenonTime = DateTimeHelper.toUTC(tp.getStart());
+            }
+            if (s.maxPhenomenonTime == null || s.maxPhenomenonTime.isBefore(tp.getEnd())) {
+                s.maxPhenomenonTime = DateTimeHelper.toUTC(tp.getEnd());
+            }
+        });
+    }
+
+    @Override
+    public void updateGlobalEnvelope(Envelope envelope) {
+        Objects.requireNonNull(envelope, ENVELOPE);
+        write(s -> {
+            LOG.trace("Expanding envelope {} to include {}", s.globalEnvelope, envelope);
+            if (isSetEnvelope(s.globalEnvelope)) {
+                ReferencedEnvelope expanded = copyOf(s.globalEnvelope);
+                expanded.expandToInclude(envelope);
+                s.globalEnvelope = expanded;
+            } else {
+                s.globalEnvelope = new ReferencedEnvelope(new Envelope(envelope), s.defaultEpsgCode);
+            }
+        });
+    }
+
+    @Override
+    public void updatePhenomenonTimeForOffering(String offering, Time eventTime) {
+        notNullOrEmpty(OFFERING, offering);
+        Objects.requireNonNull(eventTime, EVENT_TIME);
+        final TimePeriod tp = toTimePeriod(eventTime);
+        LOG.trace("Expanding EventTime of offering {} to include {}", offering, tp);
+        write(s -> {
+            DateTime max = s.maxPhenomenonTimeForOfferings.get(offering);
+            if (max == null || max.isBefore(tp.getEnd())) {
+                s.maxPhenomenonTimeForOfferings = s.putTime(s.maxPhenomenonTimeForOfferings, offering, tp.getEnd());
+            }
+            DateTime min = s.minPhenomenonTimeForOfferings.get(offering);
+            if (min == null || min.isAfter(tp.getStart())) {
+                s.minPhenomenonTimeForOfferings = s.putTime(s.minPhenomenonTimeForOfferings, offering, tp.getStart());
+            }
+        });
+    }
+
+    @Override
+    public void updatePhenomenonTimeForProcedure(String procedure, Time eventTime) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        Objects.requireNonNull(eventTime, EVENT_TIME);
+        final TimePeriod tp = toTimePeriod(eventTime);
+        LOG.trace("Expanding phenomenon time of procedure {} to include {}", procedure, tp);
+        write(s -> {
+            DateTime max = s.getMaxPhenomenonTimeForProcedure(procedure);
+            if (max == null || max.isBefore(tp.getEnd())) {
+                s.maxPhenomenonTimeForProcedures = s.putTime(s.maxPhenomenonTimeForProcedures, procedure, tp.getEnd());
+            }
+            DateTime min = s.getMinPhenomenonTimeForProcedure(procedure);
+            if (min == null || min.isAfter(tp.getStart())) {
+                s.minPhenomenonTimeForProcedures =
+                        s.putTime(s.minPhenomenonTimeForProcedures, procedure, tp.getStart());
+            }
+        });
+    }
+
+    @Override
+    public void recalculateGlobalEnvelope() {
+        LOG.trace("Recalculating global spatial envelope based on offerings");
+        write(s -> {
+            ReferencedEnvelope envelope = new ReferencedEnvelope(new Envelope(), s.defaultEpsgCode);
+            s.offerings.stream().map(s.envelopeForOfferings::get)
+                    .filter(Objects::nonNull)
+                    .map(ReferencedEnvelope::getEnvelope)
+                    .filter(e -> e != null && !e.isNull())
+                    .forEach(envelope::expandToInclude);
+            s.globalEnvelope = envelope;
+            LOG.trace("Spatial envelope finally set to '{}'", envelope);
+        });
+    }
+
+    @Override
+    public void recalculatePhenomenonTime() {
+        LOG.trace("Recalculating global phenomenon time based on offerings");
+        write(s -> {
+            DateTime globalMax = null;
+            DateTime globalMin = null;
+            for (String offering : s.offerings) {
+                DateTime offeringMax = s.maxPhenomenonTimeForOfferings.get(offering);
+                if (offeringMax != null && (globalMax == null || offeringMax.isAfter(globalMax))) {
+                    globalMax = offeringMax;
+                }
+                DateTime offeringMin = s.minPhenomenonTimeForOfferings.get(offering);
+                if (offeringMin != null && (globalMin == null || offeringMin.isBefore(globalMin))) {
+                    globalMin = offeringMin;
+                }
+            }
+            if (!s.offerings.isEmpty() && (globalMin == null || globalMax == null)) {
+                LOG.error("Error in cache! Reset of global temporal bounding box failed. Max: '{}'; Min: '{}'",
+                          globalMax, globalMin);
+            }
+            s.minPhenomenonTime = DateTimeHelper.toUTC(globalMin);
+            s.maxPhenomenonTime = DateTimeHelper.toUTC(globalMax);
+            LOG.trace("Global temporal bounding box reset done. Min: '{}'; Max: '{}'", s.minPhenomenonTime,
+                      s.maxPhenomenonTime);
+        });
+    }
+
+    @Override
+    public void removeMaxResultTimeForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing maxResultTime for offering {}", offering);
+        write(s -> s.maxResultTimeForOfferings = s.removeKey(s.maxResultTimeForOfferings, offering));
+    }
+
+    @Override
+    public void removeMinResultTimeForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing minResultTime for offering {}", offering);
+        write(s -> s.minResultTimeForOfferings = s.removeKey(s.minResultTimeForOfferings, offering));
+    }
+
+    @Override
+    public void setResultTime(DateTime min, DateTime max) {
+        LOG.trace("Setting ResultTime to {}/{}", min, max);
+        write(s -> {
+            s.minResultTime = DateTimeHelper.toUTC(min);
+            s.maxResultTime = DateTimeHelper.toUTC(max);
+        });
+    }
+
+    @Override
+    public void updateResultTime(Time resultTime) {
+        if (resultTime == null) {
+            return;
+        }
+        final TimePeriod tp = toTimePeriod(resultTime);
+        LOG.trace("Expanding global ResultTime to include {}", tp);
+        write(s -> {
+            if (s.minResultTime == null || s.minResultTime.isAfter(tp.getStart())) {
+                s.minResultTime = DateTimeHelper.toUTC(tp.getStart());
+            }
+            if (s.maxResultTime == null || s.maxResultTime.isBefore(tp.getEnd())) {
+                s.maxResultTime = DateTimeHelper.toUTC(tp.getEnd());
+            }
+        });
+    }
+
+    @Override
+    public void recalculateResultTime() {
+        LOG.trace("Recalculating global result time based on offerings");
+        write(s -> {
+            DateTime globalMax = null;
+            DateTime globalMin = null;
+            for (String offering : s.offerings) {
+                DateTime offeringMax = s.maxResultTimeForOfferings.get(offering);
+                if (offeringMax != null && (globalMax == null || offeringMax.isAfter(globalMax))) {
+                    globalMax = offeringMax;
+                }
+                DateTime offeringMin = s.minResultTimeForOfferings.get(offering);
+                if (offeringMin != null && (globalMin == null || offeringMin.isBefore(globalMin))) {
+                    globalMin = offeringMin;
+                }
+            }
+            s.minResultTime = DateTimeHelper.toUTC(globalMin);
+            s.maxResultTime = DateTimeHelper.toUTC(globalMax);
+            LOG.trace("Global result time bounding box reset done. Min: '{}'); Max: '{}'", s.minResultTime,
+                      s.maxResultTime);
+        });
+    }
+
+    @Override
+    public void setMaxResultTimeForOffering(String offering, DateTime maxTime) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Setting maximal ResultTime for Offering {} to {}", offering, maxTime);
+        write(s -> s.maxResultTimeForOfferings = s.putTime(s.maxResultTimeForOfferings, offering, maxTime));
+    }
+
+    @Override
+    public void setMinResultTimeForOffering(String offering, DateTime minTime) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Setting minimal ResultTime for Offering {} to {}", offering, minTime);
+        write(s -> s.minResultTimeForOfferings = s.putTime(s.minResultTimeForOfferings, offering, minTime));
+    }
+
+    @Override
+    public void updateResultTimeForOffering(String offering, Time resultTime) {
+        notNullOrEmpty(OFFERING, offering);
+        if (resultTime == null) {
+            return;
+        }
+        final TimePeriod tp = toTimePeriod(resultTime);
+        LOG.trace("Expanding ResultTime of offering {} to include {}", offering, tp);
+        write(s -> {
+            DateTime max = s.maxResultTimeForOfferings.get(offering);
+            if (max == null || max.isBefore(tp.getEnd())) {
+                s.maxResultTimeForOfferings = s.putTime(s.maxResultTimeForOfferings, offering, tp.getEnd());
+            }
+            DateTime min = s.minResultTimeForOfferings.get(offering);
+            if (min == null || min.isAfter(tp.getStart())) {
+                s.minResultTimeForOfferings = s.putTime(s.minResultTimeForOfferings, offering, tp.getStart());
+            }
+        });
+    }
+
+    @Override
+    public void clearFeaturesOfInterest() {
+        LOG.trace("Clearing features of interest");
+        write(s -> s.featuresOfInterest = new PersistentHashSet<>());
+    }
+
+    @Override
+    public void clearProceduresForFeatureOfInterest() {
+        LOG.trace("Clearing procedures for feature of interest");
+        write(s -> s.proceduresForFeaturesOfInterest = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearFeatureHierarchy() {
+        LOG.trace("Clearing feature hierarchy");
+        write(s -> {
+            s.childFeaturesForFeatureOfInterest = new PersistentHashMap<>();
+            s.parentFeaturesForFeaturesOfInterest = new PersistentHashMap<>();
+        });
+    }
+
+    @Override
+    public void clearProceduresForOfferings() {
+        LOG.trace("Clearing procedures for offerings");
+        write(s -> s.proceduresForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearNameForOfferings() {
+        LOG.trace("Clearing names for offerings");
+        write(s -> s.nameForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearI18nNamesForOfferings() {
+        LOG.trace("Clearing i18n names for offerings");
+        write(s -> s.i18nNameForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearI18nDescriptionsNameForOfferings() {
+        LOG.trace("Clearing i18n descriptions for offerings");
+        write(s -> s.i18nDescriptionForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearObservablePropertiesForOfferings() {
+        LOG.trace("Clearing observable properties for offerings");
+        write(s -> s.observablePropertiesForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearRelatedFeaturesForOfferings() {
+        LOG.trace("Clearing related features for offerings");
+        write(s -> s.relatedFeaturesForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearObservationTypesForOfferings() {
+        LOG.trace("Clearing observation types for offerings");
+        write(s -> s.observationTypesForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearAllowedObservationTypeForOfferings() {
+        LOG.trace("Clearing allowed observation types for offerings");
+        write(s -> s.allowedObservationTypeForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearEnvelopeForOfferings() {
+        LOG.trace("Clearing envelope for offerings");
+        write(s -> s.envelopeForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearFeaturesOfInterestForOfferings() {
+        LOG.trace("Clearing features of interest for offerings");
+        write(s -> s.featuresOfInterestForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearOfferingsForFeaturesOfInterest() {
+        LOG.trace("Clearing offerings for features of interest");
+        write(s -> s.offeringsForFeaturesOfInterest = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearMinPhenomenonTimeForOfferings() {
+        LOG.trace("Clearing min phenomenon time for offerings");
+        write(s -> s.minPhenomenonTimeForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearMaxPhenomenonTimeForOfferings() {
+        LOG.trace("Clearing max phenomenon time for offerings");
+        write(s -> s.maxPhenomenonTimeForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearMinPhenomenonTimeForProcedures() {
+        LOG.trace("Clearing min phenomenon time for procedures");
+        write(s -> s.minPhenomenonTimeForProcedures = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearMaxPhenomenonTimeForProcedures() {
+        LOG.trace("Clearing max phenomenon time for procedures");
+        write(s -> s.maxPhenomenonTimeForProcedures = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearMinResultTimeForOfferings() {
+        LOG.trace("Clearing min result time for offerings");
+        write(s -> s.minResultTimeForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearMaxResultTimeForOfferings() {
+        LOG.trace("Clearing max result time for offerings");
+        write(s -> s.maxResultTimeForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearOfferings() {
+        LOG.trace("Clearing offerings");
+        write(s -> s.offerings = new PersistentHashSet<>());
+    }
+
+    @Override
+    public void addOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Adding offering {}", offering);
+        write(s -> s.offerings = s.add(s.offerings, offering));
+    }
+
+    @Override
+    public void addOfferings(Collection<String> offerings) {
+        noNullOrEmptyValues(OFFERINGS, offerings);
+        LOG.trace("Adding offerings {}", offerings);
+        write(s -> s.offerings = s.addAll(s.offerings, offerings));
+    }
+
+    @Override
+    public void removeOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing Offering {}", offering);
+        write(s -> s.offerings = s.remove(s.offerings, offering));
+    }
+
+    @Override
+    public void removeOfferings(Collection<String> offerings) {
+        noNullOrEmptyValues(OFFERINGS, offerings);
+        LOG.trace("Removing Offerings {}", offerings);
+        write(s -> s.offerings = s.removeAll(s.offerings, offerings));
+    }
+
+    @Override
+    public void addHiddenChildProcedureForOffering(String offering, String procedure) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Adding hidden child procedure {} to offering {}", procedure, offering);
+        write(s -> s.hiddenChildProceduresForOfferings =
+                s.add(s.hiddenChildProceduresForOfferings, offering, procedure));
+    }
+
+    @Override
+    public void removeHiddenChildProcedureForOffering(String offering, String procedure) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(PROCEDURE, procedure);
+        LOG.trace("Removing hidden child procedure {} from offering {}", procedure, offering);
+        write(s -> s.hiddenChildProceduresForOfferings =
+                s.remove(s.hiddenChildProceduresForOfferings, offering, procedure));
+    }
+
+    @Override
+    public void setHiddenChildProceduresForOffering(String offering, Collection<String> procedures) {
+        LOG.trace("Setting hidden child Procedures for Offering {} to {}", offering, procedures);
+        write(s -> s.hiddenChildProceduresForOfferings =
+                s.set(s.hiddenChildProceduresForOfferings, offering, procedures));
+    }
+
+    @Override
+    public void clearHiddenChildProceduresForOfferings() {
+        LOG.trace("Clearing hidden child procedures for offerings");
+        write(s -> s.hiddenChildProceduresForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void removeSpatialFilteringProfileEnvelopeForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing Spatial Filtering Profile envelope for offering {}", offering);
+        write(s -> s.spatialFilteringProfileEnvelopeForOfferings =
+                s.removeKey(s.spatialFilteringProfileEnvelopeForOfferings, offering));
+    }
+
+    @Override
+    public void setSpatialFilteringProfileEnvelopeForOffering(String offering, ReferencedEnvelope envelope) {
+        LOG.trace("Setting Spatial Filtering Profile Envelope for Offering {} to {}", offering, envelope);
+        write(s -> s.spatialFilteringProfileEnvelopeForOfferings =
+                s.put(s.spatialFilteringProfileEnvelopeForOfferings, offering, copyOf(envelope)));
+    }
+
+    @Override
+    public void updateSpatialFilteringProfileEnvelopeForOffering(String offering, Envelope envelope) {
+        notNullOrEmpty(OFFERING, offering);
+        Objects.requireNonNull(envelope, ENVELOPE);
+        LOG.trace("Expanding Spatial Filtering Profile envelope for offering {} to include {}", offering, envelope);
+        write(s -> s.spatialFilteringProfileEnvelopeForOfferings =
+                s.expand(s.spatialFilteringProfileEnvelopeForOfferings, offering, envelope));
+    }
+
+    @Override
+    public void clearSpatialFilteringProfileEnvelopeForOfferings() {
+        LOG.trace("Clearing Spatial Filtering Profile envelope for offerings");
+        write(s -> s.spatialFilteringProfileEnvelopeForOfferings = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void addFeatureOfInterestTypesForOffering(String offering, String featureOfInterestType) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(FEATURE_OF_INTEREST_TYPE, featureOfInterestType);
+        LOG.trace("Adding featureOfInterestType {} to offering {}", featureOfInterestType, offering);
+        write(s -> s.featureOfInterestTypesForOfferings =
+                s.add(s.featureOfInterestTypesForOfferings, offering, featureOfInterestType));
+    }
+
+    @Override
+    public void removeFeatureOfInterestTypeForOffering(String offering, String featureOfInterestType) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(FEATURE_OF_INTEREST_TYPE, featureOfInterestType);
+        LOG.trace("Removing featureOfInterestType {} from offering {}", featureOfInterestType, offering);
+        write(s -> s.featureOfInterestTypesForOfferings =
+                s.remove(s.featureOfInterestTypesForOfferings, offering, featureOfInterestType));
+    }
+
+    @Override
+    public void removeFeatureOfInterestTypesForOffering(String offering) {
+        notNullOrEmpty(OFFERING, offering);
+        LOG.trace("Removing featureOfInterestTypes for offering {}", offering);
+        write(s -> s.featureOfInterestTypesForOfferings = s.removeKey(s.featureOfInterestTypesForOfferings, offering));
+    }
+
+    @Override
+    public void setFeatureOfInterestTypesForOffering(String offering, Collection<String> featureOfInterestTypes) {
+        LOG.trace("Setting FeatureOfInterestTypes for Offering {} to {}", offering, featureOfInterestTypes);
+        write(s -> s.featureOfInterestTypesForOfferings =
+                s.set(s.featureOfInterestTypesForOfferings, offering, featureOfInterestTypes));
+    }
+
+    @Override
+    public void addAllowedFeatureOfInterestTypeForOffering(String offering, String allowedFeatureOfInterestType) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(ALLOWED_FEATURE_OF_INTEREST_TYPE, allowedFeatureOfInterestType);
+        LOG.trace("Adding AllowedFeatureOfInterestType {} to Offering {}", allowedFeatureOfInterestType, offering);
+        write(s -> s.allowedFeatureOfInterestTypeForOfferings =
+                s.add(s.allowedFeatureOfInterestTypeForOfferings, offering, allowedFeatureOfInterestType));
+    }
+
+    @Override
+    public void addAllowedFeatureOfInterestTypesForOffering(String offering,
+                                                            Collection<String> allowedFeatureOfInterestTypes) {
+        notNullOrEmpty(OFFERING, offering);
+        noNullValues(ALLOWED_FEATURE_OF_INTEREST_TYPES, allowedFeatureOfInterestTypes);
+        LOG.trace("Adding AllowedFeatureOfInterestTypes {} to Offering {}", allowedFeatureOfInterestTypes, offering);
+        write(s -> s.allowedFeatureOfInterestTypeForOfferings =
+                s.addAll(s.allowedFeatureOfInterestTypeForOfferings, offering, allowedFeatureOfInterestTypes));
+    }
+
+    @Override
+    public void addSupportedLanguage(Locale language) {
+        Objects.requireNonNull(language, SUPPORTED_LANGUAGE);
+        LOG.trace("Adding Language {}", language);
+        write(s -> s.supportedLanguages = s.add(s.supportedLanguages, language));
+    }
+
+    @Override
+    public void addSupportedLanguage(Collection<Locale> languages) {
+        noNullValues(SUPPORTED_LANGUAGES, languages);
+        LOG.trace("Adding Languages {}", languages);
+        write(s -> s.supportedLanguages = s.addAll(s.supportedLanguages, languages));
+    }
+
+    @Override
+    public void clearSupportedLanguage() {
+        LOG.trace("Clearing supported languages");
+        write(s -> s.supportedLanguages = new PersistentHashSet<>());
+    }
+
+    @Override
+    public void removeSupportedLanguage(Locale language) {
+        LOG.trace("Removing Language {}", language);
+        write(s -> s.supportedLanguages = s.remove(s.supportedLanguages, language));
+    }
+
+    @Override
+    public void addFeatureOfInterestIdentifierHumanReadableName(String identifier, String humanReadableName) {
+        if (!Strings.isNullOrEmpty(identifier) && !Strings.isNullOrEmpty(humanReadableName)) {
+            write(s -> s.featureOfInterestIdentifierHumanReadableName =
+                    s.putName(s.featureOfInterestIdentifierHumanReadableName, identifier, humanReadableName));
+        }
+    }
+
+    @Override
+    public void addObservablePropertyIdentifierHumanReadableName(String identifier, String humanReadableName) {
+        if (!Strings.isNullOrEmpty(identifier) && !Strings.isNullOrEmpty(humanReadableName)) {
+            write(s -> s.observablePropertyIdentifierHumanReadableName =
+                    s.putName(s.observablePropertyIdentifierHumanReadableName, identifier, humanReadableName));
+        }
+    }
+
+    @Override
+    public void addProcedureIdentifierHumanReadableName(String identifier, String humanReadableName) {
+        if (!Strings.isNullOrEmpty(identifier) && !Strings.isNullOrEmpty(humanReadableName)) {
+            write(s -> s.procedureIdentifierHumanReadableName =
+                    s.putName(s.procedureIdentifierHumanReadableName, identifier, humanReadableName));
+        }
+    }
+
+    @Override
+    public void addOfferingIdentifierHumanReadableName(String identifier, String humanReadableName) {
+        if (!Strings.isNullOrEmpty(identifier) && !Strings.isNullOrEmpty(humanReadableName)) {
+            write(s -> s.offeringIdentifierHumanReadableName =
+                    s.putName(s.offeringIdentifierHumanReadableName, identifier, humanReadableName));
+        }
+    }
+
+    @Override
+    public void removeFeatureOfInterestIdentifierForHumanReadableName(String humanReadableName) {
+        notNullOrEmpty(FEATURE_OF_INTEREST_NAME, humanReadableName);
+        LOG.trace("Removing featuresOfInterest identifier for humanReadableName {}", humanReadableName);
+        write(s -> s.featureOfInterestIdentifierHumanReadableName =
+                s.removeName(s.featureOfInterestIdentifierHumanReadableName, humanReadableName));
+    }
+
+    @Override
+    public void removeFeatureOfInterestHumanReadableNameForIdentifier(String identifier) {
+        notNullOrEmpty(FEATURE_OF_INTEREST, identifier);
+        LOG.trace("Removing featuresOfInterest human readable name for identifier {}", identifier);
+        write(s -> s.featureOfInterestIdentifierHumanReadableName =
+                s.removeIdentifier(s.featureOfInterestIdentifierHumanReadableName, identifier));
+    }
+
+    @Override
+    public void removeObservablePropertyIdentifierForHumanReadableName(String humanReadableName) {
+        notNullOrEmpty(OBSERVABLE_PROPERTY_NAME, humanReadableName);
+        LOG.trace("Removing observableProperty identifier for humanReadableName {}", humanReadableName);
+        write(s -> s.observablePropertyIdentifierHumanReadableName =
+                s.removeName(s.observablePropertyIdentifierHumanReadableName, humanReadableName));
+    }
+
+    @Override
+    public void removeObservablePropertyHumanReadableNameForIdentifier(String identifier) {
+        notNullOrEmpty(OBSERVABLE_PROPERTY, identifier);
+        LOG.trace("Removing observableProperty human readable name for identifier {}", identifier);
+        write(s -> s.observablePropertyIdentifierHumanReadableName =
+                s.removeIdentifier(s.observablePropertyIdentifierHumanReadableName, identifier));
+    }
+
+    @Override
+    public void removeProcedureIdentifierForHumanReadableName(String humanReadableName) {
+        notNullOrEmpty(PROCEDURE_NAME, humanReadableName);
+        LOG.trace("Removing procedure identifier for humanReadableName {}", humanReadableName);
+        write(s -> s.procedureIdentifierHumanReadableName =
+                s.removeName(s.procedureIdentifierHumanReadableName, humanReadableName));
+    }
+
+    @Override
+    public void removeProcedureHumanReadableNameForIdentifier(String identifier) {
+        notNullOrEmpty(PROCEDURE, identifier);
+        LOG.trace("Removing procedure human readable name for identifier {}", identifier);
+        write(s -> s.procedureIdentifierHumanReadableName =
+                s.removeIdentifier(s.procedureIdentifierHumanReadableName, identifier));
+    }
+
+    @Override
+    public void removeOfferingIdentifierForHumanReadableName(String humanReadableName) {
+        notNullOrEmpty(OFFERING_NAME, humanReadableName);
+        LOG.trace("Removing offering identifier for humanReadableName {}", humanReadableName);
+        write(s -> s.offeringIdentifierHumanReadableName =
+                s.removeName(s.offeringIdentifierHumanReadableName, humanReadableName));
+    }
+
+    @Override
+    public void removeOfferingHumanReadableNameForIdentifier(String identifier) {
+        notNullOrEmpty(OFFERING, identifier);
+        LOG.trace("Removing offering human readable name for identifier {}", identifier);
+        write(s -> s.offeringIdentifierHumanReadableName =
+                s.removeIdentifier(s.offeringIdentifierHumanReadableName, identifier));
+    }
+
+    @Override
+    public void clearFeatureOfInterestIdentifierHumanReadableNameMaps() {
+        write(s -> s.featureOfInterestIdentifierHumanReadableName = HashBiMap.create());
+    }
+
+    @Override
+    public void clearObservablePropertyIdentifierHumanReadableNameMaps() {
+        write(s -> s.observablePropertyIdentifierHumanReadableName = HashBiMap.create());
+    }
+
+    @Override
+    public void clearProcedureIdentifierHumanReadableNameMaps() {
+        write(s -> s.procedureIdentifierHumanReadableName = HashBiMap.create());
+    }
+
+    @Override
+    public void clearOfferingIdentifierHumanReadableNameMaps() {
+        write(s -> s.offeringIdentifierHumanReadableName = HashBiMap.create());
+    }
+
+    @Override
+    public Set<String> getCompositePhenomenons() {
+        return readSet(s -> s.compositePhenomenons);
+    }
+
+    @Override
+    public boolean isCompositePhenomenon(String observableProperty) {
+        return read(s -> s.compositePhenomenons.contains(observableProperty));
+    }
+
+    @Override
+    public Set<String> getCompositePhenomenonsForProcedure(String procedure) {
+        return readSet(s -> s.compositePhenomenonsForProcedure.get(procedure));
+    }
+
+    @Override
+    public boolean isCompositePhenomenonForProcedure(String procedure, String observableProperty) {
+        return read(s -> Snapshot.contains(s.compositePhenomenonsForProcedure, procedure, observableProperty));
+    }
+
+    @Override
+    public Set<String> getCompositePhenomenonsForOffering(String offering) {
+        return readSet(s -> s.compositePhenomenonsForOffering.get(offering));
+    }
+
+    @Override
+    public boolean isCompositePhenomenonForOffering(String offering, String observableProperty) {
+        return read(s -> Snapshot.contains(s.compositePhenomenonsForOffering, offering, observableProperty));
+    }
+
+    @Override
+    public Set<String> getObservablePropertiesForCompositePhenomenon(String compositePhenomenon) {
+        return readSet(s -> s.observablePropertiesForCompositePhenomenons.get(compositePhenomenon));
+    }
+
+    @Override
+    public boolean isObservablePropertyOfCompositePhenomenon(String compositePhenomenon, String observableProperty) {
+        return read(s -> Snapshot.contains(s.observablePropertiesForCompositePhenomenons, compositePhenomenon,
+                observableProperty));
+    }
+
+    @Override
+    public Set<String> getCompositePhenomenonForObservableProperty(String observableProperty) {
+        return readSet(s -> s.compositePhenomenonsForObservableProperty.get(observableProperty));
+    }
+
+    @Override
+    public boolean isCompositePhenomenonComponent(String observableProperty) {
+        return read(s -> !s.compositePhenomenonsForObservableProperty
+                .getOrDefault(observableProperty, Collections.emptySet()).isEmpty());
+    }
+
+    @Override
+    public void addCompositePhenomenon(String compositePhenomenon) {
+        notNullOrEmpty(COMPOSITE_PHENOMENON, compositePhenomenon);
+        LOG.trace("Adding composite phenomenon {}", compositePhenomenon);
+        write(s -> s.compositePhenomenons = s.add(s.compositePhenomenons, compositePhenomenon));
+    }
+
+    @Override
+    public void addCompositePhenomenon(Collection<String> compositePhenomenon) {
+        noNullOrEmptyValues(COMPOSITE_PHENOMENON, compositePhenomenon);
+        LOG.trace("Adding composite phenomenon {}", compositePhenomenon);
+        write(s -> s.compositePhenomenons = s.addAll(s.compositePhenomenons, compositePhenomenon));
+    }
+
+    @Override
+    public void setCompositePhenomenon(Collection<String> compositePhenomenon) {
+        noNullOrEmptyValues(COMPOSITE_PHENOMENON, compositePhenomenon);
+        LOG.trace("Setting composite phenomenon {}", compositePhenomenon);
+        write(s -> s.compositePhenomenons = s.addAll(new PersistentHashSet<>(), compositePhenomenon));
+    }
+
+    @Override
+    public void clearCompositePhenomenon() {
+        LOG.trace("Clearing composite phenomenon");
+        write(s -> s.compositePhenomenons = new PersistentHashSet<>());
+    }
+
+    @Override
+    public void addCompositePhenomenonForProcedure(String procedure, String compositePhenomenon) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        notNullOrEmpty(COMPOSITE_PHENOMENON, compositePhenomenon);
+        LOG.trace("Adding composite phenomenon {} to procedure {}", compositePhenomenon, procedure);
+        write(s -> {
+            s.compositePhenomenonsForProcedure = s.add(s.compositePhenomenonsForProcedure, procedure,
+                    compositePhenomenon);
+            s.compositePhenomenons = s.add(s.compositePhenomenons, compositePhenomenon);
+        });
+    }
+
+    @Override
+    public void addCompositePhenomenonForProcedure(String procedure, Collection<String> compositePhenomenon) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        noNullOrEmptyValues(COMPOSITE_PHENOMENON, compositePhenomenon);
+        LOG.trace("Adding composite phenomenon {} to procedure {}", compositePhenomenon, procedure);
+        write(s -> {
+            s.compositePhenomenonsForProcedure = s.addAll(s.compositePhenomenonsForProcedure, procedure,
+                    compositePhenomenon);
+            s.compositePhenomenons = s.addAll(s.compositePhenomenons, compositePhenomenon);
+        });
+    }
+
+    @Override
+    public void setCompositePhenomenonForProcedure(String procedure, Collection<String> compositePhenomenon) {
+        notNullOrEmpty(PROCEDURE, procedure);
+        noNullOrEmptyValues(COMPOSITE_PHENOMENON, compositePhenomenon);
+        LOG.trace("Setting composite phenomenon {} for procedure {}", compositePhenomenon, procedure);
+        write(s -> {
+            s.compositePhenomenonsForProcedure = s.set(s.compositePhenomenonsForProcedure, procedure,
+                    compositePhenomenon);
+            s.compositePhenomenons = s.addAll(s.compositePhenomenons, compositePhenomenon);
+        });
+    }
+
+    @Override
+    public void clearCompositePhenomenonForProcedure(String procedure) {
+        LOG.trace("Clearing composite phenomenons for procedure {}", procedure);
+        write(s -> s.compositePhenomenonsForProcedure = s.removeKey(s.compositePhenomenonsForProcedure, procedure));
+    }
+
+    @Override
+    public void clearCompositePhenomenonForProcedures() {
+        LOG.trace("Clearing composite phenomenons for procedures");
+        write(s -> s.compositePhenomenonsForProcedure = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void addCompositePhenomenonForOffering(String offering, String compositePhenomenon) {
+        notNullOrEmpty(OFFERING, offering);
+        notNullOrEmpty(COMPOSITE_PHENOMENON, compositePhenomenon);
+        LOG.trace("Adding composite phenomenon {} to offering {}", compositePhenomenon, offering);
+        write(s -> {
+            s.compositePhenomenonsForOffering = s.add(s.compositePhenomenonsForOffering, offering,
+                    compositePhenomenon);
+            s.compositePhenomenons = s.add(s.compositePhenomenons, compositePhenomenon);
+        });
+    }
+
+    @Override
+    public void addCompositePhenomenonForOffering(String offering, Collection<String> compositePhenomenon) {
+        notNullOrEmpty(OFFERING, offering);
+        noNullOrEmptyValues(COMPOSITE_PHENOMENON, compositePhenomenon);
+        LOG.trace("Adding composite phenomenon {} to offering {}", compositePhenomenon, offering);
+        write(s -> {
+            s.compositePhenomenonsForOffering = s.addAll(s.compositePhenomenonsForOffering, offering,
+                    compositePhenomenon);
+            s.compositePhenomenons = s.addAll(s.compositePhenomenons, compositePhenomenon);
+        });
+    }
+
+    @Override
+    public void setCompositePhenomenonForOffering(String offering, Collection<String> compositePhenomenon) {
+        notNullOrEmpty(OFFERING, offering);
+        noNullOrEmptyValues(COMPOSITE_PHENOMENON, compositePhenomenon);
+        LOG.trace("Setting composite phenomenon {} for offering {}", compositePhenomenon, offering);
+        write(s -> {
+            s.compositePhenomenonsForOffering = s.set(s.compositePhenomenonsForOffering, offering,
+                    compositePhenomenon);
+            s.compositePhenomenons = s.addAll(s.compositePhenomenons, compositePhenomenon);
+        });
+    }
+
+    @Override
+    public void clearCompositePhenomenonForOffering(String offering) {
+        LOG.trace("Clearing composite phenomenons for offering {}", offering);
+        write(s -> s.compositePhenomenonsForOffering = s.removeKey(s.compositePhenomenonsForOffering, offering));
+    }
+
+    @Override
+    public void clearCompositePhenomenonForOfferings() {
+        LOG.trace("Clearing composite phenomenons for offerings");
+        write(s -> s.compositePhenomenonsForOffering = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void addCompositePhenomenonForObservableProperty(String observableProperty, String compositePhenomenon) {
+        notNullOrEmpty(COMPOSITE_PHENOMENON, compositePhenomenon);
+        notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
+        LOG.trace("Adding composite phenomenon {} to observable property {}", compositePhenomenon,
+                  observableProperty);
+        write(s -> {
+            s.compositePhenomenonsForObservableProperty = s.add(s.compositePhenomenonsForObservableProperty,
+                    observableProperty, compositePhenomenon);
+            s.compositePhenomenons = s.add(s.compositePhenomenons, compositePhenomenon);
+        });
+    }
+
+    @Override
+    public void addObservablePropertyForCompositePhenomenon(String compositePhenomenon, String observableProperty) {
+        notNullOrEmpty(COMPOSITE_PHENOMENON, compositePhenomenon);
+        notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
+        LOG.trace("Adding observable property {} to composite phenomenon {}", observableProperty,
+                  compositePhenomenon);
+        write(s -> {
+            s.observablePropertiesForCompositePhenomenons = s.add(s.observablePropertiesForCompositePhenomenons,
+                    compositePhenomenon, observableProperty);
+            s.compositePhenomenons = s.add(s.compositePhenomenons, compositePhenomenon);
+        });
+    }
+
+    @Override
+    public void addObservablePropertiesForCompositePhenomenon(String compositePhenomenon,
+                                                              Collection<String> observableProperty) {
+        notNullOrEmpty(COMPOSITE_PHENOMENON, compositePhenomenon);
+        noNullOrEmptyValues(OBSERVABLE_PROPERTY, observableProperty);
+        LOG.trace("Adding observable properties {} to composite phenomenon {}", observableProperty,
+                  compositePhenomenon);
+        write(s -> {
+            s.observablePropertiesForCompositePhenomenons = s.addAll(s.observablePropertiesForCompositePhenomenons,
+                    compositePhenomenon, observableProperty);
+            s.compositePhenomenons = s.add(s.compositePhenomenons, compositePhenomenon);
+        });
+    }
+
+    @Override
+    public void setObservablePropertiesForCompositePhenomenon(String compositePhenomenon,
+                                                              Collection<String> observableProperty) {
+        notNullOrEmpty(COMPOSITE_PHENOMENON, compositePhenomenon);
+        noNullOrEmptyValues(OBSERVABLE_PROPERTY, observableProperty);
+        LOG.trace("Setting observable properties {} for composite phenomenon {}", observableProperty,
+                  compositePhenomenon);
+        write(s -> {
+            s.observablePropertiesForCompositePhenomenons = s.set(s.observablePropertiesForCompositePhenomenons,
+                    compositePhenomenon, observableProperty);
+            s.compositePhenomenons = s.add(s.compositePhenomenons, compositePhenomenon);
+        });
+    }
+
+    @Override
+    public void clearObservablePropertiesForCompositePhenomenon(String compositePhenomenon) {
+        LOG.trace("Clearing observable properties for composite phenomenon {}", compositePhenomenon);
+        write(s -> s.observablePropertiesForCompositePhenomenons =
+                s.removeKey(s.observablePropertiesForCompositePhenomenons, compositePhenomenon));
+    }
+
+    @Override
+    public void clearObservablePropertiesForCompositePhenomenon() {
+        LOG.trace("Clearing observable properties for composite phenomenon");
+        write(s -> s.observablePropertiesForCompositePhenomenons = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearCompositePhenomenonsForObservableProperty() {
+        LOG.trace("Clearing composite phenomenon for observable properties");
+        write(s -> s.compositePhenomenonsForObservableProperty = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void clearCompositePhenomenonsForObservableProperty(String observableProperty) {
+        LOG.trace("Clearing composite phenomenon for observable property {}", observableProperty);
+        write(s -> s.compositePhenomenonsForObservableProperty =
+                s.removeKey(s.compositePhenomenonsForObservableProperty, observableProperty));
+    }
+
+    @Override
+    public Set<String> getRequestableProcedureDescriptionFormat() {
+        return readSet(s -> s.requestableProcedureDescriptionFormats);
+    }
+
+    @Override
+    public void setRequestableProcedureDescriptionFormat(Collection<String> formats) {
+        LOG.trace("Adding requestable procedureDescriptionFormat");
+        write(s -> s.requestableProcedureDescriptionFormats =
+                s.addAll(s.requestableProcedureDescriptionFormats, formats));
+    }
+
+    @Override
+    public boolean hasRequestableProcedureDescriptionFormat(String format) {
+        return read(s -> s.requestableProcedureDescriptionFormats.contains(format));
+    }
+
+    @Override
+    public Set<String> getOfferingsForProcedures(Set<String> procedures) {
+        if (procedures == null) {
+            return Collections.emptySet();
+        }
+        return read(s -> procedures.stream()
+                .map(procedure -> s.offeringsForProcedures.getOrDefault(procedure, Collections.emptySet()))
+                .flatMap(Set::stream)
+                .collect(Collectors.toSet()));
+    }
+
+    @Override
+    public Set<String> getTransactionalObservationProcedures() {
+        return read(s -> {
+            Set<String> procedures = CollectionHelper.unionOfListOfLists(s.hiddenChildProceduresForOfferings.values());
+            procedures.addAll(CollectionHelper.unionOfListOfLists(s.proceduresForOfferings.values()));
+            return procedures;
+        });
+    }
+
+    @Override
+    public boolean hasTransactionalObservationProcedure(String procedureID) {
+        return read(s -> Snapshot.containsValue(s.hiddenChildProceduresForOfferings, procedureID)
+                || Snapshot.containsValue(s.proceduresForOfferings, procedureID));
+    }
+
+    @Override
+    public Set<String> getQueryableProcedures() {
+        boolean instancesOnly = isAllowQueryingForInstancesOnly();
+        boolean aggregatedOnly = isShowOnlyAggregatedProcedures();
+        return read(s -> s.publishedProcedure.stream()
+                .filter(p -> !instancesOnly || Snapshot.contains(s.typeInstanceProcedures, TypeInstance.INSTANCE, p))
+                .filter(p -> !aggregatedOnly || Snapshot.contains(s.componentAggregationProcedures,
+                        ComponentAggregation.AGGREGATION, p))
+                .collect(Collectors.toSet()));
+    }
+
+    @Override
+    public boolean hasQueryableProcedure(String procedureID) {
+        return getQueryableProcedures().contains(procedureID);
+    }
+
+    @Override
+    public Set<String> getTypeInstanceProcedure(TypeInstance typeInstance) {
+        return readSet(s -> s.typeInstanceProcedures.get(typeInstance));
+    }
+
+    @Override
+    public Set<String> getComponentAggregationProcedure(ComponentAggregation componentAggregation) {
+        return readSet(s -> s.componentAggregationProcedures.get(componentAggregation));
+    }
+
+    @Override
+    public Set<String> getInstancesForProcedure(String identifier) {
+        return readSet(s -> s.typeOfProceduresMap.get(identifier));
+    }
+
+    @Override
+    public boolean hasInstancesForProcedure(String identifier) {
+        return read(s -> s.typeOfProceduresMap.containsKey(identifier));
+    }
+
+    @Override
+    public void addTypeInstanceProcedure(TypeInstance typeInstance, String identifier) {
+        notNullOrEmpty(TYPE_PROCEDURE, identifier);
+        LOG.trace("Adding '{}' to '{}'", identifier, TYPE_PROCEDURE);
+        write(s -> s.typeInstanceProcedures = s.add(s.typeInstanceProcedures, typeInstance, identifier));
+    }
+
+    @Override
+    public void removeTypeInstanceProcedure(String identifier) {
+        notNullOrEmpty(TYPE_PROCEDURE, identifier);
+        LOG.trace("Removing '{}' from '{}'", identifier, TYPE_PROCEDURE);
+        write(s -> s.typeInstanceProcedures = s.withoutValue(s.typeInstanceProcedures, identifier));
+    }
+
+    @Override
+    public void clearTypeInstanceProcedure() {
+        LOG.trace("Clearing '{}'", TYPE_PROCEDURE);
+        write(s -> s.typeInstanceProcedures = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void addComponentAggregationProcedure(ComponentAggregation componentAggregation, String identifier) {
+        notNullOrEmpty(AGGREGATED_PROCEDURE, identifier);
+        LOG.trace("Adding '{}' to '{}'", identifier, AGGREGATED_PROCEDURE);
+        write(s -> s.componentAggregationProcedures =
+                s.add(s.componentAggregationProcedures, componentAggregation, identifier));
+    }
+
+    @Override
+    public void removeComponentAggregationProcedure(String identifier) {
+        notNullOrEmpty(AGGREGATED_PROCEDURE, identifier);
+        LOG.trace("Removing '{}' from '{}'", identifier, AGGREGATED_PROCEDURE);
+        write(s -> s.componentAggregationProcedures = s.withoutValue(s.componentAggregationProcedures, identifier));
+    }
+
+    @Override
+    public void clearComponentAggregationProcedure() {
+        LOG.trace("Clearing '{}'", AGGREGATED_PROCEDURE);
+        write(s -> s.componentAggregationProcedures = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void addTypeOfProcedure(String type, String instance) {
+        notNullOrEmpty(TYPE_PROCEDURE, type);
+        notNullOrEmpty(PROCEDURE_INSTANCE, instance);
+        LOG.trace("Adding instance '{}' to type '{}'", instance, type);
+        write(s -> s.typeOfProceduresMap = s.add(s.typeOfProceduresMap, type, instance));
+    }
+
+    @Override
+    public void addTypeOfProcedure(String type, Set<String> instances) {
+        notNullOrEmpty(TYPE_PROCEDURE, type);
+        noNullValues(PROCEDURE_INSTANCES, instances);
+        LOG.trace("Adding instances {} to type '{}'", instances, type);
+        write(s -> s.typeOfProceduresMap = s.addAll(s.typeOfProceduresMap, type, instances));
+    }
+
+    @Override
+    public void removeTypeOfProcedure(String type) {
+        notNullOrEmpty(TYPE_PROCEDURE, type);
+        LOG.trace("Removing type '{}'", type);
+        write(s -> s.typeOfProceduresMap = s.withoutValue(s.removeKey(s.typeOfProceduresMap, type), type));
+    }
+
+    @Override
+    public void removeTypeOfProcedure(String type, String instance) {
+        notNullOrEmpty(TYPE_PROCEDURE, type);
+        notNullOrEmpty(PROCEDURE_INSTANCE, instance);
+        LOG.trace("Removing '{}' from '{}'", instance, type);
+        write(s -> s.typeOfProceduresMap = s.remove(s.typeOfProceduresMap, type, instance));
+    }
+
+    @Override
+    public void clearTypeOfProcedure() {
+        LOG.trace("Clearing type instance procedure map");
+        write(s -> s.typeOfProceduresMap = new PersistentHashMap<>());
+    }
+
+    @Override
+    public void addProcedureDescriptionFormatsForProcedure(String procedure, Set<String> formats) {
+        write(s -> s.procedureProcedureDescriptionFormats =
+                s.addAll(s.procedureProcedureDescriptionFormats, procedure, formats));
+    }
+
+    @Override
+    public void removeProcedureDescriptionFormatsForProcedure(String procedure) {
+        write(s -> s.procedureProcedureDescriptionFormats =
+                s.removeKey(s.procedureProcedureDescriptionFormats, procedure));
+    }
+
+    @Override
+    public Set<String> getProcedureDescriptionFormatsForProcedure(String procedure) {
+        return readSet(s -> s.procedureProcedureDescriptionFormats.get(procedure));
+    }
+
+    @Override
+    public Set<String> getPublishedFeatureOfInterest() {
+        return readSet(s -> s.publishedFeatureOfInterest);
+    }
+
+    @Override
+    public Set<String> getPublishedProcedures() {
+        return readSet(s -> s.publishedProcedure);
+    }
+
+    @Override
+    public Set<String> getPublishedOfferings() {
+        return readSet(s -> s.publishedOffering);
+    }
+
+    @Override
+    public Set<String> getPublishedObservableProperties() {
+        return readSet(s -> s.publishedObservableProperty);
+    }
+
+    @Override
+    public void addPublishedFeatureOfInterest(String featureOfInterest) {
+        notNullOrEmpty(PUBLISHED_FEATURE_OF_INTEREST, featureOfInterest);
+        LOG.trace("Adding published FeatureOfInterest {}", featureOfInterest);
+        write(s -> s.publishedFeatureOfInterest = s.add(s.publishedFeatureOfInterest, featureOfInterest));
+    }
+
+    @Override
+    public void addPublishedFeaturesOfInterest(Collection<String> featuresOfInterest) {
+        noNullOrEmptyValues(PUBLISHED_FEATURES_OF_INTEREST, featuresOfInterest);
+        LOG.trace("Adding published FeaturesOfInterest {}", featuresOfInterest);
+        write(s -> s.publishedFeatureOfInterest = s.addAll(s.publishedFeatureOfInterest, featuresOfInterest));
+    }
+
+    @Override
+    public void setPublishedFeaturesOfInterest(final Collection<String> featuresOfInterest) {
+        noNullOrEmptyValues(PUBLISHED_FEATURES_OF_INTEREST, featuresOfInterest);
+        LOG.trace("Setting published FeaturesOfInterest");
+        write(s -> s.publishedFeatureOfInterest = s.addAll(new PersistentHashSet<>(), featuresOfInterest));
+    }
+
+    @Override
+    public void clearPublishedFeaturesOfInterest() {
+        LOG.trace("Clearing published features of interest");
+        write(s -> s.publishedFeatureOfInterest = new PersistentHashSet<>());
+    }
+
+    @Override
+    public void removePublishedFeatureOfInterest(final String featureOfInterest) {
+        notNullOrEmpty(PUBLISHED_FEATURE_OF_INTEREST, featureOfInterest);
+        LOG.trace("Removing published FeatureOfInterest {}", featureOfInterest);
+        write(s -> s.publishedFeatureOfInterest = s.remove(s.publishedFeatureOfInterest, featureOfInterest));
+    }
+
+    @Override
+    public void removePublishedFeaturesOfInterest(final Collection<String> featuresOfInterest) {
+        noNullOrEmptyValues(PUBLISHED_FEATURES_OF_INTEREST, featuresOfInterest);
+        LOG.trace("Removing published FeaturesOfInterest {}", featuresOfInterest);
+        write(s -> s.publishedFeatureOfInterest = s.removeAll(s.publishedFeatureOfInterest, featuresOfInterest));
+    }
+
+    @Override
+    public void addPublishedProcedure(String procedure) {
+        notNullOrEmpty(PUBLISHED_PROCEDURE, procedure);
+        LOG.trace("Adding published procedure {}", procedure);
+        write(s -> s.publishedProcedure = s.add(s.publishedProcedure, procedure));
+    }
+
+    @Override
+    public void addPublishedProcedures(Collection<String> procedures) {
+        noNullOrEmptyValues(PUBLISHED_PROCEDURES, procedures);
+        LOG.trace("Adding published procedures {}", procedures);
+        write(s -> s.publishedProcedure = s.addAll(s.publishedProcedure, procedures));
+    }
+
+    @Override
+    public void setPublishedProcedures(final Collection<String> procedures) {
+        noNullOrEmptyValues(PUBLISHED_PROCEDURES, procedures);
+        LOG.trace("Setting published procedure");
+        write(s -> s.publishedProcedure = s.addAll(new PersistentHashSet<>(), procedures));
+    }
+
+    @Override
+    public void clearPublishedProcedure() {
+        LOG.trace("Clearing published procedure");
+        write(s -> s.publishedProcedure = new PersistentHashSet<>());
+    }
+
+    @Override
+    public void removePublishedProcedure(final String procedure) {
+        notNullOrEmpty(PUBLISHED_PROCEDURE, procedure);
+        LOG.trace("Removing published procedure {}", procedure);
+        write(s -> s.publishedProcedure = s.remove(s.publishedProcedure, procedure));
+    }
+
+    @Override
+    public void removePublishedProcedures(final Collection<String> procedures) {
+        noNullOrEmptyValues(PUBLISHED_PROCEDURES, procedures);
+        LOG.trace("Removing published procedures {}", procedures);
+        write(s -> s.publishedProcedure = s.removeAll(s.publishedProcedure, procedures));
+    }
+
+    @Override
+    public void addPublishedOffering(String offering) {
+        notNullOrEmpty(PUBLISHED_OFFERING, offering);
+        LOG.trace("Adding published offering {}", offering);
+        write(s -> s.publishedOffering = s.add(s.publishedOffering, offering));
+    }
+
+    @Override
+    public void addPublishedOfferings(Collection<String> offerings) {
+        noNullOrEmptyValues(PUBLISHED_OFFERINGS, offerings);
+        LOG.trace("Adding published offerings {}", offerings);
+        write(s -> s.publishedOffering = s.addAll(s.publishedOffering, offerings));
+    }
+
+    @Override
+    public void setPublishedOfferings(final Collection<String> offerings) {
+        noNullOrEmptyValues(PUBLISHED_OFFERINGS, offerings);
+        LOG.trace("Setting published offering");
+        write(s -> s.publishedOffering = s.addAll(new PersistentHashSet<>(), offerings));
+    }
+
+    @Override
+    public void clearPublishedOffering() {
+        LOG.trace("Clearing published offering");
+        write(s -> s.publishedOffering = new PersistentHashSet<>());
+    }
+
+    @Override
+    public void removePublishedOffering(final String offering) {
+        notNullOrEmpty(PUBLISHED_OFFERING, offering);
+        LOG.trace("Removing published offering {}", offering);
+        write(s -> s.publishedOffering = s.remove(s.publishedOffering, offering));
+    }
+
+    @Override
+    public void removePublishedOfferings(final Collection<String> offerings) {
+        noNullOrEmptyValues(PUBLISHED_OFFERINGS, offerings);
+        LOG.trace("Removing published offerings {}", offerings);
+        write(s -> s.publishedOffering = s.removeAll(s.publishedOffering, offerings));
+    }
+
+    @Override
+    public void addPublishedObservableProperty(String observableProperty) {
+        notNullOrEmpty(PUBLISHED_OBSERVABLE_PROPERTY, observableProperty);
+        LOG.trace("Adding published observableProperty {}", observableProperty);
+        write(s -> s.publishedObservableProperty = s.add(s.publishedObservableProperty, observableProperty));
+    }
+
+    @Override
+    public void addPublishedObservableProperties(Collection<String> observableProperties) {
+        noNullOrEmptyValues(PUBLISHED_OBSERVABLE_PROPERTIES, observableProperties);
+        LOG.trace("Adding published observableProperties {}", observableProperties);
+        write(s -> s.publishedObservableProperty = s.addAll(s.publishedObservableProperty, observableProperties));
+    }
+
+    @Override
+    public void setPublishedObservableProperties(final Collection<String> observableProperties) {
+        noNullOrEmptyValues(PUBLISHED_OBSERVABLE_PROPERTIES, observableProperties);
+        LOG.trace("Setting published observableProperties");
+        write(s -> s.publishedObservableProperty = s.addAll(new PersistentHashSet<>(), observableProperties));
+    }
+
+    @Override
+    public void clearPublishedObservableProperty() {
+        LOG.trace("Clearing published observableProperties");
+        write(s -> s.publishedObservableProperty = new PersistentHashSet<>());
+    }
+
+    @Override
+    public void removePublishedObservableProperty(final String observableProperty) {
+        notNullOrEmpty(PUBLISHED_OBSERVABLE_PROPERTY, observableProperty);
+        LOG.trace("Removing published observableProperty {}", observableProperty);
+        write(s -> s.publishedObservableProperty = s.remove(s.publishedObservableProperty, observableProperty));
+    }
+
+    @Override
+    public void removePublishedObservableProperties(final Collection<String> observableProperties) {
+        noNullOrEmptyValues(PUBLISHED_OBSERVABLE_PROPERTIES, observableProperties);
+        LOG.trace("Removing published observableProperties {}", observableProperties);
+        write(s -> s.publishedObservableProperty =
+                s.removeAll(s.publishedObservableProperty, observableProperties));
+    }
+
+    @Override
+    public int hashCode() {
+        return read(Snapshot::hashCode);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final SnapshotCacheImpl other = (SnapshotCacheImpl) obj;
+        return read(Function.identity()).equals(other.read(Function.identity()));
+    }
+
+    private ProcedureRequestSettingProvider getProcedureRequestSettingProvider() {
+        return ProcedureRequestSettingProvider.getInstance();
+    }
+
+    @VisibleForTesting
+    boolean isAllowQueryingForInstancesOnly() {
+        return getProcedureRequestSettingProvider().isAllowQueryingForInstancesOnly();
+    }
+
+    @VisibleForTesting
+    boolean isShowOnlyAggregatedProcedures() {
+        return getProcedureRequestSettingProvider().isShowOnlyAggregatedProcedures();
+    }
+
+    private static boolean isSetEnvelope(ReferencedEnvelope envelope) {
+        return envelope != null && envelope.isSetEnvelope();
+    }
+
+    /**
+     * One version of the cache content. A published snapshot is never modified again; writers work on a copy
+     * created by {@link #modify()} that shares all collections with its origin and copies an index or value set
+     * the first time it is changed. Every modifying helper returns the (possibly copied) collection, which has to
+     * be assigned back to the field.
+     */
+    private static final class Snapshot implements Serializable, Cloneable {
+        private static final long serialVersionUID = 6213584469218376251L;
+        private Map<String, DateTime> maxPhenomenonTimeForOfferings = new PersistentHashMap<>();
+        private Map<String, DateTime> minPhenomenonTimeForOfferings = new PersistentHashMap<>();
+        private Map<String, DateTime> maxResultTimeForOfferings = new PersistentHashMap<>();
+        private Map<String, DateTime> minResultTimeForOfferings = new PersistentHashMap<>();
+        private Map<String, DateTime> maxPhenomenonTimeForProcedures = new PersistentHashMap<>();
+        private Map<String, DateTime> minPhenomenonTimeForProcedures = new PersistentHashMap<>();
+        private Map<String, Set<String>> allowedObservationTypeForOfferings = new PersistentHashMap<>();
+        private Map<String, Set<String>> allowedFeatureOfInterestTypeForOfferings = new PersistentHashMap<>();
+        private Map<String, Set<String>> childFeaturesForFeatureOfInterest = new PersistentHashMap<>();
+        private Map<String, Set<String>> childProceduresForProcedures = new PersistentHashMap<>();
+        private Map<String, Set<String>> childOfferingsForOfferings = new PersistentHashMap<>();
+        private Map<String, Set<String>> compositePhenomenonsForProcedure = new PersistentHashMap<>();
+        private Map<String, Set<String>> compositePhenomenonsForOffering = new PersistentHashMap<>();
+        private Map<String, Set<String>> compositePhenomenonsForObservableProperty = new PersistentHashMap<>();
+        private Map<String, Set<String>> featuresOfInterestForOfferings = new PersistentHashMap<>();
+        private Map<String, Set<String>> offeringsForFeaturesOfInterest = new PersistentHashMap<>();
+        private Map<String, Set<String>> featuresOfInterestForResultTemplates = new PersistentHashMap<>();
+        private Map<String, Set<String>> observablePropertiesForCompositePhenomenons = new PersistentHashMap<>();
+        private Map<String, Set<String>> observablePropertiesForOfferings = new PersistentHashMap<>();
+        private Map<String, Set<String>> observablePropertiesForProcedures = new PersistentHashMap<>();
+        private Map<String, Set<String>> observationTypesForOfferings = new PersistentHashMap<>();
+        private Map<String, Set<String>> featureOfInterestTypesForOfferings = new PersistentHashMap<>();
+        private Map<String, Set<String>> observedPropertiesForResultTemplates = new PersistentHashMap<>();
+        private Map<String, Set<String>> offeringsForObservableProperties = new PersistentHashMap<>();
+        private Map<String, Set<String>> offeringsForProcedures = new PersistentHashMap<>();
+        private Map<String, Set<String>> parentFeaturesForFeaturesOfInterest = new PersistentHashMap<>();
+        private Map<String, Set<String>> parentProceduresForProcedures = new PersistentHashMap<>();
+        private Map<String, Set<String>> parentOfferingsForOfferings = new PersistentHashMap<>();
+        private Map<String, Set<String>> proceduresForFeaturesOfInterest = new PersistentHashMap<>();
+        private Map<String, Set<String>> proceduresForObservableProperties = new PersistentHashMap<>();
+        private Map<String, Set<String>> proceduresForOfferings = new PersistentHashMap<>();
+        private Map<String, Set<String>> hiddenChildProceduresForOfferings = new PersistentHashMap<>();
+        private Map<String, Set<String>> relatedFeaturesForOfferings = new PersistentHashMap<>();
+        private Map<String, Set<String>> resultTemplatesForOfferings = new PersistentHashMap<>();
+        private Map<String, Set<String>> rolesForRelatedFeatures = new PersistentHashMap<>();
+        private Map<String, ReferencedEnvelope> envelopeForOfferings = new PersistentHashMap<>();
+        private Map<String, ReferencedEnvelope> spatialFilteringProfileEnvelopeForOfferings = new PersistentHashMap<>();
+        private Map<String, String> nameForOfferings = new PersistentHashMap<>();
+        private Map<String, MultilingualString> i18nNameForOfferings = new PersistentHashMap<>();
+        private Map<String, MultilingualString> i18nDescriptionForOfferings = new PersistentHashMap<>();
+        private Set<Integer> epsgCodes = new PersistentHashSet<>();
+        private Set<String> featuresOfInterest = new PersistentHashSet<>();
+        private Set<String> procedures = new PersistentHashSet<>();
+        private Set<String> resultTemplates = new PersistentHashSet<>();
+        private Set<String> offerings = new PersistentHashSet<>();
+        private Set<String> compositePhenomenons = new PersistentHashSet<>();
+        private Set<Locale> supportedLanguages = new PersistentHashSet<>();
+        private Set<String> requestableProcedureDescriptionFormats = new PersistentHashSet<>();
+        private BiMap<String, String> featureOfInterestIdentifierHumanReadableName = HashBiMap.create();
+        private BiMap<String, String> observablePropertyIdentifierHumanReadableName = HashBiMap.create();
+        private BiMap<String, String> procedureIdentifierHumanReadableName = HashBiMap.create();
+        private BiMap<String, String> offeringIdentifierHumanReadableName = HashBiMap.create();
+        private Map<TypeInstance, Set<String>> typeInstanceProcedures = new PersistentHashMap<>();
+        private Map<ComponentAggregation, Set<String>> componentAggregationProcedures = new PersistentHashMap<>();
+        private Map<String, Set<String>> typeOfProceduresMap = new PersistentHashMap<>();
+        private Map<String, Set<String>> procedureProcedureDescriptionFormats = new PersistentHashMap<>();
+        private Set<String> publishedFeatureOfInterest = new PersistentHashSet<>();
+        private Set<String> publishedProcedure = new PersistentHashSet<>();
+        private Set<String> publishedOffering = new PersistentHashSet<>();
+        private Set<String> publishedObservableProperty = new PersistentHashSet<>();
+        private DateTime minPhenomenonTime;
+        private DateTime maxPhenomenonTime;
+        private DateTime minResultTime;
+        private DateTime maxResultTime;
+        private int defaultEpsgCode = 4326;
+        private ReferencedEnvelope globalEnvelope = new ReferencedEnvelope(null, defaultEpsgCode);
+        private DateTime updateTime;
+        /**
+         * The collections created by this (unpublished) version, which may be modified in place.
+         */
+        private transient Set<Object> owned;
+
+        Snapshot modify() {
+            try {
+                Snapshot copy = (Snapshot) clone();
+                copy.owned = Collections.newSetFromMap(new IdentityHashMap<>());
+                return copy;
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        Snapshot seal() {
+            this.owned = null;
+            return this;
+        }
+
+        DateTime getMaxPhenomenonTimeForProcedure(String procedure) {
+            return getHierarchy(childProceduresForProcedures, procedure, true, true).stream()
+                    .map(maxPhenomenonTimeForProcedures::get)
+                    .filter(Objects::nonNull)
+                    .reduce((a, b) -> a.isAfter(b) ? a : b)
+                    .orElse(null);
+        }
+
+        DateTime getMinPhenomenonTimeForProcedure(String procedure) {
+            return getHierarchy(childProceduresForProcedures, procedure, true, true).stream()
+                    .map(minPhenomenonTimeForProcedures::get)
+                    .filter(Objects::nonNull)
+                    .reduce((a, b) -> a.isBefore(b) ? a : b)
+                    .orElse(null);
+        }
+
+        /**
+         * Get a modifiable version of the index. Indexes are {@link PersistentHashMap}s, so the copy costs only the
+         * nodes on the path to each modified entry instead of the whole index.
+         */
+        <K, V> Map<K, V> own(Map<K, V> map) {
+            if (owned.contains(map)) {
+                return map;
+            }
+            Map<K, V> copy = map instanceof PersistentHashMap
+                    ? ((PersistentHashMap<K, V>) map).fork()
+                    : new PersistentHashMap<>(map);
+            owned.add(copy);
+            return copy;
+        }
+
+        /**
+         * Get a modifiable version of the set. Top level sets are {@link PersistentHashSet}s and are forked, the
+         * value sets of the indexes are copied.
+         */
+        <T> Set<T> own(Set<T> set) {
+            if (owned.contains(set)) {
+                return set;
+            }
+            Set<T> copy = set instanceof PersistentHashSet
+                    ? ((PersistentHashSet<T>) set).fork()
+                    : new HashSet<>(set);
+            owned.add(copy);
+            return copy;
+        }
+
+        <K, V> BiMap<K, V> ownBiMap(BiMap<K, V> map) {
+            if (owned.contains(map)) {
+                return map;
+            }
+            BiMap<K, V> copy = HashBiMap.create(map);
+            owned.add(copy);
+            return copy;
+        }
+
+        private <K, V> Set<V> valuesOf(Map<K, Set<V>> ownedMap, K key) {
+            Set<V> values = ownedMap.get(key);
+            if (values == null) {
+                values = new HashSet<>();
+                owned.add(values);
+                ownedMap.put(key, values);
+            } else if (!owned.contains(values)) {
+                values = own(values);
+                ownedMap.put(key, values);
+            }
+            return values;
+        }
+
+        <K, V> Map<K, Set<V>> add(Map<K, Set<V>> map, K key, V value) {
+            Set<V> values = map.get(key);
+            if (values != null && values.contains(value)) {
+                return map;
+            }
+            Map<K, Set<V>> ownedMap = own(map);
+            valuesOf(ownedMap, key).add(value);
+            return ownedMap;
+        }
+
+        <K, V> Map<K, Set<V>> addAll(Map<K, Set<V>> map, K key, Collection<? extends V> values) {
+            Set<V> current = map.get(key);
+            if (current != null && current.containsAll(values)) {
+                return map;
+            }
+            Map<K, Set<V>> ownedMap = own(map);
+            valuesOf(ownedMap, key).addAll(values);
+            return ownedMap;
+        }
+
+        <K, V> Map<K, Set<V>> remove(Map<K, Set<V>> map, K key, V value) {
+            Set<V> values = map.get(key);
+            if (values == null || !values.contains(value)) {
+                return map;
+            }
+            Map<K, Set<V>> ownedMap = own(map);
+            valuesOf(ownedMap, key).remove(value);
+            return ownedMap;
+        }
+
+        <K, V> Map<K, Set<V>> set(Map<K, Set<V>> map, K key, Collection<? extends V> values) {
+            Map<K, Set<V>> ownedMap = own(map);
+            Set<V> newValues = values == null ? new HashSet<>() : new HashSet<>(values);
+            owned.add(newValues);
+            ownedMap.put(key, newValues);
+            return ownedMap;
+        }
+
+        /**
+         * Removes the value from all value sets and removes entries whose value set becomes empty.
+         */
+        <K, V> Map<K, Set<V>> withoutValue(Map<K, Set<V>> map, V value) {
+            List<K> keys = map.entrySet().stream()
+                    .filter(e -> e.getValue().contains(value))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            if (keys.isEmpty()) {
+                return map;
+            }
+            Map<K, Set<V>> ownedMap = own(map);
+            for (K key : keys) {
+                Set<V> values = valuesOf(ownedMap, key);
+                values.remove(value);
+                if (values.isEmpty()) {
+                    ownedMap.remove(key);
+                }
+            }
+            return ownedMap;
+        }
+
+        <K, V> Map<K, V> put(Map<K, V> map, K key, V value) {
+            Map<K, V> ownedMap = own(map);
+            ownedMap.put(key, value);
+            return ownedMap;
+        }
+
+        Map<String, DateTime> putTime(Map<String, DateTime> map, String key, DateTime time) {
+            return time == null ? removeKey(map, key) : put(map, key, DateTimeHelper.toUTC(time));
+        }
+
+        Map<String, ReferencedEnvelope> expand(Map<String, ReferencedEnvelope> map, String key, Envelope envelope) {
+            ReferencedEnvelope current = map.get(key);
+            ReferencedEnvelope expanded;
+            if (isSetEnvelope(current)) {
+                // stored envelopes may be shared with published versions
+                expanded = copyOf(current);
+                expanded.expandToInclude(envelope);
+            } else {
+                expanded = new ReferencedEnvelope(new Envelope(envelope), defaultEpsgCode);
+            }
+            return put(map, key, expanded);
+        }
+
+        <K, V> Map<K, V> removeKey(Map<K, V> map, K key) {
+            if (!map.containsKey(key)) {
+                return map;
+            }
+            Map<K, V> ownedMap = own(map);
+            ownedMap.remove(key);
+            return ownedMap;
+        }
+
+        <K, V> Map<K, V> retainKeys(Map<K, V> map, Collection<K> keys) {
+            if (keys.containsAll(map.keySet())) {
+                return map;
+            }
+            Map<K, V> ownedMap = own(map);
+            ownedMap.keySet().retainAll(keys);
+            return ownedMap;
+        }
+
+        <T> Set<T> add(Set<T> set, T value) {
+            if (set.contains(value)) {
+                return set;
+            }
+            Set<T> ownedSet = own(set);
+            ownedSet.add(value);
+            return ownedSet;
+        }
+
+        <T> Set<T> addAll(Set<T> set, Collection<? extends T> values) {
+            if (set.containsAll(values)) {
+                return set;
+            }
+            Set<T> ownedSet = own(set);
+            ownedSet.addAll(values);
+            return ownedSet;
+        }
+
+        <T> Set<T> remove(Set<T> set, T value) {
+            if (!set.contains(value)) {
+                return set;
+            }
+            Set<T> ownedSet = own(set);
+            ownedSet.remove(value);
+            return ownedSet;
+        }
+
+        <T> Set<T> removeAll(Set<T> set, Collection<?> values) {
+            if (values.stream().noneMatch(set::contains)) {
+                return set;
+            }
+            Set<T> ownedSet = own(set);
+            ownedSet.removeAll(values);
+            return ownedSet;
+        }
+
+        BiMap<String, String> putName(BiMap<String, String> map, String identifier, String humanReadableName) {
+            if (humanReadableName.equals(map.get(identifier))) {
+                return map;
+            }
+            if (map.containsValue(humanReadableName)) {
+                LOG.warn("Duplicate entry for feature with identifier '{}' and humanReadableName '{}'!", identifier,
+                        humanReadableName);
+                return map;
+            }
+            BiMap<String, String> ownedMap = ownBiMap(map);
+            ownedMap.put(identifier, humanReadableName);
+            return ownedMap;
+        }
+
+        BiMap<String, String> removeName(BiMap<String, String> map, String humanReadableName) {
+            if (!map.containsValue(humanReadableName)) {
+                return map;
+            }
+            BiMap<String, String> ownedMap = ownBiMap(map);
+            ownedMap.inverse().remove(humanReadableName);
+            return ownedMap;
+        }
+
+        BiMap<String, String> removeIdentifier(BiMap<String, String> map, String identifier) {
+            if (!map.containsKey(identifier)) {
+                return map;
+            }
+            BiMap<String, String> ownedMap = ownBiMap(map);
+            ownedMap.remove(identifier);
+            return ownedMap;
+        }
+
+        static <K, V> boolean contains(Map<K, Set<V>> map, K key, V value) {
+            Set<V> values = map.get(key);
+            return values != null && values.contains(value);
+        }
+
+        static <V> boolean containsValue(Map<?, Set<V>> map, V value) {
+            return map.values().stream().anyMatch(values -> values.contains(value));
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(maxPhenomenonTimeForOfferings, minPhenomenonTimeForOfferings,
+                    maxResultTimeForOfferings, minResultTimeForOfferings, maxPhenomenonTimeForProcedures,
+                    minPhenomenonTimeForProcedures, allowedObservationTypeForOfferings,
+                    allowedFeatureOfInterestTypeForOfferings, childFeaturesForFeatureOfInterest,
+                    childProceduresForProcedures, childOfferingsForOfferings, compositePhenomenonsForProcedure,
+                    compositePhenomenonsForOffering, compositePhenomenonsForObservableProperty,
+                    featuresOfInterestForOfferings, offeringsForFeaturesOfInterest,
+                    featuresOfInterestForResultTemplates, observablePropertiesForCompositePhenomenons,
+                    observablePropertiesForOfferings, observablePropertiesForProcedures, observationTypesForOfferings,
+                    featureOfInterestTypesForOfferings, observedPropertiesForResultTemplates,
+                    offeringsForObservableProperties, offeringsForProcedures, parentFeaturesForFeaturesOfInterest,
+                    parentProceduresForProcedures, parentOfferingsForOfferings, proceduresForFeaturesOfInterest,
+                    proceduresForObservableProperties, proceduresForOfferings, hiddenChildProceduresForOfferings,
+                    relatedFeaturesForOfferings, resultTemplatesForOfferings, rolesForRelatedFeatures,
+                    envelopeForOfferings, spatialFilteringProfileEnvelopeForOfferings, nameForOfferings,
+                    i18nNameForOfferings, i18nDescriptionForOfferings, epsgCodes, featuresOfInterest, procedures,
+                    resultTemplates, offerings, compositePhenomenons, supportedLanguages,
+                    requestableProcedureDescriptionFormats, featureOfInterestIdentifierHumanReadableName,
+                    observablePropertyIdentifierHumanReadableName, procedureIdentifierHumanReadableName,
+                    offeringIdentifierHumanReadableName, typeInstanceProcedures, componentAggregationProcedures,
+                    typeOfProceduresMap, procedureProcedureDescriptionFormats, publishedFeatureOfInterest,
+                    publishedProcedure, publishedOffering, publishedObservableProperty, minPhenomenonTime,
+                    maxPhenomenonTime, minResultTime, maxResultTime, defaultEpsgCode, globalEnvelope, updateTime);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Snapshot)) {
+                return false;
+            }
+            final Snapshot other = (Snapshot) obj;
+            return this.defaultEpsgCode == other.defaultEpsgCode
+                   && Objects.equals(this.maxPhenomenonTimeForOfferings, other.maxPhenomenonTimeForOfferings)
+                   && Objects.equals(this.minPhenomenonTimeForOfferings, other.minPhenomenonTimeForOfferings)
+                   && Objects.equals(this.maxResultTimeForOfferings, other.maxResultTimeForOfferings)
+                   && Objects.equals(this.minResultTimeForOfferings, other.minResultTimeForOfferings)
+                   && Objects.equals(this.maxPhenomenonTimeForProcedures, other.maxPhenomenonTimeForProcedures)
+                   && Objects.equals(this.minPhenomenonTimeForProcedures, other.minPhenomenonTimeForProcedures)
+                   && Objects.equals(this.allowedObservationTypeForOfferings,
+                                     other.allowedObservationTypeForOfferings)
+                   && Objects.equals(this.allowedFeatureOfInterestTypeForOfferings,
+                                     other.allowedFeatureOfInterestTypeForOfferings)
+                   && Objects.equals(this.childFeaturesForFeatureOfInterest, other.childFeaturesForFeatureOfInterest)
+                   && Objects.equals(this.childProceduresForProcedures, other.childProceduresForProcedures)
+                   && Objects.equals(this.childOfferingsForOfferings, other.childOfferingsForOfferings)
+                   && Objects.equals(this.compositePhenomenonsForProcedure, other.compositePhenomenonsForProcedure)
+                   && Objects.equals(this.compositePhenomenonsForOffering, other.compositePhenomenonsForOffering)
+                   && Objects.equals(this.compositePhenomenonsForObservableProperty,
+                                     other.compositePhenomenonsForObservableProperty)
+                   && Objects.equals(this.featuresOfInterestForOfferings, other.featuresOfInterestForOfferings)
+                   && Objects.equals(this.offeringsForFeaturesOfInterest, other.offeringsForFeaturesOfInterest)
+                   && Objects.equals(this.featuresOfInterestForResultTemplates,
+                                     other.featuresOfInterestForResultTemplates)
+                   && Objects.equals(this.observablePropertiesForCompositePhenomenons,
+                                     other.observablePropertiesForCompositePhenomenons)
+                   && Objects.equals(this.observablePropertiesForOfferings, other.observablePropertiesForOfferings)
+                   && Objects.equals(this.observablePropertiesForProcedures, other.observablePropertiesForProcedures)
+                   && Objects.equals(this.observationTypesForOfferings, other.observationTypesForOfferings)
+                   && Objects.equals(this.featureOfInterestTypesForOfferings,
+                                     other.featureOfInterestTypesForOfferings)
+                   && Objects.equals(this.observedPropertiesForResultTemplates,
+                                     other.observedPropertiesForResultTemplates)
+                   && Objects.equals(this.offeringsForObservableProperties, other.offeringsForObservableProperties)
+                   && Objects.equals(this.offeringsForProcedures, other.offeringsForProcedures)
+                   && Objects.equals(this.parentFeaturesForFeaturesOfInterest,
+                                     other.parentFeaturesForFeaturesOfInterest)
+                   && Objects.equals(this.parentProceduresForProcedures, other.parentProceduresForProcedures)
+                   && Objects.equals(this.parentOfferingsForOfferings, other.parentOfferingsForOfferings)
+                   && Objects.equals(this.proceduresForFeaturesOfInterest, other.proceduresForFeaturesOfInterest)
+                   && Objects.equals(this.proceduresForObservableProperties, other.proceduresForObservableProperties)
+                   && Objects.equals(this.proceduresForOfferings, other.proceduresForOfferings)
+                   && Objects.equals(this.hiddenChildProceduresForOfferings, other.hiddenChildProceduresForOfferings)
+                   && Objects.equals(this.relatedFeaturesForOfferings, other.relatedFeaturesForOfferings)
+                   && Objects.equals(this.resultTemplatesForOfferings, other.resultTemplatesForOfferings)
+                   && Objects.equals(this.rolesForRelatedFeatures, other.rolesForRelatedFeatures)
+                   && Objects.equals(this.envelopeForOfferings, other.envelopeForOfferings)
+                   && Objects.equals(this.spatialFilteringProfileEnvelopeForOfferings,
+                                     other.spatialFilteringProfileEnvelopeForOfferings)
+                   && Objects.equals(this.nameForOfferings, other.nameForOfferings)
+                   && Objects.equals(this.i18nNameForOfferings, other.i18nNameForOfferings)
+                   && Objects.equals(this.i18nDescriptionForOfferings, other.i18nDescriptionForOfferings)
+                   && Objects.equals(this.epsgCodes, other.epsgCodes)
+                   && Objects.equals(this.featuresOfInterest, other.featuresOfInterest)
+                   && Objects.equals(this.procedures, other.procedures)
+                   && Objects.equals(this.resultTemplates, other.resultTemplates)
+                   && Objects.equals(this.offerings, other.offerings)
+                   && Objects.equals(this.compositePhenomenons, other.compositePhenomenons)
+                   && Objects.equals(this.supportedLanguages, other.supportedLanguages)
+                   && Objects.equals(this.requestableProcedureDescriptionFormats,
+                                     other.requestableProcedureDescriptionFormats)
+                   && Objects.equals(this.featureOfInterestIdentifierHumanReadableName,
+                                     other.featureOfInterestIdentifierHumanReadableName)
+                   && Objects.equals(this.observablePropertyIdentifierHumanReadableName,
+                                     other.observablePropertyIdentifierHumanReadableName)
+                   && Objects.equals(this.procedureIdentifierHumanReadableName,
+                                     other.procedureIdentifierHumanReadableName)
+                   && Objects.equals(this.offeringIdentifierHumanReadableName,
+                                     other.offeringIdentifierHumanReadableName)
+                   && Objects.equals(this.typeInstanceProcedures, other.typeInstanceProcedures)
+                   && Objects.equals(this.componentAggregationProcedures, other.componentAggregationProcedures)
+                   && Objects.equals(this.typeOfProceduresMap, other.typeOfProceduresMap)
+                   && Objects.equals(this.procedureProcedureDescriptionFormats,
+                                     other.procedureProcedureDescriptionFormats)
+                   && Objects.equals(this.publishedFeatureOfInterest, other.publishedFeatureOfInterest)
+                   && Objects.equals(this.publishedProcedure, other.publishedProcedure)
+                   && Objects.equals(this.publishedOffering, other.publishedOffering)
+                   && Objects.equals(this.publishedObservableProperty, other.publishedObservableProperty)
+                   && Objects.equals(this.minPhenomenonTime, other.minPhenomenonTime)
+                   && Objects.equals(this.maxPhenomenonTime, other.maxPhenomenonTime)
+                   && Objects.equals(this.minResultTime, other.minResultTime)
+                   && Objects.equals(this.maxResultTime, other.maxResultTime)
+                   && Objects.equals(this.globalEnvelope, other.globalEnvelope)
+                   && Objects.equals(this.updateTime, other.updateTime);
+        }
+    }
+}
@@ -32,6 +32,7 @@ import javax.inject.Inject;
 
 import org.n52.iceland.cache.ContentCacheUpdate;
 import org.n52.iceland.cache.ctrl.CompleteCacheUpdateFactory;
+import org.n52.iceland.cache.ctrl.ContentCacheFactory;
 import org.n52.iceland.coding.SupportedTypeRepository;
 import org.n52.sos.cache.ctrl.action.CompleteCacheUpdate;
 import org.n52.sos.ds.CacheFeederHandler;
@@ -41,6 +42,7 @@ public class CompleteCacheUpdateFactoryImpl
 
     private CacheFeederHandler cacheFeederHandler;
     private SupportedTypeRepository supportedTypeRepository;
+    private ContentCacheFactory contentCacheFactory;
 
     @Inject
     public void setCacheFeederHandler(CacheFeederHandler cacheFeederHandler) {
@@ -52,9 +54,16 @@ public class CompleteCacheUpdateFactoryImpl
         this.supportedTypeRepository = supportedTypeRepository;
     }
 
+    @Inject
+    public void setContentCacheFactory(ContentCacheFactory contentCacheFactory) {
+        this.contentCacheFactory = contentCacheFactory;
+    }
+
     @Override
     public ContentCacheUpdate get() {
-        return new CompleteCacheUpdate(this.cacheFeederHandler,this.supportedTypeRepository);
+        CompleteCacheUpdate update = new CompleteCacheUpdate(this.cacheFeederHandler, this.supportedTypeRepository);
+        update.setContentCacheFactory(this.contentCacheFactory);
+        return update;
     }
 
 }
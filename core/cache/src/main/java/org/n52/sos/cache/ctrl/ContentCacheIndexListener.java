@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.sos.cache.DataAvailabilityIndex;
+import org.n52.sos.cache.FeatureSpatialIndex;
+import org.n52.sos.event.events.ContentCacheUpdated;
+import org.n52.sos.event.events.DeleteObservationEvent;
+
+/**
+ * Invalidates the indexes derived from the datasource. After a complete cache
+ * update has been published the datasource may have been modified externally,
+ * so the {@link FeatureSpatialIndex} is rebuilt on next use and the
+ * {@link DataAvailabilityIndex} is cleared. The latter is also cleared after
+ * observations were deleted, as the new first and last values of the datasets
+ * are only known to the datasource.
+ *
+ * @since 5.0.2
+ */
+public class ContentCacheIndexListener implements EventListener {
+
+    private static final Set<Class<? extends Event>> TYPES = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(ContentCacheUpdated.class, DeleteObservationEvent.class)));
+
+    private FeatureSpatialIndex featureSpatialIndex;
+
+    private DataAvailabilityIndex dataAvailabilityIndex;
+
+    @Inject
+    public void setFeatureSpatialIndex(FeatureSpatialIndex featureSpatialIndex) {
+        this.featureSpatialIndex = featureSpatialIndex;
+    }
+
+    @Inject
+    public void setDataAvailabilityIndex(DataAvailabilityIndex dataAvailabilityIndex) {
+        this.dataAvailabilityIndex = dataAvailabilityIndex;
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return TYPES;
+    }
+
+    @Override
+    public void handle(Event event) {
+        if (event instanceof ContentCacheUpdated) {
+            if (((ContentCacheUpdated) event).isCompleteUpdate()) {
+                featureSpatialIndex.markOutdated();
+                dataAvailabilityIndex.clear();
+            }
+        } else {
+            dataAvailabilityIndex.clear();
+        }
+    }
+}
@@ -35,11 +35,14 @@ import javax.inject.Inject;
 
 import org.n52.iceland.cache.ContentCacheController;
 import org.n52.iceland.cache.ContentCacheUpdate;
+import org.n52.iceland.cache.ctrl.ContentCacheFactory;
 import org.n52.iceland.coding.SupportedTypeRepository;
 import org.n52.iceland.convert.ConverterRepository;
 import org.n52.janmayen.event.Event;
 import org.n52.janmayen.event.EventListener;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.cache.DataAvailabilityIndex;
+import org.n52.sos.cache.FeatureSpatialIndex;
 import org.n52.sos.cache.ctrl.action.CompleteCacheUpdate;
 import org.n52.sos.cache.ctrl.action.DeleteObservationUpdate;
 import org.n52.sos.cache.ctrl.action.FeatureInsertionUpdate;
@@ -86,6 +89,9 @@ public class DefaultContentModificationListener
     private final CacheFeederHandler handler;
     private final ContentCacheController controller;
     private SupportedTypeRepository supportedTypeRepository;
+    private ContentCacheFactory contentCacheFactory;
+    private FeatureSpatialIndex featureSpatialIndex;
+    private DataAvailabilityIndex dataAvailabilityIndex;
     private ConverterRepository converterRepository;
 
     @Inject
@@ -135,7 +141,8 @@ public class DefaultContentModificationListener
     }
 
     private ContentCacheUpdate createUpdate(ResultInsertion e) {
-        return new ResultInsertionUpdate(e.getRequest().getTemplateIdentifier(), e.getResponse().getObservations());
+        return new ResultInsertionUpdate(e.getRequest().getTemplateIdentifier(), e.getResponse().getObservations(),
+                dataAvailabilityIndex);
     }
 
     private ContentCacheUpdate createUpdate(SensorDeletion e) {
@@ -147,11 +154,11 @@ public class DefaultContentModificationListener
     }
 
     private ContentCacheUpdate createUpdate(ObservationInsertion e) {
-        return new ObservationInsertionUpdate(e.getRequest());
+        return new ObservationInsertionUpdate(e.getRequest(), featureSpatialIndex, dataAvailabilityIndex);
     }
 
     private ContentCacheUpdate createUpdate(FeatureInsertion e) {
-        return new FeatureInsertionUpdate(e.getRequest());
+        return new FeatureInsertionUpdate(e.getRequest(), featureSpatialIndex);
     }
 
     private ContentCacheUpdate createUpdate(ResultTemplatesDeletion e) {
@@ -167,7 +174,9 @@ public class DefaultContentModificationListener
     }
 
     private ContentCacheUpdate createUpdate(UpdateCache e) {
-        return new CompleteCacheUpdate(this.handler, this.supportedTypeRepository);
+        CompleteCacheUpdate update = new CompleteCacheUpdate(this.handler, this.supportedTypeRepository);
+        update.setContentCacheFactory(this.contentCacheFactory);
+        return update;
     }
 
     @Inject
@@ -179,4 +188,19 @@ public class DefaultContentModificationListener
     public void setSupportedTypeRepository(SupportedTypeRepository supportedTypeRepository) {
         this.supportedTypeRepository = supportedTypeRepository;
     }
+
+    @Inject
+    public void setContentCacheFactory(ContentCacheFactory contentCacheFactory) {
+        this.contentCacheFactory = contentCacheFactory;
+    }
+
+    @Inject
+    public void setFeatureSpatialIndex(FeatureSpatialIndex featureSpatialIndex) {
+        this.featureSpatialIndex = featureSpatialIndex;
+    }
+
+    @Inject
+    public void setDataAvailabilityIndex(DataAvailabilityIndex dataAvailabilityIndex) {
+        this.dataAvailabilityIndex = dataAvailabilityIndex;
+    }
 }
@@ -49,7 +49,9 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.inject.Inject;
 
@@ -60,28 +62,48 @@ import org.n52.iceland.cache.ContentCacheUpdate;
 import org.n52.iceland.cache.WritableContentCache;
 import org.n52.iceland.cache.ctrl.CompleteCacheUpdateFactory;
 import org.n52.iceland.cache.ctrl.ContentCacheFactory;
+import org.n52.janmayen.event.EventBus;
 import org.n52.janmayen.lifecycle.Constructable;
 import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.cache.AbstractStaticSosContentCache;
 import org.n52.sos.cache.ContentCacheFactoryImpl;
+import org.n52.sos.cache.SnapshotCacheImpl;
+import org.n52.sos.event.events.ContentCacheUpdated;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-
+/**
+ * Double buffered content cache controller. A complete update builds a fresh
+ * cache next to the live one, while readers and partial updates keep working
+ * on the live cache. Partial updates executed in the meantime are recorded in
+ * a replay log of the running complete update and are applied to the fresh
+ * cache before it atomically replaces the live one. Partial updates therefore
+ * only wait for the short replay and swap, never for the complete update
+ * itself.
+ */
 public class SosContentCacheControllerImpl implements ContentCacheController, Constructable, Destroyable {
     private static final Logger LOGGER = LoggerFactory.getLogger(SosContentCacheControllerImpl.class);
 
     private static final AtomicInteger COMPLETE_UPDATE_COUNT = new AtomicInteger(0);
     private static final AtomicInteger PARTIAL_UPDATE_COUNT = new AtomicInteger(0);
-    private CompleteUpdate current = null;
+    private volatile CompleteUpdate current = null;
     private CompleteUpdate next = null;
     private volatile WritableContentCache cache;
+    /**
+     * Guards the scheduling of complete updates.
+     */
     private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Partial updates hold the read lock while modifying the live cache and
+     * logging themselves, the swap of the cache holds the write lock.
+     */
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
 
     private ContentCachePersistenceStrategy persistenceStrategy;
     private ContentCacheFactory cacheFactory;
     private CompleteCacheUpdateFactory completeCacheUpdateFactory;
+    private EventBus serviceEventBus;
 
     @Inject
     public void setCacheFactory(ContentCacheFactory cacheFactory) {
@@ -98,6 +120,11 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
         this.completeCacheUpdateFactory = factory;
     }
 
+    @Inject
+    public void setServiceEventBus(EventBus serviceEventBus) {
+        this.serviceEventBus = serviceEventBus;
+    }
+
     @Override
     public void init() {
         loadOrCreateCache();
@@ -135,26 +162,25 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
 
     @Override
     public void destroy() {
-        lock();
+        swapLock.writeLock().lock();
         try {
             persistenceStrategy.persistOnShutdown(getCache());
         } finally {
-            unlock();
+            swapLock.writeLock().unlock();
         }
     }
 
     @Override
     public void update(ContentCacheUpdate update) throws OwsExceptionReport {
         if (update != null) {
-            try {
-                if (update.isCompleteUpdate()) {
-                    executeComplete(new CompleteUpdate(update));
-                } else {
-                    executePartial(new PartialUpdate(update));
-                }
+            if (update.isCompleteUpdate()) {
+                executeComplete(new CompleteUpdate(update));
+            } else {
+                executePartial(new PartialUpdate(update));
                 cache.setLastUpdateTime(DateTime.now());
-            } finally {
-                current = null;
+            }
+            if (serviceEventBus != null) {
+                serviceEventBus.submit(new ContentCacheUpdated(update.isCompleteUpdate()));
             }
         } else {
             throw new IllegalArgumentException("update may not be null");
@@ -162,32 +188,62 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
     }
 
     private void runCurrent() throws OwsExceptionReport {
-        LOGGER.trace("Starting update {}", this.current);
-        this.current.execute();
-        LOGGER.trace("Finished update {}", this.current);
-        lock();
+        CompleteUpdate update = this.current;
+        LOGGER.trace("Starting update {}", update);
+        WritableContentCache built = null;
         try {
-            persistenceStrategy.persistOnCompleteUpdate(getCache());
-            CompleteUpdate u = this.current;
-            this.current = null;
-            u.signalWaiting();
+            built = update.build(this.cacheFactory.get());
         } finally {
-            unlock();
+            swap(update, built);
         }
+        LOGGER.trace("Finished update {}", update);
+        persistenceStrategy.persistOnCompleteUpdate(built);
     }
 
-    private void executePartial(PartialUpdate update) throws OwsExceptionReport {
-        update.execute(getCache());
+    /**
+     * Replays the remaining logged partial updates on the newly built cache and
+     * makes it the live cache. If {@code built} is {@code null} the update
+     * failed and the live cache is kept.
+     */
+    private void swap(CompleteUpdate update, WritableContentCache built) {
         lock();
         try {
-            if (this.current != null) {
-                this.current.addUpdate(update);
-            } else {
-                persistenceStrategy.persistOnPartialUpdate(getCache());
+            swapLock.writeLock().lock();
+            try {
+                if (built != null) {
+                    update.replay(built);
+                    built.setLastUpdateTime(DateTime.now());
+                    setCache(built);
+                    update.setState(State.FINISHED);
+                } else {
+                    update.setState(State.FAILED);
+                }
+                if (this.current == update) {
+                    this.current = null;
+                }
+            } finally {
+                swapLock.writeLock().unlock();
             }
         } finally {
             unlock();
         }
+        update.signalWaiting();
+    }
+
+    private void executePartial(PartialUpdate update) throws OwsExceptionReport {
+        boolean logged;
+        swapLock.readLock().lock();
+        try {
+            update.execute(getCache());
+            CompleteUpdate running = this.current;
+            logged = running != null && running.log(update);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        if (!logged) {
+            // otherwise the complete update persists the cache after the swap
+            persistenceStrategy.persistOnPartialUpdate(getCache());
+        }
     }
 
     private void executeComplete(CompleteUpdate update) throws OwsExceptionReport {
@@ -217,7 +273,7 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
         } else if (isNext) {
             if (waitFor != null) {
                 LOGGER.trace("{} waiting for {}", update, waitFor);
-                waitFor.waitForCompletion();
+                waitFor.awaitCompletion();
                 LOGGER.trace("{} stopped waiting for {}", update, waitFor);
             }
             lock();
@@ -285,7 +341,18 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
             LOGGER.trace("Starting Update {}", getUpdate());
             getUpdate().reset();
             getUpdate().setCache(cache);
-            getUpdate().execute();
+            if (cache instanceof SnapshotCacheImpl) {
+                // publish the update as one version, readers never see it half-applied
+                SnapshotCacheImpl snapshotCache = (SnapshotCacheImpl) cache;
+                snapshotCache.beginUpdate();
+                try {
+                    getUpdate().execute();
+                } finally {
+                    snapshotCache.endUpdate();
+                }
+            } else {
+                getUpdate().execute();
+            }
             LOGGER.trace("Finished Update {}", getUpdate());
             if (getUpdate().failed()) {
                 LOGGER.warn("Update failed!", getUpdate().getFailureCause());
@@ -300,115 +367,120 @@ public class SosContentCacheControllerImpl implements ContentCacheController, Co
     }
 
     private class CompleteUpdate extends Update {
-        private final ConcurrentLinkedQueue<PartialUpdate> updates
+        private final ConcurrentLinkedQueue<PartialUpdate> replayLog
                 = new ConcurrentLinkedQueue<>();
 
         private final Lock lock = new ReentrantLock();
         private final Condition finished = lock.newCondition();
-        private State state = State.WAITING;
+        private volatile State state = State.WAITING;
         private final int nr = COMPLETE_UPDATE_COUNT.getAndIncrement();
 
         CompleteUpdate(ContentCacheUpdate update) {
             super(update);
         }
 
-        void addUpdate(PartialUpdate update) {
-            updates.offer(update);
+        /**
+         * Records a partial update that was applied to the live cache before
+         * this update swapped in its cache.
+         *
+         * @return if the partial update will be replayed on the new cache
+         */
+        boolean log(PartialUpdate update) {
+            if (!isFinished()) {
+                replayLog.offer(update);
+                return true;
+            }
+            return false;
         }
 
         State getState() {
-            lock();
-            try {
-                return state;
-            } finally {
-                unlock();
-            }
+            return state;
         }
 
         void setState(State state) {
-            SosContentCacheControllerImpl.this.lock();
-            try {
-                lock();
-                try {
-                    LOGGER.debug("State change: {} -> {}", this.state, state);
-                    this.state = state;
-                } finally {
-                    unlock();
-                }
-            } finally {
-                SosContentCacheControllerImpl.this.unlock();
-            }
-        }
-
-        boolean isFinished() {
             lock();
             try {
-                return getState() == State.FINISHED || getState() == State.FAILED;
+                LOGGER.debug("State change: {} -> {}", this.state, state);
+                this.state = state;
             } finally {
                 unlock();
             }
         }
 
-        boolean isNotYetStarted() {
-            lock();
-            try {
-                return getState() == State.WAITING;
-            } finally {
-                unlock();
-            }
+        boolean isFinished() {
+            State s = getState();
+            return s == State.FINISHED || s == State.FAILED;
         }
 
-        void execute() throws OwsExceptionReport {
-            setCache(execute(getCache()));
+        boolean isNotYetStarted() {
+            return getState() == State.WAITING;
         }
 
-        WritableContentCache execute(WritableContentCache cache) throws OwsExceptionReport {
+        /**
+         * Executes the update against the supplied fresh cache and replays the
+         * partial updates logged so far without blocking further partial
+         * updates.
+         */
+        WritableContentCache build(WritableContentCache cache) throws OwsExceptionReport {
             if (isFinished()) {
                 throw new IllegalStateException("already finished");
             }
             setState(State.RUNNING);
             getUpdate().setCache(cache);
-            LOGGER.trace("Starting update {}", getUpdate());
             getUpdate().execute();
-            LOGGER.trace("Finished update {}", getUpdate());
-            lock();
-            try {
-                if (getUpdate().failed()) {
-                    setState(State.FAILED);
-                    LOGGER.warn("Update failed!", getUpdate().getFailureCause());
-                    throw getUpdate().getFailureCause();
-                } else {
-                    setState(State.APPLYING_UPDATES);
-                    PartialUpdate pu;
-                    WritableContentCache cc = getUpdate().getCache();
-                    while ((pu = updates.poll()) != null) {
-                        pu.execute(cc);
-                    }
-                    setState(State.FINISHED);
-                    return cc;
+            if (getUpdate().failed()) {
+                LOGGER.warn("Update failed!", getUpdate().getFailureCause());
+                throw getUpdate().getFailureCause();
+            }
+            setState(State.APPLYING_UPDATES);
+            WritableContentCache cc = getUpdate().getCache();
+            replay(cc);
+            return cc;
+        }
+
+        /**
+         * Applies the logged partial updates to the new cache. A partial update
+         * failing here already succeeded on the live cache, so it is only
+         * logged.
+         */
+        void replay(WritableContentCache cc) {
+            PartialUpdate pu;
+            while ((pu = replayLog.poll()) != null) {
+                try {
+                    pu.execute(cc);
+                } catch (OwsExceptionReport ex) {
+                    LOGGER.warn("Could not replay {} on the new cache", pu, ex);
                 }
-            } finally {
-                unlock();
             }
         }
 
-        void waitForCompletion() throws OwsExceptionReport {
+        /**
+         * Waits for the completion of this update without propagating its
+         * failure.
+         */
+        void awaitCompletion() {
             lock();
             try {
                 while (!isFinished()) {
                     try {
                         finished.await();
                     } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
                     }
                 }
-                if (getState() == State.FAILED) {
-                    throw getUpdate().getFailureCause();
-                }
             } finally {
                 unlock();
             }
         }
 
+        void waitForCompletion() throws OwsExceptionReport {
+            awaitCompletion();
+            if (getState() == State.FAILED) {
+                throw getUpdate().getFailureCause();
+            }
+        }
+
         void signalWaiting() {
             lock();
             try {
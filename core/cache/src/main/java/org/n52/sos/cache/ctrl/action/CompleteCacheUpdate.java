@@ -28,9 +28,11 @@
  */
 package org.n52.sos.cache.ctrl.action;
 
+import org.n52.iceland.cache.ctrl.ContentCacheFactory;
 import org.n52.iceland.coding.SupportedTypeRepository;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.cache.InMemoryCacheImpl;
+import org.n52.sos.cache.SnapshotCacheImpl;
 import org.n52.sos.cache.SosWritableContentCache;
 import org.n52.sos.ds.CacheFeederHandler;
 
@@ -43,24 +45,51 @@ public class CompleteCacheUpdate
         extends CacheFeederDAOCacheUpdate {
 
     private SupportedTypeRepository supportedTypeRepository;
+    private ContentCacheFactory contentCacheFactory;
 
     public CompleteCacheUpdate(CacheFeederHandler cacheFeederDAO, SupportedTypeRepository supportedTypeRepository) {
         super(cacheFeederDAO);
         this.supportedTypeRepository = supportedTypeRepository;
     }
 
+    /**
+     * @param contentCacheFactory
+     *            the factory creating the cache to fill, if not set an
+     *            {@link InMemoryCacheImpl} is filled
+     */
+    public void setContentCacheFactory(ContentCacheFactory contentCacheFactory) {
+        this.contentCacheFactory = contentCacheFactory;
+    }
+
     @Override
     public void execute() {
         try {
-            SosWritableContentCache cache = (SosWritableContentCache) new InMemoryCacheImpl()
-                    .setSupportedTypeRepository(supportedTypeRepository);
-            getCacheFeederDAO().updateCache(cache);
+            SosWritableContentCache cache = createCache();
+            if (cache instanceof SnapshotCacheImpl) {
+                // fill the new cache as one version instead of publishing every single modification
+                SnapshotCacheImpl snapshotCache = (SnapshotCacheImpl) cache;
+                snapshotCache.beginUpdate();
+                try {
+                    getCacheFeederDAO().updateCache(cache);
+                } finally {
+                    snapshotCache.endUpdate();
+                }
+            } else {
+                getCacheFeederDAO().updateCache(cache);
+            }
             setCache(cache);
         } catch (OwsExceptionReport ex) {
             fail(ex);
         }
     }
 
+    private SosWritableContentCache createCache() {
+        if (contentCacheFactory != null) {
+            return (SosWritableContentCache) contentCacheFactory.get();
+        }
+        return (SosWritableContentCache) new InMemoryCacheImpl().setSupportedTypeRepository(supportedTypeRepository);
+    }
+
     @Override
     public boolean isCompleteUpdate() {
         return true;
@@ -31,11 +31,14 @@ package org.n52.sos.cache.ctrl.action;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.n52.shetland.ogc.gml.AbstractFeature;
 import org.n52.shetland.ogc.om.features.samplingFeatures.AbstractSamplingFeature;
 import org.n52.shetland.ogc.sos.ifoi.InsertFeatureOfInterestRequest;
+import org.n52.sos.cache.FeatureSpatialIndex;
 import org.n52.sos.cache.SosWritableContentCache;
 
 import org.locationtech.jts.geom.Envelope;
@@ -43,17 +46,25 @@ import org.locationtech.jts.geom.Envelope;
 public class FeatureInsertionUpdate extends InMemoryCacheUpdate {
 
     private final InsertFeatureOfInterestRequest request;
+    private final FeatureSpatialIndex featureSpatialIndex;
 
     public FeatureInsertionUpdate(InsertFeatureOfInterestRequest request) {
+        this(request, null);
+    }
+
+    public FeatureInsertionUpdate(InsertFeatureOfInterestRequest request, FeatureSpatialIndex featureSpatialIndex) {
         checkArgument(request != null, "Missing argument: '%s': %s",
                 InsertFeatureOfInterestRequest.class.getName(), request);
         this.request = request;
+        this.featureSpatialIndex = featureSpatialIndex;
     }
 
     @Override
     public void execute() {
         List<AbstractSamplingFeature> samplingFeatures = new ArrayList<AbstractSamplingFeature>();
+        Set<String> insertedFeatures = new HashSet<>();
         for (AbstractFeature abstractFeature : request.getFeatureMembers()) {
+            insertedFeatures.add(abstractFeature.getIdentifier());
             if (abstractFeature instanceof AbstractSamplingFeature) {
                 samplingFeatures.add((AbstractSamplingFeature)abstractFeature);
             }
@@ -67,6 +78,9 @@ public class FeatureInsertionUpdate extends InMemoryCacheUpdate {
             final Envelope envelope = createEnvelopeFrom(samplingFeatures);
             getCache().updateGlobalEnvelope(envelope);
         }
+        if (featureSpatialIndex != null) {
+            featureSpatialIndex.invalidate(insertedFeatures);
+        }
 
     }
 
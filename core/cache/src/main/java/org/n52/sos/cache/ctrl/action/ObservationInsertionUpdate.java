@@ -30,7 +30,9 @@ package org.n52.sos.cache.ctrl.action;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.n52.shetland.ogc.sos.Sos2Constants;
 import org.n52.iceland.util.action.Action;
@@ -42,8 +44,11 @@ import org.n52.shetland.ogc.om.NamedValue;
 import org.n52.shetland.ogc.om.OmCompositePhenomenon;
 import org.n52.shetland.ogc.om.OmObservableProperty;
 import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
 import org.n52.shetland.ogc.om.features.samplingFeatures.AbstractSamplingFeature;
-import org.n52.sos.cache.InMemoryCacheImpl;
+import org.n52.sos.cache.DataAvailabilityIndex;
+import org.n52.sos.cache.FeatureSpatialIndex;
+import org.n52.sos.cache.SosWritableContentCache;
 import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
 
 import org.locationtech.jts.geom.Envelope;
@@ -69,6 +74,7 @@ import org.locationtech.jts.geom.Geometry;
  * <li>Offering &rarr; spatial bounding box</li>
  * <li>Procedure &rarr; temporal bounding box</li>
  * <li>Global temporal bounding box</li>
+ * <li>Data availability of the dataset (OPTIONAL)</li>
  * </ul>
  *
  * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk
@@ -79,25 +85,41 @@ import org.locationtech.jts.geom.Geometry;
 public class ObservationInsertionUpdate extends InMemoryCacheUpdate {
 
     private final InsertObservationRequest request;
+    private final FeatureSpatialIndex featureSpatialIndex;
+    private final DataAvailabilityIndex dataAvailabilityIndex;
 
     public ObservationInsertionUpdate(InsertObservationRequest request) {
+        this(request, null);
+    }
+
+    public ObservationInsertionUpdate(InsertObservationRequest request, FeatureSpatialIndex featureSpatialIndex) {
+        this(request, featureSpatialIndex, null);
+    }
+
+    public ObservationInsertionUpdate(InsertObservationRequest request, FeatureSpatialIndex featureSpatialIndex,
+            DataAvailabilityIndex dataAvailabilityIndex) {
         checkArgument(request != null, "Missing argument: '%s': %s",
                       InsertObservationRequest.class.getName(), request);
         this.request = request;
+        this.featureSpatialIndex = featureSpatialIndex;
+        this.dataAvailabilityIndex = dataAvailabilityIndex;
     }
 
     @Override
     public void execute() {
-        final InMemoryCacheImpl cache = (InMemoryCacheImpl) getCache();
+        final SosWritableContentCache cache = (SosWritableContentCache) getCache();
         // TODO Review required methods and update test accordingly (@see
         // SensorInsertionInMemoryCacheUpdate)
         // Always update the javadoc when changing this method!
+        Set<String> insertedFeatures = new HashSet<>();
         for (OmObservation observation : request.getObservations()) {
             AbstractPhenomenon observableProperty = observation.getObservationConstellation().getObservableProperty();
             final String observationType = observation.getObservationConstellation().getObservationType();
             final String procedure = observation.getObservationConstellation().getProcedure().getIdentifier();
             final Time phenomenonTime = observation.getPhenomenonTime();
             final Time resultTime = observation.getResultTime();
+            // multi values may be split into several observations
+            final long count = observation.getValue() instanceof SingleObservationValue ? 1 : -1;
 
             cache.updatePhenomenonTime(phenomenonTime);
             cache.updateResultTime(resultTime);
@@ -112,6 +134,7 @@ public class ObservationInsertionUpdate extends InMemoryCacheUpdate {
 
             for (AbstractSamplingFeature sosSamplingFeature : observedFeatures) {
                 String featureOfInterest = sosSamplingFeature.getIdentifierCodeWithAuthority().getValue();
+                insertedFeatures.add(featureOfInterest);
 
                 cache.addFeatureOfInterest(featureOfInterest);
                 cache.addPublishedFeatureOfInterest(featureOfInterest);
@@ -128,6 +151,10 @@ public class ObservationInsertionUpdate extends InMemoryCacheUpdate {
                     }
                 }
                 for (String offering : request.getOfferings()) {
+                    if (dataAvailabilityIndex != null) {
+                        dataAvailabilityIndex.update(procedure, observableProperty.getIdentifier(), featureOfInterest,
+                                offering, phenomenonTime, count);
+                    }
                     cache.addRelatedFeatureForOffering(offering, featureOfInterest);
                     cache.addFeatureOfInterestForOffering(offering, featureOfInterest);
                     if (!OGCConstants.UNKNOWN.equals(sosSamplingFeature.getFeatureType())) {
@@ -171,9 +198,12 @@ public class ObservationInsertionUpdate extends InMemoryCacheUpdate {
 
             updateObservableProperties(cache, observableProperty, procedure);
         }
+        if (featureSpatialIndex != null) {
+            featureSpatialIndex.invalidate(insertedFeatures);
+        }
     }
 
-    private void updateObservableProperties(InMemoryCacheImpl cache,
+    private void updateObservableProperties(SosWritableContentCache cache,
                                             AbstractPhenomenon observableProperty,
                                             String procedure) {
         // procedure <-> observable property
@@ -37,7 +37,7 @@ import org.n52.iceland.util.action.Action;
 import org.n52.shetland.ogc.gml.time.Time;
 import org.n52.shetland.ogc.om.OmObservation;
 import org.n52.shetland.ogc.om.features.samplingFeatures.AbstractSamplingFeature;
-import org.n52.sos.cache.InMemoryCacheImpl;
+import org.n52.sos.cache.DataAvailabilityIndex;
 import org.n52.sos.cache.SosWritableContentCache;
 
 import org.locationtech.jts.geom.Envelope;
@@ -61,7 +61,14 @@ public class ResultInsertionUpdate extends InMemoryCacheUpdate {
 
     private final String templateIdentifier;
 
+    private final DataAvailabilityIndex dataAvailabilityIndex;
+
     public ResultInsertionUpdate(String templateIdentifier, List<OmObservation> observations) {
+        this(templateIdentifier, observations, null);
+    }
+
+    public ResultInsertionUpdate(String templateIdentifier, List<OmObservation> observations,
+            DataAvailabilityIndex dataAvailabilityIndex) {
         if (observations == null || observations.isEmpty() || templateIdentifier == null || templateIdentifier.isEmpty()) {
             String msg =
                     String.format("Missing argument: '%s': %s; template identifier: '%s'",
@@ -71,12 +78,13 @@ public class ResultInsertionUpdate extends InMemoryCacheUpdate {
         }
         this.observations = observations;
         this.templateIdentifier = templateIdentifier;
+        this.dataAvailabilityIndex = dataAvailabilityIndex;
     }
 
     @Override
     public void execute() {
         // TODO remove not required updates and adjust test accordingly
-        final InMemoryCacheImpl cache = (InMemoryCacheImpl) getCache();
+        final SosWritableContentCache cache = (SosWritableContentCache) getCache();
         for (OmObservation observation : observations) {
             final String observationType = observation.getObservationConstellation().getObservationType();
             final String procedure = observation.getObservationConstellation().getProcedure().getIdentifier();
@@ -107,6 +115,12 @@ public class ResultInsertionUpdate extends InMemoryCacheUpdate {
                 cache.addProcedureForFeatureOfInterest(featureOfInterest, procedure);
                 observation.getObservationConstellation().getOfferings()
                         .forEach(offering -> cache.addFeatureOfInterestForOffering(offering, featureOfInterest));
+                if (dataAvailabilityIndex != null) {
+                    // the observations only summarize the inserted values
+                    observation.getObservationConstellation().getOfferings()
+                            .forEach(offering -> dataAvailabilityIndex.update(procedure, observableProperty,
+                                    featureOfInterest, offering, phenomenonTime, -1));
+                }
             });
             observation.getObservationConstellation().getOfferings().stream().forEach(offering -> {
                 cache.addOffering(offering);
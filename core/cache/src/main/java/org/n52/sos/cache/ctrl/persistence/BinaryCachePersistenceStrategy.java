@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Inject;
+
+import org.n52.faroe.ConfigurationError;
+import org.n52.faroe.Validation;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.cache.ContentCachePersistenceStrategy;
+import org.n52.iceland.cache.WritableContentCache;
+import org.n52.janmayen.ConfigLocationProvider;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.sos.service.SosSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistence strategy that writes the cache as a compact snapshot (see {@link CacheSnapshotWriter}) instead of
+ * using Java serialization. Like the asynchronous strategy it replaces, partial updates are persisted delayed and
+ * coalesced, complete updates immediately in the background and the shutdown synchronously. Cache files written
+ * with Java serialization are still loaded and replaced by a snapshot with the next write.
+ *
+ * @since 5.0.2
+ */
+@Configurable
+public class BinaryCachePersistenceStrategy implements ContentCachePersistenceStrategy, Constructable, Destroyable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BinaryCachePersistenceStrategy.class);
+    private static final String CACHE_FILE = "cache.tmp";
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(new GroupedAndNamedThreadFactory("52n-cache-persist"));
+    private final AtomicReference<WritableContentCache> pending = new AtomicReference<>();
+    /**
+     * Serializes the writes of the cache file, the instance monitor only guards the scheduling.
+     */
+    private final Object writeLock = new Object();
+    private ConfigLocationProvider configLocationProvider;
+    private File cacheFileFolder;
+    private Path cacheFile;
+    private long delay = 30;
+    private boolean compress = true;
+    private ScheduledFuture<?> scheduled;
+
+    @Inject
+    public void setConfigLocationProvider(ConfigLocationProvider configLocationProvider) {
+        this.configLocationProvider = configLocationProvider;
+    }
+
+    @Setting(SosSettings.CACHE_FILE_FOLDER)
+    public void setCacheFileFolder(File cacheFileFolder) {
+        this.cacheFileFolder = cacheFileFolder;
+        if (this.cacheFile != null) {
+            init();
+        }
+    }
+
+    @Setting(SosSettings.CACHE_PERSISTENCE_DELAY)
+    public void setPersistenceDelay(int delay) throws ConfigurationError {
+        Validation.greaterZero("Content cache persistence delay", delay);
+        this.delay = delay;
+    }
+
+    @Setting(SosSettings.CACHE_PERSISTENCE_COMPRESSION)
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    @Override
+    public void init() {
+        File folder = this.cacheFileFolder;
+        if (folder == null || folder.getPath().isEmpty()) {
+            folder = new File(this.configLocationProvider.get());
+        }
+        this.cacheFile = folder.toPath().resolve(CACHE_FILE);
+        LOGGER.debug("Persisting content cache to {}", this.cacheFile);
+    }
+
+    @Override
+    public Optional<WritableContentCache> load() {
+        if (!Files.isReadable(this.cacheFile)) {
+            return Optional.empty();
+        }
+        LOGGER.debug("Reading cache from {}", this.cacheFile);
+        long start = System.currentTimeMillis();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(this.cacheFile), BUFFER_SIZE)) {
+            WritableContentCache cache;
+            if (CacheSnapshotReader.isSnapshot(in)) {
+                cache = new CacheSnapshotReader().read(in);
+            } else {
+                LOGGER.info("Reading serialized cache from {}", this.cacheFile);
+                try (ObjectInputStream ois = new ObjectInputStream(in)) {
+                    cache = (WritableContentCache) ois.readObject();
+                }
+            }
+            LOGGER.info("Read cache from {} in {} ms", this.cacheFile, System.currentTimeMillis() - start);
+            return Optional.of(cache);
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            LOGGER.error(String.format("Error reading cache file '%s'", this.cacheFile), e);
+            remove();
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public synchronized void persistOnPartialUpdate(WritableContentCache cache) {
+        this.pending.set(cache);
+        if (this.scheduled == null || this.scheduled.isDone()) {
+            this.scheduled = schedule(this.delay);
+        }
+    }
+
+    @Override
+    public synchronized void persistOnCompleteUpdate(WritableContentCache cache) {
+        this.pending.set(cache);
+        if (this.scheduled != null) {
+            this.scheduled.cancel(false);
+        }
+        this.scheduled = schedule(0);
+    }
+
+    @Override
+    public void persistOnShutdown(WritableContentCache cache) {
+        synchronized (this) {
+            if (this.scheduled != null) {
+                this.scheduled.cancel(false);
+                this.scheduled = null;
+            }
+        }
+        shutdown(this.executor);
+        this.pending.set(null);
+        persist(cache);
+    }
+
+    @Override
+    public void remove() {
+        if (this.cacheFile != null) {
+            try {
+                Files.deleteIfExists(this.cacheFile);
+            } catch (IOException e) {
+                LOGGER.error(String.format("Error deleting cache file '%s'", this.cacheFile), e);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        shutdown(this.executor);
+    }
+
+    private ScheduledFuture<?> schedule(long seconds) {
+        try {
+            return this.executor.schedule(this::persistPending, seconds, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Cache persistence is shut down, discarding update");
+            return null;
+        }
+    }
+
+    private void persistPending() {
+        WritableContentCache cache;
+        synchronized (this) {
+            // updates arriving from now on schedule another write
+            cache = this.pending.getAndSet(null);
+            this.scheduled = null;
+        }
+        persist(cache);
+    }
+
+    private void persist(WritableContentCache cache) {
+        if (cache == null) {
+            return;
+        }
+        synchronized (this.writeLock) {
+            write(cache);
+        }
+    }
+
+    private void write(WritableContentCache cache) {
+        LOGGER.debug("Persisting cache to {}", this.cacheFile);
+        long start = System.currentTimeMillis();
+        Path temp = null;
+        try {
+            Files.createDirectories(this.cacheFile.getParent());
+            temp = Files.createTempFile(this.cacheFile.getParent(), CACHE_FILE, ".part");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)) {
+                new CacheSnapshotWriter(this.compress).write(cache, out);
+            }
+            try {
+                Files.move(temp, this.cacheFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, this.cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            LOGGER.debug("Persisted cache to {} ({} bytes) in {} ms", this.cacheFile, Files.size(this.cacheFile),
+                    System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error(String.format("Error serializing cache to '%s'", this.cacheFile), e);
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e2) {
+                    LOGGER.warn("Error deleting temporary cache file", e2);
+                }
+            }
+        }
+    }
+
+    private static void shutdown(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.warn("Cache persistence did not finish in time");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
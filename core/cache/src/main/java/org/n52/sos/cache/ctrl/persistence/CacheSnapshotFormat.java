@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Constants and helpers shared by {@link CacheSnapshotWriter} and {@link CacheSnapshotReader}.
+ * <p>
+ * A snapshot starts with an uncompressed header of {@link #MAGIC}, {@link #VERSION} and a flags byte. The
+ * (optionally deflated) body is the cache as a record: its class name followed by a {@link #FIELD} entry with name
+ * and value for each field and {@link #END}. Values are tagged. Strings are written once and referenced by their index afterwards, sets of
+ * strings are written as arrays of these indices.
+ *
+ * @since 5.0.2
+ */
+final class CacheSnapshotFormat {
+    static final int MAGIC = 0x35324E43;
+    static final int VERSION = 1;
+    static final int FLAG_COMPRESSED = 1;
+
+    /* markers of the entries of a record */
+    static final int END = 0;
+    static final int FIELD = 1;
+
+    /* value tags */
+    static final int NULL = 1;
+    static final int STRING = 2;
+    static final int INTEGER = 3;
+    static final int LONG = 4;
+    static final int DOUBLE = 5;
+    static final int BOOLEAN = 6;
+    static final int DATE_TIME = 7;
+    static final int ENVELOPE = 8;
+    static final int LOCALE = 9;
+    static final int ENUM = 10;
+    static final int SET = 11;
+    static final int STRING_SET = 12;
+    static final int LIST = 13;
+    static final int MAP = 14;
+    static final int BI_MAP = 15;
+    static final int RECORD = 16;
+    static final int SERIALIZED = 17;
+
+    static final int COLLECTION_SYNCHRONIZED = 1;
+
+    static final int ENVELOPE_NULL = 0;
+    static final int ENVELOPE_EMPTY = 1;
+    static final int ENVELOPE_SET = 2;
+
+    private static final String RECORD_PACKAGE = "org.n52.sos.cache";
+    private static final Map<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<>();
+
+    private CacheSnapshotFormat() {
+    }
+
+    /**
+     * @return if instances of the class are written field by field
+     */
+    static boolean isRecord(Class<?> type) {
+        return !type.isEnum() && type.getName().startsWith(RECORD_PACKAGE);
+    }
+
+    /**
+     * @return if the collection or map is one of the synchronized wrappers used by the caches
+     */
+    static boolean isSynchronized(Object value) {
+        return value.getClass().getName().contains("Synchronized");
+    }
+
+    /**
+     * Get the persisted fields of the class and its super classes. Static and transient fields and locks are
+     * runtime state and are skipped.
+     */
+    static List<Field> getFields(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, t -> {
+            LinkedList<Field> fields = new LinkedList<>();
+            for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+                List<Field> declared = new ArrayList<>();
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)
+                            && !field.isSynthetic() && !Lock.class.isAssignableFrom(field.getType())) {
+                        field.setAccessible(true);
+                        declared.add(field);
+                    }
+                }
+                fields.addAll(0, declared);
+            }
+            return Collections.unmodifiableList(new ArrayList<>(fields));
+        });
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+}
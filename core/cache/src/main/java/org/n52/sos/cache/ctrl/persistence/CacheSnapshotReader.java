@@ -0,0 +1,342 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl.persistence;
+
+import static org.n52.sos.cache.ctrl.persistence.CacheSnapshotFormat.*;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.locationtech.jts.geom.Envelope;
+import org.n52.iceland.cache.WritableContentCache;
+import org.n52.shetland.util.ReferencedEnvelope;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Reads a cache written by {@link CacheSnapshotWriter}. A reader instance is not thread safe and reads a single
+ * snapshot.
+ *
+ * @since 5.0.2
+ */
+public class CacheSnapshotReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final List<String> strings = new ArrayList<>();
+    private DataInputStream in;
+
+    /**
+     * Check if the stream starts with a snapshot header. The stream has to support {@link InputStream#mark(int)}.
+     *
+     * @param stream
+     *            the stream
+     * @return if the stream contains a snapshot
+     * @throws IOException
+     *             if the stream can not be read
+     */
+    public static boolean isSnapshot(InputStream stream) throws IOException {
+        stream.mark(Integer.BYTES);
+        try {
+            DataInputStream header = new DataInputStream(stream);
+            return header.readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        } finally {
+            stream.reset();
+        }
+    }
+
+    /**
+     * Read the cache from the stream. The stream is not closed.
+     *
+     * @param stream
+     *            the stream
+     * @return the cache
+     * @throws IOException
+     *             if the stream does not contain a supported snapshot
+     */
+    public WritableContentCache read(InputStream stream) throws IOException {
+        DataInputStream header = new DataInputStream(stream);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not a cache snapshot");
+        }
+        int version = header.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported cache snapshot version " + version);
+        }
+        boolean compressed = (header.readUnsignedByte() & FLAG_COMPRESSED) != 0;
+        Inflater inflater = compressed ? new Inflater() : null;
+        try {
+            InputStream body = compressed ? new InflaterInputStream(stream, inflater, BUFFER_SIZE) : stream;
+            this.in = new DataInputStream(new BufferedInputStream(body, BUFFER_SIZE));
+            Object cache = readRecord();
+            if (!(cache instanceof WritableContentCache)) {
+                throw new IOException("Snapshot does not contain a cache: " + cache.getClass());
+            }
+            return (WritableContentCache) cache;
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+            this.in = null;
+            this.strings.clear();
+        }
+    }
+
+    private Object readRecord() throws IOException {
+        Class<?> type = readClass();
+        Object instance = instantiate(type);
+        Map<String, Field> fields = new HashMap<>();
+        for (Field field : getFields(type)) {
+            fields.put(field.getDeclaringClass().getSimpleName() + "." + field.getName(), field);
+        }
+        for (String name = readFieldName(); name != null; name = readFieldName()) {
+            Object value = readValue();
+            Field field = fields.get(name);
+            if (field != null) {
+                assign(instance, field, value);
+            }
+        }
+        return instance;
+    }
+
+    private String readFieldName() throws IOException {
+        int marker = readVarInt(in);
+        if (marker == END) {
+            return null;
+        } else if (marker != FIELD) {
+            throw new IOException("Unknown record entry " + marker);
+        }
+        return readString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void assign(Object instance, Field field, Object value) throws IOException {
+        try {
+            Object current = field.get(instance);
+            if (Modifier.isFinal(field.getModifiers()) && current instanceof Map && value instanceof Map) {
+                ((Map<Object, Object>) current).clear();
+                ((Map<Object, Object>) current).putAll((Map<Object, Object>) value);
+            } else if (Modifier.isFinal(field.getModifiers()) && current instanceof Collection
+                    && value instanceof Collection) {
+                ((Collection<Object>) current).clear();
+                ((Collection<Object>) current).addAll((Collection<Object>) value);
+            } else {
+                field.set(instance, value);
+            }
+        } catch (IllegalAccessException | IllegalArgumentException e) {
+            throw new IOException("Can not assign field " + field, e);
+        }
+    }
+
+    private static Object instantiate(Class<?> type) throws IOException {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (NoSuchMethodException | InstantiationException | IllegalAccessException
+                | InvocationTargetException e) {
+            throw new IOException("Can not instantiate " + type, e);
+        }
+    }
+
+    private Object readValue() throws IOException {
+        int tag = readVarInt(in);
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString();
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case BOOLEAN:
+                return in.readBoolean();
+            case DATE_TIME:
+                return readDateTime();
+            case ENVELOPE:
+                return readEnvelope();
+            case LOCALE:
+                return Locale.forLanguageTag(readString());
+            case ENUM:
+                return readEnum();
+            case SET:
+                return readSet(false);
+            case STRING_SET:
+                return readSet(true);
+            case LIST:
+                return readList();
+            case MAP:
+                return readMap(false);
+            case BI_MAP:
+                return readMap(true);
+            case RECORD:
+                return readRecord();
+            case SERIALIZED:
+                return readSerialized();
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private Set<Object> readSet(boolean strings) throws IOException {
+        boolean sync = (readVarInt(in) & COLLECTION_SYNCHRONIZED) != 0;
+        int size = readVarInt(in);
+        Set<Object> set = new HashSet<>(Maps.capacity(size));
+        for (int i = 0; i < size; i++) {
+            set.add(strings ? readString() : readValue());
+        }
+        return sync ? Collections.synchronizedSet(set) : set;
+    }
+
+    private List<Object> readList() throws IOException {
+        boolean sync = (readVarInt(in) & COLLECTION_SYNCHRONIZED) != 0;
+        int size = readVarInt(in);
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readValue());
+        }
+        return sync ? Collections.synchronizedList(list) : list;
+    }
+
+    private Map<Object, Object> readMap(boolean bimap) throws IOException {
+        boolean sync = (readVarInt(in) & COLLECTION_SYNCHRONIZED) != 0;
+        int size = readVarInt(in);
+        if (bimap) {
+            BiMap<Object, Object> map = HashBiMap.create(size);
+            for (int i = 0; i < size; i++) {
+                map.put(readValue(), readValue());
+            }
+            return sync ? Maps.synchronizedBiMap(map) : map;
+        }
+        Map<Object, Object> map = new HashMap<>(Maps.capacity(size));
+        for (int i = 0; i < size; i++) {
+            map.put(readValue(), readValue());
+        }
+        return sync ? Collections.synchronizedMap(map) : map;
+    }
+
+    private DateTime readDateTime() throws IOException {
+        long millis = in.readLong();
+        return new DateTime(millis, DateTimeZone.forID(readString()));
+    }
+
+    private ReferencedEnvelope readEnvelope() throws IOException {
+        int srid = readVarInt(in);
+        int state = readVarInt(in);
+        switch (state) {
+            case ENVELOPE_NULL:
+                return new ReferencedEnvelope(null, srid);
+            case ENVELOPE_EMPTY:
+                return new ReferencedEnvelope(new Envelope(), srid);
+            case ENVELOPE_SET:
+                double minX = in.readDouble();
+                double maxX = in.readDouble();
+                double minY = in.readDouble();
+                double maxY = in.readDouble();
+                return new ReferencedEnvelope(new Envelope(minX, maxX, minY, maxY), srid);
+            default:
+                throw new IOException("Unknown envelope state " + state);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Enum<?> readEnum() throws IOException {
+        Class<?> type = readClass();
+        String name = readString();
+        if (!type.isEnum()) {
+            throw new IOException(type + " is not an enum");
+        }
+        return Enum.valueOf((Class<? extends Enum>) type, name);
+    }
+
+    private Object readSerialized() throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private Class<?> readClass() throws IOException {
+        String name = readString();
+        try {
+            return Class.forName(name, false, getClass().getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown class " + name, e);
+        }
+    }
+
+    private String readString() throws IOException {
+        return readString(readVarInt(in));
+    }
+
+    private String readString(int ref) throws IOException {
+        if (ref > 0) {
+            if (ref > strings.size()) {
+                throw new IOException("Unknown string reference " + ref);
+            }
+            return strings.get(ref - 1);
+        }
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(value);
+        return value;
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl.persistence;
+
+import static org.n52.sos.cache.ctrl.persistence.CacheSnapshotFormat.*;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.joda.time.DateTime;
+import org.locationtech.jts.geom.Envelope;
+import org.n52.iceland.cache.ContentCache;
+import org.n52.shetland.util.ReferencedEnvelope;
+
+import com.google.common.collect.BiMap;
+
+/**
+ * Writes a {@link ContentCache} in the compact snapshot format described in {@link CacheSnapshotFormat}. Each
+ * identifier is stored once, the relations between identifiers as arrays of string indices.
+ * <p>
+ * Synchronized collections of the cache are locked while they are written, so the cache may be modified
+ * concurrently. A writer instance is not thread safe and writes a single snapshot.
+ *
+ * @since 5.0.2
+ */
+public class CacheSnapshotWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final boolean compress;
+    private DataOutputStream out;
+
+    /**
+     * @param compress
+     *            if the body of the snapshot should be deflated
+     */
+    public CacheSnapshotWriter(boolean compress) {
+        this.compress = compress;
+    }
+
+    /**
+     * Write the cache to the stream. The stream is not closed.
+     *
+     * @param cache
+     *            the cache
+     * @param stream
+     *            the stream
+     * @throws IOException
+     *             if the cache can not be written
+     */
+    public void write(ContentCache cache, OutputStream stream) throws IOException {
+        DataOutputStream header = new DataOutputStream(stream);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.writeByte(compress ? FLAG_COMPRESSED : 0);
+        header.flush();
+        Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+        try {
+            OutputStream body = compress ? new DeflaterOutputStream(new NonClosingOutputStream(stream), deflater,
+                    BUFFER_SIZE) : new NonClosingOutputStream(stream);
+            this.out = new DataOutputStream(new BufferedOutputStream(body, BUFFER_SIZE));
+            writeRecord(cache);
+            this.out.close();
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+            this.out = null;
+            this.strings.clear();
+        }
+    }
+
+    private void writeRecord(Object value) throws IOException {
+        writeString(value.getClass().getName());
+        for (Field field : getFields(value.getClass())) {
+            writeVarInt(out, FIELD);
+            writeString(field.getDeclaringClass().getSimpleName() + "." + field.getName());
+            try {
+                writeValue(field.get(value));
+            } catch (IllegalAccessException e) {
+                throw new IOException("Can not access field " + field, e);
+            }
+        }
+        writeVarInt(out, END);
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, NULL);
+        } else if (value instanceof String) {
+            writeVarInt(out, STRING);
+            writeString((String) value);
+        } else if (value instanceof Integer) {
+            writeVarInt(out, INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            writeVarInt(out, LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            writeVarInt(out, DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            writeVarInt(out, BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof DateTime) {
+            writeVarInt(out, DATE_TIME);
+            writeDateTime((DateTime) value);
+        } else if (value instanceof ReferencedEnvelope) {
+            writeVarInt(out, ENVELOPE);
+            writeEnvelope((ReferencedEnvelope) value);
+        } else if (value instanceof Locale) {
+            writeVarInt(out, LOCALE);
+            writeString(((Locale) value).toLanguageTag());
+        } else if (value instanceof Enum) {
+            writeVarInt(out, ENUM);
+            writeString(((Enum<?>) value).getDeclaringClass().getName());
+            writeString(((Enum<?>) value).name());
+        } else if (value instanceof Set) {
+            writeSet((Set<?>) value);
+        } else if (value instanceof List) {
+            writeVarInt(out, LIST);
+            writeCollection((List<?>) value);
+        } else if (value instanceof Map) {
+            writeMap((Map<?, ?>) value);
+        } else if (isRecord(value.getClass())) {
+            writeVarInt(out, RECORD);
+            writeRecord(value);
+        } else if (value instanceof Serializable) {
+            writeVarInt(out, SERIALIZED);
+            writeSerialized(value);
+        } else {
+            throw new IOException("Can not write value of " + value.getClass());
+        }
+    }
+
+    private void writeSet(Set<?> set) throws IOException {
+        boolean sync = isSynchronized(set);
+        List<Object> elements = copy(set, sync);
+        if (elements.stream().allMatch(String.class::isInstance)) {
+            writeVarInt(out, STRING_SET);
+            writeVarInt(out, sync ? COLLECTION_SYNCHRONIZED : 0);
+            writeVarInt(out, elements.size());
+            for (Object element : elements) {
+                writeString((String) element);
+            }
+        } else {
+            writeVarInt(out, SET);
+            writeVarInt(out, sync ? COLLECTION_SYNCHRONIZED : 0);
+            writeVarInt(out, elements.size());
+            for (Object element : elements) {
+                writeValue(element);
+            }
+        }
+    }
+
+    private void writeCollection(Collection<?> collection) throws IOException {
+        boolean sync = isSynchronized(collection);
+        List<Object> elements = copy(collection, sync);
+        writeVarInt(out, sync ? COLLECTION_SYNCHRONIZED : 0);
+        writeVarInt(out, elements.size());
+        for (Object element : elements) {
+            writeValue(element);
+        }
+    }
+
+    private void writeMap(Map<?, ?> map) throws IOException {
+        boolean sync = isSynchronized(map);
+        List<Map.Entry<?, ?>> entries;
+        if (sync) {
+            synchronized (map) {
+                entries = copyEntries(map);
+            }
+        } else {
+            entries = copyEntries(map);
+        }
+        writeVarInt(out, map instanceof BiMap ? BI_MAP : MAP);
+        writeVarInt(out, sync ? COLLECTION_SYNCHRONIZED : 0);
+        writeVarInt(out, entries.size());
+        for (Map.Entry<?, ?> entry : entries) {
+            writeValue(entry.getKey());
+            writeValue(entry.getValue());
+        }
+    }
+
+    private static List<Object> copy(Collection<?> collection, boolean sync) {
+        if (sync) {
+            synchronized (collection) {
+                return new ArrayList<>(collection);
+            }
+        }
+        return new ArrayList<>(collection);
+    }
+
+    private static List<Map.Entry<?, ?>> copyEntries(Map<?, ?> map) {
+        List<Map.Entry<?, ?>> entries = new ArrayList<>(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            entries.add(new SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+        }
+        return entries;
+    }
+
+    private void writeDateTime(DateTime dateTime) throws IOException {
+        out.writeLong(dateTime.getMillis());
+        writeString(dateTime.getZone().getID());
+    }
+
+    private void writeEnvelope(ReferencedEnvelope envelope) throws IOException {
+        Envelope e = envelope.getEnvelope();
+        writeVarInt(out, envelope.getSrid());
+        if (e == null) {
+            writeVarInt(out, ENVELOPE_NULL);
+        } else if (e.isNull()) {
+            writeVarInt(out, ENVELOPE_EMPTY);
+        } else {
+            writeVarInt(out, ENVELOPE_SET);
+            out.writeDouble(e.getMinX());
+            out.writeDouble(e.getMaxX());
+            out.writeDouble(e.getMinY());
+            out.writeDouble(e.getMaxY());
+        }
+    }
+
+    private void writeSerialized(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(value);
+        }
+        writeVarInt(out, bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /**
+     * Writes a reference to a string: {@code 0} followed by the UTF-8 bytes for the first occurrence, the index of
+     * the string plus one afterwards.
+     */
+    private void writeString(String value) throws IOException {
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarInt(out, index + 1);
+        } else {
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, 0);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Keeps the target stream open when the body stream is closed to finish the deflater.
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PersistentHashMapTest {
+
+    @Test
+    public void shouldBehaveLikeHashMap() {
+        Random random = new Random(42);
+        PersistentHashMap<Integer, Integer> map = new PersistentHashMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            Integer key = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key), is(expected.remove(key)));
+            } else {
+                assertThat(map.put(key, i), is(expected.put(key, i)));
+            }
+        }
+        assertThat(map.size(), is(expected.size()));
+        assertThat(map.equals(expected), is(true));
+        assertThat(expected.equals(map), is(true));
+        assertThat(map.hashCode(), is(expected.hashCode()));
+    }
+
+    @Test
+    public void shouldHandleCollisions() {
+        PersistentHashMap<Collider, String> map = new PersistentHashMap<>();
+        map.put(new Collider("a"), "1");
+        map.put(new Collider("b"), "2");
+        map.put(new Collider("c"), "3");
+        assertThat(map.size(), is(3));
+        assertThat(map.get(new Collider("b")), is("2"));
+        assertThat(map.put(new Collider("b"), "4"), is("2"));
+        assertThat(map.remove(new Collider("a")), is("1"));
+        assertThat(map.remove(new Collider("c")), is("3"));
+        assertThat(map.get(new Collider("b")), is("4"));
+        assertThat(map.size(), is(1));
+    }
+
+    @Test
+    public void shouldIsolateForks() {
+        PersistentHashMap<String, String> map = new PersistentHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put("k" + i, "v" + i);
+        }
+        Map<String, String> before = new HashMap<>(map);
+        PersistentHashMap<String, String> fork = map.fork();
+        fork.put("k1", "changed");
+        fork.remove("k2");
+        fork.put("new", "value");
+        assertThat(map, is(before));
+        assertThat(fork.get("k1"), is("changed"));
+        assertThat(fork.get("k2"), is(nullValue()));
+        assertThat(fork.size(), is(1000));
+        map.put("k3", "changed");
+        assertThat(fork.get("k3"), is("v3"));
+    }
+
+    @Test
+    public void shouldRemoveThroughIterator() {
+        PersistentHashMap<String, String> map = new PersistentHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put("k" + i, "v" + i);
+        }
+        Iterator<String> keys = map.keySet().iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!key.equals("k7") && !key.equals("k42")) {
+                keys.remove();
+            }
+        }
+        assertThat(map.keySet(), containsInAnyOrder("k7", "k42"));
+        assertThat(map.size(), is(2));
+    }
+
+    @Test
+    public void shouldForkSets() {
+        PersistentHashSet<String> set = new PersistentHashSet<>();
+        set.add("a");
+        PersistentHashSet<String> fork = set.fork();
+        fork.add("b");
+        fork.remove("a");
+        assertThat(set, containsInAnyOrder("a"));
+        assertThat(fork, containsInAnyOrder("b"));
+    }
+
+    private static final class Collider {
+        private final String value;
+
+        Collider(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return 7;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Collider && ((Collider) obj).value.equals(value);
+        }
+    }
+}
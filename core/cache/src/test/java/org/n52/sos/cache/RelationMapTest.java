@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class RelationMapTest {
+
+    @Test
+    public void shouldWriteThroughViews() {
+        RelationMap map = new RelationMap(new IdentifierDictionary());
+        map.computeIfAbsent("a", k -> new HashSet<>()).add("x");
+        map.get("a").add("y");
+        assertThat(map.get("a"), containsInAnyOrder("x", "y"));
+        map.get("a").remove("x");
+        assertThat(map.get("a"), contains("y"));
+        assertThat(map.getRelationCount(), is(1L));
+    }
+
+    @Test
+    public void shouldCopyOnPut() {
+        RelationMap map = new RelationMap(new IdentifierDictionary());
+        Set<String> value = new HashSet<>(Arrays.asList("x", "y"));
+        map.put("a", value);
+        value.add("z");
+        assertThat(map.get("a"), containsInAnyOrder("x", "y"));
+        assertThat(map.put("a", new HashSet<>()), containsInAnyOrder("x", "y"));
+        assertThat(map.get("a"), is(empty()));
+    }
+
+    @Test
+    public void shouldBeEqualToHashMap() {
+        RelationMap map = new RelationMap(new IdentifierDictionary());
+        Map<String, Set<String>> expected = new HashMap<>();
+        expected.put("a", new HashSet<>(Arrays.asList("x", "y")));
+        expected.put("b", new HashSet<>());
+        map.putAll(expected);
+        assertThat(map.equals(expected), is(true));
+        assertThat(expected.equals(map), is(true));
+        assertThat(map.hashCode(), is(expected.hashCode()));
+    }
+
+    @Test
+    public void shouldRemoveThroughIterators() {
+        RelationMap map = new RelationMap(new IdentifierDictionary());
+        map.put("a", new HashSet<>(Arrays.asList("x", "y")));
+        map.put("b", new HashSet<>(Arrays.asList("x")));
+        Iterator<String> values = map.get("a").iterator();
+        while (values.hasNext()) {
+            if (values.next().equals("x")) {
+                values.remove();
+            }
+        }
+        assertThat(map.get("a"), contains("y"));
+        map.entrySet().removeIf(e -> e.getKey().equals("b"));
+        assertThat(map.keySet(), contains("a"));
+    }
+
+    @Test
+    public void shouldSwitchBetweenArrayAndBitmap() {
+        IntSet set = IntSet.of(new int[0]);
+        for (int i = 0; i < 5000; i++) {
+            set.add(i);
+        }
+        assertThat(set.size(), is(5000));
+        assertThat(set.estimateBytes(), lessThan(5000L * Integer.BYTES));
+        for (int i = 0; i < 4990; i++) {
+            set.remove(i);
+        }
+        assertThat(set.size(), is(10));
+        assertThat(set.contains(4995), is(true));
+        assertThat(set.contains(10), is(false));
+        assertThat(set.toArray().length, is(10));
+    }
+
+    @Test
+    public void shouldReportSmallerFootprint() {
+        InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 20; j++) {
+                cache.addProcedureForOffering("offering" + i, "procedure" + j);
+            }
+        }
+        CacheMemoryReport report = cache.getMemoryReport();
+        assertThat(report.getDictionarySize(), is(120));
+        assertThat(report.getEncodedBytes(), lessThan(report.getHashBytesWithStrings()));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since 5.0.2
+ */
+public class SnapshotCacheImplTest {
+    private static final String OFFERING = "test-offering";
+    private static final String PROCEDURE = "test-procedure";
+
+    private SnapshotCacheImpl instance;
+
+    @Before
+    public void initInstance() {
+        instance = new SnapshotCacheImpl();
+    }
+
+    @Test
+    public void should_return_added_values() {
+        instance.addProcedureForOffering(OFFERING, PROCEDURE);
+        assertThat(instance.getProceduresForOffering(OFFERING), contains(PROCEDURE));
+    }
+
+    @Test
+    public void should_not_change_previously_returned_sets() {
+        instance.addOffering(OFFERING);
+        Set<String> offerings = instance.getOfferings();
+        instance.removeOffering(OFFERING);
+        assertThat(offerings, contains(OFFERING));
+        assertThat(instance.getOfferings(), is(empty()));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void should_return_unmodifiable_sets() {
+        instance.addOffering(OFFERING);
+        instance.getOfferings().add("other");
+    }
+
+    @Test
+    public void should_publish_update_window_at_end() throws InterruptedException {
+        instance.beginUpdate();
+        instance.addOffering(OFFERING);
+        assertThat(instance.getOfferings(), contains(OFFERING));
+        assertThat(readInOtherThread(), is(empty()));
+        instance.endUpdate();
+        assertThat(readInOtherThread(), contains(OFFERING));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void should_fail_on_end_without_begin() {
+        instance.endUpdate();
+    }
+
+    @Test
+    public void should_be_equal_with_same_content() {
+        SnapshotCacheImpl other = new SnapshotCacheImpl();
+        assertEquals(instance, other);
+        instance.setProceduresForOffering(OFFERING, Collections.singleton(PROCEDURE));
+        assertNotEquals(instance, other);
+        other.addProcedureForOffering(OFFERING, PROCEDURE);
+        assertEquals(instance, other);
+        assertEquals(instance.hashCode(), other.hashCode());
+    }
+
+    private Set<String> readInOtherThread() throws InterruptedException {
+        Set<?>[] result = new Set<?>[1];
+        Thread thread = new Thread(() -> result[0] = instance.getOfferings());
+        thread.start();
+        thread.join();
+        @SuppressWarnings("unchecked")
+        Set<String> offerings = (Set<String>) result[0];
+        return offerings;
+    }
+}
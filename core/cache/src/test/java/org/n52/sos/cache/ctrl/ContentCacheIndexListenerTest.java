@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.sos.cache.DataAvailabilityIndex;
+import org.n52.sos.cache.FeatureSpatialIndex;
+import org.n52.sos.event.events.ContentCacheUpdated;
+
+/**
+ * @since 5.0.2
+ */
+public class ContentCacheIndexListenerTest {
+
+    private FeatureSpatialIndex featureSpatialIndex;
+
+    private DataAvailabilityIndex dataAvailabilityIndex;
+
+    private ContentCacheIndexListener listener;
+
+    @Before
+    public void setUp() {
+        featureSpatialIndex = new FeatureSpatialIndex();
+        assertThat(featureSpatialIndex.startBuild(), is(true));
+        assertThat(featureSpatialIndex.completeBuild(Collections.emptyMap()), is(true));
+        dataAvailabilityIndex = new DataAvailabilityIndex();
+        assertThat(dataAvailabilityIndex.startBuild(), is(true));
+        assertThat(dataAvailabilityIndex.completeBuild(Collections.emptyList()), is(true));
+        listener = new ContentCacheIndexListener();
+        listener.setFeatureSpatialIndex(featureSpatialIndex);
+        listener.setDataAvailabilityIndex(dataAvailabilityIndex);
+    }
+
+    @Test
+    public void should_invalidate_indexes_after_complete_update() {
+        listener.handle(new ContentCacheUpdated(true));
+        assertThat(featureSpatialIndex.startBuild(), is(true));
+        assertThat(dataAvailabilityIndex.isInitialized(), is(false));
+    }
+
+    @Test
+    public void should_keep_indexes_after_partial_update() {
+        listener.handle(new ContentCacheUpdated(false));
+        assertThat(featureSpatialIndex.startBuild(), is(false));
+        assertThat(dataAvailabilityIndex.isInitialized(), is(true));
+    }
+}
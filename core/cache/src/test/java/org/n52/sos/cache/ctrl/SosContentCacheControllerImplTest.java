@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.cache.ctrl.persistence.NoOpCachePersistenceStrategy;
+import org.n52.iceland.exception.ows.concrete.GenericThrowableWrapperException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.cache.NoOpCacheFeederHandler;
+import org.n52.sos.cache.SnapshotCacheImpl;
+import org.n52.sos.cache.SosContentCache;
+import org.n52.sos.cache.SosContentCacheUpdate;
+import org.n52.sos.cache.SosWritableContentCache;
+import org.n52.sos.ds.CacheFeederHandler;
+
+/**
+ * @since 5.0.2
+ */
+public class SosContentCacheControllerImplTest {
+    private static final long TIMEOUT = 5;
+    private static final String OFFERING = "test-offering";
+    private static final String PROCEDURE = "test-procedure";
+    private static final String COMPLETE_OFFERING = "complete-offering";
+    private static final String COMPLETE_PROCEDURE = "complete-procedure";
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void should_publish_partial_update_at_once() throws Exception {
+        SosContentCacheControllerImpl controller = createController(new NoOpCacheFeederHandler());
+        CountDownLatch applied = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> update = executor.submit(() -> {
+            controller.update(new TestUpdate(cache -> {
+                cache.addOffering(OFFERING);
+                applied.countDown();
+                release.await();
+                cache.addProcedure(PROCEDURE);
+            }));
+            return null;
+        });
+        assertTrue(applied.await(TIMEOUT, TimeUnit.SECONDS));
+        assertThat(getCache(controller).getOfferings(), is(empty()));
+        release.countDown();
+        update.get(TIMEOUT, TimeUnit.SECONDS);
+        assertThat(getCache(controller).getOfferings(), contains(OFFERING));
+        assertThat(getCache(controller).getProcedures(), contains(PROCEDURE));
+    }
+
+    @Test
+    public void should_replay_partial_updates_onto_the_new_cache() throws Exception {
+        BlockingCacheFeederHandler cacheFeederHandler = new BlockingCacheFeederHandler();
+        SosContentCacheControllerImpl controller = createController(cacheFeederHandler);
+        SosContentCache live = getCache(controller);
+        Future<?> complete = startCompleteUpdate(controller, cacheFeederHandler);
+        // partial updates do not wait for the running complete update
+        executor.submit(() -> {
+            controller.update(new TestUpdate(cache -> cache.addOffering(OFFERING)));
+            return null;
+        }).get(TIMEOUT, TimeUnit.SECONDS);
+        assertThat(getCache(controller), is(sameInstance(live)));
+        assertThat(getCache(controller).getOfferings(), contains(OFFERING));
+        cacheFeederHandler.release();
+        complete.get(TIMEOUT, TimeUnit.SECONDS);
+        assertThat(getCache(controller), is(not(sameInstance(live))));
+        assertThat(getCache(controller).getOfferings(), containsInAnyOrder(OFFERING, COMPLETE_OFFERING));
+        assertThat(getCache(controller).getProcedures(), contains(COMPLETE_PROCEDURE));
+    }
+
+    @Test
+    public void should_not_expose_half_built_cache() throws Exception {
+        BlockingCacheFeederHandler cacheFeederHandler = new BlockingCacheFeederHandler();
+        SosContentCacheControllerImpl controller = createController(cacheFeederHandler);
+        SosContentCache live = getCache(controller);
+        Future<?> complete = startCompleteUpdate(controller, cacheFeederHandler);
+        // the new cache already contains the offering, but not yet the procedure
+        assertThat(controller.isUpdateInProgress(), is(true));
+        assertThat(getCache(controller), is(sameInstance(live)));
+        assertThat(getCache(controller).getOfferings(), is(empty()));
+        assertThat(getCache(controller).getProcedures(), is(empty()));
+        cacheFeederHandler.release();
+        complete.get(TIMEOUT, TimeUnit.SECONDS);
+        assertThat(controller.isUpdateInProgress(), is(false));
+        assertThat(getCache(controller).getOfferings(), contains(COMPLETE_OFFERING));
+        assertThat(getCache(controller).getProcedures(), contains(COMPLETE_PROCEDURE));
+    }
+
+    private Future<?> startCompleteUpdate(SosContentCacheControllerImpl controller,
+            BlockingCacheFeederHandler cacheFeederHandler) throws InterruptedException {
+        cacheFeederHandler.block();
+        Future<?> complete = executor.submit(() -> {
+            controller.update();
+            return null;
+        });
+        assertTrue(cacheFeederHandler.awaitBlocked());
+        return complete;
+    }
+
+    private static SosContentCacheControllerImpl createController(CacheFeederHandler cacheFeederHandler) {
+        CompleteCacheUpdateFactoryImpl completeCacheUpdateFactory = new CompleteCacheUpdateFactoryImpl();
+        completeCacheUpdateFactory.setCacheFeederHandler(cacheFeederHandler);
+        completeCacheUpdateFactory.setContentCacheFactory(SnapshotCacheImpl::new);
+        SosContentCacheControllerImpl controller = new SosContentCacheControllerImpl();
+        controller.setCacheFactory(SnapshotCacheImpl::new);
+        controller.setPersistenceStrategy(new NoOpCachePersistenceStrategy());
+        controller.setCompleteCacheUpdateFactory(completeCacheUpdateFactory);
+        controller.init();
+        return controller;
+    }
+
+    private static SosContentCache getCache(SosContentCacheControllerImpl controller) {
+        return (SosContentCache) controller.getCache();
+    }
+
+    /**
+     * Modification of the cache by a {@link TestUpdate}.
+     */
+    private interface Modification {
+        void apply(SosWritableContentCache cache) throws Exception;
+    }
+
+    /**
+     * Cache feeder that, once {@link #block() armed}, stops a complete update in the middle of filling the new
+     * cache until it is {@link #release() released}.
+     */
+    private static class BlockingCacheFeederHandler extends NoOpCacheFeederHandler {
+        private volatile CountDownLatch blocked;
+        private volatile CountDownLatch released;
+
+        void block() {
+            blocked = new CountDownLatch(1);
+            released = new CountDownLatch(1);
+        }
+
+        boolean awaitBlocked() throws InterruptedException {
+            return blocked.await(TIMEOUT, TimeUnit.SECONDS);
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        @Override
+        public void updateCache(SosWritableContentCache cache) throws OwsExceptionReport {
+            if (blocked == null) {
+                return;
+            }
+            cache.addOffering(COMPLETE_OFFERING);
+            blocked.countDown();
+            try {
+                if (!released.await(TIMEOUT, TimeUnit.SECONDS)) {
+                    throw new GenericThrowableWrapperException(new IllegalStateException("not released"));
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new GenericThrowableWrapperException(ex);
+            }
+            cache.addProcedure(COMPLETE_PROCEDURE);
+        }
+    }
+
+    private static class TestUpdate extends SosContentCacheUpdate {
+        private final Modification modification;
+
+        TestUpdate(Modification modification) {
+            this.modification = modification;
+        }
+
+        @Override
+        public void execute() {
+            try {
+                modification.apply(getCache());
+            } catch (Exception ex) {
+                fail(new GenericThrowableWrapperException(ex));
+            }
+        }
+
+        @Override
+        public boolean isCompleteUpdate() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl.persistence;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Locale;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.n52.iceland.cache.WritableContentCache;
+import org.n52.shetland.util.ReferencedEnvelope;
+import org.n52.sos.cache.InMemoryCacheImpl;
+import org.n52.sos.cache.SnapshotCacheImpl;
+import org.n52.sos.cache.SosContentCache.TypeInstance;
+import org.n52.sos.cache.SosWritableContentCache;
+
+/**
+ * @since 5.0.2
+ */
+public class CacheSnapshotWriterTest {
+    private static final String OFFERING = "test-offering";
+    private static final String PROCEDURE = "test-procedure";
+    private static final String FEATURE = "test-feature";
+    private static final DateTime TIME = new DateTime(2018, 1, 1, 12, 0, DateTimeZone.forOffsetHours(1));
+    private static final ReferencedEnvelope ENVELOPE = new ReferencedEnvelope(new Envelope(1, 2, 3, 4), 4326);
+
+    @Test
+    public void should_read_written_in_memory_cache() throws IOException {
+        SosWritableContentCache cache = (SosWritableContentCache) roundtrip(fill(new InMemoryCacheImpl()), true);
+        assertThat(cache, is(instanceOf(InMemoryCacheImpl.class)));
+        check(cache);
+    }
+
+    @Test
+    public void should_read_written_snapshot_cache() throws IOException {
+        SosWritableContentCache cache = (SosWritableContentCache) roundtrip(fill(new SnapshotCacheImpl()), false);
+        assertThat(cache, is(instanceOf(SnapshotCacheImpl.class)));
+        check(cache);
+        cache.addOffering("other");
+        assertThat(cache.getOfferings(), containsInAnyOrder(OFFERING, "other"));
+    }
+
+    @Test
+    public void should_be_smaller_than_serialized_cache() throws IOException {
+        InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        for (int i = 0; i < 200; i++) {
+            String offering = OFFERING + i;
+            for (int j = 0; j < 20; j++) {
+                cache.addProcedureForOffering(offering, PROCEDURE + j);
+                cache.addOfferingForProcedure(PROCEDURE + j, offering);
+                cache.addFeatureOfInterestForOffering(offering, FEATURE + j);
+            }
+        }
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(cache);
+        }
+        assertThat(write(cache, false).length, is(lessThan(serialized.size())));
+        assertThat(write(cache, true).length, is(lessThan(serialized.size() / 5)));
+    }
+
+    private static SosWritableContentCache fill(SosWritableContentCache cache) {
+        cache.addOffering(OFFERING);
+        cache.addProcedureForOffering(OFFERING, PROCEDURE);
+        cache.addFeatureOfInterest(FEATURE);
+        cache.addFeatureOfInterestForOffering(OFFERING, FEATURE);
+        cache.setMaxPhenomenonTimeForOffering(OFFERING, TIME);
+        cache.setEnvelopeForOffering(OFFERING, ENVELOPE);
+        cache.addSupportedLanguage(Locale.GERMAN);
+        cache.addTypeInstanceProcedure(TypeInstance.INSTANCE, PROCEDURE);
+        cache.addProcedureIdentifierHumanReadableName(PROCEDURE, "Procedure");
+        return cache;
+    }
+
+    private static void check(SosWritableContentCache cache) {
+        assertThat(cache.getOfferings(), contains(OFFERING));
+        assertThat(cache.getProceduresForOffering(OFFERING), contains(PROCEDURE));
+        assertThat(cache.getFeaturesOfInterest(), contains(FEATURE));
+        assertThat(cache.getFeaturesOfInterestForOffering(OFFERING), contains(FEATURE));
+        assertThat(cache.getMaxPhenomenonTimeForOffering(OFFERING), is(TIME));
+        assertThat(cache.getEnvelopeForOffering(OFFERING).getEnvelope(), is(ENVELOPE.getEnvelope()));
+        assertThat(cache.getEnvelopeForOffering(OFFERING).getSrid(), is(ENVELOPE.getSrid()));
+        assertThat(cache.getSupportedLanguages(), contains(Locale.GERMAN));
+        assertThat(cache.getTypeInstanceProcedure(TypeInstance.INSTANCE), contains(PROCEDURE));
+        assertThat(cache.getProcedureIdentifierForHumanReadableName("Procedure"), is(PROCEDURE));
+    }
+
+    private static WritableContentCache roundtrip(WritableContentCache cache, boolean compress) throws IOException {
+        return new CacheSnapshotReader().read(new ByteArrayInputStream(write(cache, compress)));
+    }
+
+    private static byte[] write(WritableContentCache cache, boolean compress) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CacheSnapshotWriter(compress).write(cache, out);
+        return out.toByteArray();
+    }
+}
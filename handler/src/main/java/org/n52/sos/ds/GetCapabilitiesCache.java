@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosCapabilities;
+import org.n52.sos.event.events.ContentCacheUpdated;
+import org.n52.sos.event.events.ServiceConfigurationChanged;
+import org.n52.sos.service.SosSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache for dynamically created {@link SosCapabilities}. Entries are keyed by
+ * service, version, requested sections, requested extension sections and
+ * language. Each {@link ContentCacheUpdated} event only increments the version
+ * of the cache. Entries are checked against it on read: an outdated entry is
+ * rebuilt in the background, until then readers get the last successfully
+ * built document. Entries that are not requested are not rebuilt. A
+ * {@link ServiceConfigurationChanged} event drops all entries, as the
+ * last document may no longer be valid at all.
+ * <p>
+ * The cached {@link SosCapabilities} are shared between requests and must not
+ * be modified. Callers have to bypass the cache if response modifiers apply,
+ * and the builder must not depend on the request it was created for, as it is
+ * reused for the background rebuilds.
+ *
+ * @since 5.0.2
+ */
+@Configurable
+public class GetCapabilitiesCache implements EventListener, Destroyable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GetCapabilitiesCache.class);
+
+    private static final int MAX_ENTRIES = 128;
+
+    private static final Set<Class<? extends Event>> TYPES =
+            new HashSet<>(Arrays.asList(ContentCacheUpdated.class, ServiceConfigurationChanged.class));
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong version = new AtomicLong(0);
+
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new GroupedAndNamedThreadFactory("52n-capabilities-cache"));
+
+    private boolean enabled;
+
+    @Setting(SosSettings.CAPABILITIES_CACHE)
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            invalidate();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the cached capabilities for the key. If no entry exists, the
+     * capabilities are created by the builder and stored. If the entry is
+     * outdated, the cached capabilities are returned and a rebuild is
+     * scheduled.
+     *
+     * @param key
+     *            the key
+     * @param builder
+     *            the builder to create the capabilities
+     * @return the capabilities
+     * @throws OwsExceptionReport
+     *             If an error occurs while creating the capabilities
+     */
+    public SosCapabilities get(Key key, CapabilitiesBuilder builder) throws OwsExceptionReport {
+        if (!isEnabled()) {
+            return builder.build();
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            long currentVersion = version.get();
+            SosCapabilities capabilities = builder.build();
+            if (entries.size() < MAX_ENTRIES) {
+                entries.merge(key, new Entry(currentVersion, capabilities, builder),
+                        (o, n) -> o.getVersion() >= n.getVersion() ? o : n);
+            }
+            return capabilities;
+        }
+        if (entry.getVersion() < version.get()) {
+            rebuild(key, entry);
+        }
+        return entry.getCapabilities();
+    }
+
+    /**
+     * Remove all cached capabilities.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        entries.clear();
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return Collections.unmodifiableSet(TYPES);
+    }
+
+    @Override
+    public void handle(Event event) {
+        if (event instanceof ServiceConfigurationChanged) {
+            invalidate();
+        } else {
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        entries.clear();
+    }
+
+    private void rebuild(Key key, Entry entry) {
+        if (entry.startRebuild()) {
+            try {
+                executor.execute(() -> doRebuild(key, entry));
+            } catch (RejectedExecutionException e) {
+                entry.finishRebuild();
+                LOGGER.debug("Capabilities rebuild rejected", e);
+            }
+        }
+    }
+
+    private void doRebuild(Key key, Entry entry) {
+        long currentVersion = version.get();
+        try {
+            Entry rebuilt = new Entry(currentVersion, entry.getBuilder().build(), entry.getBuilder());
+            if (entries.replace(key, entry, rebuilt)) {
+                LOGGER.debug("Rebuilt capabilities for {} (version {})", key, currentVersion);
+            }
+        } catch (OwsExceptionReport | RuntimeException e) {
+            LOGGER.warn("Error while rebuilding capabilities for {}, keeping the last document", key, e);
+        } finally {
+            entry.finishRebuild();
+        }
+    }
+
+    /**
+     * Builder to create {@link SosCapabilities}.
+     */
+    @FunctionalInterface
+    public interface CapabilitiesBuilder {
+        SosCapabilities build() throws OwsExceptionReport;
+    }
+
+    /**
+     * Key of a cached capabilities document.
+     */
+    public static class Key {
+        private final String service;
+        private final String version;
+        private final int sections;
+        private final SortedSet<String> extensionSections;
+        private final Locale locale;
+
+        public Key(String service, String version, int sections, Set<String> extensionSections, Locale locale) {
+            this.service = service;
+            this.version = version;
+            this.sections = sections;
+            this.extensionSections = Collections.unmodifiableSortedSet(new TreeSet<>(extensionSections));
+            this.locale = locale;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(service, version, sections, extensionSections, locale);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return sections == other.sections && Objects.equals(service, other.service)
+                    && Objects.equals(version, other.version)
+                    && Objects.equals(extensionSections, other.extensionSections)
+                    && Objects.equals(locale, other.locale);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Key[service=%s, version=%s, sections=%d, extensionSections=%s, locale=%s]",
+                    service, version, sections, extensionSections, locale);
+        }
+    }
+
+    private static class Entry {
+        private final long version;
+        private final SosCapabilities capabilities;
+        private final CapabilitiesBuilder builder;
+        private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+        Entry(long version, SosCapabilities capabilities, CapabilitiesBuilder builder) {
+            this.version = version;
+            this.capabilities = capabilities;
+            this.builder = builder;
+        }
+
+        long getVersion() {
+            return version;
+        }
+
+        SosCapabilities getCapabilities() {
+            return capabilities;
+        }
+
+        CapabilitiesBuilder getBuilder() {
+            return builder;
+        }
+
+        boolean startRebuild() {
+            return rebuilding.compareAndSet(false, true);
+        }
+
+        void finishRebuild() {
+            rebuilding.set(false);
+        }
+    }
+}
@@ -56,6 +56,7 @@ import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.locationtech.jts.geom.Geometry;
 import org.n52.iceland.binding.BindingRepository;
+import org.n52.iceland.convert.RequestResponseModifierRepository;
 import org.n52.iceland.exception.ows.concrete.InvalidServiceParameterException;
 import org.n52.iceland.ogc.ows.OwsServiceMetadataRepository;
 import org.n52.iceland.ogc.ows.extension.OwsCapabilitiesExtensionProvider;
@@ -186,6 +187,10 @@ public class GetCapabilitiesHandler extends AbstractGetCapabilitiesHandler imple
     private OwsCapabilitiesExtensionRepository capabilitiesExtensionRepository;
     @Inject
     private ProcedureDescriptionFormatRepository procedureDescriptionFormatRepository;
+    @Inject
+    private GetCapabilitiesCache capabilitiesCache;
+    @Inject
+    private RequestResponseModifierRepository requestResponseModifierRepository;
 
     private String serviceURL;
 
@@ -1276,6 +1281,44 @@ public class GetCapabilitiesHandler extends AbstractGetCapabilitiesHandler imple
         Set<String> requestedExtensionSections = new HashSet<>(availableExtensionSections.size());
         int requestedSections = identifyRequestedSections(request, response, availableExtensionSections, requestedExtensionSections);
 
+        if (!isCacheable(request, response)) {
+            response.setCapabilities(
+                    createDynamicCapabilities(request, response, requestedExtensionSections, requestedSections));
+            return;
+        }
+        GetCapabilitiesCache.Key key = new GetCapabilitiesCache.Key(response.getService(), response.getVersion(),
+                requestedSections, requestedExtensionSections, getRequestedLocale(request));
+        String service = response.getService();
+        String version = response.getVersion();
+        // the builder is kept for background rebuilds, so it must not capture this request
+        GetCapabilitiesRequest template = createTemplateRequest(request, service, version);
+        response.setCapabilities(capabilitiesCache.get(key, () -> createDynamicCapabilities(template,
+                new GetCapabilitiesResponse(service, version), requestedExtensionSections, requestedSections)));
+    }
+
+    /**
+     * Cached capabilities are shared between requests, so they may only be
+     * used if no response modifier changes them in place and the request
+     * contains no other extension than the language.
+     */
+    private boolean isCacheable(GetCapabilitiesRequest request, GetCapabilitiesResponse response) {
+        if (requestResponseModifierRepository.hasRequestResponseModifier(request, response)) {
+            return false;
+        }
+        int languageExtensions = request.getExtension(OWSConstants.AdditionalRequestParams.language).isPresent() ? 1 : 0;
+        return request.getExtensions().getExtensions().size() == languageExtensions;
+    }
+
+    private GetCapabilitiesRequest createTemplateRequest(GetCapabilitiesRequest request, String service,
+            String version) {
+        GetCapabilitiesRequest template = new GetCapabilitiesRequest(service);
+        template.setVersion(version);
+        request.getExtension(OWSConstants.AdditionalRequestParams.language).ifPresent(template::addExtension);
+        return template;
+    }
+
+    private SosCapabilities createDynamicCapabilities(GetCapabilitiesRequest request, GetCapabilitiesResponse response,
+            Set<String> requestedExtensionSections, int requestedSections) throws OwsExceptionReport {
         SosCapabilities sosCapabilities = new SosCapabilities(request.getService(), request.getVersion(), null, null, null, null, null, null, null, null);
 
         SectionSpecificContentObject sectionSpecificContentObject = new SectionSpecificContentObject()
@@ -1286,8 +1329,7 @@ public class GetCapabilitiesHandler extends AbstractGetCapabilitiesHandler imple
                 .setSosCapabilities(sosCapabilities);
 
         addSectionSpecificContent(sectionSpecificContentObject, request);
-        response.setCapabilities(sosCapabilities);
-
+        return sosCapabilities;
     }
 
     private List<OwsOperation> getOperations(String service, String version) throws OwsExceptionReport {
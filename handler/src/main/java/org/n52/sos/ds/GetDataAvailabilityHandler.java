@@ -29,16 +29,26 @@
 package org.n52.sos.ds;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.inject.Inject;
 
 import org.hibernate.Session;
 import org.n52.io.request.IoParameters;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.series.db.DataAccessException;
 import org.n52.series.db.HibernateSessionStore;
 import org.n52.series.db.beans.FormatEntity;
@@ -48,6 +58,7 @@ import org.n52.series.db.dao.DatasetDao;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.shetland.ogc.filter.TemporalFilter;
 import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
 import org.n52.shetland.ogc.gml.time.TimePeriod;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
@@ -61,16 +72,27 @@ import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.DataAvailability
 import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.FormatDescriptor;
 import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.ObservationFormatDescriptor;
 import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.ProcedureDescriptionFormatDescriptor;
+import org.n52.sos.cache.DataAvailabilityIndex;
+import org.n52.sos.ds.cache.DatasourceCacheUpdateHelper;
 import org.n52.sos.ds.dao.GetDataAvailabilityDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
-public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandler implements ApiQueryHelper {
+public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandler
+        implements ApiQueryHelper, Destroyable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GetDataAvailabilityHandler.class);
+
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new GroupedAndNamedThreadFactory("52n-data-availability-index"));
 
     private HibernateSessionStore sessionStore;
     private Optional<GetDataAvailabilityDao> dao = Optional.empty();
+    private DataAvailabilityIndex dataAvailabilityIndex;
 
 
     public GetDataAvailabilityHandler() {
@@ -89,6 +111,11 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
         }
     }
 
+    @Inject
+    public void setDataAvailabilityIndex(DataAvailabilityIndex dataAvailabilityIndex) {
+        this.dataAvailabilityIndex = dataAvailabilityIndex;
+    }
+
     @Override
     public GetDataAvailabilityResponse getDataAvailability(GetDataAvailabilityRequest request)
             throws OwsExceptionReport {
@@ -112,12 +139,38 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
         return true;
     }
 
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
     private List<DataAvailability> queryDataAvailabilityValues(GetDataAvailabilityRequest request) throws OwsExceptionReport {
+        if (isFromCache(request)) {
+            if (dataAvailabilityIndex.isInitialized()) {
+                List<DataAvailabilityIndex.Entry> entries = dataAvailabilityIndex.query(
+                        toSet(request.getProcedures()), toSet(request.getObservedProperties()),
+                        toSet(request.getFeaturesOfInterest()), toSet(request.getOfferings()));
+                // counts of datasets with insertions of unknown size are only known to the datasource
+                if (!isShowCount(request) || entries.stream().allMatch(entry -> entry.getCount() >= 0)) {
+                    return queryDataAvailabilityValuesFromIndex(request, entries);
+                }
+            } else {
+                buildDataAvailabilityIndex();
+            }
+        }
         Session session = sessionStore.getSession();
         try {
             GDARequestContext context = new GDARequestContext(request);
             boolean gdaV20 = checkForGDAv20(request);
-            for (final Dataset entity : new DatasetDao<>(session).getAllInstances(createDbQuery(request))) {
+            List<? extends Dataset> datasets = new DatasetDao<>(session).getAllInstances(createDbQuery(request));
+            if (isIncludeResultTime(request) && dao.isPresent()) {
+                List<Long> ids = Lists.newArrayListWithCapacity(datasets.size());
+                for (Dataset entity : datasets) {
+                    ids.add(entity.getId());
+                }
+                context.setResultTimes(dao.get().getResultTimes(ids, request, session));
+            }
+            for (final Dataset entity : datasets) {
                 if (gdaV20) {
                     processDataAvailabilityV2(entity, context, session);
                 } else {
@@ -136,6 +189,115 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
         }
     }
 
+    /**
+     * Check if the request can be answered from the {@link DataAvailabilityIndex}. Result times and phenomenon time
+     * filters are only known to the datasource.
+     *
+     * @param request
+     *            GetDataAvailability request
+     * @return <code>true</code>, if the request can be answered from the index
+     */
+    private boolean isFromCache(GetDataAvailabilityRequest request) {
+        return isFromCache() && dataAvailabilityIndex != null && !isIncludeResultTime(request)
+                && !hasPhenomenonTimeFilter(request.getExtensions());
+    }
+
+    /**
+     * Start a background build of the {@link DataAvailabilityIndex} if no build is running. Requests are answered
+     * from the datasource until the index is built.
+     */
+    private void buildDataAvailabilityIndex() {
+        if (dataAvailabilityIndex.startBuild()) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        dataAvailabilityIndex.completeBuild(loadDataAvailabilityIndexEntries());
+                    } catch (OwsExceptionReport | RuntimeException e) {
+                        LOGGER.warn("Error while building the data availability index", e);
+                        dataAvailabilityIndex.abortBuild();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("Data availability index build rejected", e);
+                dataAvailabilityIndex.abortBuild();
+            }
+        }
+    }
+
+    /**
+     * Load the {@link DataAvailabilityIndex} entries of all datasets.
+     *
+     * @return the entries
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    private List<DataAvailabilityIndex.Entry> loadDataAvailabilityIndexEntries() throws OwsExceptionReport {
+        Session session = sessionStore.getSession();
+        try {
+            Map<String, String> map = Maps.newHashMap();
+            map.put(IoParameters.MATCH_DOMAIN_IDS, Boolean.toString(true));
+            List<DataAvailabilityIndex.Entry> entries = new LinkedList<>();
+            for (final Dataset entity : new DatasetDao<>(session)
+                    .getAllInstances(new DbQuery(IoParameters.createFromSingleValueMap(map)))) {
+                entries.add(DatasourceCacheUpdateHelper.createDataAvailabilityIndexEntry(entity));
+            }
+            return entries;
+        } catch (DataAccessException e) {
+            throw new NoApplicableCodeException().causedBy(e).withMessage(
+                    "Error while querying data for GetDataAvailability!");
+        } finally {
+            sessionStore.returnSession(session);
+        }
+    }
+
+    private List<DataAvailability> queryDataAvailabilityValuesFromIndex(GetDataAvailabilityRequest request,
+            List<DataAvailabilityIndex.Entry> entries) {
+        GDARequestContext context = new GDARequestContext(request);
+        boolean gdaV20 = checkForGDAv20(request);
+        for (DataAvailabilityIndex.Entry entry : entries) {
+            String offering = entry.getOffering().getHref();
+            TimePeriod timePeriod = new TimePeriod(entry.getStart(), entry.getEnd());
+            if (!timePeriod.isEmpty()) {
+                DataAvailability dataAvailability = new DataAvailability(
+                        getReference(entry.getProcedure(), context.getProcedures()),
+                        getReference(entry.getObservableProperty(), context.getObservableProperties()),
+                        getReference(entry.getFeatureOfInterest(), context.getFeaturesOfInterest()),
+                        getReference(entry.getOffering(), context.getOfferings()), timePeriod);
+                if (isShowCount(request)) {
+                    dataAvailability.setCount(entry.getCount());
+                }
+                if (gdaV20) {
+                    dataAvailability.setFormatDescriptor(new FormatDescriptor(
+                            new ProcedureDescriptionFormatDescriptor(entry.getProcedureDescriptionFormat()),
+                            getObservationFormatDescriptors(getCache().getObservationTypesForOffering(offering),
+                                    context)));
+                }
+                context.addDataAvailability(dataAvailability);
+            }
+            if (gdaV20) {
+                checkForParentOfferings(context, getCache().getChildOfferings(offering, true, false));
+            }
+        }
+        if (!gdaV20) {
+            return checkForDuplictation(context.getDataAvailabilityList());
+        }
+        return context.getDataAvailabilityList();
+    }
+
+    private Set<String> toSet(List<String> identifiers) {
+        return identifiers != null ? Sets.newHashSet(identifiers) : Collections.emptySet();
+    }
+
+    private ReferenceType getReference(ReferenceType reference, Map<String, ReferenceType> references) {
+        return references.computeIfAbsent(reference.getHref(), identifier -> {
+            ReferenceType referenceType = new ReferenceType(identifier);
+            if (reference.getTitle() != null) {
+                referenceType.setTitle(reference.getTitle());
+            }
+            return referenceType;
+        });
+    }
+
     private DbQuery createDbQuery(GetDataAvailabilityRequest req) {
         Map<String, String> map = Maps.newHashMap();
         if (req.isSetFeaturesOfInterest()) {
@@ -165,7 +327,7 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
                     dataAvailability.setCount(entity.getObservationCount());
                 }
                 if (isIncludeResultTime(context.getRequest()) && dao.isPresent()) {
-                    dataAvailability.setResultTimes(dao.get().getResultTimes(dataAvailability, context.getRequest()));
+                    dataAvailability.setResultTimes(context.getResultTimes(entity.getId()));
                 }
                 return dataAvailability;
             }
@@ -209,18 +371,17 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
             }
             context.addDataAvailability(dataAvailability);
         }
-        checkForParentOfferings(context, entity.getOffering());
+        checkForParentOfferings(context, getChildOfferings(entity.getOffering()));
     }
 
     private TimePeriod createTimePeriod(Dataset entity) {
         return new TimePeriod(entity.getFirstValueAt(), entity.getLastValueAt());
     }
 
-    private void checkForParentOfferings(GDARequestContext context, OfferingEntity offeringEntity) {
+    private void checkForParentOfferings(GDARequestContext context, Set<String> childOfferings) {
         if (context.isSetDataAvailabilityList()) {
             List<String> requestedOfferings = context.getRequest().getOfferings();
             for (String requestedOffering : requestedOfferings) {
-                Set<String> childOfferings = getChildOfferings(offeringEntity);
                 if (!childOfferings.isEmpty()) {
                     if (context.hasDataAvailability(requestedOffering)) {
                         Set<DataAvailability> parentDataAvailabilities =
@@ -268,27 +429,64 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
                 || GetDataAvailabilityConstants.NS_GDA_20.equals(request.getNamespace()) || isForceGDAv20Response();
     }
 
-    private List<DataAvailability> checkForDuplictation(List<DataAvailability> dataAvailabilityValues) {
+    /**
+     * Merge duplicated {@link DataAvailability}s. The values are grouped by
+     * procedure, observed property and feature of interest, so only values of
+     * the same group have to be compared.
+     *
+     * @param dataAvailabilityValues
+     *            Values to check
+     * @return The values without duplicates
+     */
+    static List<DataAvailability> checkForDuplictation(List<DataAvailability> dataAvailabilityValues) {
         List<DataAvailability> checked = Lists.newLinkedList();
+        Map<List<String>, List<DataAvailability>> groups = new LinkedHashMap<>();
         for (DataAvailability dataAvailability : dataAvailabilityValues) {
-            if (checked.isEmpty()) {
-                checked.add(dataAvailability);
-            } else {
-                boolean notDuplicated = true;
-                for (DataAvailability checkedDA : checked) {
-                    if (dataAvailability.equals(checkedDA)) {
-                        checkedDA.getPhenomenonTime().extendToContain(dataAvailability.getPhenomenonTime());
-                        notDuplicated = false;
-                    }
+            List<DataAvailability> group = groups.computeIfAbsent(getConstellationKey(dataAvailability),
+                    key -> new LinkedList<>());
+            DataAvailability duplicate = null;
+            for (DataAvailability checkedDA : group) {
+                if (dataAvailability.equals(checkedDA)) {
+                    duplicate = checkedDA;
+                    break;
                 }
-                if (notDuplicated) {
-                    checked.add(dataAvailability);
+            }
+            if (duplicate != null) {
+                duplicate.getPhenomenonTime().extendToContain(dataAvailability.getPhenomenonTime());
+                if (dataAvailability.getResultTimes() != null && !dataAvailability.getResultTimes().isEmpty()) {
+                    duplicate.setResultTimes(
+                            mergeResultTimes(duplicate.getResultTimes(), dataAvailability.getResultTimes()));
                 }
+            } else {
+                group.add(dataAvailability);
+                checked.add(dataAvailability);
             }
         }
         return checked;
     }
 
+    private static List<String> getConstellationKey(DataAvailability dataAvailability) {
+        return Lists.newArrayList(getHref(dataAvailability.getProcedure()),
+                getHref(dataAvailability.getObservedProperty()),
+                getHref(dataAvailability.getFeatureOfInterest()));
+    }
+
+    private static String getHref(ReferenceType reference) {
+        return reference != null ? reference.getHref() : null;
+    }
+
+    private static List<TimeInstant> mergeResultTimes(List<TimeInstant> resultTimes, List<TimeInstant> other) {
+        Map<Long, TimeInstant> merged = new TreeMap<>();
+        for (List<TimeInstant> times : Lists.newArrayList(resultTimes, other)) {
+            if (times != null) {
+                for (TimeInstant time : times) {
+                    merged.putIfAbsent(time.getValue().getMillis(), time);
+                }
+            }
+        }
+        return Lists.newArrayList(merged.values());
+    }
+
     private ReferenceType getProcedureReference(Dataset entity, Map<String, ReferenceType> procedures) {
         String identifier = entity.getProcedure().getIdentifier();
         if (!procedures.containsKey(identifier)) {
@@ -392,18 +590,26 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
         return new FormatDescriptor(
                 new ProcedureDescriptionFormatDescriptor(
                         entity.getProcedure().getFormat().getFormat()),
-                getObservationFormatDescriptors(entity.getOffering(), context));
+                getObservationFormatDescriptors(getObservationTypes(entity.getOffering()), context));
     }
 
-    private Set<ObservationFormatDescriptor> getObservationFormatDescriptors(OfferingEntity entity, GDARequestContext context) {
-        Map<String, Set<String>> responsFormatObservationTypesMap = Maps.newHashMap();
+    private Set<String> getObservationTypes(OfferingEntity entity) {
+        Set<String> observationTypes = Sets.newHashSet();
         for (FormatEntity observationType : entity.getObservationTypes()) {
-            Set<String> responseFormats = getResponseFormatsForObservationType(observationType.getFormat(), context.getRequest().getService(), context.getRequest().getVersion());
+            observationTypes.add(observationType.getFormat());
+        }
+        return observationTypes;
+    }
+
+    private Set<ObservationFormatDescriptor> getObservationFormatDescriptors(Collection<String> observationTypes, GDARequestContext context) {
+        Map<String, Set<String>> responsFormatObservationTypesMap = Maps.newHashMap();
+        for (String observationType : observationTypes) {
+            Set<String> responseFormats = getResponseFormatsForObservationType(observationType, context.getRequest().getService(), context.getRequest().getVersion());
             for (String responseFormat : responseFormats) {
                 if (responsFormatObservationTypesMap.containsKey(responseFormat)) {
-                    responsFormatObservationTypesMap.get(responseFormat).add(observationType.getFormat());
+                    responsFormatObservationTypesMap.get(responseFormat).add(observationType);
                 } else {
-                    responsFormatObservationTypesMap.put(responseFormat, Sets.newHashSet(observationType.getFormat()));
+                    responsFormatObservationTypesMap.put(responseFormat, Sets.newHashSet(observationType));
                 }
             }
         }
@@ -435,6 +641,7 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
         private Map<String, ReferenceType> observableProperties = new HashMap<>();
         private Map<String, ReferenceType> featuresOfInterest = new HashMap<>();
         private Map<String, ReferenceType> offerings = new HashMap<>();
+        private Map<Long, List<TimeInstant>> resultTimes = Collections.emptyMap();
 
         public GDARequestContext(GetDataAvailabilityRequest request) {
             this.request = request;
@@ -460,6 +667,15 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
             return offerings;
         }
 
+        public GDARequestContext setResultTimes(Map<Long, List<TimeInstant>> resultTimes) {
+            this.resultTimes = Objects.requireNonNull(resultTimes);
+            return this;
+        }
+
+        public List<TimeInstant> getResultTimes(Long dataset) {
+            return Lists.newArrayList(resultTimes.getOrDefault(dataset, Collections.emptyList()));
+        }
+
         public GDARequestContext setDataAvailabilityList(List<DataAvailability> dataAvailabilityValues) {
             this.dataAvailabilityValues.clear();
             return addDataAvailabilities(dataAvailabilityValues);
@@ -36,6 +36,7 @@ import java.util.Locale;
 
 import javax.inject.Inject;
 
+import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.joda.time.Period;
 import org.joda.time.format.PeriodFormat;
@@ -54,6 +55,8 @@ import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.cache.SosWritableContentCache;
+import org.n52.sos.ds.cache.CacheUpdateWatermark;
+import org.n52.sos.ds.cache.DeltaCacheUpdate;
 import org.n52.sos.ds.cache.InitialCacheUpdate;
 import org.n52.sos.ds.cache.base.OfferingCacheUpdate;
 import org.slf4j.Logger;
@@ -78,6 +81,7 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
     private I18NDAORepository i18NDAORepository;
     private OwsServiceMetadataRepository serviceMetadataRepository;
     private HibernateSessionStore sessionStore;
+    private volatile CacheUpdateWatermark completeUpdateWatermark;
 
     @Inject
     public void setConnectionProvider(HibernateSessionStore sessionStore) {
@@ -125,7 +129,12 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
             LOGGER.info("Starting cache update");
             long cacheUpdateStartTime = System.currentTimeMillis();
 
+            // queried before the update, changes made during the update are applied again by the next delta
+            CacheUpdateWatermark watermark = queryWatermark(session);
             update.execute();
+            if (errors.isEmpty()) {
+                this.completeUpdateWatermark = watermark;
+            }
 
             logCacheLoadTime(cacheUpdateStartTime);
         } catch (Exception e) {
@@ -187,6 +196,85 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
         }
     }
 
+    /**
+     * Query the current watermark of the datasource, to be used as the starting point of delta updates.
+     *
+     * @return the watermark
+     * @throws OwsExceptionReport
+     *             if the watermark can not be queried
+     */
+    public CacheUpdateWatermark getCacheUpdateWatermark() throws OwsExceptionReport {
+        Session session = null;
+        try {
+            session = this.sessionStore.getSession();
+            return DeltaCacheUpdate.queryWatermark(session);
+        } catch (HibernateException he) {
+            throw new NoApplicableCodeException().causedBy(he).withMessage("Error while querying cache watermark!");
+        } finally {
+            this.sessionStore.returnSession(session);
+        }
+    }
+
+    /**
+     * Get the watermark of the datasource at the start of the last successful complete cache update, to be used as
+     * the starting point of delta updates.
+     *
+     * @return the watermark, {@code null} if no complete update was executed yet
+     */
+    public CacheUpdateWatermark getCompleteUpdateWatermark() {
+        return completeUpdateWatermark;
+    }
+
+    private CacheUpdateWatermark queryWatermark(Session session) {
+        try {
+            return DeltaCacheUpdate.queryWatermark(session);
+        } catch (HibernateException he) {
+            LOGGER.warn("Error while querying cache watermark!", he);
+            return null;
+        }
+    }
+
+    /**
+     * Reload the cache data of the offerings, procedures, observable properties and features of all datasets that
+     * were created or whose value times changed since the watermark.
+     *
+     * @param cache
+     *            The cache to update
+     * @param since
+     *            the watermark of the last update
+     * @param current
+     *            the current watermark of the datasource, see {@link #getCacheUpdateWatermark()}
+     * @return the executed update, holding the new watermark and the updated entities
+     * @throws OwsExceptionReport
+     *             if an error occurs during the update
+     */
+    public DeltaCacheUpdate updateCacheDelta(SosWritableContentCache cache, CacheUpdateWatermark since,
+            CacheUpdateWatermark current) throws OwsExceptionReport {
+        checkCacheNotNull(cache);
+        List<OwsExceptionReport> errors = CollectionHelper.synchronizedList();
+        Session session = this.sessionStore.getSession();
+        DeltaCacheUpdate update = new DeltaCacheUpdate(this.defaultLocale, this.i18NDAORepository, since, current);
+        update.setCache(cache);
+        update.setErrors(errors);
+        update.setSession(session);
+        try {
+            update.execute();
+        } catch (Exception e) {
+            LOGGER.error("Error while updating ContentCache!", e);
+            errors.add(new NoApplicableCodeException().causedBy(e).withMessage("Error while updating ContentCache!"));
+        } finally {
+            try {
+                this.sessionStore.returnSession(session);
+            } catch (Exception e2) {
+                LOGGER.error("Error while returning connection after cache update!", e2);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new CompositeOwsException(errors);
+        }
+        return update;
+    }
+
     private void checkCacheNotNull(WritableContentCache cache) {
         if (cache == null) {
             throw new NullPointerException("cache is null");
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.n52.series.db.beans.DatasetEntity;
+
+/**
+ * The state of the datasource a cache update has seen: the {@link DatasetEntity#getFirstValueAt() first} and
+ * {@link DatasetEntity#getLastValueAt() last value time} of every dataset. A dataset that is not contained in an
+ * older watermark was created afterwards, a dataset with different value times received new observations, also if
+ * they are older than the observations of other datasets.
+ * <p>
+ * The states are kept in sorted primitive arrays, so that the watermarks of large datasources stay small.
+ *
+ * @since 5.0.2
+ */
+public final class CacheUpdateWatermark {
+    private static final long NULL = Long.MIN_VALUE;
+    private static final CacheUpdateWatermark EMPTY = new CacheUpdateWatermark(new long[0], new long[0], new long[0]);
+    private final long[] datasetIds;
+    private final long[] firstValueAt;
+    private final long[] lastValueAt;
+
+    private CacheUpdateWatermark(long[] datasetIds, long[] firstValueAt, long[] lastValueAt) {
+        this.datasetIds = datasetIds;
+        this.firstValueAt = firstValueAt;
+        this.lastValueAt = lastValueAt;
+    }
+
+    /**
+     * @return a watermark without datasets, all datasets are changed since it
+     */
+    public static CacheUpdateWatermark empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the number of datasets of this watermark
+     */
+    public int size() {
+        return datasetIds.length;
+    }
+
+    /**
+     * Get the datasets that were created or whose value times changed since the older watermark. Datasets that were
+     * removed since are not contained.
+     *
+     * @param since
+     *            the older watermark
+     * @return the ids of the changed datasets
+     */
+    public Set<Long> getChangedDatasets(CacheUpdateWatermark since) {
+        Set<Long> changed = new HashSet<>();
+        int j = 0;
+        for (int i = 0; i < datasetIds.length; i++) {
+            while (j < since.datasetIds.length && since.datasetIds[j] < datasetIds[i]) {
+                j++;
+            }
+            if (j == since.datasetIds.length || since.datasetIds[j] != datasetIds[i]
+                    || since.firstValueAt[j] != firstValueAt[i] || since.lastValueAt[j] != lastValueAt[i]) {
+                changed.add(datasetIds[i]);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CacheUpdateWatermark)) {
+            return false;
+        }
+        CacheUpdateWatermark that = (CacheUpdateWatermark) obj;
+        return Arrays.equals(datasetIds, that.datasetIds) && Arrays.equals(firstValueAt, that.firstValueAt)
+                && Arrays.equals(lastValueAt, that.lastValueAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(datasetIds) + Arrays.hashCode(firstValueAt))
+                + Arrays.hashCode(lastValueAt);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheUpdateWatermark[datasets=%d]", datasetIds.length);
+    }
+
+    /**
+     * Collects the dataset states of a {@link CacheUpdateWatermark}.
+     */
+    public static final class Builder {
+        private final Map<Long, long[]> states = new TreeMap<>();
+
+        private Builder() {
+        }
+
+        public Builder add(long datasetId, Date firstValueAt, Date lastValueAt) {
+            states.put(datasetId, new long[] { toLong(firstValueAt), toLong(lastValueAt) });
+            return this;
+        }
+
+        public CacheUpdateWatermark build() {
+            long[] ids = new long[states.size()];
+            long[] first = new long[states.size()];
+            long[] last = new long[states.size()];
+            int i = 0;
+            for (Map.Entry<Long, long[]> state : states.entrySet()) {
+                ids[i] = state.getKey();
+                first[i] = state.getValue()[0];
+                last[i] = state.getValue()[1];
+                i++;
+            }
+            return new CacheUpdateWatermark(ids, first, last);
+        }
+
+        private static long toLong(Date time) {
+            return time == null ? NULL : time.getTime();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hibernate.Hibernate;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.n52.io.request.IoParameters;
+import org.n52.series.db.HibernateSessionStore;
+import org.n52.series.db.beans.AbstractFeatureEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.DescribableEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.dao.DatasetDao;
+import org.n52.series.db.dao.DbQuery;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.util.CollectionHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Strings;
+
+/**
+ * The datasets of a complete cache update, read with a single scan of the dataset table and grouped by offering,
+ * procedure, observable property and feature in the same pass.
+ * <p>
+ * The associations read by the updates sharing the snapshot are initialized while loading and the session is
+ * returned right away, so that the updates running in parallel only read detached entities and never touch a
+ * shared session.
+ *
+ * @since 5.0.2
+ */
+public class DatasetSnapshot implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatasetSnapshot.class);
+    private final HibernateSessionStore sessionStore;
+    private boolean loaded;
+    private Collection<DatasetEntity> datasets = Collections.emptyList();
+    private final Map<String, Collection<DatasetEntity>> byOffering = new HashMap<>();
+    private final Map<String, Collection<DatasetEntity>> byProcedure = new HashMap<>();
+    private final Map<String, Collection<DatasetEntity>> byObservableProperty = new HashMap<>();
+    private final Map<String, Collection<DatasetEntity>> byFeature = new HashMap<>();
+
+    public DatasetSnapshot(HibernateSessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    /**
+     * Scans the datasets, if not already done.
+     *
+     * @throws OwsExceptionReport
+     *                            if the datasets can not be queried
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void load() throws OwsExceptionReport {
+        if (loaded) {
+            return;
+        }
+        Session session = null;
+        try {
+            session = sessionStore.getSession();
+            datasets = new DatasetDao<>(session).get(new DbQuery(IoParameters.createDefaults()));
+            for (DatasetEntity dataset : datasets) {
+                initialize(dataset);
+            }
+        } catch (HibernateException he) {
+            throw new NoApplicableCodeException().causedBy(he).withMessage("Error while querying datasets!");
+        } finally {
+            if (session != null) {
+                sessionStore.returnSession(session);
+            }
+        }
+        for (DatasetEntity dataset : datasets) {
+            add(byOffering, dataset.getOffering(), dataset);
+            add(byProcedure, dataset.getProcedure(), dataset);
+            add(byObservableProperty, dataset.getPhenomenon(), dataset);
+            add(byFeature, dataset.getFeature(), dataset);
+        }
+        loaded = true;
+        LOGGER.debug("Loaded dataset snapshot with {} datasets", datasets.size());
+    }
+
+    /**
+     * Initializes the associations of the dataset read by the offering, procedure, observable property and feature
+     * updates.
+     */
+    private static void initialize(DatasetEntity dataset) {
+        Hibernate.initialize(dataset.getOffering());
+        Hibernate.initialize(dataset.getPhenomenon());
+        Hibernate.initialize(dataset.getObservationType());
+        ProcedureEntity procedure = dataset.getProcedure();
+        if (procedure != null) {
+            Hibernate.initialize(procedure);
+            Hibernate.initialize(procedure.getFormat());
+            Hibernate.initialize(procedure.getParents());
+        }
+        AbstractFeatureEntity feature = dataset.getFeature();
+        if (feature != null) {
+            Hibernate.initialize(feature);
+            Hibernate.initialize(feature.getFeatureType());
+        }
+    }
+
+    private static void add(Map<String, Collection<DatasetEntity>> map, DescribableEntity entity,
+            DatasetEntity dataset) {
+        if (entity != null && !Strings.isNullOrEmpty(entity.getIdentifier())) {
+            CollectionHelper.addToCollectionMap(entity.getIdentifier(), dataset, map);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public Collection<DatasetEntity> getDatasets() {
+        return Collections.unmodifiableCollection(datasets);
+    }
+
+    /**
+     * @return the datasets by offering identifier, like {@link DatasourceCacheUpdateHelper#mapByOffering(Collection)}
+     */
+    public Map<String, Collection<DatasetEntity>> getDatasetsByOffering() {
+        return Collections.unmodifiableMap(byOffering);
+    }
+
+    /**
+     * @return the datasets by procedure identifier, like
+     *         {@link DatasourceCacheUpdateHelper#mapByProcedure(Collection)}
+     */
+    public Map<String, Collection<DatasetEntity>> getDatasetsByProcedure() {
+        return Collections.unmodifiableMap(byProcedure);
+    }
+
+    public Collection<DatasetEntity> getDatasetsForObservableProperty(String observableProperty) {
+        return byObservableProperty.getOrDefault(observableProperty, Collections.emptyList());
+    }
+
+    public Collection<DatasetEntity> getDatasetsForFeature(String feature) {
+        return byFeature.getOrDefault(feature, Collections.emptyList());
+    }
+
+    /**
+     * Releases the datasets once the cache update is done.
+     */
+    @Override
+    public synchronized void close() {
+        datasets = Collections.emptyList();
+        byOffering.clear();
+        byProcedure.clear();
+        byObservableProperty.clear();
+        byFeature.clear();
+        loaded = false;
+    }
+}
@@ -33,9 +33,14 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import org.joda.time.DateTime;
 import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.DescribableEntity;
 import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.beans.dataset.Dataset;
+import org.n52.shetland.ogc.gml.ReferenceType;
 import org.n52.shetland.util.CollectionHelper;
+import org.n52.sos.cache.DataAvailabilityIndex;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
@@ -186,4 +191,29 @@ public class DatasourceCacheUpdateHelper {
         }
         return map;
     }
+
+    /**
+     * Create the {@link DataAvailabilityIndex} entry of a dataset.
+     *
+     * @param dataset
+     *            the dataset
+     * @return the entry
+     */
+    public static DataAvailabilityIndex.Entry createDataAvailabilityIndexEntry(Dataset dataset) {
+        return new DataAvailabilityIndex.Entry(createReference(dataset.getProcedure()),
+                createReference(dataset.getPhenomenon()), createReference(dataset.getFeature()),
+                createReference(dataset.getOffering()),
+                dataset.getProcedure().getFormat() != null ? dataset.getProcedure().getFormat().getFormat() : null,
+                dataset.getFirstValueAt() != null ? new DateTime(dataset.getFirstValueAt()) : null,
+                dataset.getLastValueAt() != null ? new DateTime(dataset.getLastValueAt()) : null,
+                dataset.getObservationCount());
+    }
+
+    private static ReferenceType createReference(DescribableEntity entity) {
+        ReferenceType referenceType = new ReferenceType(entity.getIdentifier());
+        if (entity.getName() != null && !entity.getName().isEmpty()) {
+            referenceType.setTitle(entity.getName());
+        }
+        return referenceType;
+    }
 }
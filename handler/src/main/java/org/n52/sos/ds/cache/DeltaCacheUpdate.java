@@ -0,0 +1,363 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.n52.iceland.i18n.I18NDAORepository;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.DescribableEntity;
+import org.n52.series.db.beans.FeatureEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.beans.dataset.NotInitializedDataset;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.sos.cache.DataAvailabilityIndex;
+import org.n52.sos.ds.cache.base.OfferingCacheUpdateTask;
+import org.n52.sos.ds.cache.base.ProcedureCacheUpdateTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Partial cache update that reloads only the offerings, procedures, observable properties and features of the
+ * datasets that were created or whose first or last value time changed since a {@link CacheUpdateWatermark}.
+ * Observations inserted between the first and last value of a dataset do not change the cache. The relations of
+ * the affected entities are rebuilt from all of their datasets, the global time extrema are extended by the time
+ * extrema of the affected offerings.
+ * <p>
+ * Removals are not detected, they are applied by the transactional cache updates or the next complete update.
+ *
+ * @since 5.0.2
+ */
+public class DeltaCacheUpdate extends AbstractDatasourceCacheUpdate {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeltaCacheUpdate.class);
+    private static final String ID = "." + DatasetEntity.PROPERTY_ID;
+    private static final int MAX_IDS_PER_QUERY = 1000;
+    private final Locale defaultLanguage;
+    private final I18NDAORepository i18NDAORepository;
+    private final CacheUpdateWatermark since;
+    private final CacheUpdateWatermark watermark;
+    private int datasetCount;
+    private List<DataAvailabilityIndex.Entry> dataAvailabilityEntries = Collections.emptyList();
+    private Set<String> offerings = Collections.emptySet();
+    private Set<String> procedures = Collections.emptySet();
+    private Set<String> observableProperties = Collections.emptySet();
+    private Set<String> features = Collections.emptySet();
+
+    /**
+     * @param defaultLanguage
+     *            the default language
+     * @param i18NDAORepository
+     *            the repository of the i18n DAOs
+     * @param since
+     *            the watermark of the last update
+     * @param current
+     *            the current watermark of the datasource, queried before the update
+     */
+    public DeltaCacheUpdate(Locale defaultLanguage, I18NDAORepository i18NDAORepository,
+            CacheUpdateWatermark since, CacheUpdateWatermark current) {
+        this.defaultLanguage = defaultLanguage;
+        this.i18NDAORepository = i18NDAORepository;
+        this.since = since;
+        this.watermark = current;
+    }
+
+    /**
+     * Query the current watermark of the datasource.
+     *
+     * @param session
+     *            the session to use
+     * @return the watermark
+     */
+    @SuppressWarnings("unchecked")
+    public static CacheUpdateWatermark queryWatermark(Session session) {
+        List<Object[]> states = session.createCriteria(DatasetEntity.class)
+                .add(Restrictions.eq(DatasetEntity.PROPERTY_DELETED, false))
+                .setProjection(Projections.projectionList()
+                        .add(Projections.property(DatasetEntity.PROPERTY_ID))
+                        .add(Projections.property(DatasetEntity.PROPERTY_FIRST_VALUE_AT))
+                        .add(Projections.property(DatasetEntity.PROPERTY_LAST_VALUE_AT)))
+                .list();
+        CacheUpdateWatermark.Builder builder = CacheUpdateWatermark.builder();
+        for (Object[] state : states) {
+            builder.add(((Number) state[0]).longValue(), (Date) state[1], (Date) state[2]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Query the datasets that were created or whose value times changed since the watermark.
+     *
+     * @param session
+     *            the session to use
+     * @param since
+     *            the watermark of the last update
+     * @param current
+     *            the current watermark of the datasource
+     * @return the changed datasets
+     */
+    @SuppressWarnings("unchecked")
+    static List<DatasetEntity> queryChangedDatasets(Session session, CacheUpdateWatermark since,
+            CacheUpdateWatermark current) {
+        List<DatasetEntity> changed = new LinkedList<>();
+        for (List<Long> ids : Lists.partition(new ArrayList<>(current.getChangedDatasets(since)),
+                MAX_IDS_PER_QUERY)) {
+            changed.addAll(session.createCriteria(DatasetEntity.class)
+                    .add(Restrictions.eq(DatasetEntity.PROPERTY_DELETED, false))
+                    .add(Restrictions.in(DatasetEntity.PROPERTY_ID, ids))
+                    .list());
+        }
+        return changed;
+    }
+
+    @Override
+    public void execute() {
+        LOGGER.debug("Executing DeltaCacheUpdate since {}", since);
+        startStopwatch();
+        try {
+            // the watermark was queried first, datasets changing while they are loaded are loaded again by the next
+            // update
+            List<DatasetEntity> changed = queryChangedDatasets(getSession(), since, watermark);
+            this.datasetCount = changed.size();
+            if (!changed.isEmpty()) {
+                Map<String, OfferingEntity> offeringEntities = new HashMap<>();
+                Map<String, ProcedureEntity> procedureEntities = new HashMap<>();
+                Map<String, PhenomenonEntity> phenomenonEntities = new HashMap<>();
+                Map<String, FeatureEntity> featureEntities = new HashMap<>();
+                for (DatasetEntity dataset : changed) {
+                    add(offeringEntities, dataset.getOffering());
+                    add(procedureEntities, dataset.getProcedure());
+                    add(phenomenonEntities, dataset.getPhenomenon());
+                    if (dataset.getFeature() instanceof FeatureEntity) {
+                        add(featureEntities, (FeatureEntity) dataset.getFeature());
+                    }
+                }
+                this.offerings = new HashSet<>(offeringEntities.keySet());
+                this.procedures = new HashSet<>(procedureEntities.keySet());
+                this.observableProperties = new HashSet<>(phenomenonEntities.keySet());
+                this.features = new HashSet<>(featureEntities.keySet());
+                this.dataAvailabilityEntries = changed.stream()
+                        .filter(d -> d.getProcedure() != null && d.getPhenomenon() != null && d.getFeature() != null
+                                && d.getOffering() != null)
+                        .map(DatasourceCacheUpdateHelper::createDataAvailabilityIndexEntry)
+                        .collect(Collectors.toList());
+
+                List<DatasetEntity> related = getRelatedDatasets(offeringEntities.values(),
+                        procedureEntities.values(), phenomenonEntities.values(), featureEntities.values());
+                updateOfferings(offeringEntities.values(), related);
+                updateProcedures(procedureEntities.values(), related);
+                updateObservableProperties(phenomenonEntities.values(), related);
+                updateFeatures(featureEntities.values(), related);
+                updateTimeExtrema(offeringEntities.values());
+            }
+        } catch (HibernateException he) {
+            getErrors().add(new NoApplicableCodeException().causedBy(he)
+                    .withMessage("Error while executing delta cache update!"));
+        }
+        LOGGER.debug("Finished executing DeltaCacheUpdate ({})", getStopwatchResult());
+    }
+
+    private List<DatasetEntity> getRelatedDatasets(Collection<OfferingEntity> offeringEntities,
+            Collection<ProcedureEntity> procedureEntities, Collection<PhenomenonEntity> phenomenonEntities,
+            Collection<FeatureEntity> featureEntities) {
+        Map<Long, DatasetEntity> related = new LinkedHashMap<>();
+        addRelatedDatasets(related, DatasetEntity.PROPERTY_OFFERING, offeringEntities);
+        addRelatedDatasets(related, DatasetEntity.PROPERTY_PROCEDURE, procedureEntities);
+        addRelatedDatasets(related, DatasetEntity.PROPERTY_PHENOMENON, phenomenonEntities);
+        addRelatedDatasets(related, DatasetEntity.PROPERTY_FEATURE, featureEntities);
+        return new ArrayList<>(related.values());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addRelatedDatasets(Map<Long, DatasetEntity> related, String property,
+            Collection<? extends DescribableEntity> entities) {
+        List<Long> ids = entities.stream().map(DescribableEntity::getId).distinct().collect(Collectors.toList());
+        for (List<Long> partition : Lists.partition(ids, MAX_IDS_PER_QUERY)) {
+            for (DatasetEntity dataset : (List<DatasetEntity>) getSession().createCriteria(DatasetEntity.class)
+                    .add(Restrictions.eq(DatasetEntity.PROPERTY_DELETED, false))
+                    .add(Restrictions.in(property + ID, partition))
+                    .list()) {
+                related.putIfAbsent(dataset.getId(), dataset);
+            }
+        }
+    }
+
+    private void updateOfferings(Collection<OfferingEntity> offeringEntities, List<DatasetEntity> related) {
+        Map<String, Collection<DatasetEntity>> byOffering = DatasourceCacheUpdateHelper.mapByOffering(related);
+        for (OfferingEntity offering : offeringEntities) {
+            execute(new OfferingCacheUpdateTask(offering, byOffering.get(offering.getIdentifier()),
+                    defaultLanguage, i18NDAORepository));
+        }
+    }
+
+    private void updateProcedures(Collection<ProcedureEntity> procedureEntities, List<DatasetEntity> related) {
+        Map<String, Collection<DatasetEntity>> byProcedure = DatasourceCacheUpdateHelper.mapByProcedure(related);
+        for (ProcedureEntity procedure : procedureEntities) {
+            execute(new ProcedureCacheUpdateTask(procedure, byProcedure.get(procedure.getIdentifier())));
+        }
+    }
+
+    private void updateObservableProperties(Collection<PhenomenonEntity> phenomenonEntities,
+            List<DatasetEntity> related) {
+        for (PhenomenonEntity observableProperty : phenomenonEntities) {
+            String identifier = observableProperty.getIdentifier();
+            List<DatasetEntity> datasets = related.stream()
+                    .filter(d -> d.getPhenomenon() != null && identifier.equals(d.getPhenomenon().getIdentifier()))
+                    .collect(Collectors.toList());
+            if (observableProperty.isSetName()) {
+                getCache().addObservablePropertyIdentifierHumanReadableName(identifier, observableProperty.getName());
+            }
+            if (isPublished(datasets)) {
+                getCache().addPublishedObservableProperty(identifier);
+            }
+            getCache().setOfferingsForObservableProperty(identifier,
+                    DatasourceCacheUpdateHelper.getAllOfferingIdentifiersFromDatasets(datasets));
+            getCache().setProceduresForObservableProperty(identifier,
+                    DatasourceCacheUpdateHelper.getAllProcedureIdentifiersFromDatasets(datasets));
+        }
+    }
+
+    private void updateFeatures(Collection<FeatureEntity> featureEntities, List<DatasetEntity> related) {
+        for (FeatureEntity feature : featureEntities) {
+            String identifier = feature.getIdentifier();
+            List<DatasetEntity> datasets = related.stream()
+                    .filter(d -> d.getFeature() != null && identifier.equals(d.getFeature().getIdentifier()))
+                    .collect(Collectors.toList());
+            getCache().addFeatureOfInterest(identifier);
+            if (feature.isSetName()) {
+                getCache().addFeatureOfInterestIdentifierHumanReadableName(identifier, feature.getName());
+            }
+            if (isPublished(datasets)) {
+                getCache().addPublishedFeatureOfInterest(identifier);
+            }
+            getCache().setProceduresForFeatureOfInterest(identifier,
+                    DatasourceCacheUpdateHelper.getAllProcedureIdentifiersFromDatasets(datasets));
+            if (feature.hasParents()) {
+                getCache().addParentFeatures(identifier, getParents(feature));
+            }
+        }
+    }
+
+    private void updateTimeExtrema(Collection<OfferingEntity> offeringEntities) {
+        TimePeriod phenomenonTime = new TimePeriod(getCache().getMinPhenomenonTime(),
+                getCache().getMaxPhenomenonTime());
+        TimePeriod resultTime = new TimePeriod(getCache().getMinResultTime(), getCache().getMaxResultTime());
+        for (OfferingEntity offering : offeringEntities) {
+            phenomenonTime.extendToContain(
+                    new TimePeriod(offering.getPhenomenonTimeStart(), offering.getPhenomenonTimeEnd()));
+            resultTime.extendToContain(new TimePeriod(offering.getResultTimeStart(), offering.getResultTimeEnd()));
+        }
+        getCache().setMinPhenomenonTime(phenomenonTime.getStart());
+        getCache().setMaxPhenomenonTime(phenomenonTime.getEnd());
+        getCache().setMinResultTime(resultTime.getStart());
+        getCache().setMaxResultTime(resultTime.getEnd());
+    }
+
+    private void execute(AbstractDatasourceCacheUpdate task) {
+        task.setCache(getCache());
+        task.setErrors(getErrors());
+        task.setSession(getSession());
+        task.execute();
+    }
+
+    private boolean isPublished(Collection<DatasetEntity> datasets) {
+        return datasets.stream().anyMatch(d -> d.isPublished() || d instanceof NotInitializedDataset);
+    }
+
+    private Collection<String> getParents(FeatureEntity feature) {
+        Set<String> parents = Sets.newTreeSet();
+        for (FeatureEntity parent : feature.getParents()) {
+            parents.add(parent.getIdentifier());
+            parents.addAll(getParents(parent));
+        }
+        return parents;
+    }
+
+    private static <T extends DescribableEntity> void add(Map<String, T> map, T entity) {
+        if (entity != null && !Strings.isNullOrEmpty(entity.getIdentifier())) {
+            map.putIfAbsent(entity.getIdentifier(), entity);
+        }
+    }
+
+    /**
+     * @return the watermark including the datasets of this update
+     */
+    public CacheUpdateWatermark getWatermark() {
+        return watermark;
+    }
+
+    public int getDatasetCount() {
+        return datasetCount;
+    }
+
+    /**
+     * @return the {@link DataAvailabilityIndex} entries of the changed datasets
+     */
+    public List<DataAvailabilityIndex.Entry> getDataAvailabilityEntries() {
+        return Collections.unmodifiableList(dataAvailabilityEntries);
+    }
+
+    public Set<String> getOfferings() {
+        return Collections.unmodifiableSet(offerings);
+    }
+
+    public Set<String> getProcedures() {
+        return Collections.unmodifiableSet(procedures);
+    }
+
+    public Set<String> getObservableProperties() {
+        return Collections.unmodifiableSet(observableProperties);
+    }
+
+    public Set<String> getFeatures() {
+        return Collections.unmodifiableSet(features);
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import org.n52.faroe.ConfigurationError;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.cache.ContentCacheController;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.cache.DataAvailabilityIndex;
+import org.n52.sos.cache.FeatureSpatialIndex;
+import org.n52.sos.cache.SosContentCacheUpdate;
+import org.n52.sos.ds.SosCacheFeederHandler;
+import org.n52.sos.service.SosSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Periodically applies {@link DeltaCacheUpdate}s as partial updates through the {@link ContentCacheController}.
+ * The first run starts at the {@link CacheUpdateWatermark} of the last complete cache update. If the cache was not
+ * built by a complete update, e.g. it was loaded from a file, the first run only records the watermark of the
+ * datasource. Runs skip the update if the watermark did not change. The number of entities touched by each delta is logged and summed up.
+ *
+ * @since 5.0.2
+ */
+@Configurable
+public class DeltaCacheUpdateScheduler implements Constructable, Destroyable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeltaCacheUpdateScheduler.class);
+
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(new GroupedAndNamedThreadFactory("52n-cache-delta-update"));
+    private final AtomicLong updateCount = new AtomicLong(0);
+    private final AtomicLong datasetCount = new AtomicLong(0);
+    private final AtomicLong offeringCount = new AtomicLong(0);
+    private final AtomicLong procedureCount = new AtomicLong(0);
+    private final AtomicLong observablePropertyCount = new AtomicLong(0);
+    private final AtomicLong featureCount = new AtomicLong(0);
+    private ContentCacheController contentCacheController;
+    private SosCacheFeederHandler cacheFeederHandler;
+    private FeatureSpatialIndex featureSpatialIndex;
+    private DataAvailabilityIndex dataAvailabilityIndex;
+    private ScheduledFuture<?> task;
+    private int interval;
+    private boolean initialized;
+    private volatile CacheUpdateWatermark watermark;
+    private volatile DeltaCacheUpdate lastUpdate;
+
+    @Inject
+    public void setContentCacheController(ContentCacheController contentCacheController) {
+        this.contentCacheController = contentCacheController;
+    }
+
+    @Inject
+    public void setCacheFeederHandler(SosCacheFeederHandler cacheFeederHandler) {
+        this.cacheFeederHandler = cacheFeederHandler;
+    }
+
+    @Inject
+    public void setFeatureSpatialIndex(FeatureSpatialIndex featureSpatialIndex) {
+        this.featureSpatialIndex = featureSpatialIndex;
+    }
+
+    @Inject
+    public void setDataAvailabilityIndex(DataAvailabilityIndex dataAvailabilityIndex) {
+        this.dataAvailabilityIndex = dataAvailabilityIndex;
+    }
+
+    /**
+     * @param interval
+     *            the interval in seconds, {@code 0} disables delta updates
+     */
+    @Setting(SosSettings.CACHE_DELTA_UPDATE_INTERVAL)
+    public synchronized void setInterval(int interval) throws ConfigurationError {
+        if (interval < 0) {
+            throw new ConfigurationError("Content cache delta update interval may not be negative");
+        }
+        if (this.interval != interval) {
+            this.interval = interval;
+            if (initialized) {
+                reschedule();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void init() {
+        this.initialized = true;
+        reschedule();
+    }
+
+    @Override
+    public synchronized void destroy() {
+        this.initialized = false;
+        this.executor.shutdownNow();
+    }
+
+    private void reschedule() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        if (interval > 0) {
+            LOGGER.info("Scheduling content cache delta updates every {} seconds", interval);
+            task = executor.scheduleWithFixedDelay(this::run, 0, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    @VisibleForTesting
+    void run() {
+        try {
+            CacheUpdateWatermark current = cacheFeederHandler.getCacheUpdateWatermark();
+            if (watermark == null) {
+                watermark = cacheFeederHandler.getCompleteUpdateWatermark();
+                if (watermark == null) {
+                    LOGGER.debug("Starting content cache delta updates at {}", current);
+                    watermark = current;
+                } else {
+                    LOGGER.debug("Starting content cache delta updates at the last complete update {}", watermark);
+                }
+            }
+            if (!current.equals(watermark)) {
+                DeltaUpdate update = new DeltaUpdate(watermark, current);
+                contentCacheController.update(update);
+                record(update.getResult());
+            }
+        } catch (OwsExceptionReport e) {
+            LOGGER.warn("Error while executing content cache delta update", e);
+        } catch (RuntimeException e) {
+            // keep the schedule alive
+            LOGGER.error("Unexpected error while executing content cache delta update", e);
+        }
+    }
+
+    private void record(DeltaCacheUpdate update) {
+        if (update == null) {
+            return;
+        }
+        watermark = update.getWatermark();
+        lastUpdate = update;
+        updateCount.incrementAndGet();
+        datasetCount.addAndGet(update.getDatasetCount());
+        offeringCount.addAndGet(update.getOfferings().size());
+        procedureCount.addAndGet(update.getProcedures().size());
+        observablePropertyCount.addAndGet(update.getObservableProperties().size());
+        featureCount.addAndGet(update.getFeatures().size());
+        if (featureSpatialIndex != null) {
+            featureSpatialIndex.invalidate(update.getFeatures());
+        }
+        if (dataAvailabilityIndex != null) {
+            // the first/last values of the touched datasets may have been modified externally
+            dataAvailabilityIndex.refresh(update.getDataAvailabilityEntries());
+        }
+        LOGGER.info("Content cache delta update touched {} datasets, {} offerings, {} procedures, "
+                + "{} observable properties and {} features", update.getDatasetCount(), update.getOfferings().size(),
+                update.getProcedures().size(), update.getObservableProperties().size(), update.getFeatures().size());
+    }
+
+    /**
+     * @return the watermark of the last delta update, {@code null} if none has run yet
+     */
+    public CacheUpdateWatermark getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * @return the last applied delta update, {@code null} if none was applied yet
+     */
+    public DeltaCacheUpdate getLastUpdate() {
+        return lastUpdate;
+    }
+
+    public long getUpdateCount() {
+        return updateCount.get();
+    }
+
+    public long getDatasetCount() {
+        return datasetCount.get();
+    }
+
+    public long getOfferingCount() {
+        return offeringCount.get();
+    }
+
+    public long getProcedureCount() {
+        return procedureCount.get();
+    }
+
+    public long getObservablePropertyCount() {
+        return observablePropertyCount.get();
+    }
+
+    public long getFeatureCount() {
+        return featureCount.get();
+    }
+
+    /**
+     * Partial cache update executing the {@link DeltaCacheUpdate}. It may be executed again if a complete update
+     * is running, the result of the last execution is kept.
+     */
+    private class DeltaUpdate extends SosContentCacheUpdate {
+        private final CacheUpdateWatermark since;
+        private final CacheUpdateWatermark current;
+        private DeltaCacheUpdate result;
+
+        DeltaUpdate(CacheUpdateWatermark since, CacheUpdateWatermark current) {
+            this.since = since;
+            this.current = current;
+        }
+
+        @Override
+        public void execute() {
+            try {
+                this.result = cacheFeederHandler.updateCacheDelta(getCache(), since, current);
+            } catch (OwsExceptionReport e) {
+                fail(e);
+            }
+        }
+
+        DeltaCacheUpdate getResult() {
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("DeltaUpdate[since=%s]", since);
+        }
+    }
+}
@@ -47,6 +47,7 @@ import org.n52.sos.ds.cache.base.ResultTemplateCacheUpdate;
  * Fills the initial cache.
  * <p/>
  *
+ * @see DatasetSnapshotCacheUpdate
  * @see CompositePhenomenonCacheUpdate
  * @see ObservationTimeCacheUpdate
  * @see FeatureOfInterestCacheUpdate
@@ -62,17 +63,30 @@ import org.n52.sos.ds.cache.base.ResultTemplateCacheUpdate;
  */
 public class InitialCacheUpdate extends CompositeCacheUpdate {
 
+    private final DatasetSnapshot datasetSnapshot;
+
     public InitialCacheUpdate(int threadCount,
                               Locale defaultLocale,
                               I18NDAORepository i18NDAORepository,
                               HibernateSessionStore sessionStore,
                               OwsServiceMetadataRepository serviceMetadataRepository) {
-        //execute all updates except offerings and procedures in parallel, then execute offering and procedure updates
-        //(which spawn their own threads)
-        super(new ParallelCacheUpdate(threadCount,
+        this(threadCount, defaultLocale, i18NDAORepository, sessionStore, serviceMetadataRepository,
+             new DatasetSnapshot(sessionStore));
+    }
+
+    private InitialCacheUpdate(int threadCount,
+                               Locale defaultLocale,
+                               I18NDAORepository i18NDAORepository,
+                               HibernateSessionStore sessionStore,
+                               OwsServiceMetadataRepository serviceMetadataRepository,
+                               DatasetSnapshot datasetSnapshot) {
+        //scan the datasets once for all updates, then execute all updates except offerings and procedures in
+        //parallel, then execute offering and procedure updates (which spawn their own threads)
+        super(new DatasetSnapshotCacheUpdate(datasetSnapshot),
+              new ParallelCacheUpdate(threadCount,
                                       sessionStore,
-                                      new ObservablePropertiesCacheUpdate(),
-                                      new FeatureOfInterestCacheUpdate(),
+                                      new ObservablePropertiesCacheUpdate(datasetSnapshot),
+                                      new FeatureOfInterestCacheUpdate(datasetSnapshot),
                                       new RelatedFeaturesCacheUpdate(),
                                       new ObservationTimeCacheUpdate(),
                                       new ResultTemplateCacheUpdate()),
@@ -81,8 +95,20 @@ public class InitialCacheUpdate extends CompositeCacheUpdate {
               new OfferingCacheUpdate(threadCount,
                                       defaultLocale,
                                       i18NDAORepository,
-                                      sessionStore),
-              new ProcedureCacheUpdate(threadCount, sessionStore));
+                                      sessionStore,
+                                      null,
+                                      datasetSnapshot),
+              new ProcedureCacheUpdate(threadCount, sessionStore, datasetSnapshot));
+        this.datasetSnapshot = datasetSnapshot;
+    }
+
+    @Override
+    public void execute() {
+        try {
+            super.execute();
+        } finally {
+            datasetSnapshot.close();
+        }
     }
 
 }
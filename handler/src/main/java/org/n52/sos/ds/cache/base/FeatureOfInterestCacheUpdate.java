@@ -43,6 +43,7 @@ import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.FeatureDao;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.sos.ds.cache.AbstractThreadableDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.DatasetSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,6 +58,15 @@ import com.google.common.collect.Sets;
  */
 public class FeatureOfInterestCacheUpdate extends AbstractThreadableDatasourceCacheUpdate {
     private static final Logger LOGGER = LoggerFactory.getLogger(FeatureOfInterestCacheUpdate.class);
+    private final DatasetSnapshot datasetSnapshot;
+
+    public FeatureOfInterestCacheUpdate() {
+        this(null);
+    }
+
+    public FeatureOfInterestCacheUpdate(DatasetSnapshot datasetSnapshot) {
+        this.datasetSnapshot = datasetSnapshot;
+    }
 
     @Override
     public void execute() {
@@ -67,7 +77,9 @@ public class FeatureOfInterestCacheUpdate extends AbstractThreadableDatasourceCa
             for (FeatureEntity featureEntity : features) {
                 String identifier = featureEntity.getIdentifier();
                 getCache().addFeatureOfInterest(identifier);
-                Collection<DatasetEntity> datasets = new DatasetDao<>(getSession()).get(createDatasetDbQuery(featureEntity));
+                Collection<DatasetEntity> datasets = datasetSnapshot != null && datasetSnapshot.isLoaded()
+                        ? datasetSnapshot.getDatasetsForFeature(identifier)
+                        : new DatasetDao<>(getSession()).get(createDatasetDbQuery(featureEntity));
                 if (datasets != null && !datasets.isEmpty()) {
                     if (datasets.stream().anyMatch(d -> d.isPublished() || d instanceof NotInitializedDataset)) {
                         getCache().addPublishedFeatureOfInterest(identifier);
@@ -42,6 +42,7 @@ import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.PhenomenonDao;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.sos.ds.cache.AbstractThreadableDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.DatasetSnapshot;
 import org.n52.sos.ds.cache.DatasourceCacheUpdateHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +55,15 @@ import org.slf4j.LoggerFactory;
  */
 public class ObservablePropertiesCacheUpdate extends AbstractThreadableDatasourceCacheUpdate {
     private static final Logger LOGGER = LoggerFactory.getLogger(ObservablePropertiesCacheUpdate.class);
+    private final DatasetSnapshot datasetSnapshot;
+
+    public ObservablePropertiesCacheUpdate() {
+        this(null);
+    }
+
+    public ObservablePropertiesCacheUpdate(DatasetSnapshot datasetSnapshot) {
+        this.datasetSnapshot = datasetSnapshot;
+    }
 
     @Override
     public void execute() {
@@ -63,8 +73,10 @@ public class ObservablePropertiesCacheUpdate extends AbstractThreadableDatasourc
             Collection<PhenomenonEntity> observableProperties =
                     new PhenomenonDao(getSession()).get(new DbQuery(IoParameters.createDefaults()));
             for (PhenomenonEntity observableProperty : observableProperties) {
-                Collection<DatasetEntity> datasets = new DatasetDao<>(getSession()).get(createDatasetDbQuery(observableProperty));
                 String identifier = observableProperty.getIdentifier();
+                Collection<DatasetEntity> datasets = datasetSnapshot != null && datasetSnapshot.isLoaded()
+                        ? datasetSnapshot.getDatasetsForObservableProperty(identifier)
+                        : new DatasetDao<>(getSession()).get(createDatasetDbQuery(observableProperty));
 
                 if (observableProperty.isSetName()) {
                     getCache().addObservablePropertyIdentifierHumanReadableName(identifier,
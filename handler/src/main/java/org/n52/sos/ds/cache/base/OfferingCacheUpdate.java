@@ -46,6 +46,7 @@ import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.ds.ApiQueryHelper;
 import org.n52.sos.ds.cache.AbstractQueueingDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.DatasetSnapshot;
 import org.n52.sos.ds.cache.DatasourceCacheUpdateHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,13 +69,19 @@ public class OfferingCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<O
     private Map<String,Collection<DatasetEntity>> offDatasetMap;
     private final Locale defaultLanguage;
     private final I18NDAORepository i18NDAORepository;
+    private final DatasetSnapshot datasetSnapshot;
 
     public OfferingCacheUpdate(int threads, Locale defaultLanguage, I18NDAORepository i18NDAORepository, HibernateSessionStore sessionStore) {
         this(threads, defaultLanguage, i18NDAORepository, sessionStore, null);
     }
 
     public OfferingCacheUpdate(int threads, Locale defaultLanguage, I18NDAORepository i18NDAORepository, HibernateSessionStore sessionStore, Collection<String> offeringIdsToUpdate) {
+        this(threads, defaultLanguage, i18NDAORepository, sessionStore, offeringIdsToUpdate, null);
+    }
+
+    public OfferingCacheUpdate(int threads, Locale defaultLanguage, I18NDAORepository i18NDAORepository, HibernateSessionStore sessionStore, Collection<String> offeringIdsToUpdate, DatasetSnapshot datasetSnapshot) {
         super(threads, THREAD_GROUP_NAME, sessionStore);
+        this.datasetSnapshot = datasetSnapshot;
         if (offeringIdsToUpdate != null) {
             this.offeringsIdToUpdate.addAll(offeringIdsToUpdate);
         }
@@ -109,6 +116,9 @@ public class OfferingCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<O
 
     @SuppressWarnings("unchecked")
     private Map<String,Collection<DatasetEntity>> getOfferingDatasets() throws OwsExceptionReport {
+        if (offDatasetMap == null && datasetSnapshot != null && datasetSnapshot.isLoaded()) {
+            offDatasetMap = datasetSnapshot.getDatasetsByOffering();
+        }
         if (offDatasetMap == null) {
             try {
                 offDatasetMap = DatasourceCacheUpdateHelper.mapByOffering(
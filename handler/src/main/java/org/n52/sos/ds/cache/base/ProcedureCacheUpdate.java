@@ -46,6 +46,7 @@ import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.ds.cache.AbstractQueueingDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.DatasetSnapshot;
 import org.n52.sos.ds.cache.DatasourceCacheUpdateHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,20 +65,33 @@ public class ProcedureCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<
     private static final String THREAD_GROUP_NAME = "procedure-cache-update";
     private Collection<ProcedureEntity> procedures = new ArrayList<>();
     private Map<String,Collection<DatasetEntity>> procedureDatasetMap = new HashMap<>();
+    private final DatasetSnapshot datasetSnapshot;
 
     /**
      * constructor
      * @param threads Thread count
      */
     public ProcedureCacheUpdate(int threads, HibernateSessionStore sessionStore) {
+        this(threads, sessionStore, null);
+    }
+
+    /**
+     * constructor
+     * @param threads Thread count
+     * @param datasetSnapshot the datasets shared with the other cache updates, may be {@code null}
+     */
+    public ProcedureCacheUpdate(int threads, HibernateSessionStore sessionStore, DatasetSnapshot datasetSnapshot) {
         super(threads, THREAD_GROUP_NAME, sessionStore);
+        this.datasetSnapshot = datasetSnapshot;
     }
 
     @SuppressWarnings("unchecked")
     private Map<String,Collection<DatasetEntity>> getProcedureDatasets() throws OwsExceptionReport {
         if (procedureDatasetMap.isEmpty()) {
-            Map<String, Collection<DatasetEntity>> map = DatasourceCacheUpdateHelper.mapByProcedure(
-                    new DatasetDao(getSession()).get(new DbQuery(IoParameters.createDefaults())));
+            Map<String, Collection<DatasetEntity>> map = datasetSnapshot != null && datasetSnapshot.isLoaded()
+                    ? datasetSnapshot.getDatasetsByProcedure()
+                    : DatasourceCacheUpdateHelper.mapByProcedure(
+                            new DatasetDao(getSession()).get(new DbQuery(IoParameters.createDefaults())));
             if (map != null) {
                 procedureDatasetMap.putAll(map);
             }
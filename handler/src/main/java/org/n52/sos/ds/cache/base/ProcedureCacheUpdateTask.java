@@ -54,7 +54,7 @@ import com.google.common.collect.Sets;
  * @since 4.0.0
  *
  */
-class ProcedureCacheUpdateTask extends AbstractThreadableDatasourceCacheUpdate {
+public class ProcedureCacheUpdateTask extends AbstractThreadableDatasourceCacheUpdate {
     @SuppressWarnings("unused")
     private static final Logger LOGGER = LoggerFactory.getLogger(ProcedureCacheUpdateTask.class);
     private ProcedureEntity procedure;
@@ -67,7 +67,7 @@ class ProcedureCacheUpdateTask extends AbstractThreadableDatasourceCacheUpdate {
      * @param identifier
      *            Procedure identifier
      */
-    ProcedureCacheUpdateTask(ProcedureEntity procedure, Collection<DatasetEntity> datasets) {
+    public ProcedureCacheUpdateTask(ProcedureEntity procedure, Collection<DatasetEntity> datasets) {
         this.procedure = procedure;
         this.datasets.clear();
         if (datasets != null) {
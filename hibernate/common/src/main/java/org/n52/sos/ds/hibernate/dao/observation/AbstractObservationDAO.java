@@ -60,14 +60,19 @@ import org.n52.series.db.beans.AbstractFeatureEntity;
 import org.n52.series.db.beans.CodespaceEntity;
 import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.IdentifierNameDescriptionEntity;
 import org.n52.series.db.beans.OfferingEntity;
 import org.n52.series.db.beans.UnitEntity;
 import org.n52.series.db.beans.data.Data;
 import org.n52.series.db.beans.parameter.Parameter;
+import org.n52.shetland.ogc.OGCConstants;
 import org.n52.shetland.ogc.UoM;
 import org.n52.shetland.ogc.filter.Filter;
 import org.n52.shetland.ogc.filter.FilterConstants.TimeOperator;
 import org.n52.shetland.ogc.filter.TemporalFilter;
+import org.n52.shetland.ogc.gml.AbstractGML;
+import org.n52.shetland.ogc.gml.CodeType;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
 import org.n52.shetland.ogc.gml.time.IndeterminateValue;
 import org.n52.shetland.ogc.gml.time.Time;
 import org.n52.shetland.ogc.gml.time.TimeInstant;
@@ -92,6 +97,7 @@ import org.n52.sos.ds.hibernate.dao.AbstractIdentifierNameDescriptionDAO;
 import org.n52.sos.ds.hibernate.dao.CodespaceDAO;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.UnitDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
 import org.n52.sos.ds.hibernate.util.HibernateConstants;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.ObservationSettingProvider;
@@ -570,10 +576,42 @@ public abstract class AbstractObservationDAO
             AbstractFeatureEntity feature, OmObservation containerObservation,
                                             Map<String, CodespaceEntity> codespaceCache,
                                             Map<UoM, UnitEntity> unitCache, Session session) throws OwsExceptionReport {
+        return insertObservationMultiValue(observationConstellation, feature, containerObservation, codespaceCache,
+                unitCache, null, session);
+    }
+
+    /**
+     * Insert a multi value observation for observation constellations and
+     * featureOfInterest, optionally as part of an {@link ObservationBatch}
+     *
+     * @param observationConstellation
+     *                                  Observation constellation objects
+     * @param feature
+     *                                  FeatureOfInterest object
+     * @param containerObservation
+     *                                  SOS observation
+     * @param codespaceCache
+     *                                  Map based codespace object cache to prevent redundant queries
+     * @param unitCache
+     *                                  Map based unit object cache to prevent redundant queries
+     * @param batch
+     *                                  Batch the observations are added to (possibly null)
+     * @param session
+     *                                  Hibernate session
+     * @return
+     *
+     * @throws OwsExceptionReport
+     *                            If an error occurs
+     */
+    public DatasetEntity insertObservationMultiValue(DatasetEntity observationConstellation,
+            AbstractFeatureEntity feature, OmObservation containerObservation,
+                                            Map<String, CodespaceEntity> codespaceCache,
+                                            Map<UoM, UnitEntity> unitCache, ObservationBatch batch,
+                                            Session session) throws OwsExceptionReport {
         List<OmObservation> unfoldObservations = new ObservationUnfolder(containerObservation, getDaoFactory().getSweHelper()).unfold();
         for (OmObservation sosObservation : unfoldObservations) {
             DatasetEntity dataset = insertObservationSingleValue(observationConstellation, feature, sosObservation, codespaceCache, unitCache,
-                                         session);
+                                         batch, session);
             if (!dataset.equals(observationConstellation)) {
                 observationConstellation = dataset;
             }
@@ -624,12 +662,48 @@ public abstract class AbstractObservationDAO
      *
      * @throws OwsExceptionReport
      */
-    @SuppressWarnings("rawtypes")
     public DatasetEntity insertObservationSingleValue(DatasetEntity hObservationConstellation,
                                              AbstractFeatureEntity hFeature, OmObservation sosObservation,
                                              Map<String, CodespaceEntity> codespaceCache,
                                              Map<UoM, UnitEntity> unitCache, Session session)
             throws OwsExceptionReport {
+        return insertObservationSingleValue(hObservationConstellation, hFeature, sosObservation, codespaceCache,
+                unitCache, null, session);
+    }
+
+    /**
+     * Insert a single observation for observation constellations and
+     * featureOfInterest with local caching for codespaces and units. If a
+     * batch is given, the observation is neither flushed nor refreshed and the
+     * dataset first/last values are deferred to
+     * {@link ObservationBatch#updateDatasets(AbstractSeriesDAO, Session)}.
+     *
+     * @param hObservationConstellation
+     *                                   Observation constellation objects
+     * @param hFeature
+     *                                   FeatureOfInterest object
+     * @param sosObservation
+     *                                   SOS observation to insert
+     * @param codespaceCache
+     *                                   Map cache for codespace objects (to prevent redundant
+     *                                   querying)
+     * @param unitCache
+     *                                   Map cache for unit objects (to prevent redundant querying)
+     * @param batch
+     *                                   Batch the observation is added to (possibly null)
+     * @param session
+     *                                   Hibernate session
+     * @return
+     *
+     * @throws OwsExceptionReport
+     */
+    @SuppressWarnings("rawtypes")
+    public DatasetEntity insertObservationSingleValue(DatasetEntity hObservationConstellation,
+                                             AbstractFeatureEntity hFeature, OmObservation sosObservation,
+                                             Map<String, CodespaceEntity> codespaceCache,
+                                             Map<UoM, UnitEntity> unitCache, ObservationBatch batch,
+                                             Session session)
+            throws OwsExceptionReport {
         SingleObservationValue<?> value
                 = (SingleObservationValue) sosObservation.getValue();
         ObservationPersister persister = new ObservationPersister(
@@ -642,6 +716,7 @@ public abstract class AbstractObservationDAO
                 codespaceCache,
                 unitCache,
                 getOfferings(hObservationConstellation),
+                batch,
                 session
         );
         return value.getValue().accept(persister).getDataset();
@@ -662,6 +737,52 @@ public abstract class AbstractObservationDAO
         return ctx;
     }
 
+    /**
+     * Add the identifier of the {@link AbstractGML} to the entity, using the
+     * local codespace cache if it isn't null.
+     *
+     * @param abstractFeature
+     *            the SOS object
+     * @param entity
+     *            the entity
+     * @param localCache
+     *            Cache (possibly null)
+     * @param session
+     *            Hibernate session
+     */
+    public void addIdentifier(AbstractGML abstractFeature, IdentifierNameDescriptionEntity entity,
+            Map<String, CodespaceEntity> localCache, Session session) {
+        CodeWithAuthority identifier = abstractFeature.getIdentifierCodeWithAuthority();
+        String value = identifier != null && identifier.isSetValue() ? identifier.getValue() : null;
+        String codespace = identifier != null && identifier.isSetCodeSpace() ? identifier.getCodeSpace()
+                : OGCConstants.UNKNOWN;
+        entity.setIdentifier(value);
+        entity.setIdentifierCodespace(getCodespace(codespace, localCache, session));
+    }
+
+    /**
+     * Add the first name of the {@link AbstractGML} to the entity, using the
+     * local codespace cache if it isn't null.
+     *
+     * @param abstractFeature
+     *            the SOS object
+     * @param entity
+     *            the entity
+     * @param localCache
+     *            Cache (possibly null)
+     * @param session
+     *            Hibernate session
+     */
+    public void addName(AbstractGML abstractFeature, IdentifierNameDescriptionEntity entity,
+            Map<String, CodespaceEntity> localCache, Session session) {
+        CodeType name = abstractFeature.getFirstName();
+        String value = name != null && name.isSetValue() ? name.getValue() : null;
+        String codespace = name != null && name.isSetCodeSpace() ? name.getCodeSpace().toString()
+                : OGCConstants.UNKNOWN;
+        entity.setName(value);
+        entity.setNameCodespace(getCodespace(codespace, localCache, session));
+    }
+
     /**
      * If the local codespace cache isn't null, use it when retrieving
      * codespaces.
@@ -1467,6 +1588,52 @@ public abstract class AbstractObservationDAO
         return c.list().size() > 0;
     }
 
+    /**
+     * Check if an observation with the phenomenon time and result time of the
+     * observation is stored in the dataset.
+     *
+     * @param dataset
+     *            the dataset
+     * @param observation
+     *            the observation
+     * @param session
+     *            Hibernate session
+     * @return <code>true</code> if such an observation is stored,
+     *         <code>false</code> if not or if the times are indeterminate
+     */
+    public boolean isObservationContained(DatasetEntity dataset, OmObservation observation, Session session) {
+        Time phenomenonTime = observation.getPhenomenonTime();
+        Date start;
+        Date end;
+        if (phenomenonTime instanceof TimeInstant && ((TimeInstant) phenomenonTime).isSetValue()) {
+            start = ((TimeInstant) phenomenonTime).getValue().toDate();
+            end = start;
+        } else if (phenomenonTime instanceof TimePeriod && ((TimePeriod) phenomenonTime).isSetStart()
+                && ((TimePeriod) phenomenonTime).isSetEnd()) {
+            start = ((TimePeriod) phenomenonTime).getStart().toDate();
+            end = ((TimePeriod) phenomenonTime).getEnd().toDate();
+        } else {
+            return false;
+        }
+        Date resultTime;
+        if (observation.getResultTime() != null && observation.getResultTime().isSetValue()) {
+            resultTime = observation.getResultTime().getValue().toDate();
+        } else if (phenomenonTime instanceof TimeInstant) {
+            // see addResultTimeToObservation()
+            resultTime = start;
+        } else {
+            return false;
+        }
+        Criteria c = getDefaultObservationCriteria(session)
+                .add(Restrictions.eq(DataEntity.PROPERTY_DATASET, dataset))
+                .add(Restrictions.eq(DataEntity.PROPERTY_SAMPLING_TIME_START, start))
+                .add(Restrictions.eq(DataEntity.PROPERTY_SAMPLING_TIME_END, end))
+                .add(Restrictions.eq(DataEntity.PROPERTY_RESULT_TIME, resultTime))
+                .setProjection(Projections.rowCount());
+        LOGGER.debug("QUERY isObservationContained(dataset, observation): {}", HibernateHelper.getSqlString(c));
+        return (Long) c.uniqueResult() > 0;
+    }
+
     public ParameterFactory getParameterFactory() {
         return ParameterFactory.getInstance();
     }
@@ -29,11 +29,13 @@
 package org.n52.sos.ds.hibernate.dao.observation;
 
 import java.sql.Timestamp;
+import java.util.Date;
 
 import org.hibernate.Criteria;
 import org.hibernate.FetchMode;
 import org.hibernate.Session;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projection;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
@@ -211,6 +213,56 @@ public abstract class AbstractValueDAO extends TimeCreator {
         }
     }
 
+    /**
+     * Add keyset (seek) chunk information to {@link Criteria}. The values are
+     * ordered by the (not nullable) order column and the id
+     * and only values after the last queried value are selected, so that the
+     * database does not have to skip the already queried rows.
+     *
+     * @param c
+     *            {@link Criteria} to add information
+     * @param chunkSize
+     *            Chunk size
+     * @param lastValue
+     *            Last queried value, <code>null</code> for the first chunk
+     * @param request
+     * @param logArgs
+     */
+    protected void addSeekValuesToCriteria(Criteria c, int chunkSize, DataEntity<?> lastValue,
+            AbstractObservationRequest request, StringBuilder logArgs) {
+        c.addOrder(Order.asc(DataEntity.PROPERTY_ID));
+        if (lastValue != null) {
+            String orderColumn = getOrderColumn(request);
+            Date lastTime = getOrderValue(lastValue, orderColumn);
+            // (time, id) > (lastTime, lastId), the time columns are not nullable
+            c.add(Restrictions.or(Restrictions.gt(orderColumn, lastTime),
+                    Restrictions.and(Restrictions.eq(orderColumn, lastTime),
+                            Restrictions.gt(DataEntity.PROPERTY_ID, lastValue.getId()))));
+            logArgs.append(", after(" + lastTime + "," + lastValue.getId() + ")");
+        }
+        if (chunkSize > 0) {
+            c.setMaxResults(chunkSize);
+            logArgs.append(", chunk(" + chunkSize + ")");
+        }
+    }
+
+    /**
+     * Get the value of the order column of the value
+     *
+     * @param value
+     *            the value
+     * @param orderColumn
+     *            the order column, see
+     *            {@link #getOrderColumn(AbstractObservationRequest)}
+     * @return the value of the order column
+     */
+    protected Date getOrderValue(DataEntity<?> value, String orderColumn) {
+        if (DataEntity.PROPERTY_RESULT_TIME.equals(orderColumn)) {
+            return value.getResultTime();
+        }
+        return value.getSamplingTimeStart();
+    }
+
     protected String getOrderColumn(AbstractObservationRequest request) {
         if (request instanceof GetObservationRequest) {
             if (((GetObservationRequest)request).isSetTemporalFilter()) {
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.FormatEntity;
+import org.n52.sos.ds.hibernate.dao.FormatDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
+
+/**
+ * Request scoped state of a batched observation insertion. Observations
+ * persisted with a batch are neither flushed nor refreshed one by one and the
+ * first/last values of their datasets are collected here and written once per
+ * dataset by {@link #updateDatasets(AbstractSeriesDAO, Session)} before the
+ * transaction is committed. The batch additionally caches the observation type
+ * lookups of the request and optionally stages the observations with an
+ * {@link ObservationBulkLoader.BulkLoad}.
+ *
+ * @since 5.0.2
+ */
+public class ObservationBatch {
+
+    private final Map<String, FormatEntity> formats = new HashMap<>();
+
+    private final Map<Long, Extrema> datasets = new LinkedHashMap<>();
+
+    private final ObservationBulkLoader.BulkLoad bulkLoad;
+
+    public ObservationBatch() {
+        this(null);
+    }
+
+    public ObservationBatch(ObservationBulkLoader.BulkLoad bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+
+    /**
+     * Get the {@link FormatEntity} for the observation type, querying or
+     * inserting it only once per batch.
+     *
+     * @param observationType
+     *            the observation type
+     * @param dao
+     *            the format DAO
+     * @param session
+     *            Hibernate session
+     * @return the format entity
+     */
+    public FormatEntity getFormat(String observationType, FormatDAO dao, Session session) {
+        FormatEntity format = formats.get(observationType);
+        if (format == null) {
+            format = dao.getOrInsertFormatEntity(observationType, session);
+            formats.put(observationType, format);
+        }
+        return format;
+    }
+
+    /**
+     * Stage the observation with the bulk load of this batch.
+     *
+     * @param observation
+     *            the observation to stage
+     * @return <code>false</code>, if the batch has no bulk load or the
+     *         observation has to be saved via Hibernate
+     */
+    public boolean stage(DataEntity<?> observation) {
+        return bulkLoad != null && bulkLoad.add(observation);
+    }
+
+    /**
+     * Record an observation that was persisted for the dataset.
+     *
+     * @param dataset
+     *            the dataset of the observation
+     * @param observation
+     *            the persisted observation
+     */
+    public void add(DatasetEntity dataset, DataEntity<?> observation) {
+        Extrema extrema = datasets.get(dataset.getId());
+        if (extrema == null) {
+            datasets.put(dataset.getId(), new Extrema(dataset, observation));
+        } else {
+            extrema.add(observation);
+        }
+    }
+
+    /**
+     * @return the number of datasets with pending first/last value updates
+     */
+    public int size() {
+        return datasets.size();
+    }
+
+    /**
+     * Write the staged observations and the first/last values of all datasets
+     * touched by this batch and reset it. Entities that were detached by an intermediate
+     * {@link Session#clear()} are reloaded from the session.
+     *
+     * @param seriesDAO
+     *            the series DAO
+     * @param session
+     *            Hibernate session
+     */
+    public void updateDatasets(AbstractSeriesDAO seriesDAO, Session session) {
+        if (bulkLoad != null) {
+            bulkLoad.flush();
+        }
+        for (Extrema extrema : datasets.values()) {
+            seriesDAO.updateSeriesWithFirstLatestValues(attach(extrema.dataset, session),
+                    attach(extrema.first, session), attach(extrema.last, session), session);
+        }
+        datasets.clear();
+        formats.clear();
+    }
+
+    private static DatasetEntity attach(DatasetEntity dataset, Session session) {
+        return session.contains(dataset) ? dataset : session.get(DatasetEntity.class, dataset.getId());
+    }
+
+    private static DataEntity<?> attach(DataEntity<?> observation, Session session) {
+        return session.contains(observation) ? observation
+                : (DataEntity<?>) session.load(DataEntity.class, observation.getId());
+    }
+
+    private static class Extrema {
+        private final DatasetEntity dataset;
+
+        private DataEntity<?> first;
+
+        private DataEntity<?> last;
+
+        Extrema(DatasetEntity dataset, DataEntity<?> observation) {
+            this.dataset = dataset;
+            this.first = observation;
+            this.last = observation;
+        }
+
+        void add(DataEntity<?> observation) {
+            if (first.getSamplingTimeStart().after(observation.getSamplingTimeStart())) {
+                first = observation;
+            }
+            if (last.getSamplingTimeEnd().before(observation.getSamplingTimeEnd())) {
+                last = observation;
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.n52.series.db.beans.DataEntity;
+
+/**
+ * Database specific loader that writes observations in bulk instead of
+ * inserting them row by row via Hibernate. Observations are staged with an
+ * {@link ObservationBatch} and written before the first/last values of their
+ * datasets are updated.
+ *
+ * @since 5.0.2
+ */
+public interface ObservationBulkLoader {
+
+    /**
+     * Open a request scoped bulk load for the session.
+     *
+     * @param session
+     *            Hibernate session
+     * @return the bulk load or <code>null</code> if the database of the session
+     *         is not supported
+     */
+    BulkLoad open(Session session);
+
+    /**
+     * Request scoped bulk load.
+     */
+    interface BulkLoad {
+
+        /**
+         * Stage the observation. The id of a staged observation is assigned
+         * immediately, the row is written with the next {@link #flush()}.
+         *
+         * @param observation
+         *            the observation to stage
+         * @return <code>false</code>, if the observation can not be bulk loaded
+         *         and has to be saved via Hibernate
+         */
+        boolean add(DataEntity<?> observation);
+
+        /**
+         * Flush the session and write all staged observations.
+         *
+         * @throws HibernateException
+         *             if the observations could not be written
+         */
+        void flush() throws HibernateException;
+    }
+}
@@ -115,6 +115,7 @@ public class ObservationPersister implements ValueVisitor<Data<?>, OwsExceptionR
     private final boolean childObservation;
 
     private final Set<OfferingEntity> offerings;
+    private final ObservationBatch batch;
     private GeometryHandler geometryHandler;
 
     public ObservationPersister(
@@ -128,8 +129,24 @@ public class ObservationPersister implements ValueVisitor<Data<?>, OwsExceptionR
             Map<UoM, UnitEntity> unitCache,
             Set<OfferingEntity> hOfferings,
             Session session) throws OwsExceptionReport {
+        this(geometryHandler, observationDao, daoFactory, sosObservation, hDataset, hFeature, codespaceCache,
+                unitCache, hOfferings, null, session);
+    }
+
+    public ObservationPersister(
+            GeometryHandler geometryHandler,
+            AbstractObservationDAO observationDao,
+            DaoFactory daoFactory,
+            OmObservation sosObservation,
+            DatasetEntity hDataset,
+            AbstractFeatureEntity hFeature,
+            Map<String, CodespaceEntity> codespaceCache,
+            Map<UoM, UnitEntity> unitCache,
+            Set<OfferingEntity> hOfferings,
+            ObservationBatch batch,
+            Session session) throws OwsExceptionReport {
         this(geometryHandler, new DAOs(observationDao, daoFactory), new Caches(codespaceCache, unitCache),
-                sosObservation, hDataset, hFeature, null, hOfferings, session, false);
+                sosObservation, hDataset, hFeature, null, hOfferings, batch, session, false);
     }
 
     private ObservationPersister(
@@ -140,6 +157,7 @@ public class ObservationPersister implements ValueVisitor<Data<?>, OwsExceptionR
             AbstractFeatureEntity hFeature,
             Geometry samplingGeometry,
             Set<OfferingEntity> hOfferings,
+            ObservationBatch batch,
             Session session, boolean childObservation)
             throws OwsExceptionReport {
         this.geometryHandler = geometryHandler;
@@ -153,7 +171,7 @@ public class ObservationPersister implements ValueVisitor<Data<?>, OwsExceptionR
         this.observationFactory = daos.observation().getObservationFactory();
         this.childObservation = childObservation;
         this.offerings = hOfferings;
-;
+        this.batch = batch;
     }
 
 
@@ -365,13 +383,13 @@ public class ObservationPersister implements ValueVisitor<Data<?>, OwsExceptionR
             throws OwsExceptionReport {
         return new ObservationPersister(geometryHandler, daos, caches, getObservationWithLevelParameter(level),
                 getObservationConstellation(getObservableProperty(new OmObservableProperty(observableProperty))), featureOfInterest,
-                getSamplingGeometryFromLevel(level), offerings, session, true);
+                getSamplingGeometryFromLevel(level), offerings, batch, session, true);
     }
 
     private ObservationPersister createChildPersister(ProfileLevel level) throws OwsExceptionReport {
         return new ObservationPersister(geometryHandler, daos, caches, getObservationWithLevelParameter(level),
                 dataset, featureOfInterest, getSamplingGeometryFromLevel(level), offerings,
-                session, true);
+                batch, session, true);
 
     }
 
@@ -379,7 +397,7 @@ public class ObservationPersister implements ValueVisitor<Data<?>, OwsExceptionR
             throws OwsExceptionReport {
         return new ObservationPersister(geometryHandler, daos, caches, omObservation,
                 getObservationConstellation(observableProperty), featureOfInterest, samplingGeometry, offerings,
-                session, true);
+                batch, session, true);
     }
 
     private DatasetEntity getObservationConstellation(PhenomenonEntity observableProperty)
@@ -426,12 +444,12 @@ public class ObservationPersister implements ValueVisitor<Data<?>, OwsExceptionR
         observation.setDeleted(false);
 
         if (!childObservation) {
-            daos.observation().addIdentifier(omObservation, observation, session);
+            daos.observation().addIdentifier(omObservation, observation, caches.codespaces(), session);
         } else {
             observation.setChild(true);
         }
 
-        daos.observation().addName(omObservation, observation, session);
+        daos.observation().addName(omObservation, observation, caches.codespaces(), session);
         daos.observation().addDescription(omObservation, observation);
         daos.observation().addTime(omObservation, observation);
         observation.setValue(value);
@@ -457,7 +475,9 @@ public class ObservationPersister implements ValueVisitor<Data<?>, OwsExceptionR
             }
         }
 
-        observationContext.setObservationType(daos.observationType().getOrInsertFormatEntity(observationType, session));
+        observationContext.setObservationType(batch != null
+                ? batch.getFormat(observationType, daos.observationType(), session)
+                : daos.observationType().getOrInsertFormatEntity(observationType, session));
 
         if (dataset != null) {
             observationContext.setPhenomenon(dataset.getObservableProperty());
@@ -478,10 +498,18 @@ public class ObservationPersister implements ValueVisitor<Data<?>, OwsExceptionR
                     caches.units, session);
             observation.setParameters(insertParameter);
         }
-        session.saveOrUpdate(observation);
-        session.flush();
-        session.refresh(observation);
-        daos.dataset.updateSeriesWithFirstLatestValues(persitedDataset, (DataEntity<?>) observation, session);
+        // child observations are referenced by their parent and always saved via Hibernate
+        if (batch == null || childObservation || !batch.stage((DataEntity<?>) observation)) {
+            session.saveOrUpdate(observation);
+        }
+        if (batch != null) {
+            // flushed together with the batch, first/last values are written once per dataset
+            batch.add(persitedDataset, (DataEntity<?>) observation);
+        } else {
+            session.flush();
+            session.refresh(observation);
+            daos.dataset.updateSeriesWithFirstLatestValues(persitedDataset, (DataEntity<?>) observation, session);
+        }
 
         return observation;
     }
@@ -772,30 +772,43 @@ public abstract class AbstractSeriesDAO
      *            Hibernate session
      */
     public void updateSeriesWithFirstLatestValues(DatasetEntity series, DataEntity<?> hObservation, Session session) {
-        boolean minChanged = false;
-        boolean maxChanged = false;
+        updateSeriesWithFirstLatestValues(series, hObservation, hObservation, session);
+        session.flush();
+    }
+
+    /**
+     * Update series values from the earliest and the latest of a set of
+     * inserted observations. The series is not flushed, so that the update is
+     * written together with the other statements of the batch.
+     *
+     * @param series
+     *            Series object
+     * @param first
+     *            Observation with the earliest phenomenon time start
+     * @param last
+     *            Observation with the latest phenomenon time end
+     * @param session
+     *            Hibernate session
+     */
+    public void updateSeriesWithFirstLatestValues(DatasetEntity series, DataEntity<?> first, DataEntity<?> last,
+            Session session) {
         if (!series.isSetFirstValueAt() || (series.isSetFirstValueAt()
-                && series.getFirstValueAt().after(hObservation.getSamplingTimeStart()))) {
-            minChanged = true;
-            series.setFirstValueAt(hObservation.getSamplingTimeStart());
-            series.setFirstObservation(hObservation);
+                && series.getFirstValueAt().after(first.getSamplingTimeStart()))) {
+            series.setFirstValueAt(first.getSamplingTimeStart());
+            series.setFirstObservation(first);
+            if (first instanceof QuantityDataEntity) {
+                series.setFirstQuantityValue(((QuantityDataEntity) first).getValue());
+            }
         }
         if (!series.isSetLastValueAt() || (series.isSetLastValueAt()
-                && series.getLastValueAt().before(hObservation.getSamplingTimeEnd()))) {
-            maxChanged = true;
-            series.setLastValueAt(hObservation.getSamplingTimeEnd());
-            series.setLastObservation(hObservation);
-        }
-        if (hObservation instanceof QuantityDataEntity) {
-            if (minChanged) {
-                series.setFirstQuantityValue(((QuantityDataEntity) hObservation).getValue());
-            }
-            if (maxChanged) {
-                series.setLastQuantityValue(((QuantityDataEntity) hObservation).getValue());
+                && series.getLastValueAt().before(last.getSamplingTimeEnd()))) {
+            series.setLastValueAt(last.getSamplingTimeEnd());
+            series.setLastObservation(last);
+            if (last instanceof QuantityDataEntity) {
+                series.setLastQuantityValue(((QuantityDataEntity) last).getValue());
             }
         }
         session.saveOrUpdate(series);
-        session.flush();
     }
 
     /**
@@ -850,6 +863,45 @@ public abstract class AbstractSeriesDAO
         session.saveOrUpdate(series);
     }
 
+    /**
+     * Recalculate the first and last values of the {@link DatasetEntity} from
+     * its not deleted observations
+     *
+     * @param series
+     *            Series to update
+     * @param session
+     *            Hibernate session
+     */
+    public void updateSeriesFirstLatestValues(DatasetEntity series, Session session) {
+        SeriesObservationDAO seriesObservationDAO = new SeriesObservationDAO(getDaoFactory());
+        DataEntity<?> firstDataEntity = seriesObservationDAO.getFirstObservationFor(series, session);
+        DataEntity<?> latestDataEntity = seriesObservationDAO.getLastObservationFor(series, session);
+        series.setFirstObservation(firstDataEntity);
+        series.setLastObservation(latestDataEntity);
+        if (firstDataEntity != null) {
+            series.setFirstValueAt(firstDataEntity.getSamplingTimeStart());
+            if (firstDataEntity instanceof QuantityDataEntity) {
+                series.setFirstQuantityValue(((QuantityDataEntity) firstDataEntity).getValue());
+            }
+        } else {
+            series.setFirstValueAt(null);
+            series.setFirstQuantityValue(null);
+        }
+        if (latestDataEntity != null) {
+            series.setLastValueAt(latestDataEntity.getSamplingTimeEnd());
+            if (latestDataEntity instanceof QuantityDataEntity) {
+                series.setLastQuantityValue(((QuantityDataEntity) latestDataEntity).getValue());
+            }
+        } else {
+            series.setLastValueAt(null);
+            series.setLastQuantityValue(null);
+        }
+        if (!series.isSetFirstValueAt() && !series.isSetLastValueAt()) {
+            series.setUnit(null);
+        }
+        session.saveOrUpdate(series);
+    }
+
     public TimeExtrema getProcedureTimeExtrema(Session session, String procedure) {
         Criteria c = getDefaultSeriesCriteria(session);
         addProcedureToCriteria(c, procedure);
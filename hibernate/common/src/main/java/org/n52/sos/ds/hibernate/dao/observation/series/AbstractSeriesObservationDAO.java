@@ -32,10 +32,12 @@ import static org.hibernate.criterion.Restrictions.eq;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.hibernate.Criteria;
@@ -44,6 +46,7 @@ import org.hibernate.ScrollMode;
 import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
@@ -790,6 +793,122 @@ public abstract class AbstractSeriesObservationDAO extends AbstractObservationDA
         return c.list();
     }
 
+    /**
+     * Query the first/latest observations for each of the series. Instead of
+     * querying each series separately, the extrema times are taken from the
+     * first/last values of the series, the missing ones are queried grouped by
+     * series. The observations are then queried with one query per chunk of
+     * series. The result is the same as calling
+     * {@link #getSeriesObservationsFor(DatasetEntity, GetObservationRequest, IndeterminateValue, Session)}
+     * for each series.
+     *
+     * @param series
+     *            Series to get the first/latest observations for
+     * @param request
+     *            GetObservation request
+     * @param sosIndeterminateTime
+     *            Indeterminate time (first/latest)
+     * @param session
+     *            Hibernate session
+     * @return First/latest observations of the series in the order of the
+     *         series
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    public List<DataEntity<?>> getSeriesObservationsFor(Collection<DatasetEntity> series,
+            GetObservationRequest request, IndeterminateValue sosIndeterminateTime, Session session)
+            throws OwsExceptionReport {
+        List<DataEntity<?>> list = new LinkedList<>();
+        if (request.hasResultFilter()) {
+            for (DatasetEntity s : series) {
+                list.addAll(getSeriesObservationsFor(s, request, sosIndeterminateTime, session));
+            }
+            return list;
+        }
+        Map<Long, Date> extremaTimes = getIndeterminateTimeExtrema(series, request, sosIndeterminateTime, session);
+        String property = getIndeterminateTimeFilterProperty(sosIndeterminateTime);
+        Map<Long, DatasetEntity> seriesById = Maps.newLinkedHashMap();
+        for (DatasetEntity s : series) {
+            if (extremaTimes.containsKey(s.getId())) {
+                seriesById.put(s.getId(), s);
+            }
+        }
+        for (List<Long> ids : Lists.partition(Lists.newArrayList(seriesById.keySet()),
+                HibernateConstants.LIMIT_EXPRESSION_DEPTH - 1)) {
+            Map<Date, List<DatasetEntity>> seriesByTime = Maps.newHashMap();
+            for (Long id : ids) {
+                seriesByTime.computeIfAbsent(extremaTimes.get(id), t -> new LinkedList<>()).add(seriesById.get(id));
+            }
+            Disjunction disjunction = Restrictions.disjunction();
+            for (Entry<Date, List<DatasetEntity>> entry : seriesByTime.entrySet()) {
+                disjunction.add(Restrictions.and(Restrictions.eq(property, entry.getKey()),
+                        Restrictions.in(DataEntity.PROPERTY_DATASET, entry.getValue())));
+            }
+            Criteria c = getDefaultObservationCriteria(session).add(disjunction);
+            checkAndAddSpatialFilteringProfileCriterion(c, request, session);
+            LOGGER.debug("QUERY getSeriesObservationsFor(series, request, sosIndeterminateTime): {}",
+                    HibernateHelper.getSqlString(c));
+            list.addAll(c.list());
+        }
+        Map<Long, Integer> positions = Maps.newHashMap();
+        for (Long id : seriesById.keySet()) {
+            positions.put(id, positions.size());
+        }
+        list.sort(Comparator.comparingInt(o -> positions.get(o.getDataset().getId())));
+        return list;
+    }
+
+    /**
+     * Get the first/latest time of each series. Series without first/last
+     * value time are queried in one grouped query per chunk of series. Series
+     * without observations are not contained in the result.
+     *
+     * @param series
+     *            Series to get the times for
+     * @param request
+     *            GetObservation request
+     * @param sosIndeterminateTime
+     *            Indeterminate time (first/latest)
+     * @param session
+     *            Hibernate session
+     * @return Extrema time per series id
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, Date> getIndeterminateTimeExtrema(Collection<DatasetEntity> series,
+            GetObservationRequest request, IndeterminateValue sosIndeterminateTime, Session session)
+            throws OwsExceptionReport {
+        Map<Long, Date> extremaTimes = Maps.newHashMap();
+        List<DatasetEntity> missing = Lists.newArrayList();
+        for (DatasetEntity s : series) {
+            if (s.isSetFirstValueAt() && sosIndeterminateTime.equals(ExtendedIndeterminateTime.FIRST)) {
+                extremaTimes.put(s.getId(), s.getFirstValueAt());
+            } else if (s.isSetLastValueAt() && sosIndeterminateTime.equals(ExtendedIndeterminateTime.LATEST)) {
+                extremaTimes.put(s.getId(), s.getLastValueAt());
+            } else {
+                missing.add(s);
+            }
+        }
+        for (List<DatasetEntity> chunk : Lists.partition(missing, HibernateConstants.LIMIT_EXPRESSION_DEPTH - 1)) {
+            Criteria c = getDefaultObservationCriteria(session)
+                    .add(Restrictions.in(DataEntity.PROPERTY_DATASET, chunk));
+            checkAndAddSpatialFilteringProfileCriterion(c, request, session);
+            c.setProjection(Projections.projectionList()
+                    .add(Projections.groupProperty(DataEntity.PROPERTY_DATASET))
+                    .add(getIndeterminateTimeExtremaProjection(sosIndeterminateTime)));
+            c.setResultTransformer(Criteria.PROJECTION);
+            LOGGER.debug("QUERY getIndeterminateTimeExtrema(series, request, sosIndeterminateTime): {}",
+                    HibernateHelper.getSqlString(c));
+            for (Object[] result : (List<Object[]>) c.list()) {
+                if (result[0] != null && result[1] != null) {
+                    extremaTimes.put(((Dataset) result[0]).getId(), (Date) result[1]);
+                }
+            }
+        }
+        return extremaTimes;
+    }
+
     protected Criteria getSeriesObservationCriteriaForIndeterminateTimeFilter(DatasetEntity series,
             List<String> offerings, IndeterminateValue sosIndeterminateTime, Session session) {
         final Criteria criteria = createCriteriaFor(getObservationFactory().observationClass(), series, offerings, session);
@@ -28,6 +28,8 @@
  */
 package org.n52.sos.ds.hibernate.dao.observation.series;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -217,6 +219,55 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
         }
     }
 
+    /**
+     * Query streaming value for parameter as chunk {@link List} that starts
+     * after the last queried value (keyset pagination)
+     *
+     * @param request
+     *            {@link AbstractObservationRequest}
+     * @param series
+     *            Datasource series id
+     * @param temporalFilterCriterion
+     *            Temporal filter {@link Criterion}, may be <code>null</code>
+     * @param chunkSize
+     *            chunk size
+     * @param lastValue
+     *            Last queried value, <code>null</code> for the first chunk
+     * @param session
+     *            Hibernate Session
+     * @return Resulting chunk {@link List}
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying
+     */
+    @SuppressWarnings("unchecked")
+    public List<DataEntity<?>> getStreamingSeriesValuesFor(AbstractObservationRequest request, long series,
+            Criterion temporalFilterCriterion, int chunkSize, DataEntity<?> lastValue, Session session)
+            throws OwsExceptionReport {
+        if (request instanceof GetObservationRequest && ((GetObservationRequest) request).hasResultFilter()) {
+            List<DataEntity<?>> list = new ArrayList<>();
+            for (SubQueryIdentifier identifier : ResultFilterRestrictions.getSubQueryIdentifier(getResultFilterClasses())) {
+                StringBuilder logArgs = new StringBuilder();
+                Criteria c = getSeriesValueCriteriaFor(request, series, temporalFilterCriterion, session, logArgs);
+                addSeekValuesToCriteria(c, chunkSize, lastValue, request, logArgs);
+                checkAndAddResultFilterCriterion(c, (GetObservationRequest) request, identifier, session, logArgs);
+                LOGGER.debug("QUERY getStreamingSeriesValuesFor({}): {}", logArgs.toString(), HibernateHelper.getSqlString(c));
+                list.addAll(c.list());
+            }
+            // each sub query returns its own chunk, so the merged chunk has to
+            // be ordered and limited again to keep the key of the last value
+            String orderColumn = getOrderColumn(request);
+            list.sort(Comparator.comparing((DataEntity<?> v) -> getOrderValue(v, orderColumn))
+                    .thenComparing(DataEntity::getId));
+            return chunkSize > 0 && list.size() > chunkSize ? new ArrayList<>(list.subList(0, chunkSize)) : list;
+        } else {
+            StringBuilder logArgs = new StringBuilder();
+            Criteria c = getSeriesValueCriteriaFor(request, series, temporalFilterCriterion, session, logArgs);
+            addSeekValuesToCriteria(c, chunkSize, lastValue, request, logArgs);
+            LOGGER.debug("QUERY getStreamingSeriesValuesFor({}): {}", logArgs.toString(), HibernateHelper.getSqlString(c));
+            return (List<DataEntity<?>>) c.list();
+        }
+    }
+
     /**
      * Get {@link Criteria} for parameter
      *
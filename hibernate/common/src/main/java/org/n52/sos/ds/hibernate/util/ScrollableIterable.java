@@ -34,6 +34,7 @@ import java.util.NoSuchElementException;
 
 import org.hibernate.Criteria;
 import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 
 /**
  * @author <a href="mailto:c.autermann@52north.org">Christian Autermann</a>
@@ -49,12 +50,34 @@ public class ScrollableIterable<T> implements Iterable<T>, Closeable {
         return new ScrollableIterable<>(c.scroll());
     }
 
+    /**
+     * Create an iterable that evicts the previously returned entity from the
+     * session when the next one is requested, so that the session does not
+     * grow while the results are scrolled.
+     *
+     * @param sr
+     *            the results to iterate
+     * @param session
+     *            the session to evict the entities from
+     * @return the iterable
+     */
+    public static <T> ScrollableIterable<T> fromResults(ScrollableResults sr, Session session) {
+        return new ScrollableIterable<>(sr, session);
+    }
+
     private final ScrollableResults results;
 
+    private final Session session;
+
     private Iterator<T> iterator;
 
     public ScrollableIterable(ScrollableResults results) {
+        this(results, null);
+    }
+
+    public ScrollableIterable(ScrollableResults results, Session session) {
         this.results = results;
+        this.session = session;
     }
 
     @Override
@@ -73,10 +96,12 @@ public class ScrollableIterable<T> implements Iterable<T>, Closeable {
 
     private class ScrollableIterator implements Iterator<T> {
         private Boolean hasNext;
+        private Object current;
 
         @Override
         public boolean hasNext() {
             if (hasNext == null) {
+                evictCurrent();
                 // only proceed once
                 hasNext = results.next();
             }
@@ -88,7 +113,8 @@ public class ScrollableIterable<T> implements Iterable<T>, Closeable {
         public T next() {
             if (hasNext != null && hasNext) {
                 hasNext = null;
-                return (T) results.get(0);
+                current = results.get(0);
+                return (T) current;
             } else {
                 throw new NoSuchElementException();
             }
@@ -99,5 +125,12 @@ public class ScrollableIterable<T> implements Iterable<T>, Closeable {
         public void remove() {
             throw new UnsupportedOperationException();
         }
+
+        private void evictCurrent() {
+            if (session != null && current != null) {
+                session.evict(current);
+                current = null;
+            }
+        }
     }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.SosCapabilities;
+import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.sos.event.events.ContentCacheUpdated;
+import org.n52.sos.event.events.ServiceConfigurationChanged;
+
+/**
+ * @since 5.0.2
+ */
+public class GetCapabilitiesCacheTest {
+    private static final GetCapabilitiesCache.Key KEY = new GetCapabilitiesCache.Key(SosConstants.SOS,
+            Sos2Constants.SERVICEVERSION, 1, Collections.emptySet(), Locale.ENGLISH);
+
+    private final AtomicInteger builds = new AtomicInteger();
+    private final GetCapabilitiesCache.CapabilitiesBuilder builder = () -> {
+        builds.incrementAndGet();
+        return new SosCapabilities(SosConstants.SOS, Sos2Constants.SERVICEVERSION, null, null, null, null, null,
+                null, null, null);
+    };
+    private GetCapabilitiesCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new GetCapabilitiesCache();
+        cache.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        cache.destroy();
+    }
+
+    @Test
+    public void should_return_cached_capabilities() throws OwsExceptionReport {
+        SosCapabilities capabilities = cache.get(KEY, builder);
+        assertThat(cache.get(KEY, builder), is(sameInstance(capabilities)));
+        assertThat(cache.get(new GetCapabilitiesCache.Key(SosConstants.SOS, Sos2Constants.SERVICEVERSION, 1,
+                Collections.emptySet(), Locale.GERMAN), builder), is(not(sameInstance(capabilities))));
+        assertThat(builds.get(), is(2));
+    }
+
+    @Test
+    public void should_not_rebuild_on_content_cache_update() throws OwsExceptionReport {
+        SosCapabilities capabilities = cache.get(KEY, builder);
+        cache.handle(new ContentCacheUpdated(false));
+        cache.handle(new ContentCacheUpdated(true));
+        assertThat(builds.get(), is(1));
+        // the outdated document is served while it is rebuilt
+        assertThat(cache.get(KEY, builder), is(sameInstance(capabilities)));
+    }
+
+    @Test
+    public void should_rebuild_outdated_capabilities_on_read() throws OwsExceptionReport, InterruptedException {
+        SosCapabilities capabilities = cache.get(KEY, builder);
+        cache.handle(new ContentCacheUpdated(false));
+        SosCapabilities rebuilt = awaitRebuild(capabilities);
+        assertThat(rebuilt, is(not(sameInstance(capabilities))));
+        assertThat(builds.get(), is(2));
+        assertThat(cache.get(KEY, builder), is(sameInstance(rebuilt)));
+        assertThat(builds.get(), is(2));
+    }
+
+    @Test
+    public void should_build_again_after_invalidate() throws OwsExceptionReport {
+        SosCapabilities capabilities = cache.get(KEY, builder);
+        cache.invalidate();
+        assertThat(cache.get(KEY, builder), is(not(sameInstance(capabilities))));
+        assertThat(builds.get(), is(2));
+    }
+
+    @Test
+    public void should_build_again_after_service_configuration_change() throws OwsExceptionReport {
+        SosCapabilities capabilities = cache.get(KEY, builder);
+        cache.handle(new ServiceConfigurationChanged());
+        // the outdated document must not be served
+        assertThat(cache.get(KEY, builder), is(not(sameInstance(capabilities))));
+        assertThat(builds.get(), is(2));
+    }
+
+    @Test
+    public void should_not_cache_if_disabled() throws OwsExceptionReport {
+        cache.setEnabled(false);
+        SosCapabilities capabilities = cache.get(KEY, builder);
+        assertThat(cache.get(KEY, builder), is(not(sameInstance(capabilities))));
+        assertThat(builds.get(), is(2));
+    }
+
+    private SosCapabilities awaitRebuild(SosCapabilities outdated) throws OwsExceptionReport, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        SosCapabilities capabilities = cache.get(KEY, builder);
+        while (capabilities == outdated && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            capabilities = cache.get(KEY, builder);
+        }
+        return capabilities;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.DataAvailability;
+
+/**
+ * Checks the merge of the data availabilities of datasets that only differ in
+ * their offering.
+ *
+ * @since 5.0.2
+ */
+public class GetDataAvailabilityHandlerTest {
+    private static final DateTime TIME = new DateTime(2020, 1, 1, 0, 0);
+
+    @Test
+    public void should_merge_duplicate_datasets_across_offerings() {
+        DataAvailability first = create("p1", "f1", "o1", 0, 1);
+        DataAvailability other = create("p2", "f1", "o1", 0, 1);
+        List<DataAvailability> merged = GetDataAvailabilityHandler.checkForDuplictation(Arrays.asList(first,
+                create("p1", "f1", "o2", 1, 2), other, create("p1", "f1", "o3", 3, 4)));
+        assertThat(merged, hasSize(2));
+        assertThat(merged.get(0), is(sameInstance(first)));
+        assertThat(merged.get(0).getPhenomenonTime().getStart().getMillis(), is(getMillis(0)));
+        assertThat(merged.get(0).getPhenomenonTime().getEnd().getMillis(), is(getMillis(4)));
+        assertThat(merged.get(1), is(sameInstance(other)));
+        assertThat(merged.get(1).getPhenomenonTime().getEnd().getMillis(), is(getMillis(1)));
+    }
+
+    @Test
+    public void should_keep_datasets_of_other_features() {
+        List<DataAvailability> merged = GetDataAvailabilityHandler.checkForDuplictation(Arrays.asList(
+                create("p1", "f1", "o1", 0, 1), create("p1", "f2", "o1", 0, 1), create("p1", "f2", "o2", 0, 1)));
+        assertThat(merged, hasSize(2));
+        assertThat(merged.get(1).getFeatureOfInterest().getHref(), is("f2"));
+    }
+
+    @Test
+    public void should_merge_result_times_of_several_chunks() {
+        // the result times of the datasets were queried in different chunks
+        // and overlap each other
+        DataAvailability first = create("p1", "f1", "o1", 0, 4);
+        first.setResultTimes(resultTimes(2, 4));
+        DataAvailability second = create("p1", "f1", "o2", 0, 4);
+        second.setResultTimes(resultTimes(0, 2, 3));
+        DataAvailability third = create("p1", "f1", "o3", 0, 4);
+        third.setResultTimes(resultTimes(1, 4));
+        DataAvailability other = create("p2", "f1", "o1", 0, 4);
+        other.setResultTimes(resultTimes(3));
+        List<DataAvailability> merged = GetDataAvailabilityHandler.checkForDuplictation(Arrays.asList(first,
+                other, second, create("p1", "f1", "o4", 0, 4), third));
+        assertThat(merged, hasSize(2));
+        assertThat(getMillis(merged.get(0).getResultTimes()),
+                contains(getMillis(0), getMillis(1), getMillis(2), getMillis(3), getMillis(4)));
+        assertThat(getMillis(merged.get(1).getResultTimes()), contains(getMillis(3)));
+    }
+
+    private static DataAvailability create(String procedure, String feature, String offering, int start,
+            int end) {
+        return new DataAvailability(new ReferenceType(procedure), new ReferenceType("op1"),
+                new ReferenceType(feature), new ReferenceType(offering),
+                new TimePeriod(TIME.plusHours(start), TIME.plusHours(end)));
+    }
+
+    private static List<TimeInstant> resultTimes(int... hours) {
+        return Arrays.stream(hours).mapToObj(hour -> new TimeInstant(TIME.plusHours(hour)))
+                .collect(Collectors.toList());
+    }
+
+    private static List<Long> getMillis(List<TimeInstant> times) {
+        return times.stream().map(time -> time.getValue().getMillis()).collect(Collectors.toList());
+    }
+
+    private static long getMillis(int hour) {
+        return TIME.plusHours(hour).getMillis();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+/**
+ * @since 5.0.2
+ */
+public class CacheUpdateWatermarkTest {
+    private static final Date T0 = new Date(1000L);
+    private static final Date T1 = new Date(2000L);
+    private static final Date T2 = new Date(3000L);
+
+    @Test
+    public void should_be_equal_with_same_states() {
+        CacheUpdateWatermark watermark = CacheUpdateWatermark.builder().add(2, T0, T1).add(1, null, null).build();
+        CacheUpdateWatermark other = CacheUpdateWatermark.builder().add(1, null, null).add(2, T0, T1).build();
+        assertThat(watermark, is(other));
+        assertThat(watermark.hashCode(), is(other.hashCode()));
+        assertThat(watermark.getChangedDatasets(other), is(empty()));
+        assertThat(watermark, is(not(CacheUpdateWatermark.builder().add(1, null, T0).add(2, T0, T1).build())));
+    }
+
+    @Test
+    public void should_find_new_datasets() {
+        CacheUpdateWatermark since = CacheUpdateWatermark.builder().add(2, T0, T1).build();
+        CacheUpdateWatermark current = CacheUpdateWatermark.builder().add(1, T0, T0).add(2, T0, T1)
+                .add(3, null, null).build();
+        assertThat(current.getChangedDatasets(since), containsInAnyOrder(1L, 3L));
+        assertThat(current.getChangedDatasets(CacheUpdateWatermark.empty()), containsInAnyOrder(1L, 2L, 3L));
+    }
+
+    @Test
+    public void should_find_lagging_and_backfilled_datasets() {
+        // dataset 2 is behind dataset 1, its new observations are older than the latest observation
+        CacheUpdateWatermark since = CacheUpdateWatermark.builder().add(1, T0, T2).add(2, T1, T1).add(3, T1, T2)
+                .build();
+        CacheUpdateWatermark current = CacheUpdateWatermark.builder().add(1, T0, T2).add(2, T1, new Date(2500L))
+                .add(3, T0, T2).build();
+        assertThat(current.getChangedDatasets(since), containsInAnyOrder(2L, 3L));
+    }
+
+    @Test
+    public void should_ignore_removed_datasets() {
+        CacheUpdateWatermark since = CacheUpdateWatermark.builder().add(1, T0, T1).add(2, T0, T1).build();
+        CacheUpdateWatermark current = CacheUpdateWatermark.builder().add(2, T0, T1).build();
+        assertThat(current.getChangedDatasets(since), is(empty()));
+        assertThat(current.size(), is(1));
+    }
+}
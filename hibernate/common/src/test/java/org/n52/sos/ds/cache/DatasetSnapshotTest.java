@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+
+import org.hibernate.Hibernate;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.series.db.HibernateSessionStore;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.hibernate.ExtendedHibernateTestCase;
+import org.n52.sos.ds.hibernate.H2Configuration;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.ds.hibernate.util.HibernateObservationBuilder;
+
+/**
+ * @since 5.0.2
+ */
+public class DatasetSnapshotTest extends ExtendedHibernateTestCase {
+    private HibernateSessionStore sessionStore;
+
+    @Before
+    public void createDatasets() throws OwsExceptionReport {
+        Session session = getSession();
+        HibernateMetadataCache.init(session);
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            new HibernateObservationBuilder(session, getDaoFactory()).createObservation("snapshot",
+                    new DateTime(2020, 1, 1, 0, 0));
+            session.flush();
+            transaction.commit();
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            returnSession(session);
+        }
+        sessionStore = mock(HibernateSessionStore.class);
+        when(sessionStore.getSession()).thenAnswer(invocation -> getSession());
+        doAnswer(invocation -> {
+            returnSession(invocation.getArgument(0));
+            return null;
+        }).when(sessionStore).returnSession(any());
+    }
+
+    @After
+    public void clearDatasets() {
+        H2Configuration.truncate();
+    }
+
+    @Test
+    public void should_return_session_after_loading() throws OwsExceptionReport {
+        DatasetSnapshot snapshot = new DatasetSnapshot(sessionStore);
+        snapshot.load();
+        verify(sessionStore, times(1)).getSession();
+        verify(sessionStore, times(1)).returnSession(any());
+        assertThat(snapshot.isLoaded(), is(true));
+        assertThat(snapshot.getDatasets(), is(not(empty())));
+        assertThat(snapshot.getDatasetsByOffering().keySet(),
+                hasItems(HibernateObservationBuilder.OFFERING_1, HibernateObservationBuilder.OFFERING_2));
+        assertThat(snapshot.getDatasetsForFeature(HibernateObservationBuilder.FEATURE_OF_INTEREST),
+                hasSize(snapshot.getDatasets().size()));
+        snapshot.close();
+        assertThat(snapshot.isLoaded(), is(false));
+        assertThat(snapshot.getDatasets(), is(empty()));
+    }
+
+    @Test
+    public void should_initialize_associations_read_by_the_updates() throws OwsExceptionReport {
+        DatasetSnapshot snapshot = new DatasetSnapshot(sessionStore);
+        snapshot.load();
+        Collection<DatasetEntity> datasets = snapshot.getDatasets();
+        for (DatasetEntity dataset : datasets) {
+            assertThat(Hibernate.isInitialized(dataset.getOffering()), is(true));
+            assertThat(Hibernate.isInitialized(dataset.getPhenomenon()), is(true));
+            assertThat(Hibernate.isInitialized(dataset.getObservationType()), is(true));
+            assertThat(Hibernate.isInitialized(dataset.getProcedure()), is(true));
+            assertThat(Hibernate.isInitialized(dataset.getProcedure().getFormat()), is(true));
+            assertThat(Hibernate.isInitialized(dataset.getProcedure().getParents()), is(true));
+            assertThat(Hibernate.isInitialized(dataset.getFeature()), is(true));
+            assertThat(Hibernate.isInitialized(dataset.getFeature().getFeatureType()), is(true));
+        }
+        // read concurrently like the parallel cache updates, without any session
+        assertThat(datasets.parallelStream()
+                .filter(dataset -> !dataset.getProcedure().hasParents())
+                .map(dataset -> dataset.getFeature().getFeatureType().getFormat()
+                        + dataset.getProcedure().getFormat().getFormat()
+                        + dataset.getOffering().getIdentifier()
+                        + dataset.getPhenomenon().getIdentifier())
+                .count(), is((long) datasets.size()));
+        snapshot.close();
+    }
+}
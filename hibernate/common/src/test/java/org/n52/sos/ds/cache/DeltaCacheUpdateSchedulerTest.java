@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.cache.ContentCacheController;
+import org.n52.iceland.cache.ContentCacheUpdate;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.SosCacheFeederHandler;
+
+/**
+ * @since 5.0.2
+ */
+public class DeltaCacheUpdateSchedulerTest {
+    private static final CacheUpdateWatermark COMPLETE =
+            CacheUpdateWatermark.builder().add(1, new Date(0L), new Date(1000L)).build();
+    private static final CacheUpdateWatermark FIRST =
+            CacheUpdateWatermark.builder().add(1, new Date(0L), new Date(2000L)).build();
+    private static final CacheUpdateWatermark SECOND =
+            CacheUpdateWatermark.builder().add(1, new Date(0L), new Date(2000L)).add(2, null, null).build();
+
+    private SosCacheFeederHandler cacheFeederHandler;
+    private DeltaCacheUpdateScheduler scheduler;
+
+    @Before
+    public void setUp() throws OwsExceptionReport {
+        cacheFeederHandler = mock(SosCacheFeederHandler.class);
+        // the executed delta reaches the current watermark
+        when(cacheFeederHandler.updateCacheDelta(any(), any(), any())).thenAnswer(
+                invocation -> new DeltaCacheUpdate(null, null, invocation.getArgument(1), invocation.getArgument(2)));
+        ContentCacheController contentCacheController = mock(ContentCacheController.class);
+        doAnswer(invocation -> {
+            ContentCacheUpdate update = invocation.getArgument(0);
+            update.execute();
+            return null;
+        }).when(contentCacheController).update(any(ContentCacheUpdate.class));
+        scheduler = new DeltaCacheUpdateScheduler();
+        scheduler.setCacheFeederHandler(cacheFeederHandler);
+        scheduler.setContentCacheController(contentCacheController);
+    }
+
+    @Test
+    public void should_start_at_complete_update() throws OwsExceptionReport {
+        when(cacheFeederHandler.getCompleteUpdateWatermark()).thenReturn(COMPLETE);
+        when(cacheFeederHandler.getCacheUpdateWatermark()).thenReturn(FIRST);
+        scheduler.run();
+        verify(cacheFeederHandler).updateCacheDelta(any(), eq(COMPLETE), eq(FIRST));
+        assertThat(scheduler.getWatermark(), is(FIRST));
+        assertThat(scheduler.getUpdateCount(), is(1L));
+    }
+
+    @Test
+    public void should_start_at_current_watermark_without_complete_update() throws OwsExceptionReport {
+        when(cacheFeederHandler.getCacheUpdateWatermark()).thenReturn(FIRST);
+        scheduler.run();
+        verify(cacheFeederHandler, never()).updateCacheDelta(any(), any(), any());
+        assertThat(scheduler.getWatermark(), is(FIRST));
+
+        when(cacheFeederHandler.getCacheUpdateWatermark()).thenReturn(SECOND);
+        scheduler.run();
+        verify(cacheFeederHandler).updateCacheDelta(any(), eq(FIRST), eq(SECOND));
+        assertThat(scheduler.getWatermark(), is(SECOND));
+    }
+
+    @Test
+    public void should_skip_unchanged_watermark() throws OwsExceptionReport {
+        when(cacheFeederHandler.getCompleteUpdateWatermark()).thenReturn(FIRST);
+        when(cacheFeederHandler.getCacheUpdateWatermark()).thenReturn(FIRST);
+        scheduler.run();
+        scheduler.run();
+        verify(cacheFeederHandler, never()).updateCacheDelta(any(), any(), any());
+        assertThat(scheduler.getUpdateCount(), is(0L));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.hibernate.ExtendedHibernateTestCase;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.ds.hibernate.util.HibernateObservationBuilder;
+import org.n52.sos.ds.hibernate.util.ScrollableIterable;
+
+/**
+ * @since 5.0.2
+ */
+public class DeltaCacheUpdateTest extends ExtendedHibernateTestCase {
+    private static final DateTime BEGIN = new DateTime(2020, 1, 1, 0, 0);
+
+    @Before
+    public void createDatasets() throws OwsExceptionReport {
+        Session session = getSession();
+        HibernateMetadataCache.init(session);
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            new HibernateObservationBuilder(session, getDaoFactory()).createObservation("delta", BEGIN);
+            session.flush();
+            // the second dataset is ahead of the first
+            setValueTimes(session, HibernateObservationBuilder.OFFERING_1, BEGIN, BEGIN.plusHours(1));
+            setValueTimes(session, HibernateObservationBuilder.OFFERING_2, BEGIN, BEGIN.plusHours(10));
+            transaction.commit();
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @After
+    public void clearObservations() throws OwsExceptionReport {
+        Session session = getSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            try (ScrollableIterable<DataEntity<?>> i =
+                    ScrollableIterable.fromCriteria(session.createCriteria(getObservationClass()))) {
+                for (DataEntity<?> o : i) {
+                    session.delete(o);
+                }
+            }
+            session.flush();
+            transaction.commit();
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @Test
+    public void should_not_find_unmodified_datasets() {
+        Session session = getSession();
+        try {
+            CacheUpdateWatermark watermark = DeltaCacheUpdate.queryWatermark(session);
+            assertThat(DeltaCacheUpdate.queryWatermark(session), is(watermark));
+            assertThat(DeltaCacheUpdate.queryChangedDatasets(session, watermark, watermark), is(empty()));
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @Test
+    public void should_find_all_datasets_without_watermark() {
+        Session session = getSession();
+        try {
+            CacheUpdateWatermark watermark = DeltaCacheUpdate.queryWatermark(session);
+            assertThat(DeltaCacheUpdate.queryChangedDatasets(session, CacheUpdateWatermark.empty(), watermark),
+                    hasSize(watermark.size()));
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @Test
+    public void should_find_lagging_dataset() {
+        // new observations of the first dataset are still older than the last value of the second
+        assertChanged(HibernateObservationBuilder.OFFERING_1, BEGIN, BEGIN.plusHours(2));
+    }
+
+    @Test
+    public void should_find_backfilled_dataset() {
+        assertChanged(HibernateObservationBuilder.OFFERING_2, BEGIN.minusHours(1), BEGIN.plusHours(10));
+    }
+
+    private void assertChanged(String offering, DateTime firstValueAt, DateTime lastValueAt) {
+        Session session = getSession();
+        Transaction transaction = null;
+        try {
+            CacheUpdateWatermark since = DeltaCacheUpdate.queryWatermark(session);
+            transaction = session.beginTransaction();
+            Long id = setValueTimes(session, offering, firstValueAt, lastValueAt);
+            transaction.commit();
+            CacheUpdateWatermark current = DeltaCacheUpdate.queryWatermark(session);
+            List<Long> changed = DeltaCacheUpdate.queryChangedDatasets(session, since, current).stream()
+                    .map(DatasetEntity::getId).collect(Collectors.toList());
+            assertThat(changed, is(Collections.singletonList(id)));
+            assertThat(current.getChangedDatasets(since), contains(id));
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private static Long setValueTimes(Session session, String offering, DateTime firstValueAt,
+            DateTime lastValueAt) {
+        DatasetEntity dataset = (DatasetEntity) session.createCriteria(DatasetEntity.class)
+                .createAlias(DatasetEntity.PROPERTY_OFFERING, "o")
+                .add(Restrictions.eq("o." + OfferingEntity.IDENTIFIER, offering))
+                .uniqueResult();
+        dataset.setFirstValueAt(new Date(firstValueAt.getMillis()));
+        dataset.setLastValueAt(new Date(lastValueAt.getMillis()));
+        session.update(dataset);
+        session.flush();
+        return dataset.getId();
+    }
+}
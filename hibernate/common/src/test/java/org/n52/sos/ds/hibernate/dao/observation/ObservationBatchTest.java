@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.n52.series.db.beans.AbstractFeatureEntity;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.hibernate.ExtendedHibernateTestCase;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.ds.hibernate.util.HibernateObservationBuilder;
+
+/**
+ * Checks that observations inserted with an {@link ObservationBatch} are
+ * stored like observations inserted one by one.
+ *
+ * @since 5.0.2
+ */
+public class ObservationBatchTest extends ExtendedHibernateTestCase {
+    private static final DateTime BEGIN = new DateTime(2020, 1, 1, 0, 0);
+
+    private static final String UNBATCHED = "unbatched/";
+
+    private static final String BATCHED = "batched/";
+
+    private static final String UNIT = "m";
+
+    /**
+     * Phenomenon time offsets in hours, unordered to check the dataset
+     * first/last values.
+     */
+    private static final int[] HOURS = { 3, 0, 7, 5, 1, 6, 2, 4 };
+
+    @Test
+    public void should_insert_like_unbatched_insertion() throws OwsExceptionReport {
+        Session session = getSession();
+        HibernateMetadataCache.init(session);
+        Transaction transaction = session.beginTransaction();
+        try {
+            DatasetBuilder builder = new DatasetBuilder(session, getDaoFactory());
+            DatasetEntity unbatched = builder.createDataset("UnbatchedOffering");
+            DatasetEntity batched = builder.createDataset("BatchedOffering");
+            AbstractFeatureEntity feature = unbatched.getFeature();
+            AbstractObservationDAO observationDAO = getObservationDao();
+            ObservationBatch batch = new ObservationBatch();
+            for (int hour : HOURS) {
+                observationDAO.insertObservationSingleValue(unbatched, feature, createObservation(UNBATCHED, hour),
+                        new HashMap<>(), new HashMap<>(), session);
+                observationDAO.insertObservationSingleValue(batched, feature, createObservation(BATCHED, hour),
+                        new HashMap<>(), new HashMap<>(), batch, session);
+            }
+            assertThat(batch.size(), is(1));
+            batch.updateDatasets(getDaoFactory().getSeriesDAO(), session);
+            assertThat(batch.size(), is(0));
+            session.flush();
+            session.clear();
+            assertSameDatasets(session, batched, unbatched);
+        } finally {
+            transaction.rollback();
+            returnSession(session);
+        }
+    }
+
+    @Test
+    public void should_update_datasets_after_session_clear() throws OwsExceptionReport {
+        Session session = getSession();
+        HibernateMetadataCache.init(session);
+        Transaction transaction = session.beginTransaction();
+        try {
+            DatasetBuilder builder = new DatasetBuilder(session, getDaoFactory());
+            DatasetEntity unbatched = builder.createDataset("UnbatchedOffering");
+            DatasetEntity batched = builder.createDataset("BatchedOffering");
+            AbstractFeatureEntity feature = unbatched.getFeature();
+            AbstractObservationDAO observationDAO = getObservationDao();
+            for (int hour : HOURS) {
+                observationDAO.insertObservationSingleValue(unbatched, feature, createObservation(UNBATCHED, hour),
+                        new HashMap<>(), new HashMap<>(), session);
+            }
+            ObservationBatch batch = new ObservationBatch();
+            for (int i = 0; i < HOURS.length; i++) {
+                if (i == HOURS.length / 2) {
+                    // as done by InsertResult between two batches of result values
+                    session.flush();
+                    session.clear();
+                    batched = session.get(DatasetEntity.class, batched.getId());
+                    feature = batched.getFeature();
+                }
+                observationDAO.insertObservationSingleValue(batched, feature, createObservation(BATCHED, HOURS[i]),
+                        new HashMap<>(), new HashMap<>(), batch, session);
+            }
+            batch.updateDatasets(getDaoFactory().getSeriesDAO(), session);
+            session.flush();
+            session.clear();
+            assertSameDatasets(session, batched, unbatched);
+        } finally {
+            transaction.rollback();
+            returnSession(session);
+        }
+    }
+
+    private void assertSameDatasets(Session session, DatasetEntity actual, DatasetEntity expected)
+            throws OwsExceptionReport {
+        List<DataEntity<?>> actualObservations = getObservations(session, actual);
+        List<DataEntity<?>> expectedObservations = getObservations(session, expected);
+        assertThat(actualObservations, hasSize(HOURS.length));
+        assertThat(actualObservations, hasSize(expectedObservations.size()));
+        for (int i = 0; i < expectedObservations.size(); i++) {
+            assertSameObservation(actualObservations.get(i), expectedObservations.get(i));
+        }
+
+        DatasetEntity actualDataset = session.get(DatasetEntity.class, actual.getId());
+        DatasetEntity expectedDataset = session.get(DatasetEntity.class, expected.getId());
+        assertThat(actualDataset.getFirstValueAt(), is(expectedDataset.getFirstValueAt()));
+        assertThat(actualDataset.getLastValueAt(), is(expectedDataset.getLastValueAt()));
+        assertThat(actualDataset.getFirstQuantityValue(), comparesEqualTo(expectedDataset.getFirstQuantityValue()));
+        assertThat(actualDataset.getLastQuantityValue(), comparesEqualTo(expectedDataset.getLastQuantityValue()));
+        assertThat(actualDataset.getFirstObservation().getId(), is(actualObservations.get(0).getId()));
+        assertThat(actualDataset.getLastObservation().getId(),
+                is(actualObservations.get(actualObservations.size() - 1).getId()));
+        assertThat(actualDataset.getUnit().getUnit(), is(expectedDataset.getUnit().getUnit()));
+    }
+
+    private void assertSameObservation(DataEntity<?> actual, DataEntity<?> expected) {
+        assertThat(actual.getIdentifier().substring(BATCHED.length()),
+                is(expected.getIdentifier().substring(UNBATCHED.length())));
+        assertThat(actual.getIdentifierCodespace().getId(), is(expected.getIdentifierCodespace().getId()));
+        assertThat(actual.getSamplingTimeStart(), is(expected.getSamplingTimeStart()));
+        assertThat(actual.getSamplingTimeEnd(), is(expected.getSamplingTimeEnd()));
+        assertThat(actual.getResultTime(), is(expected.getResultTime()));
+        assertThat(actual.isDeleted(), is(expected.isDeleted()));
+        assertThat(((QuantityDataEntity) actual).getValue(),
+                comparesEqualTo(((QuantityDataEntity) expected).getValue()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<DataEntity<?>> getObservations(Session session, DatasetEntity dataset) throws OwsExceptionReport {
+        return session.createCriteria(getObservationClass())
+                .add(Restrictions.eq(DataEntity.PROPERTY_DATASET + "." + DatasetEntity.PROPERTY_ID, dataset.getId()))
+                .addOrder(Order.asc(DataEntity.PROPERTY_SAMPLING_TIME_START)).list();
+    }
+
+    private OmObservation createObservation(String prefix, int hour) {
+        TimeInstant time = new TimeInstant(BEGIN.plusHours(hour));
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setObservationType(OmConstants.OBS_TYPE_MEASUREMENT);
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(constellation);
+        observation.setIdentifier(prefix + hour);
+        observation.setResultTime(time);
+        observation.setValue(new SingleObservationValue<>(time,
+                new QuantityValue(new BigDecimal("1.5").multiply(BigDecimal.valueOf(hour)), UNIT)));
+        return observation;
+    }
+
+    /**
+     * Creates measurement datasets for the fixed feature, observable property
+     * and procedure of the {@link HibernateObservationBuilder}.
+     */
+    private static class DatasetBuilder extends HibernateObservationBuilder {
+        private final Session session;
+
+        private final DaoFactory daoFactory;
+
+        DatasetBuilder(Session session, DaoFactory daoFactory) {
+            super(session, daoFactory);
+            this.session = session;
+            this.daoFactory = daoFactory;
+        }
+
+        DatasetEntity createDataset(String identifier) throws OwsExceptionReport {
+            OfferingEntity offering = new OfferingEntity();
+            offering.setIdentifier(identifier);
+            offering.setName(identifier);
+            session.save(offering);
+            session.flush();
+            ObservationFactory observationFactory = daoFactory.getObservationDAO().getObservationFactory();
+            DatasetEntity dataset = getSeries(offering, observationFactory.numeric());
+            dataset.setObservationType(getFormat(OmConstants.OBS_TYPE_MEASUREMENT));
+            session.update(dataset);
+            session.flush();
+            return dataset;
+        }
+    }
+}
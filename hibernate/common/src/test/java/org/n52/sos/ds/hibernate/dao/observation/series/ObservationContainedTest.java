@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation.series;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.hibernate.ExtendedHibernateTestCase;
+import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationDAO;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.ds.hibernate.util.HibernateObservationBuilder;
+
+/**
+ * Checks the lookup of stored observations by their phenomenon and result
+ * time, which decides if a queued request was already written.
+ *
+ * @since 5.0.2
+ */
+public class ObservationContainedTest extends ExtendedHibernateTestCase {
+    private static final DateTime TIME = new DateTime(2020, 1, 1, 0, 0);
+
+    @Test
+    public void should_find_observations_by_phenomenon_and_result_time() throws OwsExceptionReport {
+        Session session = getSession();
+        HibernateMetadataCache.init(session);
+        Transaction transaction = session.beginTransaction();
+        try {
+            HibernateObservationBuilder builder = new HibernateObservationBuilder(session, getDaoFactory());
+            builder.createObservation("instant", TIME);
+            builder.createObservation("period", TIME.plusDays(1), TIME.plusDays(2));
+            session.flush();
+            session.clear();
+            DatasetEntity dataset = getDataset(session, HibernateObservationBuilder.OFFERING_1);
+            AbstractObservationDAO dao = getDaoFactory().getObservationDAO();
+
+            assertThat(dao.isObservationContained(dataset, observation(new TimeInstant(TIME), null), session),
+                    is(true));
+            assertThat(dao.isObservationContained(dataset,
+                    observation(new TimeInstant(TIME.plusHours(1)), null), session), is(false));
+            assertThat(dao.isObservationContained(dataset,
+                    observation(new TimeInstant(TIME), new TimeInstant(TIME.plusHours(1))), session), is(false));
+
+            TimePeriod period = new TimePeriod(TIME.plusDays(1), TIME.plusDays(2));
+            assertThat(dao.isObservationContained(dataset,
+                    observation(period, new TimeInstant(TIME.plusDays(1))), session), is(true));
+            // the result time of a period can not be derived
+            assertThat(dao.isObservationContained(dataset, observation(period, null), session), is(false));
+        } finally {
+            transaction.rollback();
+            returnSession(session);
+        }
+    }
+
+    private static OmObservation observation(Time phenomenonTime, TimeInstant resultTime) {
+        OmObservation observation = new OmObservation();
+        observation.setValue(new SingleObservationValue<>(phenomenonTime, new QuantityValue(1.0)));
+        observation.setResultTime(resultTime);
+        return observation;
+    }
+
+    private static DatasetEntity getDataset(Session session, String offering) {
+        return (DatasetEntity) session.createCriteria(DatasetEntity.class)
+                .createAlias(DatasetEntity.PROPERTY_OFFERING, "o")
+                .add(Restrictions.eq("o." + OfferingEntity.IDENTIFIER, offering))
+                .uniqueResult();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation.series;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.beans.data.Data.BooleanData;
+import org.n52.shetland.ogc.gml.time.IndeterminateValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.ExtendedIndeterminateTime;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.sos.ds.hibernate.ExtendedHibernateTestCase;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.dao.observation.ObservationFactory;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.ds.hibernate.util.HibernateObservationBuilder;
+
+/**
+ * Checks that the batched first/latest query returns the same observations as
+ * the query per series.
+ *
+ * @since 5.0.2
+ */
+public class SeriesObservationExtremaTest extends ExtendedHibernateTestCase {
+    private static final DateTime BEGIN = new DateTime(2020, 1, 1, 0, 0);
+
+    @Test
+    public void should_query_first_like_per_series() throws OwsExceptionReport {
+        assertBatchedLikePerSeries(ExtendedIndeterminateTime.FIRST);
+    }
+
+    @Test
+    public void should_query_latest_like_per_series() throws OwsExceptionReport {
+        assertBatchedLikePerSeries(ExtendedIndeterminateTime.LATEST);
+    }
+
+    private void assertBatchedLikePerSeries(IndeterminateValue indeterminateTime) throws OwsExceptionReport {
+        Session session = getSession();
+        HibernateMetadataCache.init(session);
+        Transaction transaction = session.beginTransaction();
+        try {
+            DatasetBuilder builder = new DatasetBuilder(session, getDaoFactory());
+            List<DatasetEntity> datasets = new ArrayList<>();
+            // extrema times queried from the observations
+            datasets.add(builder.createDataset("Single", 5));
+            datasets.add(builder.createDataset("Several", 3, 1, 4, 2));
+            // several observations at the first and the latest time
+            datasets.add(builder.createDataset("Ties", 2, 2, 6, 6, 4));
+            // same extrema times as other datasets, so they share a restriction
+            datasets.add(builder.createDataset("SameTimes", 1, 6));
+            datasets.add(builder.createDataset("Empty"));
+            // extrema times taken from the first and last value of the dataset
+            DatasetEntity withValueTimes = builder.createDataset("ValueTimes", 7, 0, 7, 0);
+            withValueTimes.setFirstValueAt(BEGIN.toDate());
+            withValueTimes.setLastValueAt(BEGIN.plusHours(7).toDate());
+            session.update(withValueTimes);
+            datasets.add(withValueTimes);
+            session.flush();
+
+            AbstractSeriesObservationDAO observationDAO = (AbstractSeriesObservationDAO) getObservationDao();
+            GetObservationRequest request = new GetObservationRequest();
+            Map<Long, TreeSet<Long>> expected = new LinkedHashMap<>();
+            for (DatasetEntity dataset : datasets) {
+                for (DataEntity<?> observation : observationDAO.getSeriesObservationsFor(dataset, request,
+                        indeterminateTime, session)) {
+                    expected.computeIfAbsent(dataset.getId(), id -> new TreeSet<>()).add(observation.getId());
+                }
+            }
+            assertThat(expected.containsKey(datasets.get(4).getId()), is(false));
+            assertThat(expected.get(datasets.get(2).getId()), hasSize(2));
+
+            Map<Long, TreeSet<Long>> actual = new LinkedHashMap<>();
+            for (DataEntity<?> observation : observationDAO.getSeriesObservationsFor(datasets, request,
+                    indeterminateTime, session)) {
+                actual.computeIfAbsent(observation.getDataset().getId(), id -> new TreeSet<>())
+                        .add(observation.getId());
+            }
+            assertThat(actual, is(expected));
+            // in the order of the datasets
+            assertThat(new ArrayList<>(actual.keySet()), is(new ArrayList<>(expected.keySet())));
+        } finally {
+            transaction.rollback();
+            returnSession(session);
+        }
+    }
+
+    /**
+     * Creates datasets for the fixed feature, observable property and
+     * procedure of the {@link HibernateObservationBuilder} with observations
+     * at the given hours.
+     */
+    private static class DatasetBuilder extends HibernateObservationBuilder {
+        private final Session session;
+
+        private final DaoFactory daoFactory;
+
+        DatasetBuilder(Session session, DaoFactory daoFactory) {
+            super(session, daoFactory);
+            this.session = session;
+            this.daoFactory = daoFactory;
+        }
+
+        DatasetEntity createDataset(String identifier, int... hours) throws OwsExceptionReport {
+            OfferingEntity offering = new OfferingEntity();
+            offering.setIdentifier(identifier);
+            offering.setName(identifier);
+            session.save(offering);
+            session.flush();
+            ObservationFactory observationFactory = daoFactory.getObservationDAO().getObservationFactory();
+            DatasetEntity dataset = getSeries(offering, observationFactory.truth());
+            for (int i = 0; i < hours.length; i++) {
+                Date time = BEGIN.plusHours(hours[i]).toDate();
+                BooleanData observation = observationFactory.truth();
+                observation.setValue(true);
+                observation.setDataset(dataset);
+                createObservation(observation, identifier + "/" + i, time, time, time, time, time);
+            }
+            return dataset;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation.series;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.sos.ds.hibernate.ExtendedHibernateTestCase;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.ds.hibernate.util.HibernateObservationBuilder;
+
+/**
+ * Checks that the keyset (seek) chunks of a series contain every value once,
+ * also if several values share the same time.
+ *
+ * @since 5.0.2
+ */
+public class SeriesValueSeekTest extends ExtendedHibernateTestCase {
+    private static final DateTime BEGIN = new DateTime(2020, 1, 1, 0, 0);
+
+    private static final int TIMES = 3;
+
+    private static final int VALUES_PER_TIME = 3;
+
+    @Test
+    public void should_page_across_equal_times() throws OwsExceptionReport {
+        Session session = getSession();
+        HibernateMetadataCache.init(session);
+        Transaction transaction = session.beginTransaction();
+        try {
+            HibernateObservationBuilder builder = new HibernateObservationBuilder(session, getDaoFactory());
+            // create the values in reverse order, so that the ids do not follow the times
+            for (int time = TIMES - 1; time >= 0; time--) {
+                for (int i = 0; i < VALUES_PER_TIME; i++) {
+                    builder.createObservation("seek" + time + "/" + i, BEGIN.plusHours(time));
+                }
+            }
+            session.flush();
+            session.clear();
+            long series = getSeries(session, HibernateObservationBuilder.OFFERING_1);
+            AbstractSeriesValueDAO valueDAO = getDaoFactory().getValueDAO();
+            GetObservationRequest request = new GetObservationRequest();
+
+            List<Long> expected = getIds(valueDAO.getStreamingSeriesValuesFor(request, series, null, 0, null,
+                    session));
+            assertThat(expected, hasSize(TIMES * VALUES_PER_TIME));
+
+            // chunks smaller than the values of a single time
+            for (int chunkSize = 1; chunkSize <= VALUES_PER_TIME + 1; chunkSize++) {
+                List<Long> paged = new ArrayList<>();
+                DataEntity<?> lastValue = null;
+                List<DataEntity<?>> chunk;
+                while (!(chunk = valueDAO.getStreamingSeriesValuesFor(request, series, null, chunkSize,
+                        lastValue, session)).isEmpty()) {
+                    assertThat(chunk.size(), is(lessThanOrEqualTo(chunkSize)));
+                    paged.addAll(getIds(chunk));
+                    lastValue = chunk.get(chunk.size() - 1);
+                }
+                assertThat(new HashSet<>(paged), hasSize(paged.size()));
+                assertThat(paged, is(expected));
+            }
+        } finally {
+            transaction.rollback();
+            returnSession(session);
+        }
+    }
+
+    private static List<Long> getIds(List<DataEntity<?>> values) {
+        return values.stream().map(DataEntity::getId).collect(Collectors.toList());
+    }
+
+    private static long getSeries(Session session, String offering) {
+        DatasetEntity dataset = (DatasetEntity) session.createCriteria(DatasetEntity.class)
+                .createAlias(DatasetEntity.PROPERTY_OFFERING, "o")
+                .add(Restrictions.eq("o." + OfferingEntity.IDENTIFIER, offering))
+                .uniqueResult();
+        return dataset.getId();
+    }
+}
@@ -146,6 +146,16 @@ public abstract class AbstractHibernateDatasource extends AbstractHibernateCoreD
 
     protected static final Integer BATCH_SIZE_DEFAULT_VALUE = 20;
 
+    protected static final String BATCH_ORDERING_KEY = "jdbc.batch.ordering";
+
+    protected static final String BATCH_ORDERING_TITLE = "Batch ordering";
+
+    protected static final String BATCH_ORDERING_DESCRIPTION =
+            "Should inserts and updates be ordered by entity, so that they can be combined into JDBC batches? "
+                    + "Recommended if the batched insertion of observations is enabled.";
+
+    protected static final Boolean BATCH_ORDERING_DEFAULT_VALUE = false;
+
     private Dialect dialect;
 
     private final ChoiceSettingDefinition databaseConceptDefinition = createDatabaseConceptDefinition();
@@ -271,6 +281,22 @@ public abstract class AbstractHibernateDatasource extends AbstractHibernateCoreD
         return def;
     }
 
+    /**
+     * Create settings definition for the ordering of JDBC batches
+     *
+     * @return JDBC batch ordering settings definition
+     */
+    protected BooleanSettingDefinition createBatchOrderingDefinition() {
+        BooleanSettingDefinition def = new BooleanSettingDefinition();
+        def.setGroup(ADVANCED_GROUP);
+        def.setOrder(9);
+        def.setKey(BATCH_ORDERING_KEY);
+        def.setTitle(BATCH_ORDERING_TITLE);
+        def.setDescription(BATCH_ORDERING_DESCRIPTION);
+        def.setDefaultValue(BATCH_ORDERING_DEFAULT_VALUE);
+        return def;
+    }
+
     /**
      * Get custom configuration from datasource settings
      *
@@ -69,6 +69,7 @@ public abstract class AbstractHibernateFullDBDatasource extends AbstractHibernat
             set.add(createSchemaDefinition(schemaDefault));
         }
         set.add(createBatchSizeDefinition(batchSizeDefault));
+        set.add(createBatchOrderingDefinition(BATCH_ORDERING_DEFAULT_VALUE));
         set.add(createProvidedJdbcDriverDefinition(providedJdbc));
         set.add(getDatabaseConceptDefinition());
         set.add(getFeatureConceptDefinition());
@@ -92,6 +93,7 @@ public abstract class AbstractHibernateFullDBDatasource extends AbstractHibernat
                         createMinPoolSizeDefinition(JavaHelper.asInteger(settings.get(MIN_POOL_SIZE_KEY))),
                         createMaxPoolSizeDefinition(JavaHelper.asInteger(settings.get(MAX_POOL_SIZE_KEY))),
                         createBatchSizeDefinition(JavaHelper.asInteger(settings.get(BATCH_SIZE_KEY))),
+                        createBatchOrderingDefinition((Boolean) settings.get(BATCH_ORDERING_KEY)),
                         createTimeZoneDefinition((String) settings.get(TIMEZONE_KEY)));
         if (supportsSchema) {
             settingDefinitions.add(schemaSetting);
@@ -112,6 +114,12 @@ public abstract class AbstractHibernateFullDBDatasource extends AbstractHibernat
         return def;
     }
 
+    protected SettingDefinition<?> createBatchOrderingDefinition(final Boolean defaultValue) {
+        BooleanSettingDefinition def = createBatchOrderingDefinition();
+        def.setDefaultValue(defaultValue);
+        return def;
+    }
+
     protected SettingDefinition<?> createProvidedJdbcDriverDefinition(final Boolean defaultValue) {
         BooleanSettingDefinition def = createProvidedJdbcDriverDefinition();
         def.setDefaultValue(defaultValue);
@@ -141,6 +149,12 @@ public abstract class AbstractHibernateFullDBDatasource extends AbstractHibernat
         if (settings.containsKey(BATCH_SIZE_KEY)) {
             p.put(HibernateConstants.JDBC_BATCH_SIZE, settings.get(BATCH_SIZE_KEY).toString());
         }
+        if (settings.containsKey(BATCH_ORDERING_KEY)
+                && Boolean.parseBoolean(settings.get(BATCH_ORDERING_KEY).toString())) {
+            p.put(HibernateConstants.ORDER_INSERTS, "true");
+            p.put(HibernateConstants.ORDER_UPDATES, "true");
+            p.put(HibernateConstants.BATCH_VERSIONED_DATA, "true");
+        }
         p.put(HibernateConstants.CONNECTION_AUTO_RECONNECT, "true");
         p.put(HibernateConstants.CONNECTION_AUTO_RECONNECT_FOR_POOLS, "true");
         p.put(HibernateConstants.CONNECTION_TEST_ON_BORROW, "true");
@@ -174,6 +188,7 @@ public abstract class AbstractHibernateFullDBDatasource extends AbstractHibernat
         if (current.containsKey(HibernateConstants.JDBC_BATCH_SIZE)) {
             settings.put(BATCH_SIZE_KEY, current.getProperty(HibernateConstants.JDBC_BATCH_SIZE));
         }
+        settings.put(BATCH_ORDERING_KEY, Boolean.valueOf(current.getProperty(HibernateConstants.ORDER_INSERTS)));
         settings.put(DATABASE_CONCEPT_KEY,  current.getProperty(DATABASE_CONCEPT_KEY));
         settings.put(FEATURE_CONCEPT_KEY,  current.getProperty(FEATURE_CONCEPT_KEY));
         settings.put(PROVIDED_JDBC_DRIVER_KEY,
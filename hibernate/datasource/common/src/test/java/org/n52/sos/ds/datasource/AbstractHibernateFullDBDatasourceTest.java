@@ -55,9 +55,9 @@ public class AbstractHibernateFullDBDatasourceTest
         extends TestCase {
     private AbstractHibernateFullDBDatasource ds;
 
-    private static int CHANGEABLE_COUNT = 10;
+    private static int CHANGEABLE_COUNT = 11;
 
-    private static int MAX_COUNT = 17;
+    private static int MAX_COUNT = 18;
 
     @Override
     protected void setUp() throws Exception {
@@ -125,6 +125,7 @@ public class AbstractHibernateFullDBDatasourceTest
         assertTrue(keys.contains(AbstractHibernateDatasource.MIN_POOL_SIZE_KEY));
         assertTrue(keys.contains(AbstractHibernateDatasource.MAX_POOL_SIZE_KEY));
         assertTrue(keys.contains(AbstractHibernateDatasource.BATCH_SIZE_KEY));
+        assertTrue(keys.contains(AbstractHibernateDatasource.BATCH_ORDERING_KEY));
         assertTrue(
                 changeable || settingsDefinitions || keys.contains(HibernateDatasourceConstants.HIBERNATE_DIRECTORY));
         assertTrue(changeable || keys.contains(AbstractHibernateDatasource.PROVIDED_JDBC_DRIVER_KEY));
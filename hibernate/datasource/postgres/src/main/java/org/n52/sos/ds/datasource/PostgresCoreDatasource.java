@@ -62,11 +62,12 @@ public class PostgresCoreDatasource extends AbstractPostgresDatasource {
 
     @Override
     public Set<SettingDefinition<?>> getChangableSettingDefinitions(Properties current) {
-        return filter(super.getChangableSettingDefinitions(current), ImmutableSet.of(BATCH_SIZE_KEY));
+        return filter(super.getChangableSettingDefinitions(current),
+                ImmutableSet.of(BATCH_SIZE_KEY, BATCH_ORDERING_KEY));
     }
 
     @Override
     public Set<SettingDefinition<?>> getSettingDefinitions() {
-        return filter(super.getSettingDefinitions(), ImmutableSet.of(BATCH_SIZE_KEY));
+        return filter(super.getSettingDefinitions(), ImmutableSet.of(BATCH_SIZE_KEY, BATCH_ORDERING_KEY));
     }
 }
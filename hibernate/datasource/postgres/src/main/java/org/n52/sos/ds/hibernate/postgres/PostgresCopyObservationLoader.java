@@ -0,0 +1,382 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.postgres;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.hibernate.EntityMode;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.internal.ForeignKeys;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.PostInsertIdentifierGenerator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.persister.entity.SingleTableEntityPersister;
+import org.hibernate.type.CompositeType;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.LiteralType;
+import org.hibernate.type.Type;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.sos.ds.hibernate.dao.observation.ObservationBulkLoader;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ObservationBulkLoader} that streams the observations into the
+ * database with the PostgreSQL <code>COPY</code> command. Tables and columns
+ * are taken from the Hibernate mapping of the observation entities, so only
+ * entities that are mapped to a single table and whose values are plain
+ * columns or many-to-one references are supported. All other observations
+ * and databases use the regular Hibernate insertion.
+ *
+ * @since 5.0.2
+ */
+public class PostgresCopyObservationLoader implements ObservationBulkLoader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PostgresCopyObservationLoader.class);
+
+    private static final int FLUSH_THRESHOLD = 10000;
+
+    private static final char QUOTE = '"';
+
+    private static final char DELIMITER = ',';
+
+    private static final char NEW_LINE = '\n';
+
+    @Override
+    public BulkLoad open(Session session) {
+        SessionImplementor sessionImplementor = (SessionImplementor) session;
+        if (!(sessionImplementor.getFactory().getJdbcServices().getDialect() instanceof PostgreSQL81Dialect)) {
+            return null;
+        }
+        if (!session.doReturningWork(connection -> connection.isWrapperFor(PGConnection.class))) {
+            LOGGER.debug("The JDBC connection does not provide the PostgreSQL copy API.");
+            return null;
+        }
+        return new CopyLoad(sessionImplementor);
+    }
+
+    /**
+     * The observations of one request, staged as CSV rows per table.
+     */
+    static class CopyLoad implements BulkLoad {
+        private final SessionImplementor session;
+
+        private final Dialect dialect;
+
+        private final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSSXXX");
+
+        private final Map<EntityPersister, Optional<CopyTable>> tables = new HashMap<>();
+
+        private final Map<CopyTable, StringBuilder> rows = new LinkedHashMap<>();
+
+        private int staged;
+
+        CopyLoad(SessionImplementor session) {
+            this(session, session.getFactory().getJdbcServices().getDialect());
+        }
+
+        CopyLoad(SessionImplementor session, Dialect dialect) {
+            this.session = session;
+            this.dialect = dialect;
+        }
+
+        @Override
+        public boolean add(DataEntity<?> observation) {
+            EntityPersister persister = session.getEntityPersister(null, observation);
+            Optional<CopyTable> table = tables.computeIfAbsent(persister, CopyTable::create);
+            if (!table.isPresent()) {
+                return false;
+            }
+            List<String> values = table.get().getValues(observation, this);
+            if (values == null) {
+                return false;
+            }
+            Serializable id = persister.getIdentifierGenerator().generate(session, observation);
+            persister.setIdentifier(observation, id, session);
+            StringBuilder builder = rows.computeIfAbsent(table.get(), t -> new StringBuilder());
+            appendValue(builder, id.toString());
+            if (table.get().getDiscriminator() != null) {
+                appendValue(builder.append(DELIMITER), table.get().getDiscriminator());
+            }
+            for (String value : values) {
+                appendValue(builder.append(DELIMITER), value);
+            }
+            builder.append(NEW_LINE);
+            if (++staged >= FLUSH_THRESHOLD) {
+                flush();
+            }
+            return true;
+        }
+
+        @Override
+        public void flush() throws HibernateException {
+            if (staged == 0) {
+                return;
+            }
+            // the staged rows reference datasets, features, codespaces, ...
+            // that may not be written yet
+            session.flush();
+            session.doWork(connection -> {
+                CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+                for (Map.Entry<CopyTable, StringBuilder> entry : rows.entrySet()) {
+                    try {
+                        long count = copyManager.copyIn(entry.getKey().getStatement(),
+                                new StringReader(entry.getValue().toString()));
+                        LOGGER.debug("Copied {} observations into {}.", count, entry.getKey().getTable());
+                    } catch (IOException e) {
+                        throw new SQLException("Error while copying observations", e);
+                    }
+                }
+            });
+            rows.clear();
+            staged = 0;
+        }
+
+        String format(Type type, Object value) {
+            if (value instanceof Date) {
+                return dateFormat.format((Date) value);
+            } else if (value instanceof BigDecimal) {
+                return ((BigDecimal) value).toPlainString();
+            } else if (value instanceof Number || value instanceof String || value instanceof Character) {
+                return value.toString();
+            } else if (type instanceof LiteralType) {
+                try {
+                    @SuppressWarnings("unchecked")
+                    String literal = ((LiteralType<Object>) type).objectToSQLString(value, dialect);
+                    return CopyTable.unquote(literal);
+                } catch (Exception e) {
+                    LOGGER.debug("Could not format value {} of type {}", value, type.getName(), e);
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        SessionImplementor getSession() {
+            return session;
+        }
+
+        static void appendValue(StringBuilder builder, String value) {
+            // unquoted empty values are NULL in CSV format
+            if (value != null) {
+                builder.append(QUOTE).append(value.replace("\"", "\"\"")).append(QUOTE);
+            }
+        }
+    }
+
+    /**
+     * The columns of an observation entity in the <code>COPY</code> statement.
+     */
+    static final class CopyTable {
+        private final SingleTableEntityPersister persister;
+
+        private final String table;
+
+        private final String discriminator;
+
+        private final List<Integer> properties;
+
+        private final List<Integer> collections;
+
+        private final String statement;
+
+        CopyTable(SingleTableEntityPersister persister, String discriminator, List<Integer> properties,
+                List<Integer> collections, List<String> columns) {
+            this.persister = persister;
+            this.table = persister.getTableName();
+            this.discriminator = discriminator;
+            this.properties = properties;
+            this.collections = collections;
+            this.statement = String.format("COPY %s (%s) FROM STDIN WITH (FORMAT csv)", table,
+                    String.join(", ", columns));
+        }
+
+        String getTable() {
+            return table;
+        }
+
+        String getStatement() {
+            return statement;
+        }
+
+        String getDiscriminator() {
+            return discriminator;
+        }
+
+        /**
+         * Get the column values of the observation.
+         *
+         * @return the values or <code>null</code> if a value is not supported
+         */
+        List<String> getValues(DataEntity<?> observation, CopyLoad load) {
+            Object[] values = persister.getPropertyValues(observation);
+            for (int i : collections) {
+                if (!isEmpty(values[i])) {
+                    return null;
+                }
+            }
+            Type[] types = persister.getPropertyTypes();
+            List<String> columns = new ArrayList<>(properties.size());
+            for (int i : properties) {
+                Type type = types[i];
+                Object value = values[i];
+                if (type.isComponentType()) {
+                    if (!isEmpty((CompositeType) type, value)) {
+                        return null;
+                    }
+                    for (int column = 0; column < type.getColumnSpan(load.getSession().getFactory()); column++) {
+                        columns.add(null);
+                    }
+                } else if (value == null) {
+                    columns.add(null);
+                } else if (type.isEntityType()) {
+                    Serializable id = ForeignKeys.getEntityIdentifierIfNotUnsaved(
+                            ((EntityType) type).getAssociatedEntityName(), value, load.getSession());
+                    columns.add(id.toString());
+                } else {
+                    String column = load.format(type, value);
+                    if (column == null) {
+                        return null;
+                    }
+                    columns.add(column);
+                }
+            }
+            return columns;
+        }
+
+        private static boolean isEmpty(Object value) {
+            return value == null
+                    || value instanceof Collection && ((Collection<?>) value).isEmpty()
+                    || value instanceof Map && ((Map<?, ?>) value).isEmpty();
+        }
+
+        private static boolean isEmpty(CompositeType type, Object value) {
+            if (value != null) {
+                for (Object property : type.getPropertyValues(value, EntityMode.POJO)) {
+                    if (property != null) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        static Optional<CopyTable> create(EntityPersister entityPersister) {
+            if (!(entityPersister instanceof SingleTableEntityPersister)
+                    || entityPersister.getIdentifierGenerator() instanceof PostInsertIdentifierGenerator
+                    || entityPersister.isVersioned()) {
+                return unsupported(entityPersister, "no single table entity with generated id");
+            }
+            SingleTableEntityPersister persister = (SingleTableEntityPersister) entityPersister;
+            List<String> columns = new ArrayList<>();
+            if (persister.getIdentifierColumnNames().length != 1) {
+                return unsupported(persister, "composite id");
+            }
+            columns.add(persister.getIdentifierColumnNames()[0]);
+            String discriminator = null;
+            if (persister.isInherited() || persister.getEntityMetamodel().hasSubclasses()) {
+                discriminator = unquote(persister.getDiscriminatorSQLValue());
+                if (discriminator == null || persister.getDiscriminatorColumnName() == null) {
+                    return unsupported(persister, "discriminator");
+                }
+                columns.add(persister.getDiscriminatorColumnName());
+            }
+            String[] names = persister.getPropertyNames();
+            Type[] types = persister.getPropertyTypes();
+            boolean[] insertable = persister.getPropertyInsertability();
+            List<Integer> properties = new ArrayList<>();
+            List<Integer> collections = new ArrayList<>();
+            for (int i = 0; i < names.length; i++) {
+                if (types[i].isCollectionType()) {
+                    // supported as long as they are empty
+                    collections.add(i);
+                    continue;
+                }
+                String[] propertyColumns = persister.getPropertyColumnNames(i);
+                if (!insertable[i] || propertyColumns.length == 0) {
+                    continue;
+                }
+                if (!persister.getTableName().equals(persister.getPropertyTableName(names[i]))) {
+                    return unsupported(persister, names[i]);
+                }
+                if (types[i].isEntityType() && (!((EntityType) types[i]).isReferenceToPrimaryKey()
+                        || propertyColumns.length != 1)
+                        || !types[i].isEntityType() && !types[i].isComponentType() && propertyColumns.length != 1) {
+                    return unsupported(persister, names[i]);
+                }
+                properties.add(i);
+                for (String column : propertyColumns) {
+                    columns.add(column);
+                }
+            }
+            return Optional.of(new CopyTable(persister, discriminator, properties, collections, columns));
+        }
+
+        private static Optional<CopyTable> unsupported(EntityPersister persister, String reason) {
+            LOGGER.debug("Observations of {} are not copied: {}", persister.getEntityName(), reason);
+            return Optional.empty();
+        }
+
+        /**
+         * Convert a SQL literal to the plain value of a CSV column.
+         *
+         * @return the value or <code>null</code> if the literal is neither a
+         *         string nor a number
+         */
+        static String unquote(String literal) {
+            if (literal == null) {
+                return null;
+            } else if (literal.length() > 1 && literal.startsWith("'") && literal.endsWith("'")) {
+                return literal.substring(1, literal.length() - 1).replace("''", "'");
+            } else if (literal.matches("-?\\d+(\\.\\d+)?") || "true".equals(literal) || "false".equals(literal)) {
+                return literal;
+            }
+            return null;
+        }
+    }
+}
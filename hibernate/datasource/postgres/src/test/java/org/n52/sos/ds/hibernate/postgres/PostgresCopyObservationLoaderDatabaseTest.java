@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.postgres;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assume.assumeThat;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.n52.hibernate.spatial.dialect.postgis.TimestampWithTimeZonePostgisPG95Dialect;
+import org.n52.iceland.i18n.I18NDAORepository;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.FeatureEntity;
+import org.n52.series.db.beans.FormatEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationDAO;
+import org.n52.sos.ds.hibernate.dao.observation.ObservationBatch;
+import org.n52.sos.ds.hibernate.dao.observation.ObservationBulkLoader.BulkLoad;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+
+/**
+ * Compares observations written with {@link PostgresCopyObservationLoader} to
+ * observations inserted via Hibernate, as done by the InsertResult operation.
+ * The test needs an empty PostGIS database and is skipped unless the system
+ * property {@value #URL} is set, e.g.
+ * <code>-Dsos.test.postgres.url=jdbc:postgresql://localhost:5432/sos_test</code>.
+ * The credentials are taken from {@value #USER} and {@value #PASSWORD}.
+ */
+public class PostgresCopyObservationLoaderDatabaseTest {
+
+    private static final String URL = "sos.test.postgres.url";
+
+    private static final String USER = "sos.test.postgres.user";
+
+    private static final String PASSWORD = "sos.test.postgres.password";
+
+    private static final String HIBERNATE = "hibernate/";
+
+    private static final String COPY = "copy/";
+
+    private static final String UNIT = "m";
+
+    private static final DateTime BEGIN = new DateTime(2020, 1, 1, 0, 0);
+
+    private static final List<String> RESOURCES = Arrays.asList(
+            "hbm/core/CategoryResource.hbm.xml",
+            "hbm/core/CodespaceResource.hbm.xml",
+            "hbm/core/FeatureResource.hbm.xml",
+            "hbm/core/FormatResource.hbm.xml",
+            "hbm/core/OfferingResource.hbm.xml",
+            "hbm/core/ParameterResource.hbm.xml",
+            "hbm/core/PhenomenonResource.hbm.xml",
+            "hbm/core/PlatformResource.hbm.xml",
+            "hbm/core/ProcedureHistoryResource.hbm.xml",
+            "hbm/core/ProcedureResource.hbm.xml",
+            "hbm/core/RelatedFeatureResource.hbm.xml",
+            "hbm/core/RelatedFeatureRoleResource.hbm.xml",
+            "hbm/core/ResultTemplateResource.hbm.xml",
+            "hbm/core/SamplingGeometryResource.hbm.xml",
+            "hbm/core/ServiceResource.hbm.xml",
+            "hbm/core/UnitResource.hbm.xml",
+            "hbm/dataset/DataResource.hbm.xml",
+            "hbm/dataset/DatasetResource.hbm.xml",
+            "hbm/dataset/RelatedDataResource.hbm.xml",
+            "hbm/dataset/RelatedDatasetResource.hbm.xml");
+
+    private static StandardServiceRegistry registry;
+
+    private static SessionFactory sessionFactory;
+
+    private final DaoFactory daoFactory = createDaoFactory();
+
+    @BeforeClass
+    public static void createSessionFactory() {
+        String url = System.getProperty(URL);
+        assumeThat("PostgreSQL database", url, is(notNullValue()));
+        Map<String, String> settings = new HashMap<>();
+        settings.put(AvailableSettings.DRIVER, "org.postgresql.Driver");
+        settings.put(AvailableSettings.URL, url);
+        settings.put(AvailableSettings.USER, System.getProperty(USER, "postgres"));
+        settings.put(AvailableSettings.PASS, System.getProperty(PASSWORD, "postgres"));
+        settings.put(AvailableSettings.DIALECT, TimestampWithTimeZonePostgisPG95Dialect.class.getName());
+        settings.put(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+        registry = new StandardServiceRegistryBuilder().applySettings(settings).build();
+        MetadataSources sources = new MetadataSources(registry);
+        RESOURCES.forEach(sources::addResource);
+        sessionFactory = sources.buildMetadata().buildSessionFactory();
+    }
+
+    @AfterClass
+    public static void destroySessionFactory() {
+        if (sessionFactory != null) {
+            sessionFactory.close();
+        }
+        if (registry != null) {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+
+    @Test
+    public void should_copy_the_observations_like_hibernate() throws OwsExceptionReport {
+        Session session = sessionFactory.openSession();
+        Transaction transaction = session.beginTransaction();
+        try {
+            HibernateMetadataCache.init(session);
+            FeatureEntity feature = createFeature(session);
+            DatasetEntity hibernateDataset = createDataset(session, feature, "Offering1");
+            DatasetEntity copyDataset = createDataset(session, feature, "Offering2");
+            session.flush();
+
+            CountingBulkLoad bulkLoad = new CountingBulkLoad(new PostgresCopyObservationLoader().open(session));
+            ObservationBatch batch = new ObservationBatch(bulkLoad);
+            AbstractObservationDAO observationDAO = daoFactory.getObservationDAO();
+            // unordered to check the dataset first/last values
+            int[] hours = { 3, 0, 7, 5, 1, 6, 2, 4 };
+            for (int hour : hours) {
+                observationDAO.insertObservationSingleValue(hibernateDataset, feature,
+                        createObservation(HIBERNATE, hour), new HashMap<>(), new HashMap<>(), session);
+                observationDAO.insertObservationSingleValue(copyDataset, feature,
+                        createObservation(COPY, hour), new HashMap<>(), new HashMap<>(), batch, session);
+            }
+            batch.updateDatasets(daoFactory.getSeriesDAO(), session);
+            session.flush();
+            session.clear();
+            assertThat("copied observations", bulkLoad.getCount(), is(hours.length));
+
+            List<DataEntity<?>> expected = getObservations(session, hibernateDataset);
+            List<DataEntity<?>> actual = getObservations(session, copyDataset);
+            assertThat(actual.size(), is(hours.length));
+            assertThat(actual.size(), is(expected.size()));
+            for (int i = 0; i < expected.size(); i++) {
+                assertSameObservation(actual.get(i), expected.get(i));
+            }
+
+            DatasetEntity expectedDataset = session.get(DatasetEntity.class, hibernateDataset.getId());
+            DatasetEntity actualDataset = session.get(DatasetEntity.class, copyDataset.getId());
+            assertThat(actualDataset.getFirstValueAt().getTime(), is(expectedDataset.getFirstValueAt().getTime()));
+            assertThat(actualDataset.getLastValueAt().getTime(), is(expectedDataset.getLastValueAt().getTime()));
+            assertThat(actualDataset.getFirstQuantityValue(),
+                    comparesEqualTo(expectedDataset.getFirstQuantityValue()));
+            assertThat(actualDataset.getLastQuantityValue(), comparesEqualTo(expectedDataset.getLastQuantityValue()));
+            assertThat(actualDataset.getFirstObservation().getId(), is(actual.get(0).getId()));
+            assertThat(actualDataset.getLastObservation().getId(), is(actual.get(actual.size() - 1).getId()));
+        } finally {
+            transaction.rollback();
+            session.close();
+        }
+    }
+
+    private void assertSameObservation(DataEntity<?> actual, DataEntity<?> expected) {
+        assertThat(actual.getIdentifier().substring(COPY.length()),
+                is(expected.getIdentifier().substring(HIBERNATE.length())));
+        assertThat(actual.getIdentifierCodespace().getId(), is(expected.getIdentifierCodespace().getId()));
+        assertThat(actual.getSamplingTimeStart().getTime(), is(expected.getSamplingTimeStart().getTime()));
+        assertThat(actual.getSamplingTimeEnd().getTime(), is(expected.getSamplingTimeEnd().getTime()));
+        assertThat(actual.getResultTime().getTime(), is(expected.getResultTime().getTime()));
+        assertThat(actual.isDeleted(), is(expected.isDeleted()));
+        assertThat(((QuantityDataEntity) actual).getValue(),
+                comparesEqualTo(((QuantityDataEntity) expected).getValue()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<DataEntity<?>> getObservations(Session session, DatasetEntity dataset) throws OwsExceptionReport {
+        return session.createCriteria(daoFactory.getObservationDAO().getObservationFactory().observationClass())
+                .add(Restrictions.eq(DataEntity.PROPERTY_DATASET + "." + DatasetEntity.PROPERTY_ID, dataset.getId()))
+                .addOrder(Order.asc(DataEntity.PROPERTY_SAMPLING_TIME_START)).list();
+    }
+
+    private OmObservation createObservation(String prefix, int hour) {
+        TimeInstant time = new TimeInstant(BEGIN.plusHours(hour));
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setObservationType(OmConstants.OBS_TYPE_MEASUREMENT);
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(constellation);
+        observation.setIdentifier(prefix + hour);
+        observation.setResultTime(time);
+        observation.setValue(new SingleObservationValue<>(time, new QuantityValue(new BigDecimal("1.5").multiply(
+                BigDecimal.valueOf(hour)), UNIT)));
+        return observation;
+    }
+
+    private DatasetEntity createDataset(Session session, FeatureEntity feature, String identifier)
+            throws OwsExceptionReport {
+        OfferingEntity offering = new OfferingEntity();
+        offering.setIdentifier(identifier);
+        offering.setName(identifier);
+        session.save(offering);
+        DatasetEntity dataset = (DatasetEntity) daoFactory.getSeriesDAO().getDatasetFactory()
+                .visit(daoFactory.getObservationDAO().getObservationFactory().numeric());
+        dataset.setObservableProperty(getPhenomenon(session));
+        dataset.setProcedure(getProcedure(session));
+        dataset.setFeature(feature);
+        dataset.setOffering(offering);
+        dataset.setObservationType(getFormat(session, OmConstants.OBS_TYPE_MEASUREMENT));
+        dataset.setDeleted(false);
+        dataset.setPublished(true);
+        session.save(dataset);
+        return dataset;
+    }
+
+    private FeatureEntity createFeature(Session session) {
+        FeatureEntity feature = new FeatureEntity();
+        feature.setIdentifier("FeatureOfInterest");
+        feature.setName("FeatureOfInterest");
+        feature.setFeatureType(getFormat(session, "FeatureOfInterestType"));
+        session.save(feature);
+        return feature;
+    }
+
+    private PhenomenonEntity getPhenomenon(Session session) {
+        PhenomenonEntity phenomenon = (PhenomenonEntity) session.createCriteria(PhenomenonEntity.class)
+                .add(Restrictions.eq(PhenomenonEntity.IDENTIFIER, "ObservableProperty")).uniqueResult();
+        if (phenomenon == null) {
+            phenomenon = new PhenomenonEntity();
+            phenomenon.setIdentifier("ObservableProperty");
+            phenomenon.setDescription("ObservableProperty");
+            session.save(phenomenon);
+            session.flush();
+        }
+        return phenomenon;
+    }
+
+    private ProcedureEntity getProcedure(Session session) {
+        ProcedureEntity procedure = (ProcedureEntity) session.createCriteria(ProcedureEntity.class)
+                .add(Restrictions.eq(ProcedureEntity.IDENTIFIER, "Procedure")).uniqueResult();
+        if (procedure == null) {
+            procedure = new ProcedureEntity();
+            procedure.setIdentifier("Procedure");
+            procedure.setDeleted(false);
+            procedure.setFormat(getFormat(session, "ProcedureDescriptionFormat"));
+            session.save(procedure);
+            session.flush();
+        }
+        return procedure;
+    }
+
+    private FormatEntity getFormat(Session session, String format) {
+        FormatEntity entity = (FormatEntity) session.createCriteria(FormatEntity.class)
+                .add(Restrictions.eq(FormatEntity.FORMAT, format)).uniqueResult();
+        if (entity == null) {
+            entity = new FormatEntity();
+            entity.setFormat(format);
+            session.save(entity);
+            session.flush();
+        }
+        return entity;
+    }
+
+    private static DaoFactory createDaoFactory() {
+        DaoFactory daoFactory = new DaoFactory();
+        daoFactory.setI18NDAORepository(new I18NDAORepository());
+        return daoFactory;
+    }
+
+    /**
+     * Counts the observations that were staged for the <code>COPY</code>.
+     */
+    private static class CountingBulkLoad implements BulkLoad {
+        private final BulkLoad delegate;
+
+        private int count;
+
+        CountingBulkLoad(BulkLoad delegate) {
+            assertThat("bulk load", delegate, is(notNullValue()));
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean add(DataEntity<?> observation) {
+            boolean added = delegate.add(observation);
+            if (added) {
+                count++;
+            }
+            return added;
+        }
+
+        @Override
+        public void flush() {
+            delegate.flush();
+        }
+
+        int getCount() {
+            return count;
+        }
+    }
+}
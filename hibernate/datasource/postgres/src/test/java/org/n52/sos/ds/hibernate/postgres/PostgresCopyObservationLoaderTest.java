@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.postgres;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.dialect.PostgreSQL82Dialect;
+import org.hibernate.id.PostInsertIdentifierGenerator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.persister.entity.SingleTableEntityPersister;
+import org.hibernate.type.BooleanType;
+import org.hibernate.type.StringType;
+import org.hibernate.type.Type;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.sos.ds.hibernate.postgres.PostgresCopyObservationLoader.CopyLoad;
+import org.n52.sos.ds.hibernate.postgres.PostgresCopyObservationLoader.CopyTable;
+
+public class PostgresCopyObservationLoaderTest {
+
+    private CopyLoad load;
+
+    @Before
+    public void setUp() {
+        this.load = new CopyLoad(null, new PostgreSQL82Dialect());
+    }
+
+    @Test
+    public void should_unquote_string_literals() {
+        assertThat(CopyTable.unquote("'quantity'"), is("quantity"));
+        assertThat(CopyTable.unquote("'it''s'"), is("it's"));
+        assertThat(CopyTable.unquote("''"), is(""));
+    }
+
+    @Test
+    public void should_keep_number_and_boolean_literals() {
+        assertThat(CopyTable.unquote("42"), is("42"));
+        assertThat(CopyTable.unquote("-1.5"), is("-1.5"));
+        assertThat(CopyTable.unquote("true"), is("true"));
+        assertThat(CopyTable.unquote("false"), is("false"));
+    }
+
+    @Test
+    public void should_reject_other_literals() {
+        assertThat(CopyTable.unquote(null), is(nullValue()));
+        assertThat(CopyTable.unquote("'"), is(nullValue()));
+        assertThat(CopyTable.unquote("null"), is(nullValue()));
+        assertThat(CopyTable.unquote("ST_GeomFromText('POINT(1 2)')"), is(nullValue()));
+    }
+
+    @Test
+    public void should_quote_values() {
+        StringBuilder builder = new StringBuilder();
+        CopyLoad.appendValue(builder, "a,b");
+        assertThat(builder.toString(), is("\"a,b\""));
+    }
+
+    @Test
+    public void should_escape_quotes_in_values() {
+        StringBuilder builder = new StringBuilder();
+        CopyLoad.appendValue(builder, "say \"hi\"\n");
+        assertThat(builder.toString(), is("\"say \"\"hi\"\"\n\""));
+    }
+
+    @Test
+    public void should_encode_null_as_unquoted_empty_value() {
+        StringBuilder builder = new StringBuilder();
+        CopyLoad.appendValue(builder, null);
+        builder.append(',');
+        CopyLoad.appendValue(builder, "");
+        assertThat(builder.toString(), is(",\"\""));
+    }
+
+    @Test
+    public void should_format_dates_with_offset() throws Exception {
+        Date date = new Date(1234567890123L);
+        String value = load.format(null, date);
+        assertThat(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSSXXX").parse(value), is(date));
+    }
+
+    @Test
+    public void should_format_big_decimals_without_exponent() {
+        assertThat(load.format(null, new BigDecimal("1E+3")), is("1000"));
+        assertThat(load.format(null, new BigDecimal("0.000001")), is("0.000001"));
+    }
+
+    @Test
+    public void should_format_booleans_as_literals() {
+        assertThat(load.format(BooleanType.INSTANCE, Boolean.TRUE), is("true"));
+        assertThat(load.format(BooleanType.INSTANCE, Boolean.FALSE), is("false"));
+    }
+
+    @Test
+    public void should_not_format_values_without_literal() {
+        assertThat(load.format(mock(Type.class), new Object()), is(nullValue()));
+    }
+
+    @Test
+    public void should_not_copy_other_persisters() {
+        assertThat(CopyTable.create(mock(EntityPersister.class)).isPresent(), is(false));
+    }
+
+    @Test
+    public void should_not_copy_post_insert_identifiers() {
+        SingleTableEntityPersister persister = mock(SingleTableEntityPersister.class);
+        when(persister.getIdentifierGenerator()).thenReturn(mock(PostInsertIdentifierGenerator.class));
+        assertThat(CopyTable.create(persister).isPresent(), is(false));
+    }
+
+    @Test
+    public void should_copy_plain_values() {
+        DataEntity<?> observation = new QuantityDataEntity();
+        Type[] types = new Type[] { mock(Type.class), StringType.INSTANCE, StringType.INSTANCE };
+        CopyTable table = createTable(observation, types, new Object[] { Collections.emptySet(), "description", null });
+        assertThat(table.getValues(observation, load), contains("description", null));
+    }
+
+    @Test
+    public void should_not_copy_parameters() {
+        DataEntity<?> observation = new QuantityDataEntity();
+        CopyTable table = createTable(observation, new Type[] { mock(Type.class), StringType.INSTANCE },
+                new Object[] { Collections.singleton(new Object()), "description" });
+        assertThat(table.getValues(observation, load), is(nullValue()));
+    }
+
+    @Test
+    public void should_not_copy_child_observations() {
+        DataEntity<?> observation = new QuantityDataEntity();
+        CopyTable table = createTable(observation, new Type[] { mock(Type.class), StringType.INSTANCE },
+                new Object[] { Collections.singletonList(new QuantityDataEntity()), "description" });
+        assertThat(table.getValues(observation, load), is(nullValue()));
+    }
+
+    @Test
+    public void should_not_copy_geometries() {
+        DataEntity<?> observation = new QuantityDataEntity();
+        CopyTable table = createTable(observation, new Type[] { mock(Type.class), mock(Type.class) },
+                new Object[] { Collections.emptySet(), new Object() });
+        assertThat(table.getValues(observation, load), is(nullValue()));
+    }
+
+    /**
+     * Create a table whose first property is a collection and all other
+     * properties are columns.
+     */
+    private CopyTable createTable(DataEntity<?> observation, Type[] types, Object[] values) {
+        SingleTableEntityPersister persister = mock(SingleTableEntityPersister.class);
+        when(persister.getTableName()).thenReturn("observation");
+        when(persister.getPropertyTypes()).thenReturn(types);
+        when(persister.getPropertyValues(observation)).thenReturn(values);
+        List<Integer> properties = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        columns.add("observationid");
+        for (int i = 1; i < types.length; i++) {
+            properties.add(i);
+            columns.add("column" + i);
+        }
+        return new CopyTable(persister, null, properties, Arrays.asList(0), columns);
+    }
+}
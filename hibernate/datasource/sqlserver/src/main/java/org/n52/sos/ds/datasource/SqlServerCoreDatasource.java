@@ -58,12 +58,12 @@ public class SqlServerCoreDatasource extends AbstractSqlServerDatasource {
     @Override
     public Set<SettingDefinition<?>> getChangableSettingDefinitions(Properties current) {
         return filter(super.getChangableSettingDefinitions(current),
-                ImmutableSet.of(BATCH_SIZE_KEY));
+                ImmutableSet.of(BATCH_SIZE_KEY, BATCH_ORDERING_KEY));
     }
 
     @Override
     public Set<SettingDefinition<?>> getSettingDefinitions() {
-        return filter(super.getSettingDefinitions(), ImmutableSet.of(BATCH_SIZE_KEY));
+        return filter(super.getSettingDefinitions(), ImmutableSet.of(BATCH_SIZE_KEY, BATCH_ORDERING_KEY));
     }
 
 }
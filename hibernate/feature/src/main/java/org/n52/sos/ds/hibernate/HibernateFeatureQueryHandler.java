@@ -32,10 +32,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.inject.Inject;
 
@@ -52,9 +57,12 @@ import org.locationtech.jts.geom.Geometry;
 import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.cache.ContentCacheController;
+import org.n52.iceland.ds.ConnectionProvider;
 import org.n52.iceland.exception.ows.concrete.NotYetSupportedException;
 import org.n52.iceland.i18n.I18NDAORepository;
 import org.n52.iceland.i18n.I18NSettings;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.series.db.beans.AbstractFeatureEntity;
 import org.n52.series.db.beans.FeatureEntity;
 import org.n52.shetland.ogc.filter.SpatialFilter;
@@ -68,6 +76,7 @@ import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.sos.SosConstants;
 import org.n52.shetland.util.JavaHelper;
 import org.n52.shetland.util.ReferencedEnvelope;
+import org.n52.sos.cache.FeatureSpatialIndex;
 import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.ds.FeatureQueryHandler;
 import org.n52.sos.ds.FeatureQueryHandlerQueryObject;
@@ -91,10 +100,13 @@ import com.google.common.base.Strings;
 
 @Configurable
 public class HibernateFeatureQueryHandler
-        implements FeatureQueryHandler, HibernateSqlQueryConstants {
+        implements FeatureQueryHandler, HibernateSqlQueryConstants, Destroyable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HibernateFeatureQueryHandler.class);
 
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new GroupedAndNamedThreadFactory("52n-feature-spatial-index"));
+
     private Locale defaultLocale;
 
     private boolean showAllLanguages;
@@ -111,6 +123,10 @@ public class HibernateFeatureQueryHandler
 
     private ContentCacheController contentCacheController;
 
+    private FeatureSpatialIndex featureSpatialIndex;
+
+    private HibernateSessionHolder sessionHolder;
+
     @Inject
     public void setDaoFactory(DaoFactory daoFactory) {
         this.daoFactory = daoFactory;
@@ -131,6 +147,16 @@ public class HibernateFeatureQueryHandler
         this.contentCacheController = ctrl;
     }
 
+    @Inject
+    public void setConnectionProvider(ConnectionProvider connectionProvider) {
+        this.sessionHolder = new HibernateSessionHolder(connectionProvider);
+    }
+
+    @Inject
+    public void setFeatureSpatialIndex(FeatureSpatialIndex featureSpatialIndex) {
+        this.featureSpatialIndex = featureSpatialIndex;
+    }
+
     @Setting(I18NSettings.I18N_DEFAULT_LANGUAGE)
     public void setDefaultLocale(String defaultLocale) {
         this.defaultLocale = new Locale(defaultLocale);
@@ -184,8 +210,15 @@ public class HibernateFeatureQueryHandler
                 List<String> identifiers = new LinkedList<>();
                 if (queryObject.isSetSpatialFilters()) {
                     SpatialFilter filter = queryObject.getSpatialFitler();
-                    final List<AbstractFeatureEntity> features = daoFactory.getFeatureDAO().getFeatures(session);
                     final Geometry envelope = getGeometryHandler().getFilterForNonSpatialDatasource(filter);
+                    final Set<String> candidates =
+                            getSpatialCandidates(Collections.singletonList(envelope), session);
+                    if (candidates != null && candidates.isEmpty()) {
+                        return identifiers;
+                    }
+                    final List<AbstractFeatureEntity> features = candidates == null
+                            ? daoFactory.getFeatureDAO().getFeatures(session)
+                            : daoFactory.getFeatureDAO().getFeatureOfInterestObjects(candidates, session);
                     FeatureVisitorContext context = getDefaultContext()
                             .setSession(session)
                             .setRequestedLanguage(queryObject.getI18N());
@@ -429,8 +462,21 @@ public class HibernateFeatureQueryHandler
                 envelopes.add(getGeometryHandler().getFilterForNonSpatialDatasource(filter));
             }
         }
+        Collection<String> features = queryObject.getFeatures();
+        if (hasSpatialFilter) {
+            Set<String> candidates = getSpatialCandidates(envelopes, session);
+            if (candidates != null) {
+                if (queryObject.isSetFeatures()) {
+                    candidates.retainAll(queryObject.getFeatures());
+                }
+                if (candidates.isEmpty()) {
+                    return featureMap;
+                }
+                features = candidates;
+            }
+        }
         final List<AbstractFeatureEntity> featuresOfInterest =
-                daoFactory.getFeatureDAO().getFeatureOfInterestObjects(queryObject.getFeatures(), session);
+                daoFactory.getFeatureDAO().getFeatureOfInterestObjects(features, session);
         for (final AbstractFeatureEntity feature : featuresOfInterest) {
             final AbstractSamplingFeature sosAbstractFeature =
                     (AbstractSamplingFeature) createSosAbstractFeature(feature, queryObject, session);
@@ -443,6 +489,97 @@ public class HibernateFeatureQueryHandler
         return featureMap;
     }
 
+    /**
+     * Preselects the features whose envelope intersects one of the filter geometries using the
+     * {@link FeatureSpatialIndex}. The index is built in the background on first use and after complete cache
+     * updates, in the meantime the previous index is used or no preselection is done. Features inserted since the
+     * build are resolved before the query. The exact filter check is left to the caller.
+     *
+     * @param filters
+     *                the filter geometries in datasource axis order
+     * @param session
+     *                Hibernate session
+     * @return the candidate feature identifiers or {@code null} if no index is available
+     * @throws OwsExceptionReport
+     *                            If the geometry of a feature can not be created
+     */
+    protected Set<String> getSpatialCandidates(Collection<Geometry> filters, Session session)
+            throws OwsExceptionReport {
+        if (featureSpatialIndex == null || sessionHolder == null) {
+            return null;
+        }
+        buildFeatureSpatialIndex();
+        if (!featureSpatialIndex.isInitialized()) {
+            return null;
+        }
+        Set<String> unresolved = featureSpatialIndex.getUnresolved();
+        if (!unresolved.isEmpty()) {
+            for (AbstractFeatureEntity feature : daoFactory.getFeatureDAO()
+                    .getFeatureOfInterestObjects(unresolved, session)) {
+                featureSpatialIndex.put(feature.getIdentifier(), getStoredEnvelope(feature, session));
+                unresolved.remove(feature.getIdentifier());
+            }
+            // not (yet) stored
+            unresolved.forEach(identifier -> featureSpatialIndex.put(identifier, null));
+        }
+        Set<String> candidates = new HashSet<>();
+        for (Geometry filter : filters) {
+            candidates.addAll(featureSpatialIndex.query(filter.getEnvelopeInternal()));
+        }
+        return candidates;
+    }
+
+    /**
+     * Start a background build of the {@link FeatureSpatialIndex} if it is missing or outdated and no build is
+     * running.
+     */
+    private void buildFeatureSpatialIndex() {
+        if (featureSpatialIndex.startBuild()) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        featureSpatialIndex.completeBuild(loadFeatureEnvelopes());
+                    } catch (OwsExceptionReport | RuntimeException e) {
+                        LOGGER.warn("Error while building the feature spatial index", e);
+                        featureSpatialIndex.abortBuild();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("Feature spatial index build rejected", e);
+                featureSpatialIndex.abortBuild();
+            }
+        }
+    }
+
+    /**
+     * Load the envelopes of the stored geometries of all features.
+     *
+     * @return the envelopes per feature identifier
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    private Map<String, Envelope> loadFeatureEnvelopes() throws OwsExceptionReport {
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            Map<String, Envelope> featureEnvelopes = new HashMap<>();
+            for (AbstractFeatureEntity feature : daoFactory.getFeatureDAO().getFeatures(session)) {
+                featureEnvelopes.put(feature.getIdentifier(), getStoredEnvelope(feature, session));
+            }
+            return featureEnvelopes;
+        } catch (HibernateException he) {
+            throw new NoApplicableCodeException().causedBy(he)
+                    .withMessage("Error while loading the feature envelopes for the spatial index!");
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    private Envelope getStoredEnvelope(AbstractFeatureEntity feature, Session session) throws OwsExceptionReport {
+        final Geometry geom = new HibernateGeometryVisitor(getDefaultContext().setSession(session)).visit(feature);
+        return geom == null || geom.isEmpty() ? null : geom.getEnvelopeInternal();
+    }
+
     protected Map<String, AbstractFeature> getFeaturesForSpatialDatasource(FeatureQueryHandlerQueryObject queryObject)
             throws OwsExceptionReport {
         final Session session = HibernateSessionHolder.getSession(queryObject.getConnection());
@@ -482,6 +619,11 @@ public class HibernateFeatureQueryHandler
         this.updateFeatureGeometry = updateFeatureGeometry;
     }
 
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
     @Override
     @Deprecated
     public String getDatasourceDaoIdentifier() {
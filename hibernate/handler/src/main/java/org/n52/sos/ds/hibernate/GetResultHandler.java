@@ -31,6 +31,7 @@ package org.n52.sos.ds.hibernate;
 import static org.n52.janmayen.http.HTTPStatus.INTERNAL_SERVER_ERROR;
 import static org.n52.shetland.util.CollectionHelper.isNotEmpty;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -39,8 +40,10 @@ import javax.inject.Inject;
 
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
 import org.hibernate.Session;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
@@ -64,11 +67,15 @@ import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.QueryHelper;
 import org.n52.sos.ds.hibernate.util.ResultHandlingHelper;
+import org.n52.sos.ds.hibernate.util.ScrollableIterable;
 import org.n52.sos.ds.hibernate.util.SosTemporalRestrictions;
 import org.n52.sos.ds.hibernate.util.SpatialRestrictions;
+import org.n52.sos.ds.hibernate.values.HibernateStreamingConfiguration;
+import org.n52.sos.ds.hibernate.values.HibernateStreamingSettings;
 import org.n52.sos.exception.ows.concrete.UnsupportedOperatorException;
 import org.n52.sos.exception.ows.concrete.UnsupportedTimeException;
 import org.n52.sos.exception.ows.concrete.UnsupportedValueReferenceException;
+import org.n52.sos.response.StreamingGetResultResponse;
 import org.n52.sos.service.SosSettings;
 import org.n52.sos.util.GeometryHandler;
 import org.n52.sos.util.JTSConverter;
@@ -95,6 +102,8 @@ public class GetResultHandler extends AbstractGetResultHandler {
     private GeometryHandler geometryHandler;
 
     private boolean strictSpatialFilteringProfile;
+    private boolean streamingDatasource = HibernateStreamingConfiguration.DEFAULT_GET_RESULT_STREAMING_DATASOURCE;
+    private int chunkSize = HibernateStreamingConfiguration.DEFAULT_CHUNK_SIZE;
 
     public GetResultHandler() {
         super(SosConstants.SOS);
@@ -125,12 +134,23 @@ public class GetResultHandler extends AbstractGetResultHandler {
         this.strictSpatialFilteringProfile = strictSpatialFilteringProfile;
     }
 
+    @Setting(HibernateStreamingSettings.GET_RESULT_STREAMING)
+    public void setStreamingDatasource(boolean streamingDatasource) {
+        this.streamingDatasource = streamingDatasource;
+    }
+
+    @Setting(HibernateStreamingSettings.CHUNK_SIZE)
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
     @Override
     public GetResultResponse getResult(final GetResultRequest request) throws OwsExceptionReport {
         Session session = null;
         try {
             session = sessionHolder.getSession();
-            final GetResultResponse response = new GetResultResponse();
+            final GetResultResponse response = streamingDatasource ? new StreamingGetResultResponse()
+                    : new GetResultResponse();
             response.setService(request.getService());
             response.setVersion(request.getVersion());
             final Set<String> featureIdentifier = QueryHelper.getFeatures(this.featureQueryHandler, request, session);
@@ -138,10 +158,14 @@ public class GetResultHandler extends AbstractGetResultHandler {
             if (isNotEmpty(resultTemplates)) {
                 final SosResultEncoding sosResultEncoding = createSosResultEncoding(resultTemplates.get(0).getEncoding());
                 final SosResultStructure sosResultStructure = createSosResultStructure(resultTemplates.get(0).getStructure());
-                final List<DataEntity<?>> observations;
-                    observations = querySeriesObservation(request, featureIdentifier, session);
-                response.setResultValues(new ResultHandlingHelper(geometryHandler, daoFactory.getSweHelper()).createResultValuesFromObservations(observations,
-                        sosResultEncoding, sosResultStructure, getProfileHandler().getActiveProfile().getResponseNoDataPlaceholder()));
+                if (streamingDatasource) {
+                    ((StreamingGetResultResponse) response).setResultValuesWriter(out -> writeStreamingResultValues(
+                            request, featureIdentifier, sosResultEncoding, sosResultStructure, out));
+                } else {
+                    final List<DataEntity<?>> observations = querySeriesObservation(request, featureIdentifier, session);
+                    response.setResultValues(new ResultHandlingHelper(geometryHandler, daoFactory.getSweHelper()).createResultValuesFromObservations(observations,
+                            sosResultEncoding, sosResultStructure, getProfileHandler().getActiveProfile().getResponseNoDataPlaceholder()));
+                }
             }
             return response;
         } catch (final HibernateException he) {
@@ -191,24 +215,84 @@ public class GetResultHandler extends AbstractGetResultHandler {
     @SuppressWarnings("unchecked")
     protected List<DataEntity<?>> querySeriesObservation(GetResultRequest request,
             Collection<String> featureIdentifiers, Session session) throws OwsExceptionReport {
-        final Criteria c = createCriteriaFor(DataEntity.class, session);
-        addSpatialFilteringProfileRestrictions(c, request, session);
-        addParentChildRestriction(c);
-
         List<DatasetEntity> series = daoFactory.getSeriesDAO().getSeries(request, featureIdentifiers, session);
         if (CollectionHelper.isEmpty(series)) {
             return null;
-        } else {
-            c.add(Restrictions.in(DataEntity.PROPERTY_DATASET, series));
         }
+        final Criteria c = createObservationCriteria(request, series, true, session);
+        LOGGER.debug("QUERY queryObservation(request, featureIdentifiers): {}", HibernateHelper.getSqlString(c));
+        return c.list();
+
+    }
+
+    /**
+     * Query the series observations with a scrollable result and write the
+     * result values block by block to the response output. The values are
+     * written after the request is processed, so a separate session is used.
+     * The observations are evicted from the session after they are written,
+     * so the memory usage does not depend on the number of loaded entities.
+     *
+     * @param request
+     *            GetResult request
+     * @param featureIdentifiers
+     *            Set of feature identifiers
+     * @param sosResultEncoding
+     *            The ResultEncoding
+     * @param sosResultStructure
+     *            The ResultStructure
+     * @param out
+     *            Output to write the result values to
+     * @throws OwsExceptionReport
+     *             If an error occurs.
+     * @throws IOException
+     *             If writing to the output fails
+     */
+    protected void writeStreamingResultValues(GetResultRequest request, Collection<String> featureIdentifiers,
+            SosResultEncoding sosResultEncoding, SosResultStructure sosResultStructure, Appendable out)
+            throws OwsExceptionReport, IOException {
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            List<DatasetEntity> series = daoFactory.getSeriesDAO().getSeries(request, featureIdentifiers, session);
+            if (CollectionHelper.isEmpty(series)) {
+                return;
+            }
+            final Criteria count = createObservationCriteria(request, series, false, session)
+                    .setProjection(Projections.rowCount());
+            LOGGER.debug("QUERY queryObservationCount(request, featureIdentifiers): {}",
+                    HibernateHelper.getSqlString(count));
+            long size = ((Number) count.uniqueResult()).longValue();
+            if (size > 0) {
+                final Criteria c = createObservationCriteria(request, series, true, session).setFetchSize(chunkSize);
+                LOGGER.debug("QUERY queryObservation(request, featureIdentifiers): {}",
+                        HibernateHelper.getSqlString(c));
+                try (ScrollableIterable<DataEntity<?>> observations =
+                        ScrollableIterable.fromResults(c.scroll(ScrollMode.FORWARD_ONLY), session)) {
+                    new ResultHandlingHelper(geometryHandler, daoFactory.getSweHelper())
+                            .writeResultValuesFromObservations(observations, size, sosResultEncoding,
+                                    sosResultStructure,
+                                    getProfileHandler().getActiveProfile().getResponseNoDataPlaceholder(), out);
+                }
+            }
+        } catch (final HibernateException he) {
+            throw new NoApplicableCodeException().causedBy(he).withMessage("Error while querying result data!")
+                    .setStatus(INTERNAL_SERVER_ERROR);
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
 
+    private Criteria createObservationCriteria(GetResultRequest request, List<DatasetEntity> series, boolean ordered,
+            Session session) throws OwsExceptionReport {
+        final Criteria c = ordered ? createCriteriaFor(DataEntity.class, session)
+                : session.createCriteria(DataEntity.class).add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false));
+        addSpatialFilteringProfileRestrictions(c, request, session);
+        addParentChildRestriction(c);
+        c.add(Restrictions.in(DataEntity.PROPERTY_DATASET, series));
         if (request.getTemporalFilter() != null && !request.getTemporalFilter().isEmpty()) {
             addTemporalFilter(c, request.getTemporalFilter());
         }
-
-        LOGGER.debug("QUERY queryObservation(request, featureIdentifiers): {}", HibernateHelper.getSqlString(c));
-        return c.list();
-
+        return c;
     }
 
     /**
@@ -30,7 +30,9 @@ package org.n52.sos.ds.hibernate;
 
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -72,6 +74,10 @@ import org.n52.shetland.ogc.sos.response.InsertObservationResponse;
 import org.n52.sos.ds.AbstractInsertObservationHandler;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationDAO;
+import org.n52.sos.ds.hibernate.dao.observation.ObservationBatch;
+import org.n52.sos.ds.hibernate.ingest.WriteBehindIngest;
+import org.n52.sos.ds.hibernate.util.DatasetLocks;
+import org.n52.sos.ds.hibernate.util.DatasetLocks.DatasetLock;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.service.SosSettings;
 
@@ -87,12 +93,16 @@ import com.google.common.collect.Table.Cell;
 @Configurable
 public class InsertObservationHandler extends AbstractInsertObservationHandler  {
     private static final int FLUSH_THRESHOLD = 50;
-    private static final String CONSTRAINT_OBSERVATION_IDENTITY = "observationIdentity";
-    private static final String CONSTRAINT_OBSERVATION_IDENTIFIER_IDENTITY = "obsIdentifierUK";
+    private static final String CONSTRAINT_OBSERVATION_IDENTITY = DatasetLocks.CONSTRAINT_OBSERVATION_IDENTITY;
+    private static final String CONSTRAINT_OBSERVATION_IDENTIFIER_IDENTITY =
+            DatasetLocks.CONSTRAINT_OBSERVATION_IDENTIFIER_IDENTITY;
 
     private HibernateSessionHolder sessionHolder;
     private DaoFactory daoFactory;
+    private DatasetLocks datasetLocks = new DatasetLocks();
     private boolean strictSpatialFilteringProfile;
+    private boolean batchedInsertion;
+    private WriteBehindIngest writeBehindIngest;
 
     @Inject
     public void setDaoFactory(DaoFactory daoFactory) {
@@ -104,11 +114,27 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
     }
 
+    @Inject
+    public void setDatasetLocks(DatasetLocks datasetLocks) {
+        this.datasetLocks = datasetLocks;
+    }
+
+    @Inject
+    public void setWriteBehindIngest(WriteBehindIngest writeBehindIngest) {
+        this.writeBehindIngest = writeBehindIngest;
+        writeBehindIngest.setObservationWriter(this::insert, this::isStored);
+    }
+
     @Setting(SosSettings.STRICT_SPATIAL_FILTERING_PROFILE)
     public void setStrictSpatialFilteringProfile(final boolean strictSpatialFilteringProfile) {
         this.strictSpatialFilteringProfile = strictSpatialFilteringProfile;
     }
 
+    @Setting(SosSettings.BATCHED_INSERTION)
+    public void setBatchedInsertion(boolean batchedInsertion) {
+        this.batchedInsertion = batchedInsertion;
+    }
+
     /**
      * constructor
      */
@@ -117,13 +143,46 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
     }
 
     @Override
-    public synchronized InsertObservationResponse insertObservation(final InsertObservationRequest request)
+    public boolean isWriteBehind(InsertObservationRequest request) {
+        return writeBehindIngest != null && writeBehindIngest.accepts(request);
+    }
+
+    @Override
+    public InsertObservationResponse insertObservation(final InsertObservationRequest request)
+            throws OwsExceptionReport {
+        return insertObservation(request, isWriteBehind(request));
+    }
+
+    @Override
+    public InsertObservationResponse insertObservation(InsertObservationRequest request, boolean writeBehind)
+            throws OwsExceptionReport {
+        if (writeBehind) {
+            return writeBehindIngest.submit(request);
+        }
+        return insert(request);
+    }
+
+    private InsertObservationResponse insert(final InsertObservationRequest request)
+            throws OwsExceptionReport {
+        for (int attempt = 1;; attempt++) {
+            try {
+                return insertInTransaction(request);
+            } catch (PersistenceException pe) {
+                if (!datasetLocks.retry(pe, attempt)) {
+                    handleHibernateException(pe);
+                }
+            }
+        }
+    }
+
+    private InsertObservationResponse insertInTransaction(final InsertObservationRequest request)
             throws OwsExceptionReport {
         final InsertObservationResponse response = new InsertObservationResponse();
         response.setService(request.getService());
         response.setVersion(request.getVersion());
         Session session = null;
         Transaction transaction = null;
+        DatasetLock lock = datasetLocks.lock(request.getObservations());
 
         // TODO: checkConstellation unit and set if available and not defined in DB
         try {
@@ -131,7 +190,10 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
             transaction = session.beginTransaction();
 
             CompositeOwsException exceptions = new CompositeOwsException();
-            InsertObservationCache cache = new InsertObservationCache();
+            InsertObservationCache cache = new InsertObservationCache(batchedInsertion);
+            if (batchedInsertion) {
+                session.setJdbcBatchSize(FLUSH_THRESHOLD);
+            }
 
             cache.addOfferings(request.getOfferings());
 
@@ -165,15 +227,19 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
                 throw exceptions;
             }
 
+            if (cache.getBatch() != null) {
+                cache.getBatch().updateDatasets(daoFactory.getSeriesDAO(), session);
+            }
             session.flush();
             transaction.commit();
         } catch (PersistenceException pe) {
             if (transaction != null) {
                 transaction.rollback();
             }
-            handleHibernateException(pe);
+            throw pe;
         } finally {
             sessionHolder.returnSession(session);
+            lock.close();
         }
         /*
          * TODO: ... all the DS insertion stuff Requirement 68
@@ -183,6 +249,58 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
         return response;
     }
 
+    /**
+     * Check if all observations of the request are already stored, e.g. if a
+     * queued request is written again after a crash. Only observations with
+     * a single value are checked, by their identifier if they have one, else
+     * by their dataset, phenomenon time and result time.
+     *
+     * @param request
+     *            the request
+     * @return <code>true</code> if all observations are stored
+     * @throws OwsExceptionReport
+     *             if the observations could not be queried
+     */
+    private boolean isStored(InsertObservationRequest request) throws OwsExceptionReport {
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            for (OmObservation observation : request.getObservations()) {
+                if (!isStored(observation, request.getOfferings(), session)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (HibernateException he) {
+            throw new NoApplicableCodeException().causedBy(he)
+                    .withMessage("Error while checking for stored observations!");
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    private boolean isStored(OmObservation observation, List<String> offerings, Session session) {
+        if (!(observation.getValue() instanceof SingleObservationValue)) {
+            return false;
+        }
+        AbstractObservationDAO observationDAO = daoFactory.getObservationDAO();
+        if (observation.isSetIdentifier()) {
+            return observationDAO.isIdentifierContained(observation.getIdentifier(), session);
+        }
+        OmObservationConstellation constellation = observation.getObservationConstellation();
+        // the observations are inserted into the dataset of the first offering
+        String offering = constellation.isSetOfferings() ? constellation.getOfferings().iterator().next()
+                : offerings.isEmpty() ? null : offerings.get(0);
+        if (offering == null) {
+            return false;
+        }
+        List<DatasetEntity> datasets = daoFactory.getSeriesDAO().getSeries(constellation.getProcedureIdentifier(),
+                constellation.getObservablePropertyIdentifier(), offering,
+                Collections.singleton(constellation.getFeatureOfInterestIdentifier()), session);
+        return datasets.stream().anyMatch(dataset -> observationDAO.isObservationContained(dataset, observation,
+                session));
+    }
+
     @Override
     public boolean isSupported() {
         return HibernateHelper.isEntitySupported(ProcedureHistoryEntity.class);
@@ -238,11 +356,11 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
             if (sosObservation.getValue() instanceof SingleObservationValue) {
                 dataset = observationDAO.insertObservationSingleValue(
                         hDataset, hFeature, sosObservation,
-                        cache.getCodespaceCache(), cache.getUnitCache(), session);
+                        cache.getCodespaceCache(), cache.getUnitCache(), cache.getBatch(), session);
             } else if (sosObservation.getValue() instanceof MultiObservationValues) {
                 dataset = observationDAO.insertObservationMultiValue(
                         hDataset, hFeature, sosObservation,
-                        cache.getCodespaceCache(), cache.getUnitCache(), session);
+                        cache.getCodespaceCache(), cache.getUnitCache(), cache.getBatch(), session);
             }
             if (dataset != null && !cache.get(sosObsConst, offeringID).equals(dataset)) {
                 cache.putConstellation(sosObsConst, offeringID, dataset);
@@ -345,7 +463,11 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
         private final Map<UoM, UnitEntity> unitCache = Maps.newHashMap();
         private final HashMultimap<OmObservationConstellation, String> obsConstOfferingCheckedMap = HashMultimap.create();
         private final HashMultimap<AbstractFeature, String> relatedFeatureCheckedMap = HashMultimap.create();
+        private final ObservationBatch batch;
 
+        InsertObservationCache(boolean batched) {
+            this.batch = batched ? new ObservationBatch() : null;
+        }
 
         public DatasetEntity get(OmObservationConstellation oc, String offering) {
             return this.obsConstOfferingHibernateObsConstTable.get(oc, offering);
@@ -391,6 +513,9 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
         public Map<UoM, UnitEntity> getUnitCache() {
             return unitCache;
         }
+        public ObservationBatch getBatch() {
+            return batch;
+        }
         public Set<String> getAllOfferings() {
             return allOfferings;
         }
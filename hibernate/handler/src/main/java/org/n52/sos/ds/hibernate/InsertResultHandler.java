@@ -28,11 +28,16 @@
  */
 package org.n52.sos.ds.hibernate;
 
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -56,6 +61,8 @@ import org.n52.series.db.beans.UnitEntity;
 import org.n52.shetland.ogc.UoM;
 import org.n52.shetland.ogc.gml.AbstractFeature;
 import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
 import org.n52.shetland.ogc.om.MultiObservationValues;
 import org.n52.shetland.ogc.om.OmConstants;
 import org.n52.shetland.ogc.om.OmObservableProperty;
@@ -92,10 +99,17 @@ import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.FeatureOfInterestDAO;
 import org.n52.sos.ds.hibernate.dao.FormatDAO;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationDAO;
+import org.n52.sos.ds.hibernate.dao.observation.ObservationBatch;
+import org.n52.sos.ds.hibernate.dao.observation.ObservationBulkLoader;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
+import org.n52.sos.ds.hibernate.ingest.WriteBehindIngest;
+import org.n52.sos.ds.hibernate.util.DatasetLocks;
+import org.n52.sos.ds.hibernate.util.DatasetLocks.DatasetLock;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.ResultHandlingHelper;
+import org.n52.sos.ds.hibernate.util.ResultValuesTokenizer;
 import org.n52.sos.ds.hibernate.util.observation.ObservationUnfolder;
+import org.n52.sos.service.SosSettings;
 import org.n52.sos.util.GeometryHandler;
 import org.n52.svalbard.util.SweHelper;
 import org.slf4j.Logger;
@@ -120,9 +134,15 @@ public class InsertResultHandler
     public static final String CONVERT_COMPLEX_PROFILE_TO_SINGLE_PROFILES =
             "misc.convertComplexProfileToSingleProfiles";
     private static final int FLUSH_THRESHOLD = 50;
+    private static final int STREAMING_BATCH_SIZE = 500;
     private HibernateSessionHolder sessionHolder;
     private DaoFactory daoFactory;
+    private DatasetLocks datasetLocks = new DatasetLocks();
     private boolean convertComplexProfileToSingleProfiles;
+    private boolean batchedInsertion;
+    private boolean bulkLoad;
+    private ObservationBulkLoader bulkLoader;
+    private WriteBehindIngest writeBehindIngest;
     private GeometryHandler geometryHandler;
     private ResultHandlingHelper helper;
     private SweHelper sweHelper;
@@ -141,6 +161,11 @@ public class InsertResultHandler
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
     }
 
+    @Inject
+    public void setDatasetLocks(DatasetLocks datasetLocks) {
+        this.datasetLocks = datasetLocks;
+    }
+
     @Inject
     public void setGeometryHandler(GeometryHandler geometryHandler) {
         this.geometryHandler = geometryHandler;
@@ -151,102 +176,121 @@ public class InsertResultHandler
         this.sweHelper = sweHelper;
     }
 
+    @Inject
+    public void setWriteBehindIngest(WriteBehindIngest writeBehindIngest) {
+        this.writeBehindIngest = writeBehindIngest;
+        writeBehindIngest.setResultWriter(this::insert);
+    }
+
+    @Inject
+    public void setObservationBulkLoader(Optional<ObservationBulkLoader> bulkLoader) {
+        if (bulkLoader != null && bulkLoader.isPresent()) {
+            this.bulkLoader = bulkLoader.get();
+        }
+    }
+
     @Override
     public void init() {
         helper = new ResultHandlingHelper(geometryHandler, sweHelper);
     }
 
     @Override
-    public synchronized InsertResultResponse insertResult(final InsertResultRequest request)
+    public boolean isWriteBehind(InsertResultRequest request) {
+        return writeBehindIngest != null && writeBehindIngest.accepts(request);
+    }
+
+    @Override
+    public InsertResultResponse insertResult(final InsertResultRequest request)
+            throws OwsExceptionReport {
+        return insertResult(request, isWriteBehind(request));
+    }
+
+    @Override
+    public InsertResultResponse insertResult(InsertResultRequest request, boolean writeBehind)
+            throws OwsExceptionReport {
+        if (writeBehind) {
+            return writeBehindIngest.submit(request);
+        }
+        return insert(request);
+    }
+
+    private InsertResultResponse insert(final InsertResultRequest request)
+            throws OwsExceptionReport {
+        for (int attempt = 1;; attempt++) {
+            try {
+                return insertInTransaction(request);
+            } catch (final HibernateException he) {
+                if (!datasetLocks.retry(he, attempt)) {
+                    // XXX exception text
+                    throw new NoApplicableCodeException().causedBy(he);
+                }
+            }
+        }
+    }
+
+    private InsertResultResponse insertInTransaction(final InsertResultRequest request)
             throws OwsExceptionReport {
         final InsertResultResponse response = new InsertResultResponse();
         response.setService(request.getService());
         response.setVersion(request.getVersion());
         Session session = null;
         Transaction transaction = null;
-
-        Map<String, CodespaceEntity> codespaceCache = Maps.newHashMap();
-        Map<UoM, UnitEntity> unitCache = Maps.newHashMap();
+        DatasetLock lock = null;
 
         try {
             session = sessionHolder.getSession();
             final ResultTemplateEntity resultTemplate =
                     daoFactory.getResultTemplateDAO().getResultTemplateObject(request.getTemplateIdentifier(),
                             session);
-            transaction = session.beginTransaction();
-            final OmObservation o =
-                    getSingleObservationFromResultValues(response.getVersion(), resultTemplate,
-                            request.getResultValues(), session);
-            final List<OmObservation> observations = getSingleObservationsFromObservation(o);
-            if (o.getObservationConstellation().isSetFeatureOfInterest()
-                    && o.getObservationConstellation().isSetProcedure()) {
-                response.setObservation(o);
-            } else {
-                response.setObservations(observations);
+            final SosResultEncoding resultEncoding = createSosResultEncoding(resultTemplate.getEncoding());
+            final SosResultStructure resultStructure = createSosResultStructure(resultTemplate.getStructure());
+            final SweAbstractEncoding encoding = resultEncoding.get().get();
+            final SweAbstractDataComponent structure = resultStructure.get().get();
+            final SweDataRecord record = setRecordFrom(structure);
+            final OmObservation o = getObservation(resultTemplate, structure, session);
+            final Iterator<List<String>> blocks = getBlockValues(request.getResultValues(), encoding);
+            final InsertResultCache cache = new InsertResultCache(batchedInsertion, getBulkLoad(session));
+            if (cache.getBatch() != null) {
+                session.setJdbcBatchSize(FLUSH_THRESHOLD);
             }
-
-            final AbstractSeriesDAO obsConstDao = daoFactory.getSeriesDAO();
-            final FormatDAO obsTypeDao = daoFactory.getObservationTypeDAO();
-            Map<OmObservationConstellation, DatasetEntity> obsConsts = new HashMap<>();
-
-            int insertion = 0;
-            final int size = observations.size();
-            final AbstractObservationDAO observationDAO = daoFactory.getObservationDAO();
-            LOGGER.debug("Start saving {} observations.", size);
-            Map<String, AbstractFeatureEntity> featureEntityMap = new HashMap<>();
-            for (final OmObservation observation : observations) {
-                OmObservationConstellation omObsConst = observation.getObservationConstellation();
-                if (!obsConsts.containsKey(omObsConst)) {
-                    DatasetEntity oc = obsConstDao.getSeries(omObsConst, session);
-                    if (oc != null) {
-                        obsConsts.put(omObsConst, oc);
-                    } else if (oc == null && isConvertComplexProfileToSingleProfiles() && observation.isSetValue()
-                            && observation.getValue().isSetValue()
-                            && observation.getValue().getValue() instanceof ProfileValue) {
-                        obsConsts.put(omObsConst, insertObservationConstellationForProfiles(obsConstDao, obsTypeDao,
-                                observation, session));
-                    }
-                }
-                DatasetEntity obsConst = obsConsts.get(observation.getObservationConstellation());
-                AbstractFeatureEntity feature = null;
-                if (resultTemplate.isSetFeature()) {
-                    feature = resultTemplate.getFeature();
+            if (isStreamable(o)) {
+                lock = datasetLocks.lock(Collections.singleton(o.getObservationConstellation()), getUnits(record));
+                transaction = session.beginTransaction();
+                response.setObservations(
+                        insertObservationsInBatches(o, blocks, record, encoding, resultTemplate, cache, session));
+            } else {
+                o.setValue(createObservationValueFrom(blocks, Integer.MAX_VALUE, record, encoding));
+                final List<OmObservation> observations = getSingleObservationsFromObservation(o);
+                if (o.getObservationConstellation().isSetFeatureOfInterest()
+                        && o.getObservationConstellation().isSetProcedure()) {
+                    response.setObservation(o);
                 } else {
-                    if (featureEntityMap.containsKey(omObsConst.getFeatureOfInterestIdentifier())) {
-                        feature = featureEntityMap.get(omObsConst.getFeatureOfInterestIdentifier());
-                    } else {
-                        FeatureOfInterestDAO featureOfInterestDAO = daoFactory.getFeatureOfInterestDAO();
-                        feature =
-                                featureOfInterestDAO.checkOrInsert(omObsConst.getFeatureOfInterest(),
-                                        session);
-                        featureOfInterestDAO.checkOrInsertRelatedFeatureRelation(feature,
-                                obsConst.getOffering(), session);
-                        featureEntityMap.put(feature.getIdentifier(), feature);
-                    }
-                }
-                if (observation.getValue() instanceof SingleObservationValue) {
-                    observationDAO.insertObservationSingleValue(obsConst, feature,
-                            observation, codespaceCache, unitCache, session);
-                } else if (observation.getValue() instanceof MultiObservationValues) {
-                    observationDAO.insertObservationMultiValue(obsConst, feature,
-                            observation, codespaceCache, unitCache, session);
-                }
-                if ((++insertion % FLUSH_THRESHOLD) == 0) {
-                    session.flush();
-                    session.clear();
-                    LOGGER.debug("Saved {}/{} observations.", insertion, size);
+                    response.setObservations(observations);
                 }
+                lock = datasetLocks.lock(observations);
+                transaction = session.beginTransaction();
+                insertObservations(observations, resultTemplate, cache, session);
+            }
+            if (cache.getBatch() != null) {
+                cache.getBatch().updateDatasets(daoFactory.getSeriesDAO(), session);
+                session.flush();
             }
-            LOGGER.debug("Saved {} observations.", size);
             transaction.commit();
+        } catch (final OwsExceptionReport owse) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw owse;
         } catch (final HibernateException he) {
             if (transaction != null) {
                 transaction.rollback();
             }
-            // XXX exception text
-            throw new NoApplicableCodeException().causedBy(he);
+            throw he;
         } finally {
             sessionHolder.returnSession(session);
+            if (lock != null) {
+                lock.close();
+            }
         }
         return response;
     }
@@ -256,35 +300,151 @@ public class InsertResultHandler
         return HibernateHelper.isEntitySupported(ResultTemplateEntity.class);
     }
 
+    private ObservationBulkLoader.BulkLoad getBulkLoad(Session session) {
+        return bulkLoad && bulkLoader != null ? bulkLoader.open(session) : null;
+    }
+
     /**
-     * Create OmObservation from result values
+     * Insert the observations of the result values in batches of
+     * {@value #STREAMING_BATCH_SIZE} blocks. Only the current batch is unfolded
+     * and held in memory. The result values themselves are decoded into a
+     * single string by the binding before the request reaches this handler,
+     * so the batches bound the unfolded observations and entities, not the
+     * request payload. The returned observations summarize the inserted
+     * observations per observation constellation for the cache update.
      *
-     * @param version
-     *            Service version
+     * @param multiObservation
+     *            Internal observation without values
+     * @param blocks
+     *            Block values from result values
+     * @param record
+     *            Record of the associated ResultStructure
+     * @param encoding
+     *            Associated ResultEncoding
      * @param resultTemplate
-     *            Associated result template
-     * @param resultValues
-     *            Result values
+     *            Associated ResultTemplate
+     * @param cache
+     *            Entity cache of this request
      * @param session
      *            Hibernate session
-     * @return OmObservation from result values
+     * @return Observations that summarize the inserted observations
      * @throws OwsExceptionReport
      *             If an error occurs during the processing
      */
-    private OmObservation getSingleObservationFromResultValues(final String version,
-            final ResultTemplateEntity resultTemplate, final String resultValues, final Session session)
+    private List<OmObservation> insertObservationsInBatches(OmObservation multiObservation,
+            Iterator<List<String>> blocks, SweDataRecord record, SweAbstractEncoding encoding,
+            ResultTemplateEntity resultTemplate, InsertResultCache cache, Session session)
             throws OwsExceptionReport {
-        final SosResultEncoding resultEncoding = createSosResultEncoding(resultTemplate.getEncoding());
-        final SosResultStructure resultStructure = createSosResultStructure(resultTemplate.getStructure());
-        final String[] blockValues = getBlockValues(resultValues, resultEncoding.get().get());
-        final OmObservation singleObservation =
-                getObservation(resultTemplate, blockValues, resultStructure.get().get(),
-                        resultEncoding.get().get(), session);
-        // final AbstractFeature feature =
-        // getSosAbstractFeature(resultTemplate.getFeatureOfInterest(), version,
-        // session);
-        // singleObservation.getObservationConstellation().setFeatureOfInterest(feature);
-        return singleObservation;
+        ObservationSummary summary = new ObservationSummary();
+        int batches = 0;
+        while (blocks.hasNext()) {
+            multiObservation.setValue(createObservationValueFrom(blocks, STREAMING_BATCH_SIZE, record, encoding));
+            List<OmObservation> observations = getSingleObservationsFromObservation(multiObservation);
+            insertObservations(observations, resultTemplate, cache, session);
+            summary.addAll(observations);
+            session.flush();
+            session.clear();
+            LOGGER.debug("Saved batch {} of result values.", ++batches);
+        }
+        return summary.getObservations();
+    }
+
+    /**
+     * Insert the single observations
+     *
+     * @param observations
+     *            Single observations to insert
+     * @param resultTemplate
+     *            Associated ResultTemplate
+     * @param cache
+     *            Entity cache of this request
+     * @param session
+     *            Hibernate session
+     * @throws OwsExceptionReport
+     *             If an error occurs during the processing
+     */
+    private void insertObservations(List<OmObservation> observations, ResultTemplateEntity resultTemplate,
+            InsertResultCache cache, Session session) throws OwsExceptionReport {
+        final AbstractSeriesDAO obsConstDao = daoFactory.getSeriesDAO();
+        final FormatDAO obsTypeDao = daoFactory.getObservationTypeDAO();
+        final AbstractObservationDAO observationDAO = daoFactory.getObservationDAO();
+        int insertion = 0;
+        final int size = observations.size();
+        LOGGER.debug("Start saving {} observations.", size);
+        for (final OmObservation observation : observations) {
+            OmObservationConstellation omObsConst = observation.getObservationConstellation();
+            if (!cache.getDatasets().containsKey(omObsConst)) {
+                DatasetEntity oc = obsConstDao.getSeries(omObsConst, session);
+                if (oc != null) {
+                    cache.getDatasets().put(omObsConst, oc);
+                } else if (oc == null && isConvertComplexProfileToSingleProfiles() && observation.isSetValue()
+                        && observation.getValue().isSetValue()
+                        && observation.getValue().getValue() instanceof ProfileValue) {
+                    cache.getDatasets().put(omObsConst, insertObservationConstellationForProfiles(obsConstDao,
+                            obsTypeDao, observation, session));
+                }
+            }
+            DatasetEntity obsConst = cache.getDatasets().get(observation.getObservationConstellation());
+            AbstractFeatureEntity feature = null;
+            if (resultTemplate.isSetFeature()) {
+                feature = resultTemplate.getFeature();
+            } else {
+                if (cache.getFeatures().containsKey(omObsConst.getFeatureOfInterestIdentifier())) {
+                    feature = cache.getFeatures().get(omObsConst.getFeatureOfInterestIdentifier());
+                } else {
+                    FeatureOfInterestDAO featureOfInterestDAO = daoFactory.getFeatureOfInterestDAO();
+                    feature =
+                            featureOfInterestDAO.checkOrInsert(omObsConst.getFeatureOfInterest(),
+                                    session);
+                    featureOfInterestDAO.checkOrInsertRelatedFeatureRelation(feature,
+                            obsConst.getOffering(), session);
+                    cache.getFeatures().put(feature.getIdentifier(), feature);
+                }
+            }
+            if (observation.getValue() instanceof SingleObservationValue) {
+                observationDAO.insertObservationSingleValue(obsConst, feature,
+                        observation, cache.getCodespaceCache(), cache.getUnitCache(), cache.getBatch(), session);
+            } else if (observation.getValue() instanceof MultiObservationValues) {
+                observationDAO.insertObservationMultiValue(obsConst, feature,
+                        observation, cache.getCodespaceCache(), cache.getUnitCache(), cache.getBatch(), session);
+            }
+            if ((++insertion % FLUSH_THRESHOLD) == 0) {
+                session.flush();
+                session.clear();
+                LOGGER.debug("Saved {}/{} observations.", insertion, size);
+            }
+        }
+        LOGGER.debug("Saved {} observations.", size);
+    }
+
+    /**
+     * Check if the result values can be inserted in batches. This is the case
+     * if procedure and featureOfInterest are defined by the result template
+     * and the observations are not profiles, which are merged over all blocks.
+     *
+     * @param observation
+     *            Internal observation without values
+     * @return <code>true</code>, if the result values can be inserted in
+     *         batches
+     */
+    private boolean isStreamable(OmObservation observation) {
+        OmObservationConstellation constellation = observation.getObservationConstellation();
+        return constellation.isSetProcedure() && constellation.isSetFeatureOfInterest()
+                && !OmConstants.OBS_TYPE_PROFILE_OBSERVATION.equals(constellation.getObservationType())
+                && !OmConstants.OBS_TYPE_COMPLEX_OBSERVATION.equals(constellation.getObservationType());
+    }
+
+    private Set<String> getUnits(SweDataRecord record) {
+        Set<String> units = new HashSet<>();
+        for (SweField field : record.getFields()) {
+            if (field.getElement() instanceof SweAbstractUomType<?>
+                    && ((SweAbstractUomType<?>) field.getElement()).getUom() != null) {
+                units.add(((SweAbstractUomType<?>) field.getElement()).getUom());
+            } else if (field.getElement() instanceof SweDataRecord) {
+                units.addAll(getUnits((SweDataRecord) field.getElement()));
+            }
+        }
+        return units;
     }
 
     /**
@@ -365,20 +525,16 @@ public class InsertResultHandler
      *
      * @param resultTemplate
      *            Associated ResultTemplate
-     * @param blockValues
-     *            Block values from result values
      * @param resultStructure
      *            Associated ResultStructure
-     * @param encoding
-     *            Associated ResultEncoding
      * @param session
      *            Hibernate session
-     * @return Internal observation
+     * @return Internal observation without values
      * @throws OwsExceptionReport
      *             If processing fails
      */
-    private OmObservation getObservation(final ResultTemplateEntity resultTemplate, final String[] blockValues,
-            final SweAbstractDataComponent resultStructure, final SweAbstractEncoding encoding, final Session session)
+    private OmObservation getObservation(final ResultTemplateEntity resultTemplate,
+            final SweAbstractDataComponent resultStructure, final Session session)
             throws OwsExceptionReport {
         final int resultTimeIndex = helper.hasResultTime(resultStructure);
         final int phenomenonTimeIndex = helper.hasPhenomenonTime(resultStructure);
@@ -394,13 +550,9 @@ public class InsertResultHandler
         getIndexFor(record, j, observedProperties, units, featureOfInterest, procedure,
                 Sets.newHashSet(resultTimeIndex, phenomenonTimeIndex));
 
-        final MultiObservationValues<SweDataArray> sosValues =
-                createObservationValueFrom(blockValues, record, encoding, resultTimeIndex, phenomenonTimeIndex);
-
         final OmObservation observation = new OmObservation();
         observation.setObservationConstellation(getSosObservationConstellation(resultTemplate, session));
         observation.setResultType(OmConstants.OBS_TYPE_SWE_ARRAY_OBSERVATION);
-        observation.setValue(sosValues);
         return observation;
     }
 
@@ -454,24 +606,19 @@ public class InsertResultHandler
     /**
      * Create internal observation value
      *
-     * @param blockValues
+     * @param blocks
      *            Block values from result values
+     * @param limit
+     *            Maximum number of blocks to add
      * @param recordFromResultStructure
      *            Associated ResultStructure
      * @param encoding
      *            Associated Result encoding
-     * @param resultTimeIndex
-     *            Result time position
-     * @param phenomenonTimeIndex
-     *            Phenomenon time positions
      * @return Internal observation value
-     * @throws OwsExceptionReport
-     *             If processing fails
      */
-    private MultiObservationValues<SweDataArray> createObservationValueFrom(final String[] blockValues,
-            final SweAbstractDataComponent recordFromResultStructure, final SweAbstractEncoding encoding,
-            final int resultTimeIndex, final int phenomenonTimeIndex)
-            throws OwsExceptionReport {
+    private MultiObservationValues<SweDataArray> createObservationValueFrom(final Iterator<List<String>> blocks,
+            final int limit, final SweAbstractDataComponent recordFromResultStructure,
+            final SweAbstractEncoding encoding) {
         final SweDataArray dataArray = new SweDataArray();
         dataArray.setElementType(recordFromResultStructure);
         dataArray.setEncoding(encoding);
@@ -479,10 +626,12 @@ public class InsertResultHandler
         final SweDataArrayValue dataArrayValue = new SweDataArrayValue();
         dataArrayValue.setValue(dataArray);
 
-        for (final String block : blockValues) {
-            final String[] singleValues = getSingleValues(block, encoding);
-            if (singleValues != null && singleValues.length > 0) {
-                dataArrayValue.addBlock(Arrays.asList(singleValues));
+        int added = 0;
+        while (added < limit && blocks.hasNext()) {
+            final List<String> singleValues = blocks.next();
+            if (!singleValues.isEmpty()) {
+                dataArrayValue.addBlock(singleValues);
+                added++;
             }
         }
         final MultiObservationValues<SweDataArray> sosValues = new MultiObservationValues<SweDataArray>();
@@ -490,23 +639,6 @@ public class InsertResultHandler
         return sosValues;
     }
 
-    /**
-     * Get single values from a block value
-     *
-     * @param block
-     *            Block value
-     * @param encoding
-     *            ResultEncoding
-     * @return Single value array
-     */
-    private String[] getSingleValues(final String block, final SweAbstractEncoding encoding) {
-        if (encoding instanceof SweTextEncoding) {
-            final SweTextEncoding textEncoding = (SweTextEncoding) encoding;
-            return separateValues(block, textEncoding.getTokenSeparator());
-        }
-        return null;
-    }
-
     /**
      * Get block values from result values
      *
@@ -514,51 +646,19 @@ public class InsertResultHandler
      *            Result values
      * @param encoding
      *            ResultEncoding
-     * @return Block value array
+     * @return Lazy iterator over the block values
+     * @throws OwsExceptionReport
+     *             If the encoding is not supported
      */
-    private String[] getBlockValues(final String resultValues, final SweAbstractEncoding encoding) {
+    private Iterator<List<String>> getBlockValues(final String resultValues, final SweAbstractEncoding encoding)
+            throws OwsExceptionReport {
         if (encoding instanceof SweTextEncoding) {
             final SweTextEncoding textEncoding = (SweTextEncoding) encoding;
-            final String[] blockValues = separateValues(resultValues, textEncoding.getBlockSeparator());
-            return checkForCountValue(blockValues, textEncoding.getTokenSeparator());
+            return new ResultValuesTokenizer(resultValues, textEncoding.getTokenSeparator(),
+                    textEncoding.getBlockSeparator());
         }
-        return null;
-    }
-
-    /**
-     * Check if the block values from result values contains a preceding count
-     * value
-     *
-     * @param blockValues
-     *            Block values from result values
-     * @param tokenSeparator
-     *            Token separator
-     * @return Block value array without preceding count value
-     */
-    private String[] checkForCountValue(final String[] blockValues, final String tokenSeparator) {
-        if (blockValues != null && blockValues.length > 0) {
-            if (blockValues[0].contains(tokenSeparator)) {
-                return blockValues;
-            } else {
-                final String[] blockValuesWithoutCount = new String[blockValues.length - 1];
-                System.arraycopy(blockValues, 1, blockValuesWithoutCount, 0, blockValuesWithoutCount.length);
-                return blockValuesWithoutCount;
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Separate values from String with separator
-     *
-     * @param values
-     *            Value String
-     * @param separator
-     *            Separator
-     * @return Separated values as array
-     */
-    private String[] separateValues(final String values, final String separator) {
-        return values.split(separator);
+        throw new NoApplicableCodeException().withMessage("The result encoding %s is not supported!",
+                encoding != null ? encoding.getClass().getName() : "null");
     }
 
     private DatasetEntity insertObservationConstellationForProfiles(AbstractSeriesDAO obsConstDao,
@@ -586,8 +686,95 @@ public class InsertResultHandler
         this.convertComplexProfileToSingleProfiles = convertComplexProfileToSingleProfiles;
     }
 
+    @Setting(SosSettings.BATCHED_INSERTION)
+    public void setBatchedInsertion(boolean batchedInsertion) {
+        this.batchedInsertion = batchedInsertion;
+    }
+
+    @Setting(SosSettings.BULK_LOAD)
+    public void setBulkLoad(boolean bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+
     private boolean isConvertComplexProfileToSingleProfiles() {
         return this.convertComplexProfileToSingleProfiles;
     }
 
+    private static class InsertResultCache {
+        private final Map<OmObservationConstellation, DatasetEntity> datasets = new HashMap<>();
+        private final Map<String, AbstractFeatureEntity> features = new HashMap<>();
+        private final Map<String, CodespaceEntity> codespaceCache = Maps.newHashMap();
+        private final Map<UoM, UnitEntity> unitCache = Maps.newHashMap();
+        private final ObservationBatch batch;
+
+        InsertResultCache(boolean batched, ObservationBulkLoader.BulkLoad bulkLoad) {
+            this.batch = batched || bulkLoad != null ? new ObservationBatch(bulkLoad) : null;
+        }
+
+        public Map<OmObservationConstellation, DatasetEntity> getDatasets() {
+            return datasets;
+        }
+        public Map<String, AbstractFeatureEntity> getFeatures() {
+            return features;
+        }
+        public Map<String, CodespaceEntity> getCodespaceCache() {
+            return codespaceCache;
+        }
+        public Map<UoM, UnitEntity> getUnitCache() {
+            return unitCache;
+        }
+        public ObservationBatch getBatch() {
+            return batch;
+        }
+    }
+
+    /**
+     * Keeps the observations with the earliest and the latest result time per
+     * observation constellation and extends their phenomenon time to the
+     * phenomenon time of all added observations.
+     */
+    private static class ObservationSummary {
+        private final Map<OmObservationConstellation, TimePeriod> phenomenonTimes = new LinkedHashMap<>();
+        private final Map<OmObservationConstellation, OmObservation> first = new HashMap<>();
+        private final Map<OmObservationConstellation, OmObservation> last = new HashMap<>();
+
+        public void addAll(List<OmObservation> observations) {
+            for (OmObservation observation : observations) {
+                OmObservationConstellation constellation = observation.getObservationConstellation();
+                TimePeriod phenomenonTime = phenomenonTimes.computeIfAbsent(constellation, c -> new TimePeriod());
+                if (observation.getPhenomenonTime() != null) {
+                    phenomenonTime.extendToContain(observation.getPhenomenonTime());
+                }
+                OmObservation f = first.get(constellation);
+                if (f == null || isBefore(observation.getResultTime(), f.getResultTime())) {
+                    first.put(constellation, observation);
+                }
+                OmObservation l = last.get(constellation);
+                if (l == null || isBefore(l.getResultTime(), observation.getResultTime())) {
+                    last.put(constellation, observation);
+                }
+            }
+        }
+
+        public List<OmObservation> getObservations() {
+            List<OmObservation> observations = new LinkedList<>();
+            for (Entry<OmObservationConstellation, TimePeriod> entry : phenomenonTimes.entrySet()) {
+                OmObservation f = first.get(entry.getKey());
+                OmObservation l = last.get(entry.getKey());
+                f.getValue().setPhenomenonTime(entry.getValue());
+                observations.add(f);
+                if (l != f) {
+                    l.getValue().setPhenomenonTime(entry.getValue());
+                    observations.add(l);
+                }
+            }
+            return observations;
+        }
+
+        private boolean isBefore(TimeInstant time, TimeInstant other) {
+            return time != null && time.isSetValue() && other != null && other.isSetValue()
+                    && time.getValue().isBefore(other.getValue());
+        }
+    }
+
 }
@@ -28,24 +28,37 @@
  */
 package org.n52.sos.ds.hibernate.admin;
 
+import java.util.List;
+
 import javax.inject.Inject;
 
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.n52.iceland.ds.ConnectionProvider;
 import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.ds.DeleteDeletedObservationDAO;
+import org.n52.sos.ds.DeleteDeletedObservationsProgress;
 import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
-import org.n52.sos.ds.hibernate.util.ScrollableIterable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Deletes the observations flagged as deleted dataset by dataset in chunks
+ * of {@link #setChunkSize(int) chunk size} observations. Each chunk is
+ * deleted with a single statement and committed on its own. The first and
+ * last values of a dataset are recalculated once before its observations
+ * are deleted, which also releases the references to deleted first/last
+ * observations.
+ *
  * @author Christian Autermann <c.autermann@52north.org>
  *
  * @since 4.0.0
@@ -53,31 +66,156 @@ import org.slf4j.LoggerFactory;
 public class HibernateDeleteDeletedObservationsDAO implements DeleteDeletedObservationDAO {
 
     private static final Logger LOG = LoggerFactory.getLogger(HibernateDeleteDeletedObservationsDAO.class);
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final String IDS = "ids";
     private HibernateSessionHolder sessionHolder;
+    private DaoFactory daoFactory;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
 
     @Inject
     public void setConnectionProvider(ConnectionProvider connectionProvider) {
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
     }
 
+    @Inject
+    public void setDaoFactory(DaoFactory daoFactory) {
+        this.daoFactory = daoFactory;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+    }
+
     @Override
     public void deleteDeletedObservations() throws OwsExceptionReport {
+        deleteDeletedObservations(new DeleteDeletedObservationsProgress());
+    }
+
+    @Override
+    public void deleteDeletedObservations(DeleteDeletedObservationsProgress progress) throws OwsExceptionReport {
+        List<Long> datasets = getDatasetsWithDeletedObservations();
+        progress.setDatasets(datasets.size());
+        LOG.info("Deleting deleted observations of {} datasets", datasets.size());
+        for (Long dataset : datasets) {
+            if (progress.isCancelRequested()) {
+                LOG.info("Deletion of deleted observations cancelled after {} observations",
+                        progress.getDeletedObservations());
+                return;
+            }
+            updateDataset(dataset);
+            deleteDeletedObservations(dataset, progress);
+            progress.datasetProcessed();
+        }
+        LOG.info("Deleted {} deleted observations", progress.getDeletedObservations());
+    }
+
+    private void deleteDeletedObservations(Long dataset, DeleteDeletedObservationsProgress progress)
+            throws OwsExceptionReport {
+        int deleted;
+        do {
+            deleted = deleteChunk(dataset);
+            progress.observationsDeleted(deleted);
+            LOG.debug("Deleted {} deleted observations of dataset {}", deleted, dataset);
+        } while (deleted > 0 && !progress.isCancelRequested());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> getDatasetsWithDeletedObservations() throws OwsExceptionReport {
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            Criteria criteria = getCriteria(session);
+            criteria.setProjection(Projections.distinct(Projections.property(DataEntity.PROPERTY_DATASET + "."
+                    + DatasetEntity.PROPERTY_ID)));
+            LOG.debug("QUERY getDatasetsWithDeletedObservations(): {}", HibernateHelper.getSqlString(criteria));
+            return criteria.list();
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    /**
+     * Recalculate the first and last values of the dataset from its not
+     * deleted observations.
+     */
+    private void updateDataset(Long dataset) throws OwsExceptionReport {
         Session session = null;
         Transaction transaction = null;
         try {
             session = sessionHolder.getSession();
             transaction = session.beginTransaction();
-            ScrollableIterable<DataEntity<?>> sr = ScrollableIterable.fromCriteria(getCriteria(session));
-            try {
-                for (DataEntity<?> o : sr) {
+            DatasetEntity entity = session.get(DatasetEntity.class, dataset);
+            if (entity != null) {
+                daoFactory.getSeriesDAO().updateSeriesFirstLatestValues(entity, session);
+            }
+            session.flush();
+            transaction.commit();
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    /**
+     * Delete the next chunk of deleted observations of the dataset.
+     *
+     * @return the number of deleted observations
+     */
+    private int deleteChunk(Long dataset) throws OwsExceptionReport {
+        List<Long> ids = getChunk(dataset);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        try {
+            return executeInTransaction(session -> session
+                    .createQuery("delete from " + getObservationEntityName() + " where " + DataEntity.PROPERTY_ID
+                            + " in (:" + IDS + ")")
+                    .setParameterList(IDS, ids).executeUpdate());
+        } catch (HibernateException he) {
+            // e.g. parameters or related observations referencing the observations
+            LOG.debug("Bulk deletion failed, deleting the observations one by one", he);
+            return executeInTransaction(session -> {
+                List<?> observations = session.createCriteria(DataEntity.class)
+                        .add(Restrictions.in(DataEntity.PROPERTY_ID, ids)).list();
+                for (Object o : observations) {
                     session.delete(o);
                 }
-            } finally {
-                sr.close();
-            }
+                return observations.size();
+            });
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> getChunk(Long dataset) throws OwsExceptionReport {
+        Session session = null;
+        try {
+            session = sessionHolder.getSession();
+            Criteria criteria = getCriteria(session);
+            criteria.add(Restrictions.eq(DataEntity.PROPERTY_DATASET + "." + DatasetEntity.PROPERTY_ID, dataset));
+            criteria.setProjection(Projections.property(DataEntity.PROPERTY_ID));
+            criteria.addOrder(Order.asc(DataEntity.PROPERTY_ID));
+            criteria.setMaxResults(chunkSize);
+            LOG.debug("QUERY getChunk(dataset): {}", HibernateHelper.getSqlString(criteria));
+            return criteria.list();
+        } finally {
+            sessionHolder.returnSession(session);
+        }
+    }
 
+    private int executeInTransaction(ChunkDeletion deletion) throws OwsExceptionReport {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = sessionHolder.getSession();
+            transaction = session.beginTransaction();
+            int deleted = deletion.delete(session);
             session.flush();
             transaction.commit();
+            return deleted;
         } catch (HibernateException he) {
             if (transaction != null) {
                 transaction.rollback();
@@ -88,6 +226,10 @@ public class HibernateDeleteDeletedObservationsDAO implements DeleteDeletedObser
         }
     }
 
+    private String getObservationEntityName() {
+        return daoFactory.getObservationDAO().getObservationFactory().observationClass().getSimpleName();
+    }
+
     /**
      * Get Hibernate Criteria for deleted observations and supported concept
      *
@@ -101,4 +243,9 @@ public class HibernateDeleteDeletedObservationsDAO implements DeleteDeletedObser
         LOG.debug("QUERY getCriteria(): {}", HibernateHelper.getSqlString(criteria));
         return criteria;
     }
+
+    @FunctionalInterface
+    private interface ChunkDeletion {
+        int delete(Session session);
+    }
 }
@@ -30,6 +30,7 @@ package org.n52.sos.ds.hibernate.dao;
 
 import static org.n52.janmayen.http.HTTPStatus.INTERNAL_SERVER_ERROR;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -37,6 +38,7 @@ import java.util.Set;
 
 import javax.inject.Inject;
 
+import org.apache.xmlbeans.XmlObject;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.n52.faroe.annotation.Configurable;
@@ -46,8 +48,12 @@ import org.n52.iceland.convert.ConverterException;
 import org.n52.iceland.convert.ConverterRepository;
 import org.n52.iceland.ds.ConnectionProvider;
 import org.n52.iceland.i18n.I18NSettings;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
 import org.n52.series.db.beans.ProcedureEntity;
 import org.n52.series.db.beans.ProcedureHistoryEntity;
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.om.OmObservation;
 import org.n52.shetland.ogc.ows.exception.CodedException;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
@@ -58,21 +64,64 @@ import org.n52.sos.coding.encode.ProcedureDescriptionFormatRepository;
 import org.n52.sos.ds.hibernate.HibernateSessionHolder;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.procedure.HibernateProcedureConverter;
-import org.springframework.context.annotation.Conditional;
+import org.n52.sos.event.events.ContentCacheUpdated;
+import org.n52.sos.event.events.DeleteObservationEvent;
+import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.event.events.ResultInsertion;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.sos.event.events.SensorInsertion;
+import org.n52.sos.event.events.SensorModification;
+import org.n52.sos.service.SosSettings;
+import org.n52.svalbard.decode.Decoder;
+import org.n52.svalbard.decode.DecoderRepository;
+import org.n52.svalbard.decode.exception.DecodingException;
+import org.n52.svalbard.encode.Encoder;
+import org.n52.svalbard.encode.EncoderRepository;
+import org.n52.svalbard.encode.EncodingContext;
+import org.n52.svalbard.encode.XmlBeansEncodingFlags;
+import org.n52.svalbard.encode.XmlEncoderKey;
+import org.n52.svalbard.encode.exception.EncodingException;
+import org.n52.svalbard.util.CodingHelper;
+import org.n52.svalbard.util.XmlHelper;
+import org.n52.svalbard.util.XmlOptionsHelper;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
+/**
+ * Queries the procedure descriptions for DescribeSensor. If
+ * {@link SosSettings#DESCRIBE_SENSOR_CACHE_SIZE} is greater than zero, the
+ * decoded and enriched descriptions are cached per procedure, description
+ * format, version, language and valid time. They are cached as documents
+ * encoded in their description format and decoded again for every request.
+ * Entries of a procedure are removed when it is inserted, updated or deleted or
+ * observations or results are inserted for it or deleted, all entries after a
+ * complete content cache update.
+ */
 @Configurable
 public class DescribeSensorDao
-        implements org.n52.sos.ds.dao.DescribeSensorDao {
+        implements org.n52.sos.ds.dao.DescribeSensorDao, EventListener {
+
+    @SuppressWarnings("unchecked")
+    private static final Set<Class<? extends Event>> TYPES = Sets.<Class<? extends Event>> newHashSet(
+            SensorInsertion.class,
+            SensorModification.class,
+            SensorDeletion.class,
+            ObservationInsertion.class,
+            ResultInsertion.class,
+            DeleteObservationEvent.class,
+            ContentCacheUpdated.class);
 
     private HibernateSessionHolder sessionHolder;
     private HibernateProcedureConverter procedureConverter;
     private ConverterRepository converterRepository;
     private ProcedureDescriptionFormatRepository procedureDescriptionFormatRepository;
     private DaoFactory daoFactory;
+    private EncoderRepository encoderRepository;
+    private DecoderRepository decoderRepository;
+    private XmlOptionsHelper xmlOptionsHelper;
     private Locale defaultLanguage;
+    private ProcedureDescriptionCache descriptionCache;
 
     @Inject
     public void setDaoFactory(DaoFactory daoFactory) {
@@ -99,14 +148,112 @@ public class DescribeSensorDao
         this.procedureConverter = procedureConverter;
     }
 
+    @Inject
+    public void setEncoderRepository(EncoderRepository encoderRepository) {
+        this.encoderRepository = encoderRepository;
+    }
+
+    @Inject
+    public void setDecoderRepository(DecoderRepository decoderRepository) {
+        this.decoderRepository = decoderRepository;
+    }
+
+    @Inject
+    public void setXmlOptionsHelper(XmlOptionsHelper xmlOptionsHelper) {
+        this.xmlOptionsHelper = xmlOptionsHelper;
+    }
+
     @Setting(I18NSettings.I18N_DEFAULT_LANGUAGE)
     public void setDefaultLanguage(String defaultLanguage) {
         this.defaultLanguage = new Locale(defaultLanguage);
     }
 
+    @Setting(SosSettings.DESCRIBE_SENSOR_CACHE_SIZE)
+    public void setDescriptionCacheSize(int size) {
+        if (size > 0) {
+            this.descriptionCache = new ProcedureDescriptionCache(size, new ProcedureDescriptionCache.Serializer() {
+                @Override
+                public String serialize(SosProcedureDescription<?> description) throws OwsExceptionReport {
+                    return encodeDescription(description);
+                }
+
+                @Override
+                public SosProcedureDescription<?> deserialize(String document) throws OwsExceptionReport {
+                    return decodeDescription(document);
+                }
+            });
+        } else {
+            this.descriptionCache = null;
+        }
+    }
+
+    void setDescriptionCache(ProcedureDescriptionCache descriptionCache) {
+        this.descriptionCache = descriptionCache;
+    }
+
     @Override
     public List<SosProcedureDescription<?>> querySensorDescriptions(DescribeSensorRequest request)
             throws OwsExceptionReport {
+        ProcedureDescriptionCache cache = this.descriptionCache;
+        if (cache == null) {
+            return querySensorDescriptionsFromDatasource(request);
+        }
+        return cache.get(new ProcedureDescriptionCache.Key(request, getRequestedLocale(request)),
+                () -> querySensorDescriptionsFromDatasource(request));
+    }
+
+    /**
+     * Encode the description with the encoder of its description format.
+     *
+     * @param description
+     *            the description
+     * @return the XML document or {@code null} if there is no encoder
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    private String encodeDescription(SosProcedureDescription<?> description) throws OwsExceptionReport {
+        if (description.getDescriptionFormat() == null) {
+            return null;
+        }
+        for (String format : checkForUrlVsMimeType(description.getDescriptionFormat())) {
+            Encoder<XmlObject, SosProcedureDescription<?>> encoder =
+                    encoderRepository.getEncoder(new XmlEncoderKey(format, description.getClass()));
+            if (encoder != null) {
+                try {
+                    return encoder.encode(description, EncodingContext.of(XmlBeansEncodingFlags.DOCUMENT, true))
+                            .xmlText(xmlOptionsHelper.getXmlOptions());
+                } catch (EncodingException e) {
+                    throw new NoApplicableCodeException().causedBy(e)
+                            .withMessage("Error while encoding procedure description for the cache");
+                }
+            }
+        }
+        return null;
+    }
+
+    private SosProcedureDescription<?> decodeDescription(String document) throws OwsExceptionReport {
+        try {
+            XmlObject parsed = XmlHelper.parseXmlString(document);
+            Decoder<Object, XmlObject> decoder = decoderRepository.getDecoder(CodingHelper.getDecoderKey(parsed));
+            if (decoder == null) {
+                throw new NoApplicableCodeException().withMessage("No decoder for cached procedure description");
+            }
+            Object decoded = decoder.decode(parsed);
+            if (decoded instanceof SosProcedureDescription) {
+                return (SosProcedureDescription<?>) decoded;
+            } else if (decoded instanceof AbstractFeature) {
+                return new SosProcedureDescription<>((AbstractFeature) decoded);
+            }
+            throw new NoApplicableCodeException().withMessage("Cached procedure description decoded to %s",
+                    decoded);
+        } catch (DecodingException e) {
+            throw new NoApplicableCodeException().causedBy(e)
+                    .withMessage("Error while decoding cached procedure description");
+        }
+    }
+
+    private List<SosProcedureDescription<?>> querySensorDescriptionsFromDatasource(DescribeSensorRequest request)
+            throws OwsExceptionReport {
         Session session = null;
         try {
             session = sessionHolder.getSession();
@@ -267,4 +414,46 @@ public class DescribeSensorDao
         return defaultLanguage;
     }
 
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return Collections.unmodifiableSet(TYPES);
+    }
+
+    @Override
+    public void handle(Event event) {
+        ProcedureDescriptionCache cache = this.descriptionCache;
+        if (cache == null) {
+            return;
+        }
+        if (event instanceof SensorInsertion) {
+            cache.invalidate(((SensorInsertion) event).getResponse().getAssignedProcedure());
+        } else if (event instanceof SensorModification) {
+            cache.invalidate(((SensorModification) event).getRequest().getProcedureIdentifier());
+        } else if (event instanceof SensorDeletion) {
+            cache.invalidate(((SensorDeletion) event).getRequest().getProcedureIdentifier());
+        } else if (event instanceof ObservationInsertion) {
+            invalidate(cache, ((ObservationInsertion) event).getRequest().getObservations());
+        } else if (event instanceof ResultInsertion) {
+            invalidate(cache, ((ResultInsertion) event).getResponse().getObservations());
+        } else if (event instanceof DeleteObservationEvent) {
+            DeleteObservationEvent deletion = (DeleteObservationEvent) event;
+            invalidate(cache, deletion.isSetDeletedObservation()
+                    ? Collections.singletonList(deletion.getDeletedObservation()) : null);
+        } else if (event instanceof ContentCacheUpdated && ((ContentCacheUpdated) event).isCompleteUpdate()) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Remove the descriptions of the procedures of the observations, all
+     * descriptions if the observations are unknown.
+     */
+    private void invalidate(ProcedureDescriptionCache cache, List<OmObservation> observations) {
+        if (observations == null || observations.isEmpty()) {
+            cache.invalidateAll();
+        } else {
+            observations.stream().map(o -> o.getObservationConstellation().getProcedureIdentifier()).distinct()
+                    .forEach(cache::invalidate);
+        }
+    }
 }
@@ -30,8 +30,10 @@ package org.n52.sos.ds.hibernate.dao;
 
 import static org.n52.janmayen.http.HTTPStatus.INTERNAL_SERVER_ERROR;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -63,6 +65,7 @@ import org.n52.shetland.ogc.ows.extension.Extensions;
 import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityRequest;
 import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.DataAvailability;
 import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.util.HibernateConstants;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.SosTemporalRestrictions;
 import org.n52.sos.ds.hibernate.util.TemporalRestrictions;
@@ -75,8 +78,10 @@ import com.google.common.collect.Lists;
 public class GetDataAvailabilityDao implements org.n52.sos.ds.dao.GetDataAvailabilityDao {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GetDataAvailabilityDao.class);
+    private static final int DEFAULT_CHUNK_SIZE = HibernateConstants.LIMIT_EXPRESSION_DEPTH - 1;
     private HibernateSessionHolder sessionHolder;
     private Locale defaultLanguage;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
 
     @Inject
     public void setConnectionProvider(ConnectionProvider connectionProvider) {
@@ -88,6 +93,15 @@ public class GetDataAvailabilityDao implements org.n52.sos.ds.dao.GetDataAvailab
         this.defaultLanguage = new Locale(defaultLanguage);
     }
 
+    /**
+     * @param chunkSize
+     *            the maximum number of datasets whose result times are queried
+     *            at once
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+    }
+
     @Override
     public Map<String, NamedValue<?>> getMetadata(DataAvailability dataAvailability) throws OwsExceptionReport {
         Session session = null;
@@ -148,6 +162,37 @@ public class GetDataAvailabilityDao implements org.n52.sos.ds.dao.GetDataAvailab
         }
     }
 
+    @Override
+    public Map<Long, List<TimeInstant>> getResultTimes(Collection<Long> datasets, GetDataAvailabilityRequest request,
+            Object connection) throws OwsExceptionReport {
+        Map<Long, List<TimeInstant>> resultTimes = new HashMap<>();
+        try {
+            Session session = HibernateSessionHolder.getSession(connection);
+            for (List<Long> ids : Lists.partition(Lists.newArrayList(datasets), chunkSize)) {
+                Criteria c = session.createCriteria(DataEntity.class)
+                        .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false))
+                        .createAlias(DataEntity.PROPERTY_DATASET, "ds")
+                        .add(Restrictions.in("ds." + DatasetEntity.PROPERTY_ID, ids));
+                if (hasPhenomenonTimeFilter(request.getExtensions())) {
+                    c.add(SosTemporalRestrictions.filter(getPhenomenonTimeFilter(request.getExtensions())));
+                }
+                c.setProjection(Projections.projectionList()
+                        .add(Projections.groupProperty("ds." + DatasetEntity.PROPERTY_ID))
+                        .add(Projections.groupProperty(DataEntity.PROPERTY_RESULT_TIME)));
+                c.addOrder(Order.asc(DataEntity.PROPERTY_RESULT_TIME));
+                LOGGER.debug("QUERY getResultTimes(datasets): {}", HibernateHelper.getSqlString(c));
+                for (Object[] row : (List<Object[]>) c.list()) {
+                    resultTimes.computeIfAbsent((Long) row[0], id -> new LinkedList<>())
+                            .add(new TimeInstant((Date) row[1]));
+                }
+            }
+            return resultTimes;
+        } catch (final HibernateException he) {
+            throw new NoApplicableCodeException().causedBy(he).withMessage("Error while querying result time for GetDataAvailability!")
+                    .setStatus(INTERNAL_SERVER_ERROR);
+        }
+    }
+
     private Criteria getDefaultObservationInfoCriteria(Session session) {
         return session.createCriteria(DataEntity.class)
                 .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false))
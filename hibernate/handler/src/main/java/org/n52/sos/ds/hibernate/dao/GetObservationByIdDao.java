@@ -59,7 +59,9 @@ import org.n52.sos.ds.hibernate.util.HibernateGetObservationHelper;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.observation.HibernateObservationUtilities;
 import org.n52.sos.ds.hibernate.util.observation.OmObservationCreatorContext;
+import org.n52.sos.ds.hibernate.values.HibernateStreamingConfiguration;
 import org.n52.sos.ds.hibernate.values.series.HibernateChunkSeriesStreamingValue;
+import org.n52.sos.ds.hibernate.values.series.HibernateSeekSeriesStreamingValue;
 import org.n52.sos.ds.hibernate.values.series.HibernateSeriesStreamingValue;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.EncoderRepository;
@@ -204,9 +206,11 @@ public class GetObservationByIdDao
                     HibernateObservationUtilities.createSosObservationFromSeries(series, request,
                             getProcedureDescriptionFormat(request.getResponseFormat()), observationCreatorContext, session);
             OmObservation observationTemplate = createSosObservationFromSeries.next();
-            HibernateSeriesStreamingValue streamingValue =
-                    new HibernateChunkSeriesStreamingValue(sessionHolder.getConnectionProvider(), daoFactory, request,
-                            series.getId(), observationCreatorContext.getDecoderRepository());
+            HibernateSeriesStreamingValue streamingValue = isSeekChunkStreaming()
+                    ? new HibernateSeekSeriesStreamingValue(sessionHolder.getConnectionProvider(), daoFactory,
+                            request, series.getId(), observationCreatorContext.getDecoderRepository())
+                    : new HibernateChunkSeriesStreamingValue(sessionHolder.getConnectionProvider(), daoFactory,
+                            request, series.getId(), observationCreatorContext.getDecoderRepository());
             streamingValue.setResponseFormat(request.getResponseFormat());
             streamingValue.setObservationTemplate(observationTemplate);
             observationTemplate.setValue(streamingValue);
@@ -229,4 +233,10 @@ public class GetObservationByIdDao
     public Locale getDefaultLanguage() {
         return defaultLanguage;
     }
+
+    private boolean isSeekChunkStreaming() {
+        return HibernateStreamingConfiguration.getInstance() != null
+                && HibernateStreamingConfiguration.getInstance().isSeekChunkDatasourceStreaming();
+    }
+
 }
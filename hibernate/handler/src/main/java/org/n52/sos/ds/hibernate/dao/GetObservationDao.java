@@ -67,7 +67,9 @@ import org.n52.sos.ds.hibernate.util.HibernateGetObservationHelper;
 import org.n52.sos.ds.hibernate.util.ObservationTimeExtrema;
 import org.n52.sos.ds.hibernate.util.observation.HibernateObservationUtilities;
 import org.n52.sos.ds.hibernate.util.observation.OmObservationCreatorContext;
+import org.n52.sos.ds.hibernate.values.HibernateStreamingConfiguration;
 import org.n52.sos.ds.hibernate.values.series.HibernateChunkSeriesStreamingValue;
+import org.n52.sos.ds.hibernate.values.series.HibernateSeekSeriesStreamingValue;
 import org.n52.sos.ds.hibernate.values.series.HibernateSeriesStreamingValue;
 import org.n52.sos.service.profile.ProfileHandler;
 import org.n52.svalbard.encode.Encoder;
@@ -200,13 +202,9 @@ public class GetObservationDao
                     seriesObservations =
                             observationDAO.getSeriesObservationsFor(request, features, sosIndeterminateTime, session);
                 } else {
-                    for (DatasetEntity series : seriesDAO.getSeries(request, features, session)) {
-                        seriesObservations.addAll(observationDAO.getSeriesObservationsFor(series, request,
-                                sosIndeterminateTime, session));
-
-                    }
                     seriesObservations = checkObservationsForDuplicity(
-                            observationDAO.getSeriesObservationsFor(request, features, session), request);
+                            observationDAO.getSeriesObservationsFor(seriesDAO.getSeries(request, features, session),
+                                    request, sosIndeterminateTime, session), request);
                 }
             }
         }
@@ -287,9 +285,11 @@ public class GetObservationDao
                             getRequestedLocale(request), getProcedureDescriptionFormat(request.getResponseFormat()),
                             observationCreatorContext, session);
             OmObservation observationTemplate = createSosObservationFromSeries.next();
-            HibernateSeriesStreamingValue streamingValue =
-                    new HibernateChunkSeriesStreamingValue(sessionHolder.getConnectionProvider(), daoFactory, request,
-                            series.getId(), observationCreatorContext.getDecoderRepository());
+            HibernateSeriesStreamingValue streamingValue = isSeekChunkStreaming()
+                    ? new HibernateSeekSeriesStreamingValue(sessionHolder.getConnectionProvider(), daoFactory,
+                            request, series.getId(), observationCreatorContext.getDecoderRepository())
+                    : new HibernateChunkSeriesStreamingValue(sessionHolder.getConnectionProvider(), daoFactory,
+                            request, series.getId(), observationCreatorContext.getDecoderRepository());
             streamingValue.setResponseFormat(request.getResponseFormat());
             streamingValue.setTemporalFilterCriterion(temporalFilterCriterion);
             streamingValue.setObservationTemplate(observationTemplate);
@@ -357,4 +357,10 @@ public class GetObservationDao
     public Locale getDefaultLanguage() {
         return defaultLanguage;
     }
+
+    private boolean isSeekChunkStreaming() {
+        return HibernateStreamingConfiguration.getInstance() != null
+                && HibernateStreamingConfiguration.getInstance().isSeekChunkDatasourceStreaming();
+    }
+
 }
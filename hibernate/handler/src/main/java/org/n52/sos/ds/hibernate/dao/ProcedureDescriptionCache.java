@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+import org.n52.shetland.ogc.sos.request.DescribeSensorRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Size bounded cache of the procedure descriptions of DescribeSensor. Response
+ * modifiers and encoders change the descriptions in place, so they are kept in
+ * a serialized form and every request gets its own deserialized copy. A hit
+ * saves the database queries, the conversion and the enrichment, but still
+ * parses and decodes the cached document.
+ *
+ * @since 5.0.2
+ */
+class ProcedureDescriptionCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcedureDescriptionCache.class);
+
+    private final Cache<Key, List<Entry>> cache;
+    private final Serializer serializer;
+    private long invalidations;
+
+    /**
+     * @param size
+     *            the maximum number of cached requests
+     * @param serializer
+     *            the serializer of the description documents
+     */
+    ProcedureDescriptionCache(int size, Serializer serializer) {
+        this.cache = CacheBuilder.newBuilder().maximumSize(size).build();
+        this.serializer = serializer;
+    }
+
+    /**
+     * Get copies of the cached descriptions or load and cache them.
+     *
+     * @param key
+     *            the key of the request
+     * @param loader
+     *            loads the descriptions of the request
+     * @return the descriptions, not shared with other requests
+     * @throws OwsExceptionReport
+     *             if the descriptions could not be loaded
+     */
+    List<SosProcedureDescription<?>> get(Key key, Loader loader) throws OwsExceptionReport {
+        List<Entry> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            try {
+                List<SosProcedureDescription<?>> descriptions = new ArrayList<>(cached.size());
+                for (Entry entry : cached) {
+                    descriptions.add(entry.toDescription(serializer));
+                }
+                return descriptions;
+            } catch (OwsExceptionReport | RuntimeException e) {
+                LOGGER.warn("Can not read cached descriptions of procedure {}", key.procedure, e);
+                cache.invalidate(key);
+            }
+        }
+        long generation = getInvalidations();
+        List<SosProcedureDescription<?>> descriptions = loader.load();
+        List<Entry> entries = new ArrayList<>(descriptions.size());
+        for (SosProcedureDescription<?> description : descriptions) {
+            String document = serializer.serialize(description);
+            if (document == null) {
+                LOGGER.debug("Descriptions of procedure {} in format {} are not cached", key.procedure,
+                        description.getDescriptionFormat());
+                return descriptions;
+            }
+            entries.add(new Entry(description, document));
+        }
+        synchronized (this) {
+            // the descriptions may be outdated if the cache was invalidated while they were loaded
+            if (generation == invalidations) {
+                cache.put(key, entries);
+            }
+        }
+        return descriptions;
+    }
+
+    /**
+     * Remove the descriptions of the procedure.
+     *
+     * @param procedure
+     *            the procedure identifier
+     */
+    synchronized void invalidate(String procedure) {
+        ++invalidations;
+        LOGGER.debug("Removing cached descriptions of procedure {}", procedure);
+        cache.asMap().keySet().removeIf(key -> Objects.equals(key.procedure, procedure));
+    }
+
+    /**
+     * Remove all descriptions.
+     */
+    synchronized void invalidateAll() {
+        ++invalidations;
+        LOGGER.debug("Clearing {} cached procedure descriptions", cache.size());
+        cache.invalidateAll();
+    }
+
+    long size() {
+        return cache.size();
+    }
+
+    private synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    private static Time copy(Time time) {
+        if (time instanceof TimeInstant) {
+            return new TimeInstant(((TimeInstant) time).getValue());
+        } else if (time instanceof TimePeriod) {
+            return new TimePeriod(((TimePeriod) time).getStart(), ((TimePeriod) time).getEnd());
+        }
+        return null;
+    }
+
+    /**
+     * Loads the descriptions of a request.
+     */
+    @FunctionalInterface
+    interface Loader {
+        List<SosProcedureDescription<?>> load() throws OwsExceptionReport;
+    }
+
+    /**
+     * Converts the description documents to a string and back.
+     */
+    interface Serializer {
+        /**
+         * @param description
+         *            the description
+         * @return the serialized description or {@code null} if it can not
+         *         be serialized
+         * @throws OwsExceptionReport
+         *             if the serialization fails
+         */
+        String serialize(SosProcedureDescription<?> description) throws OwsExceptionReport;
+
+        /**
+         * @param document
+         *            the serialized description
+         * @return a new description
+         * @throws OwsExceptionReport
+         *             if the deserialization fails
+         */
+        SosProcedureDescription<?> deserialize(String document) throws OwsExceptionReport;
+    }
+
+    /**
+     * A serialized description with the properties that are not part of the
+     * document.
+     */
+    private static final class Entry {
+        private final String identifier;
+        private final String descriptionFormat;
+        private final Time validTime;
+        private final String document;
+
+        Entry(SosProcedureDescription<?> description, String document) {
+            this.identifier = description.getIdentifier();
+            this.descriptionFormat = description.getDescriptionFormat();
+            this.validTime = copy(description.getValidTime());
+            this.document = document;
+        }
+
+        SosProcedureDescription<?> toDescription(Serializer serializer) throws OwsExceptionReport {
+            SosProcedureDescription<?> description = serializer.deserialize(document);
+            description.setIdentifier(identifier);
+            description.setDescriptionFormat(descriptionFormat);
+            description.setValidTime(copy(validTime));
+            return description;
+        }
+    }
+
+    /**
+     * Key of cached procedure descriptions.
+     */
+    static final class Key {
+        private final String procedure;
+        private final String procedureDescriptionFormat;
+        private final String version;
+        private final Locale language;
+        private final Time validTime;
+
+        Key(DescribeSensorRequest request, Locale language) {
+            this.procedure = request.getProcedure();
+            this.procedureDescriptionFormat = request.getProcedureDescriptionFormat();
+            this.version = request.getVersion();
+            this.language = language;
+            this.validTime = request.getValidTime();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(procedure, procedureDescriptionFormat, version, language, validTime);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return Objects.equals(procedure, that.procedure)
+                    && Objects.equals(procedureDescriptionFormat, that.procedureDescriptionFormat)
+                    && Objects.equals(version, that.version)
+                    && Objects.equals(language, that.language)
+                    && Objects.equals(validTime, that.validTime);
+        }
+    }
+}
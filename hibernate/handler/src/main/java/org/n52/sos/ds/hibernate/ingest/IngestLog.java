@@ -0,0 +1,534 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append only log of memory mapped segment files. Every record is forced to
+ * disk before {@link #append(byte[], long, TimeUnit)} returns. A single
+ * consumer polls the records in order and commits them after they were
+ * processed. Records may be committed in any order: the position up to which
+ * all records are committed is kept in a checkpoint file, records committed
+ * beyond it are kept in a completion file. Uncommitted records are polled
+ * again after a restart, committed ones never.
+ * <p>
+ * Records consist of the payload length, the CRC32 of the payload and the
+ * payload. A zero length marks the end of the written part of a segment, an
+ * invalid checksum a record that was torn by a crash.
+ *
+ * @since 5.0.2
+ */
+public class IngestLog implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IngestLog.class);
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final String COMPLETED = "completed";
+    private static final int HEADER_SIZE = 8;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+    private final TreeMap<Long, Record> polled = new TreeMap<>();
+    private final Set<Long> completed = new HashSet<>();
+    private final Path directory;
+    private final int segmentSize;
+    private final long limit;
+    private MappedByteBuffer head;
+    private long headSegment;
+    private long readSegment;
+    private int readOffset;
+    private long pending;
+    private boolean closed;
+    private FileChannel completions;
+
+    /**
+     * Open the log in the directory and recover the records that were not yet
+     * committed.
+     *
+     * @param directory
+     *            the directory of the segment files
+     * @param segmentSize
+     *            the size of a segment file in bytes
+     * @param limit
+     *            the number of uncommitted bytes at which appends block
+     * @throws IOException
+     *             if the log can not be opened
+     */
+    public IngestLog(Path directory, int segmentSize, long limit) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.limit = limit;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Append the payload and force it to disk. Blocks while the uncommitted
+     * records exceed the size limit of the log.
+     *
+     * @param payload
+     *            the payload
+     * @param timeout
+     *            the maximum time to wait for space in the log
+     * @param unit
+     *            the unit of the timeout
+     * @return {@code false} if the log is still full after the timeout
+     * @throws IOException
+     *             if the record could not be written
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting
+     */
+    public boolean append(byte[] payload, long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        if (payload.length == 0) {
+            throw new IllegalArgumentException("empty payload");
+        }
+        int size = HEADER_SIZE + payload.length;
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            // an oversized record is accepted if the log is empty
+            while (!closed && pending > 0 && pending + size > limit) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            checkOpen();
+            if (head.remaining() < size) {
+                roll(size);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            head.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            head.force();
+            pending += size;
+            notEmpty.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Poll the next records in log order. Polled records are returned only
+     * once, but are recovered after a restart unless they were committed.
+     *
+     * @param max
+     *            the maximum number of records
+     * @param timeout
+     *            the maximum time to wait for a record
+     * @param unit
+     *            the unit of the timeout
+     * @return the records, empty if none arrived in time or the log was closed
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting
+     */
+    public List<Record> poll(int max, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        List<Record> records = new ArrayList<>();
+        lock.lock();
+        try {
+            while (!closed) {
+                readAvailable(records, max);
+                if (!records.isEmpty() || nanos <= 0) {
+                    break;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Commit a processed record.
+     *
+     * @param record
+     *            the processed record
+     * @throws IOException
+     *             if the commit could not be written
+     * @see #commit(Collection)
+     */
+    public void commit(Record record) throws IOException {
+        commit(Collections.singleton(record));
+    }
+
+    /**
+     * Commit the processed records. Polled records can be committed in any
+     * order, committing a record again has no effect.
+     *
+     * @param records
+     *            the processed records
+     * @throws IOException
+     *             if the commit could not be written
+     */
+    public void commit(Collection<Record> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            checkOpen();
+            List<Record> committed = new ArrayList<>(records.size());
+            for (Record record : records) {
+                if (!record.committed && polled.containsKey(record.position())) {
+                    record.committed = true;
+                    pending -= record.size;
+                    committed.add(record);
+                }
+            }
+            advance();
+            // records behind an uncommitted one are not covered by the checkpoint
+            ByteBuffer buffer = ByteBuffer.allocate(committed.size() * Long.BYTES);
+            for (Record record : committed) {
+                if (polled.containsKey(record.position())) {
+                    buffer.putLong(record.position());
+                }
+            }
+            buffer.flip();
+            if (buffer.hasRemaining()) {
+                while (buffer.hasRemaining()) {
+                    completions.write(buffer);
+                }
+                completions.force(false);
+            }
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of bytes of uncommitted records
+     */
+    public long getPendingBytes() {
+        lock.lock();
+        try {
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            segments.clear();
+            polled.clear();
+            head = null;
+            try {
+                if (completions != null) {
+                    completions.close();
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Error while closing ingest log {}", directory, e);
+            }
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Ingest log " + directory + " is closed");
+        }
+    }
+
+    /**
+     * Move the checkpoint over the committed records at the start of the
+     * polled records and delete the segments before it.
+     */
+    private void advance() throws IOException {
+        Record last = null;
+        while (!polled.isEmpty() && polled.firstEntry().getValue().committed) {
+            last = polled.pollFirstEntry().getValue();
+        }
+        if (last == null) {
+            return;
+        }
+        writeCheckpoint(last.segment, last.offset);
+        if (polled.isEmpty() && completed.isEmpty()) {
+            completions.truncate(0);
+            completions.force(false);
+        }
+        Iterator<Map.Entry<Long, MappedByteBuffer>> it = segments.headMap(last.segment).entrySet().iterator();
+        while (it.hasNext()) {
+            Files.deleteIfExists(segmentFile(it.next().getKey()));
+            it.remove();
+        }
+    }
+
+    private void readAvailable(List<Record> records, int max) {
+        boolean skipped = false;
+        while (records.size() < max) {
+            ByteBuffer buffer = segments.get(readSegment).duplicate();
+            buffer.position(readOffset);
+            byte[] payload = read(buffer);
+            if (payload == null) {
+                if (readSegment == headSegment) {
+                    break;
+                }
+                readSegment = segments.higherKey(readSegment);
+                readOffset = 0;
+            } else {
+                readOffset = buffer.position();
+                Record record = new Record(payload, readSegment, readOffset);
+                polled.put(record.position(), record);
+                if (completed.remove(record.position())) {
+                    // committed before the last shutdown
+                    record.committed = true;
+                    skipped = true;
+                } else {
+                    records.add(record);
+                }
+            }
+        }
+        if (skipped) {
+            try {
+                advance();
+            } catch (IOException e) {
+                LOGGER.warn("Error while writing checkpoint of ingest log {}", directory, e);
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Long> indexes = listSegments();
+        long[] checkpoint = readCheckpoint();
+        recoverCompleted(position(checkpoint[0], (int) checkpoint[1]));
+        for (Long index : indexes) {
+            if (index < checkpoint[0]) {
+                Files.deleteIfExists(segmentFile(index));
+            } else {
+                segments.put(index, map(segmentFile(index), 0));
+            }
+        }
+        if (segments.isEmpty()) {
+            this.headSegment = checkpoint[0];
+            this.head = map(segmentFile(headSegment), segmentSize);
+            segments.put(headSegment, head);
+            this.readSegment = headSegment;
+            this.readOffset = 0;
+            return;
+        }
+        if (segments.containsKey(checkpoint[0])) {
+            this.readSegment = checkpoint[0];
+            this.readOffset = (int) checkpoint[1];
+        } else {
+            this.readSegment = segments.firstKey();
+            this.readOffset = 0;
+        }
+        // scan the uncommitted records to find the end of the log
+        long segment = readSegment;
+        int offset = readOffset;
+        int records = 0;
+        for (Map.Entry<Long, MappedByteBuffer> entry : segments.tailMap(readSegment).entrySet()) {
+            ByteBuffer buffer = entry.getValue().duplicate();
+            buffer.position(entry.getKey() == readSegment ? readOffset : 0);
+            byte[] payload;
+            while ((payload = read(buffer)) != null) {
+                if (!completed.contains(position(entry.getKey(), buffer.position()))) {
+                    pending += HEADER_SIZE + payload.length;
+                    ++records;
+                }
+            }
+            segment = entry.getKey();
+            offset = buffer.position();
+        }
+        this.headSegment = segment;
+        this.head = segments.get(segment);
+        // clear a torn record at the end of the log
+        head.position(offset);
+        while (head.hasRemaining()) {
+            head.put((byte) 0);
+        }
+        head.force();
+        head.position(offset);
+        if (records > 0) {
+            LOGGER.info("Recovered {} pending records ({} bytes) from ingest log {}", records, pending, directory);
+        }
+    }
+
+    private void recoverCompleted(long checkpoint) throws IOException {
+        Path file = directory.resolve(COMPLETED);
+        ByteBuffer buffer = ByteBuffer.wrap(Files.exists(file) ? Files.readAllBytes(file) : new byte[0]);
+        // a torn entry at the end is ignored
+        while (buffer.remaining() >= Long.BYTES) {
+            long position = buffer.getLong();
+            if (position > checkpoint) {
+                completed.add(position);
+            }
+        }
+        this.completions = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        completions.truncate(buffer.position());
+        completions.position(buffer.position());
+    }
+
+    private static long position(long segment, int offset) {
+        return (segment << Integer.SIZE) | offset;
+    }
+
+    private void roll(int size) throws IOException {
+        headSegment++;
+        head = map(segmentFile(headSegment), Math.max(segmentSize, size));
+        segments.put(headSegment, head);
+    }
+
+    private static byte[] read(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining()) {
+            buffer.position(start);
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            buffer.position(start);
+            return null;
+        }
+        return payload;
+    }
+
+    private static MappedByteBuffer map(Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    indexes.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Ignoring unknown file {} in ingest log", file);
+                }
+            }
+        }
+        Collections.sort(indexes);
+        return indexes;
+    }
+
+    private Path segmentFile(long index) {
+        return directory.resolve(String.format("%019d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private long[] readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT);
+        if (!Files.exists(file)) {
+            return new long[] { 0, 0 };
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        return new long[] { buffer.getLong(), buffer.getInt() };
+    }
+
+    private void writeCheckpoint(long segment, int offset) throws IOException {
+        Path temp = directory.resolve(CHECKPOINT + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(12);
+        buffer.putLong(segment).putInt(offset).flip();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * A polled record of the log.
+     */
+    public static final class Record {
+        private final byte[] payload;
+        private final long segment;
+        private final int offset;
+        private final int size;
+        private boolean committed;
+
+        Record(byte[] payload, long segment, int offset) {
+            this.payload = payload;
+            this.segment = segment;
+            this.offset = offset;
+            this.size = HEADER_SIZE + payload.length;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+
+        private long position() {
+            return IngestLog.position(segment, offset);
+        }
+    }
+}
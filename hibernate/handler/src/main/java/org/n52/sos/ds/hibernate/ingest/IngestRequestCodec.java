@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.ingest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.shetland.ogc.sos.request.InsertResultRequest;
+import org.n52.svalbard.decode.Decoder;
+import org.n52.svalbard.decode.DecoderKey;
+import org.n52.svalbard.decode.DecoderRepository;
+import org.n52.svalbard.decode.XmlNamespaceDecoderKey;
+import org.n52.svalbard.decode.exception.DecodingException;
+import org.n52.svalbard.decode.exception.NoDecoderForKeyException;
+import org.n52.svalbard.encode.Encoder;
+import org.n52.svalbard.encode.EncoderKey;
+import org.n52.svalbard.encode.EncoderRepository;
+import org.n52.svalbard.encode.EncodingContext;
+import org.n52.svalbard.encode.XmlBeansEncodingFlags;
+import org.n52.svalbard.encode.XmlEncoderKey;
+import org.n52.svalbard.encode.exception.EncodingException;
+import org.n52.svalbard.encode.exception.NoEncoderForKeyException;
+import org.n52.svalbard.util.CodingHelper;
+import org.n52.svalbard.util.XmlOptionsHelper;
+
+/**
+ * Converts {@link InsertObservationRequest}s and {@link InsertResultRequest}s
+ * to {@link IngestLog} records and back. Observations are stored as O&amp;M 2.0
+ * documents, the offerings of the request are added to their constellations
+ * again when they are decoded.
+ *
+ * @since 5.0.2
+ */
+class IngestRequestCodec {
+    private static final byte OBSERVATION = 1;
+    private static final byte RESULT = 2;
+    private static final EncoderKey OBSERVATION_ENCODER_KEY =
+            new XmlEncoderKey(OmConstants.NS_OM_2, OmObservation.class);
+
+    private final EncoderRepository encoderRepository;
+    private final DecoderRepository decoderRepository;
+    private final XmlOptionsHelper xmlOptionsHelper;
+
+    IngestRequestCodec(EncoderRepository encoderRepository, DecoderRepository decoderRepository,
+            XmlOptionsHelper xmlOptionsHelper) {
+        this.encoderRepository = encoderRepository;
+        this.decoderRepository = decoderRepository;
+        this.xmlOptionsHelper = xmlOptionsHelper;
+    }
+
+    byte[] encode(InsertObservationRequest request) throws OwsExceptionReport {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(OBSERVATION);
+            writeString(out, request.getService());
+            writeString(out, request.getVersion());
+            out.writeInt(request.getOfferings().size());
+            for (String offering : request.getOfferings()) {
+                writeString(out, offering);
+            }
+            out.writeInt(request.getObservations().size());
+            for (OmObservation observation : request.getObservations()) {
+                writeString(out, encodeObservation(observation));
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException | EncodingException e) {
+            throw new NoApplicableCodeException().causedBy(e).withMessage("Error while queueing observations");
+        }
+    }
+
+    byte[] encode(InsertResultRequest request) throws OwsExceptionReport {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(RESULT);
+            writeString(out, request.getService());
+            writeString(out, request.getVersion());
+            writeString(out, request.getTemplateIdentifier());
+            writeString(out, request.getResultValues());
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new NoApplicableCodeException().causedBy(e).withMessage("Error while queueing result values");
+        }
+    }
+
+    OwsServiceRequest decode(byte[] payload) throws OwsExceptionReport {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = in.readByte();
+            String service = readString(in);
+            String version = readString(in);
+            if (type == OBSERVATION) {
+                InsertObservationRequest request = new InsertObservationRequest();
+                request.setService(service);
+                request.setVersion(version);
+                List<String> offerings = new ArrayList<>();
+                for (int i = in.readInt(); i > 0; --i) {
+                    offerings.add(readString(in));
+                }
+                request.setOfferings(offerings);
+                List<OmObservation> observations = new ArrayList<>();
+                for (int i = in.readInt(); i > 0; --i) {
+                    OmObservation observation = decodeObservation(readString(in));
+                    offerings.forEach(observation.getObservationConstellation()::addOffering);
+                    observations.add(observation);
+                }
+                request.setObservation(observations);
+                return request;
+            } else if (type == RESULT) {
+                InsertResultRequest request = new InsertResultRequest();
+                request.setService(service);
+                request.setVersion(version);
+                request.setTemplateIdentifier(readString(in));
+                request.setResultValues(readString(in));
+                return request;
+            }
+            throw new NoApplicableCodeException().withMessage("Unknown ingest log record type %d", type);
+        } catch (IOException | XmlException | DecodingException e) {
+            throw new NoApplicableCodeException().causedBy(e).withMessage("Error while reading queued request");
+        }
+    }
+
+    private String encodeObservation(OmObservation observation) throws EncodingException {
+        Encoder<XmlObject, OmObservation> encoder = encoderRepository.getEncoder(OBSERVATION_ENCODER_KEY);
+        if (encoder == null) {
+            throw new NoEncoderForKeyException(OBSERVATION_ENCODER_KEY);
+        }
+        return encoder.encode(observation, EncodingContext.of(XmlBeansEncodingFlags.DOCUMENT, true))
+                .xmlText(xmlOptionsHelper.getXmlOptions());
+    }
+
+    private OmObservation decodeObservation(String xml)
+            throws OwsExceptionReport, XmlException, DecodingException {
+        XmlObject xbObject = XmlObject.Factory.parse(xml);
+        DecoderKey key = CodingHelper.getDecoderKey(xbObject);
+        Decoder<Object, XmlObject> decoder = decoderRepository.getDecoder(key);
+        if (decoder == null) {
+            DecoderKey schemaTypeKey = new XmlNamespaceDecoderKey(xbObject.schemaType().getName().getNamespaceURI(),
+                    xbObject.getClass());
+            decoder = decoderRepository.getDecoder(schemaTypeKey);
+        }
+        if (decoder == null) {
+            throw new NoDecoderForKeyException(key);
+        }
+        Object decoded = decoder.decode(xbObject);
+        if (!(decoded instanceof OmObservation)) {
+            throw new NoApplicableCodeException().withMessage("Queued observation decoded to %s", decoded);
+        }
+        return (OmObservation) decoded;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
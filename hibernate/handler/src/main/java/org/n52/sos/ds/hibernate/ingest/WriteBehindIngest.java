@@ -0,0 +1,828 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.ingest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.persistence.LockTimeoutException;
+import javax.persistence.PessimisticLockException;
+import javax.persistence.QueryTimeoutException;
+
+import org.hibernate.exception.JDBCConnectionException;
+import org.hibernate.exception.LockAcquisitionException;
+import org.n52.faroe.ConfigurationError;
+import org.n52.faroe.Validation;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.ConfigLocationProvider;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.event.EventBus;
+import org.n52.janmayen.http.HTTPStatus;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.shetland.ogc.sos.request.InsertResultRequest;
+import org.n52.shetland.ogc.sos.response.InsertObservationResponse;
+import org.n52.shetland.ogc.sos.response.InsertResultResponse;
+import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.ds.hibernate.util.DatasetLocks;
+import org.n52.sos.event.events.ResultInsertion;
+import org.n52.sos.service.SosSettings;
+import org.n52.svalbard.decode.DecoderRepository;
+import org.n52.svalbard.encode.EncoderRepository;
+import org.n52.svalbard.util.XmlOptionsHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Asynchronous ingest for InsertObservation and InsertResult requests. If it
+ * is enabled, validated requests are appended to an {@link IngestLog} and
+ * acknowledged. A drain thread polls the log and writes its records with a
+ * pool of writer threads, grouped by dataset (InsertObservation) or result
+ * template (InsertResult), through the synchronous insertion of the handlers.
+ * The {@link ObservationInsertion} and {@link ResultInsertion} events that
+ * update the content cache are published after the groups are committed.
+ * <p>
+ * Requests of different clients are merged only if all their observations
+ * belong to the same dataset. If a merged group fails, its requests are written
+ * one by one, so that a single invalid request does not affect the others.
+ * <p>
+ * Records are committed in the log after they were written. Requests that
+ * failed because of transient database errors (lost connections, deadlocks,
+ * timeouts) stay uncommitted and are retried with an increasing delay, while
+ * no new requests are polled. Requests that fail permanently are moved to a
+ * dead-letter log in the {@value #DEAD_LETTER_FOLDER} sub folder. Records that
+ * were not committed before a crash are written again on the next start; a
+ * request that violates an observation identity constraint is regarded as
+ * written only if the {@link StoredCheck} of its writer confirms that all its
+ * observations are already stored, otherwise it is moved to the dead-letter
+ * log as well.
+ *
+ * @since 5.0.2
+ */
+@Configurable
+public class WriteBehindIngest implements Constructable, Destroyable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindIngest.class);
+    private static final String DEFAULT_FOLDER = "ingest";
+    private static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int MAX_RECORDS = 1000;
+    private static final long APPEND_TIMEOUT = 10;
+    private static final long POLL_TIMEOUT = 1;
+    private static final String DEAD_LETTER_FOLDER = "dead-letter";
+    /**
+     * SQL state classes of connection errors, transaction rollbacks
+     * (serialization failures, deadlocks), insufficient resources and operator
+     * interventions.
+     */
+    private static final Set<String> TRANSIENT_SQL_STATE_CLASSES =
+            new HashSet<>(Arrays.asList("08", "40", "53", "57"));
+
+    private final Object writerLock = new Object();
+    private ConfigLocationProvider configLocationProvider;
+    private EventBus serviceEventBus;
+    private EncoderRepository encoderRepository;
+    private DecoderRepository decoderRepository;
+    private XmlOptionsHelper xmlOptionsHelper;
+    private Writer<InsertObservationRequest, InsertObservationResponse> observationWriter;
+    private Writer<InsertResultRequest, InsertResultResponse> resultWriter;
+    private StoredCheck<InsertObservationRequest> observationCheck = request -> false;
+    private StoredCheck<InsertResultRequest> resultCheck = request -> false;
+    private File folder;
+    private int limit = 256;
+    private int threads = 4;
+    private long retryDelay = TimeUnit.SECONDS.toMillis(1);
+    private long maxRetryDelay = TimeUnit.MINUTES.toMillis(1);
+    private volatile boolean enabled;
+    private volatile boolean running;
+    private boolean initialized;
+    private IngestRequestCodec codec;
+    private IngestLog log;
+    private IngestLog deadLetterLog;
+    private ExecutorService writers;
+    private Thread drain;
+
+    public WriteBehindIngest() {
+    }
+
+    WriteBehindIngest(IngestRequestCodec codec) {
+        this.codec = codec;
+    }
+
+    @Inject
+    public void setConfigLocationProvider(ConfigLocationProvider configLocationProvider) {
+        this.configLocationProvider = configLocationProvider;
+    }
+
+    @Inject
+    public void setServiceEventBus(EventBus serviceEventBus) {
+        this.serviceEventBus = serviceEventBus;
+    }
+
+    @Inject
+    public void setEncoderRepository(EncoderRepository encoderRepository) {
+        this.encoderRepository = encoderRepository;
+    }
+
+    @Inject
+    public void setDecoderRepository(DecoderRepository decoderRepository) {
+        this.decoderRepository = decoderRepository;
+    }
+
+    @Inject
+    public void setXmlOptionsHelper(XmlOptionsHelper xmlOptionsHelper) {
+        this.xmlOptionsHelper = xmlOptionsHelper;
+    }
+
+    @Setting(SosSettings.WRITE_BEHIND_INGEST)
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (initialized && enabled && !running) {
+            start();
+        }
+    }
+
+    @Setting(value = SosSettings.WRITE_BEHIND_INGEST_FOLDER, required = false)
+    public synchronized void setFolder(File folder) {
+        this.folder = folder;
+        restart();
+    }
+
+    /**
+     * @param limit
+     *            the size in MB of pending requests at which new requests are
+     *            blocked
+     */
+    @Setting(SosSettings.WRITE_BEHIND_INGEST_LIMIT)
+    public synchronized void setLimit(int limit) throws ConfigurationError {
+        Validation.greaterZero("Write-behind ingest log limit", limit);
+        this.limit = limit;
+        restart();
+    }
+
+    @Setting(SosSettings.WRITE_BEHIND_INGEST_THREADS)
+    public synchronized void setThreads(int threads) throws ConfigurationError {
+        Validation.greaterZero("Write-behind ingest writer threads", threads);
+        this.threads = threads;
+        restart();
+    }
+
+    /**
+     * Set the synchronous insertion the queued InsertObservation requests are
+     * written with. Requests that violate an observation identity constraint
+     * are moved to the dead-letter log.
+     *
+     * @param writer
+     *            the writer
+     */
+    public void setObservationWriter(Writer<InsertObservationRequest, InsertObservationResponse> writer) {
+        setObservationWriter(writer, request -> false);
+    }
+
+    /**
+     * Set the synchronous insertion the queued InsertObservation requests are
+     * written with.
+     *
+     * @param writer
+     *            the writer
+     * @param check
+     *            the check if the observations of a request that violates an
+     *            observation identity constraint are already stored
+     */
+    public void setObservationWriter(Writer<InsertObservationRequest, InsertObservationResponse> writer,
+            StoredCheck<InsertObservationRequest> check) {
+        synchronized (writerLock) {
+            this.observationWriter = writer;
+            this.observationCheck = check;
+            writerLock.notifyAll();
+        }
+    }
+
+    /**
+     * Set the synchronous insertion the queued InsertResult requests are
+     * written with. Requests that violate an observation identity constraint
+     * are moved to the dead-letter log.
+     *
+     * @param writer
+     *            the writer
+     */
+    public void setResultWriter(Writer<InsertResultRequest, InsertResultResponse> writer) {
+        setResultWriter(writer, request -> false);
+    }
+
+    /**
+     * Set the synchronous insertion the queued InsertResult requests are
+     * written with.
+     *
+     * @param writer
+     *            the writer
+     * @param check
+     *            the check if the observations of a request that violates an
+     *            observation identity constraint are already stored
+     */
+    public void setResultWriter(Writer<InsertResultRequest, InsertResultResponse> writer,
+            StoredCheck<InsertResultRequest> check) {
+        synchronized (writerLock) {
+            this.resultWriter = writer;
+            this.resultCheck = check;
+            writerLock.notifyAll();
+        }
+    }
+
+    /**
+     * @param initial
+     *            the delay in milliseconds before failed requests are retried
+     *            the first time
+     * @param max
+     *            the maximum delay in milliseconds between retries
+     */
+    synchronized void setRetryDelay(long initial, long max) {
+        this.retryDelay = initial;
+        this.maxRetryDelay = max;
+    }
+
+    @Override
+    public synchronized void init() {
+        if (this.codec == null) {
+            this.codec = new IngestRequestCodec(encoderRepository, decoderRepository, xmlOptionsHelper);
+        }
+        this.initialized = true;
+        // a disabled log is still drained if requests are left from the last run
+        if (enabled || hasPendingRecords()) {
+            start();
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        this.initialized = false;
+        stop();
+    }
+
+    /**
+     * Check if the request is queued instead of being inserted synchronously.
+     * Requests with extensions are always inserted synchronously, as the
+     * extensions are not kept in the log. The decision has to be made once per
+     * request, as the setting may change at any time.
+     *
+     * @param request
+     *            the request
+     * @return if the request is queued
+     */
+    public boolean accepts(OwsServiceRequest request) {
+        return enabled && running && request.getExtensions().getExtensions().isEmpty();
+    }
+
+    /**
+     * Append the request to the log.
+     *
+     * @param request
+     *            the request
+     * @return the response acknowledging the request
+     * @throws OwsExceptionReport
+     *             if the request could not be written to the log or the log is
+     *             full
+     */
+    public InsertObservationResponse submit(InsertObservationRequest request) throws OwsExceptionReport {
+        append(codec.encode(request));
+        InsertObservationResponse response = new InsertObservationResponse();
+        response.setService(request.getService());
+        response.setVersion(request.getVersion());
+        return response;
+    }
+
+    /**
+     * Append the request to the log.
+     *
+     * @param request
+     *            the request
+     * @return the response acknowledging the request
+     * @throws OwsExceptionReport
+     *             if the request could not be written to the log or the log is
+     *             full
+     */
+    public InsertResultResponse submit(InsertResultRequest request) throws OwsExceptionReport {
+        append(codec.encode(request));
+        InsertResultResponse response = new InsertResultResponse();
+        response.setService(request.getService());
+        response.setVersion(request.getVersion());
+        return response;
+    }
+
+    /**
+     * @return the size in bytes of the requests that are not yet written
+     */
+    public long getPendingBytes() {
+        IngestLog current = this.log;
+        return current == null ? 0 : current.getPendingBytes();
+    }
+
+    private void append(byte[] payload) throws OwsExceptionReport {
+        IngestLog current = this.log;
+        try {
+            if (current == null || !current.append(payload, APPEND_TIMEOUT, TimeUnit.SECONDS)) {
+                throw new NoApplicableCodeException()
+                        .withMessage("The ingest queue is full, please retry later.")
+                        .setStatus(HTTPStatus.SERVICE_UNAVAILABLE);
+            }
+        } catch (IOException e) {
+            throw new NoApplicableCodeException().causedBy(e).withMessage("Error while queueing the request");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NoApplicableCodeException().causedBy(e).withMessage("Interrupted while queueing the request");
+        }
+    }
+
+    private void restart() {
+        if (running) {
+            stop();
+            start();
+        }
+    }
+
+    private void start() {
+        Path directory = getDirectory();
+        try {
+            this.log = new IngestLog(directory, SEGMENT_SIZE, limit * 1024L * 1024L);
+        } catch (IOException e) {
+            LOGGER.error("Can not open ingest log {}, requests are inserted synchronously", directory, e);
+            return;
+        }
+        LOGGER.info("Writing queued insertions from {} with {} threads", directory, threads);
+        this.writers = Executors.newFixedThreadPool(threads, new GroupedAndNamedThreadFactory("52n-ingest-writer"));
+        this.drain = new GroupedAndNamedThreadFactory("52n-ingest-drain").newThread(this::drain);
+        this.running = true;
+        this.drain.start();
+    }
+
+    private void stop() {
+        if (!running) {
+            return;
+        }
+        this.running = false;
+        this.drain.interrupt();
+        try {
+            this.drain.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.writers.shutdownNow();
+        this.log.close();
+        this.log = null;
+        if (this.deadLetterLog != null) {
+            this.deadLetterLog.close();
+            this.deadLetterLog = null;
+        }
+    }
+
+    private Path getDirectory() {
+        File directory = this.folder;
+        if (directory == null || directory.getPath().isEmpty()) {
+            directory = new File(configLocationProvider.get(), DEFAULT_FOLDER);
+        }
+        return directory.toPath();
+    }
+
+    private boolean hasPendingRecords() {
+        Path directory = getDirectory();
+        if (!Files.isDirectory(directory)) {
+            return false;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.log")) {
+            return stream.iterator().hasNext();
+        } catch (IOException e) {
+            LOGGER.warn("Can not read ingest log {}", directory, e);
+            return false;
+        }
+    }
+
+    private void drain() {
+        IngestLog current = this.log;
+        List<IngestLog.Record> retries = Collections.emptyList();
+        long delay = 0;
+        while (running) {
+            List<IngestLog.Record> records = retries;
+            try {
+                if (retries.isEmpty()) {
+                    delay = 0;
+                    records = current.poll(MAX_RECORDS, POLL_TIMEOUT, TimeUnit.SECONDS);
+                } else {
+                    delay = delay == 0 ? retryDelay : Math.min(2 * delay, maxRetryDelay);
+                    LOGGER.warn("Retrying {} queued requests in {} ms", retries.size(), delay);
+                    Thread.sleep(delay);
+                }
+                retries = records.isEmpty() ? Collections.emptyList() : write(current, records);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Error while writing queued insertions", e);
+                // committing a record again has no effect and rewritten observations are detected
+                retries = records;
+            }
+        }
+    }
+
+    private List<IngestLog.Record> write(IngestLog current, List<IngestLog.Record> records)
+            throws IOException, InterruptedException {
+        List<Queued> queued = new ArrayList<>(records.size());
+        Map<Object, List<Queued>> observations = new LinkedHashMap<>();
+        Map<String, List<Queued>> results = new LinkedHashMap<>();
+        for (IngestLog.Record record : records) {
+            Queued q = new Queued(record);
+            queued.add(q);
+            try {
+                q.request = codec.decode(record.getPayload());
+            } catch (OwsExceptionReport | RuntimeException e) {
+                LOGGER.error("Moving unreadable queued request to the dead-letter log", e);
+                q.outcome = Outcome.REJECTED;
+                continue;
+            }
+            if (q.request instanceof InsertObservationRequest) {
+                observations.computeIfAbsent(getGroupKey((InsertObservationRequest) q.request),
+                        k -> new ArrayList<>()).add(q);
+            } else if (q.request instanceof InsertResultRequest) {
+                results.computeIfAbsent(((InsertResultRequest) q.request).getTemplateIdentifier(),
+                        t -> new ArrayList<>()).add(q);
+            } else {
+                LOGGER.error("Moving queued {} to the dead-letter log", q.request.getOperationName());
+                q.outcome = Outcome.REJECTED;
+            }
+        }
+        Map<Future<?>, List<Queued>> futures = new IdentityHashMap<>(observations.size() + results.size());
+        for (List<Queued> group : observations.values()) {
+            futures.put(writers.submit(call(() -> writeObservations(group))), group);
+        }
+        for (List<Queued> group : results.values()) {
+            futures.put(writers.submit(call(() -> writeResults(group))), group);
+        }
+        for (Map.Entry<Future<?>, List<Queued>> future : futures.entrySet()) {
+            try {
+                future.getKey().get();
+            } catch (ExecutionException e) {
+                LOGGER.error("Error while writing queued insertions", e.getCause());
+            }
+        }
+        List<IngestLog.Record> written = new ArrayList<>(records.size());
+        List<IngestLog.Record> retries = new ArrayList<>();
+        for (Queued q : queued) {
+            if (q.outcome == Outcome.WRITTEN) {
+                written.add(q.record);
+            } else if (q.outcome == Outcome.REJECTED) {
+                deadLetter(q.record);
+                written.add(q.record);
+            } else {
+                retries.add(q.record);
+            }
+        }
+        current.commit(written);
+        LOGGER.debug("Wrote {} of {} queued requests in {} batches", written.size(), records.size(), futures.size());
+        return retries;
+    }
+
+    /**
+     * Requests are merged with the requests of the same dataset if all their
+     * observations belong to it, otherwise they are written on their own.
+     */
+    private Object getGroupKey(InsertObservationRequest request) {
+        Set<List<String>> keys = new HashSet<>();
+        for (OmObservation observation : request.getObservations()) {
+            OmObservationConstellation constellation = observation.getObservationConstellation();
+            List<String> key = new ArrayList<>(Arrays.asList(request.getService(), request.getVersion(),
+                    constellation.getProcedureIdentifier(), constellation.getObservableProperty().getIdentifier(),
+                    constellation.getFeatureOfInterestIdentifier()));
+            key.addAll(request.getOfferings());
+            keys.add(key);
+        }
+        return keys.size() == 1 ? keys.iterator().next() : new Object();
+    }
+
+    private void writeObservations(List<Queued> group) throws InterruptedException {
+        if (group.size() > 1) {
+            InsertObservationRequest merged = new InsertObservationRequest();
+            InsertObservationRequest first = (InsertObservationRequest) group.get(0).request;
+            merged.setService(first.getService());
+            merged.setVersion(first.getVersion());
+            merged.setOfferings(new ArrayList<>(first.getOfferings()));
+            merged.setObservation(new ArrayList<>());
+            for (Queued q : group) {
+                merged.getObservations().addAll(((InsertObservationRequest) q.request).getObservations());
+            }
+            try {
+                InsertObservationResponse response = awaitObservationWriter().write(merged);
+                serviceEventBus.submit(new ObservationInsertion(merged, response));
+                group.forEach(q -> q.outcome = Outcome.WRITTEN);
+                return;
+            } catch (OwsExceptionReport | RuntimeException e) {
+                if (classify(e) == Failure.TRANSIENT) {
+                    LOGGER.warn("Could not write {} queued requests, retrying them later", group.size(), e);
+                    group.forEach(q -> q.outcome = Outcome.RETRY);
+                    return;
+                }
+                LOGGER.debug("Could not write {} merged queued requests, writing them one by one", group.size(), e);
+            }
+        }
+        for (Queued q : group) {
+            if (retryRemaining(group, q)) {
+                return;
+            }
+            InsertObservationRequest request;
+            try {
+                // the observations of the merged request may have been modified by the failed insertion
+                request = group.size() > 1
+                        ? (InsertObservationRequest) codec.decode(q.record.getPayload())
+                        : (InsertObservationRequest) q.request;
+            } catch (OwsExceptionReport | RuntimeException e) {
+                LOGGER.error("Moving unreadable queued request to the dead-letter log", e);
+                q.outcome = Outcome.REJECTED;
+                continue;
+            }
+            q.outcome = insert(() -> {
+                InsertObservationResponse response = awaitObservationWriter().write(request);
+                serviceEventBus.submit(new ObservationInsertion(request, response));
+            }, () -> getObservationCheck().isStored(request), "queued observations");
+        }
+    }
+
+    private void writeResults(List<Queued> group) throws InterruptedException {
+        for (Queued q : group) {
+            if (retryRemaining(group, q)) {
+                return;
+            }
+            InsertResultRequest request = (InsertResultRequest) q.request;
+            q.outcome = insert(() -> {
+                InsertResultResponse response = awaitResultWriter().write(request);
+                serviceEventBus.submit(new ResultInsertion(request, response));
+            }, () -> getResultCheck().isStored(request),
+                    "queued result values for template " + request.getTemplateIdentifier());
+        }
+    }
+
+    /**
+     * After a transient failure the remaining requests of the group are not
+     * tried before the next retry.
+     */
+    private boolean retryRemaining(List<Queued> group, Queued next) {
+        int index = group.indexOf(next);
+        if (index > 0 && group.get(index - 1).outcome == Outcome.RETRY) {
+            group.subList(index, group.size()).forEach(q -> q.outcome = Outcome.RETRY);
+            return true;
+        }
+        return false;
+    }
+
+    private Outcome insert(Insertion insertion, Check stored, String description) throws InterruptedException {
+        try {
+            insertion.insert();
+            return Outcome.WRITTEN;
+        } catch (OwsExceptionReport | RuntimeException e) {
+            switch (classify(e)) {
+                case TRANSIENT:
+                    LOGGER.warn("Could not write {}, retrying them later", description, e);
+                    return Outcome.RETRY;
+                case DUPLICATE:
+                    return checkStored(stored, description, e);
+                default:
+                    LOGGER.error("Could not write {}, moving them to the dead-letter log", description, e);
+                    return Outcome.REJECTED;
+            }
+        }
+    }
+
+    /**
+     * A request that violates an observation identity constraint is regarded
+     * as written only if all its observations are stored, otherwise new
+     * observations of it would be lost.
+     */
+    private Outcome checkStored(Check stored, String description, Exception cause) throws InterruptedException {
+        try {
+            if (stored.check()) {
+                LOGGER.info("The {} are already stored", description);
+                return Outcome.WRITTEN;
+            }
+        } catch (OwsExceptionReport | RuntimeException e) {
+            if (classify(e) == Failure.TRANSIENT) {
+                LOGGER.warn("Could not check if the {} are stored, retrying them later", description, e);
+                return Outcome.RETRY;
+            }
+            cause.addSuppressed(e);
+        }
+        LOGGER.error("Could not write {}, some of them are already stored, moving them to the dead-letter log",
+                description, cause);
+        return Outcome.REJECTED;
+    }
+
+    private void deadLetter(IngestLog.Record record) throws IOException, InterruptedException {
+        if (deadLetterLog == null) {
+            deadLetterLog = new IngestLog(getDirectory().resolve(DEAD_LETTER_FOLDER), SEGMENT_SIZE, Long.MAX_VALUE);
+        }
+        deadLetterLog.append(record.getPayload(), 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Classify the failure of an insertion by the exceptions that caused it.
+     *
+     * @param throwable
+     *            the failure
+     * @return the kind of failure
+     */
+    static Failure classify(Throwable throwable) {
+        Failure failure = Failure.PERMANENT;
+        Set<Throwable> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Throwable> causes = new ArrayList<>();
+        causes.add(throwable);
+        while (!causes.isEmpty()) {
+            Throwable cause = causes.remove(causes.size() - 1);
+            if (cause == null || !visited.add(cause)) {
+                continue;
+            }
+            if (isTransient(cause)) {
+                return Failure.TRANSIENT;
+            }
+            if (DatasetLocks.isObservationConflict(cause)) {
+                failure = Failure.DUPLICATE;
+            }
+            causes.add(cause.getCause());
+            if (cause instanceof OwsExceptionReport) {
+                causes.addAll(((OwsExceptionReport) cause).getExceptions());
+            }
+            if (cause instanceof SQLException) {
+                causes.add(((SQLException) cause).getNextException());
+            }
+        }
+        return failure;
+    }
+
+    private static boolean isTransient(Throwable cause) {
+        if (cause instanceof SQLTransientException || cause instanceof SQLRecoverableException
+                || cause instanceof SQLNonTransientConnectionException || cause instanceof JDBCConnectionException
+                || cause instanceof LockAcquisitionException || cause instanceof LockTimeoutException
+                || cause instanceof PessimisticLockException || cause instanceof QueryTimeoutException) {
+            return true;
+        }
+        if (cause instanceof SQLException) {
+            String state = ((SQLException) cause).getSQLState();
+            return state != null && state.length() >= 2 && TRANSIENT_SQL_STATE_CLASSES.contains(state.substring(0, 2));
+        }
+        return false;
+    }
+
+    private static Callable<Void> call(Insertion insertion) {
+        return () -> {
+            insertion.insert();
+            return null;
+        };
+    }
+
+    private Writer<InsertObservationRequest, InsertObservationResponse> awaitObservationWriter()
+            throws InterruptedException {
+        synchronized (writerLock) {
+            while (observationWriter == null) {
+                writerLock.wait();
+            }
+            return observationWriter;
+        }
+    }
+
+    private StoredCheck<InsertObservationRequest> getObservationCheck() {
+        synchronized (writerLock) {
+            return observationCheck;
+        }
+    }
+
+    private StoredCheck<InsertResultRequest> getResultCheck() {
+        synchronized (writerLock) {
+            return resultCheck;
+        }
+    }
+
+    private Writer<InsertResultRequest, InsertResultResponse> awaitResultWriter() throws InterruptedException {
+        synchronized (writerLock) {
+            while (resultWriter == null) {
+                writerLock.wait();
+            }
+            return resultWriter;
+        }
+    }
+
+    /**
+     * The kind of failure of an insertion.
+     */
+    enum Failure {
+        /**
+         * The database is not available at the moment, the request is retried.
+         */
+        TRANSIENT,
+        /**
+         * An observation identity constraint is violated, the request may
+         * have been written before.
+         */
+        DUPLICATE,
+        /**
+         * The request can not be written.
+         */
+        PERMANENT
+    }
+
+    private enum Outcome {
+        WRITTEN, RETRY, REJECTED
+    }
+
+    @FunctionalInterface
+    private interface Insertion {
+        void insert() throws OwsExceptionReport, InterruptedException;
+    }
+
+    @FunctionalInterface
+    private interface Check {
+        boolean check() throws OwsExceptionReport;
+    }
+
+    private static final class Queued {
+        private final IngestLog.Record record;
+        private OwsServiceRequest request;
+        private Outcome outcome;
+
+        Queued(IngestLog.Record record) {
+            this.record = record;
+        }
+    }
+
+    /**
+     * Synchronous insertion of a queued request.
+     *
+     * @param <Q>
+     *            the request type
+     * @param <R>
+     *            the response type
+     */
+    @FunctionalInterface
+    public interface Writer<Q, R> {
+        R write(Q request) throws OwsExceptionReport;
+    }
+
+    /**
+     * Check if all observations of a queued request are already stored.
+     *
+     * @param <Q>
+     *            the request type
+     */
+    @FunctionalInterface
+    public interface StoredCheck<Q> {
+        boolean isStored(Q request) throws OwsExceptionReport;
+    }
+}
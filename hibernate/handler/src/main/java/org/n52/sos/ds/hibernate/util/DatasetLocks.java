@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.persistence.PersistenceException;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.sos.service.SosSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * Provides the locks that serialize the insertion of observations.
+ * <p>
+ * By default all insertions share one exclusive lock. If concurrent ingest is
+ * activated, only insertions that touch the same dataset (procedure, observable
+ * property, feature of interest and offering), the same feature of interest or
+ * the same unit are serialized, so that independent streams can be committed
+ * in parallel while the creation of datasets, features and units stays free of
+ * races.
+ * <p>
+ * The reference data that nearly all requests share (formats, codespaces,
+ * observable properties, categories, procedures) is not locked, as this would
+ * serialize the insertions again. If two requests insert the same reference
+ * data, the second one fails with a unique constraint violation (or a
+ * concurrent update error) once the first one committed. Such insertions are
+ * repeated, see {@link #retry(PersistenceException, int)}, and then read the
+ * committed row. Violations of the observation identity constraints are not
+ * repeated, as the observation is already stored.
+ *
+ * @since 5.0.2
+ */
+@Configurable
+public class DatasetLocks {
+
+    /**
+     * Unique constraint on the values that identify an observation in its
+     * dataset.
+     */
+    public static final String CONSTRAINT_OBSERVATION_IDENTITY = "observationIdentity";
+    /**
+     * Unique constraint on the identifier of an observation.
+     */
+    public static final String CONSTRAINT_OBSERVATION_IDENTIFIER_IDENTITY = "obsIdentifierUK";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatasetLocks.class);
+    private static final int STRIPES = 1024;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long RETRY_DELAY = 50;
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+    private static final String TRANSACTION_ROLLBACK = "40";
+    /**
+     * SQL state of H2 if another transaction holds an uncommitted row with the
+     * same unique key.
+     */
+    private static final String H2_CONCURRENT_UPDATE = "90131";
+    private static final String SEPARATOR = "|";
+    private static final String FEATURE_PREFIX = "feature" + SEPARATOR;
+    private static final String UNIT_PREFIX = "unit" + SEPARATOR;
+
+    private final Striped<Lock> stripes = Striped.lazyWeakLock(STRIPES);
+    private final Lock exclusive = new ReentrantLock();
+    private boolean concurrentIngest;
+
+    @Setting(SosSettings.CONCURRENT_INGEST)
+    public void setConcurrentIngest(boolean concurrentIngest) {
+        this.concurrentIngest = concurrentIngest;
+    }
+
+    public boolean isConcurrentIngest() {
+        return concurrentIngest;
+    }
+
+    /**
+     * Acquire the locks for the datasets of the observations. The returned
+     * handle has to be closed after the transaction is committed or rolled
+     * back.
+     *
+     * @param observations
+     *            The observations to insert
+     * @return The handle of the acquired locks
+     */
+    public DatasetLock lock(Collection<OmObservation> observations) {
+        if (!isConcurrentIngest()) {
+            return new DatasetLock(Collections.singletonList(exclusive));
+        }
+        Set<String> keys = new TreeSet<>();
+        for (OmObservation observation : observations) {
+            addKeys(observation.getObservationConstellation(), keys);
+            if (observation.isSetValue() && observation.getValue().getValue() != null
+                    && observation.getValue().getValue().isSetUnit()) {
+                keys.add(UNIT_PREFIX + observation.getValue().getValue().getUnit());
+            }
+        }
+        return lock(keys);
+    }
+
+    /**
+     * Acquire the locks for the datasets of the observation constellations
+     * and the units. The returned handle has to be closed after the
+     * transaction is committed or rolled back.
+     *
+     * @param constellations
+     *            The observation constellations to insert observations for
+     * @param units
+     *            The units of the observations to insert
+     * @return The handle of the acquired locks
+     */
+    public DatasetLock lock(Collection<OmObservationConstellation> constellations, Collection<String> units) {
+        if (!isConcurrentIngest()) {
+            return new DatasetLock(Collections.singletonList(exclusive));
+        }
+        Set<String> keys = new TreeSet<>();
+        for (OmObservationConstellation constellation : constellations) {
+            addKeys(constellation, keys);
+        }
+        for (String unit : units) {
+            keys.add(UNIT_PREFIX + unit);
+        }
+        return lock(keys);
+    }
+
+    /**
+     * Check if a failed insertion should be repeated. This is the case if
+     * concurrent ingest is active, the maximum number of attempts is not
+     * reached and the insertion conflicted with a concurrent transaction on
+     * anything else than the identity of an observation. The
+     * transaction has to be rolled back and the locks released before. Waits
+     * a short, increasing time to give the conflicting transaction the chance
+     * to commit.
+     *
+     * @param e
+     *            The exception of the failed attempt
+     * @param attempt
+     *            The number of the failed attempt, starting with 1
+     * @return <code>true</code> if the insertion should be repeated
+     */
+    public boolean retry(PersistenceException e, int attempt) {
+        if (!isConcurrentIngest() || attempt >= MAX_ATTEMPTS || !isConflict(e) || isObservationConflict(e)) {
+            return false;
+        }
+        LOGGER.debug("Insertion conflicts with a concurrent insertion, repeating it (attempt {})", attempt, e);
+        try {
+            Thread.sleep(RETRY_DELAY * attempt);
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Check if the insertion failed because an observation is already
+     * contained in the database, which is not solved by repeating it.
+     *
+     * @param e
+     *            The exception of the failed insertion
+     * @return <code>true</code> if an observation identity constraint was
+     *         violated
+     */
+    public static boolean isObservationConflict(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException
+                    && isObservationConstraint(((ConstraintViolationException) t).getConstraintName())) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                // not all dialects extract the constraint name
+                for (Throwable next : (SQLException) t) {
+                    if (next.getMessage() != null && isObservationConstraint(next.getMessage())) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isObservationConstraint(String text) {
+        if (text == null) {
+            return false;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        return lower.contains(CONSTRAINT_OBSERVATION_IDENTITY.toLowerCase(Locale.ROOT))
+                || lower.contains(CONSTRAINT_OBSERVATION_IDENTIFIER_IDENTITY.toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean isConflict(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                return state != null && (state.startsWith(INTEGRITY_CONSTRAINT_VIOLATION)
+                        || state.startsWith(TRANSACTION_ROLLBACK) || state.equals(H2_CONCURRENT_UPDATE));
+            }
+        }
+        return false;
+    }
+
+    private DatasetLock lock(Set<String> keys) {
+        // bulkGet returns the locks in a consistent order, which prevents
+        // deadlocks between requests with overlapping datasets
+        return new DatasetLock(Lists.newArrayList(stripes.bulkGet(keys)));
+    }
+
+    private void addKeys(OmObservationConstellation constellation, Set<String> keys) {
+        String feature = constellation.getFeatureOfInterestIdentifier();
+        keys.add(FEATURE_PREFIX + feature);
+        for (String offering : constellation.getOfferings()) {
+            keys.add(new StringBuilder().append(constellation.getProcedureIdentifier()).append(SEPARATOR)
+                    .append(constellation.getObservablePropertyIdentifier()).append(SEPARATOR)
+                    .append(feature).append(SEPARATOR)
+                    .append(offering).toString());
+        }
+    }
+
+    /**
+     * Handle of acquired locks that releases them in reverse order on
+     * {@link #close()}.
+     */
+    public static class DatasetLock implements AutoCloseable {
+
+        private final List<Lock> locks;
+
+        DatasetLock(List<Lock> locks) {
+            this.locks = locks;
+            locks.forEach(Lock::lock);
+        }
+
+        @Override
+        public void close() {
+            Lists.reverse(locks).forEach(Lock::unlock);
+        }
+    }
+}
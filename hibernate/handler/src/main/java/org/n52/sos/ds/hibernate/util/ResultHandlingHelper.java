@@ -28,6 +28,7 @@
  */
 package org.n52.sos.ds.hibernate.util;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -117,66 +118,116 @@ public class ResultHandlingHelper {
     public String createResultValuesFromObservations(final Collection<DataEntity<?>> observations,
             final SosResultEncoding sosResultEncoding, final SosResultStructure sosResultStructure, String noDataPlaceholder)
             throws OwsExceptionReport {
-        final Map<Integer, String> valueOrder = getValueOrderMap(sosResultStructure.get().get());
-        return createResultValuesFromObservations(observations, sosResultEncoding, sosResultStructure, noDataPlaceholder, valueOrder, true);
-    }
-
-    private String createResultValuesFromObservations(final Collection<DataEntity<?>> observations,
-            final SosResultEncoding sosResultEncoding, final SosResultStructure sosResultStructure,
-            String noDataPlaceholder, Map<Integer, String> valueOrder, boolean addCount) throws OwsExceptionReport {
         final StringBuilder builder = new StringBuilder();
         if (CollectionHelper.isNotEmpty(observations)) {
-            final String tokenSeparator = getTokenSeparator(sosResultEncoding.get().get());
-            final String blockSeparator = getBlockSeparator(sosResultEncoding.get().get());
-            if (addCount) {
-                addElementCount(builder, observations.size(), blockSeparator);
+            try {
+                writeResultValuesFromObservations(observations, observations.size(), sosResultEncoding,
+                        sosResultStructure, noDataPlaceholder, builder);
+            } catch (IOException ioe) {
+                throw new NoApplicableCodeException().causedBy(ioe).withMessage("Error while creating result values!");
             }
-            for (final DataEntity<?> observation : observations) {
-                for (final Integer intger : valueOrder.keySet()) {
-                    if (observation instanceof ProfileData) {
-                        builder.append(createResultValuesFromObservations(((ProfileDataEntity) observation).getValue(), sosResultEncoding, sosResultStructure, noDataPlaceholder, valueOrder, false));
-                    } else {
-                        final String definition = valueOrder.get(intger);
-                        switch (definition) {
-                            case PHENOMENON_TIME:
-                                builder.append(getTimeStringForPhenomenonTime(observation.getSamplingTimeStart(),
-                                                                              observation.getSamplingTimeEnd(), noDataPlaceholder));
-                                break;
-                            case RESULT_TIME:
-                                builder.append(getTimeStringForResultTime(observation.getResultTime(), noDataPlaceholder));
-                                break;
-                            case OmConstants.PARAM_NAME_SAMPLING_GEOMETRY:
-                                builder.append(getSamplingGeometry(observation, tokenSeparator, sosResultStructure.get().get(), noDataPlaceholder));
-                                break;
-                            case OM_PROCEDURE:
-                                if (observation.getDataset().getProcedure() != null && observation.getDataset().getProcedure().isSetIdentifier()) {
-                                    builder.append(observation.getDataset().getProcedure().getIdentifier());
-                                } else {
-                                    builder.append("");
-                                }
-                                break;
-                            case OM_FEATURE_OF_INTEREST:
-                                if (observation.getDataset().getFeature() != null && observation.getDataset().getFeature().isSetIdentifier()) {
-                                    builder.append(observation.getDataset().getFeature().getIdentifier());
-                                } else {
-                                    builder.append("");
-                                }
-                                break;
-                            default:
-                                builder.append(getValueAsStringForObservedProperty(observation, definition));
-                                break;
-                        }
-                        builder.append(tokenSeparator);
-                    }
-                    builder.delete(builder.lastIndexOf(tokenSeparator), builder.length());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Write result values from observations according to ResultEncoding and
+     * ResultStructure block by block to the output. The observations are only
+     * iterated once, so they can be scrolled from the datasource.
+     *
+     * @param observations
+     *            Observation to write result values from
+     * @param count
+     *            The number of observations, written as element count
+     * @param sosResultEncoding
+     *            The ResultEncoding
+     * @param sosResultStructure
+     *            The ResultStructure
+     * @param noDataPlaceholder
+     *            Placeholder for missing values
+     * @param out
+     *            Output to write the values to
+     * @throws OwsExceptionReport
+     *             If creation fails
+     * @throws IOException
+     *             If writing to the output fails
+     */
+    public void writeResultValuesFromObservations(final Iterable<? extends DataEntity<?>> observations, long count,
+            final SosResultEncoding sosResultEncoding, final SosResultStructure sosResultStructure,
+            String noDataPlaceholder, Appendable out) throws OwsExceptionReport, IOException {
+        final Map<Integer, String> valueOrder = getValueOrderMap(sosResultStructure.get().get());
+        final String tokenSeparator = getTokenSeparator(sosResultEncoding.get().get());
+        final String blockSeparator = getBlockSeparator(sosResultEncoding.get().get());
+        addElementCount(out, count, blockSeparator);
+        writeBlocks(observations, sosResultStructure, noDataPlaceholder, valueOrder, tokenSeparator, blockSeparator,
+                true, out);
+    }
+
+    /**
+     * Write the blocks of the observations, the values of profiles as blocks
+     * of their own.
+     *
+     * @param none
+     *            <code>true</code>, if no block has been written before
+     * @return <code>true</code>, if still no block has been written
+     */
+    private boolean writeBlocks(final Iterable<? extends DataEntity<?>> observations,
+            final SosResultStructure sosResultStructure, String noDataPlaceholder, Map<Integer, String> valueOrder,
+            String tokenSeparator, String blockSeparator, boolean none, Appendable out)
+            throws OwsExceptionReport, IOException {
+        for (final DataEntity<?> observation : observations) {
+            if (observation instanceof ProfileData) {
+                none = writeBlocks(((ProfileDataEntity) observation).getValue(), sosResultStructure,
+                        noDataPlaceholder, valueOrder, tokenSeparator, blockSeparator, none, out);
+            } else {
+                if (!none) {
+                    out.append(blockSeparator);
                 }
-                builder.append(blockSeparator);
+                none = false;
+                writeBlock(observation, sosResultStructure, noDataPlaceholder, valueOrder, tokenSeparator, out);
+            }
+        }
+        return none;
+    }
+
+    private void writeBlock(final DataEntity<?> observation, final SosResultStructure sosResultStructure,
+            String noDataPlaceholder, Map<Integer, String> valueOrder, String tokenSeparator, Appendable out)
+            throws OwsExceptionReport, IOException {
+        boolean first = true;
+        for (final String definition : valueOrder.values()) {
+            if (!first) {
+                out.append(tokenSeparator);
             }
-            if (builder.length() > 0) {
-                builder.delete(builder.lastIndexOf(blockSeparator), builder.length());
+            first = false;
+            switch (definition) {
+                case PHENOMENON_TIME:
+                    out.append(getTimeStringForPhenomenonTime(observation.getSamplingTimeStart(),
+                            observation.getSamplingTimeEnd(), noDataPlaceholder));
+                    break;
+                case RESULT_TIME:
+                    out.append(getTimeStringForResultTime(observation.getResultTime(), noDataPlaceholder));
+                    break;
+                case OmConstants.PARAM_NAME_SAMPLING_GEOMETRY:
+                    out.append(getSamplingGeometry(observation, tokenSeparator, sosResultStructure.get().get(),
+                            noDataPlaceholder));
+                    break;
+                case OM_PROCEDURE:
+                    if (observation.getDataset().getProcedure() != null
+                            && observation.getDataset().getProcedure().isSetIdentifier()) {
+                        out.append(observation.getDataset().getProcedure().getIdentifier());
+                    }
+                    break;
+                case OM_FEATURE_OF_INTEREST:
+                    if (observation.getDataset().getFeature() != null
+                            && observation.getDataset().getFeature().isSetIdentifier()) {
+                        out.append(observation.getDataset().getFeature().getIdentifier());
+                    }
+                    break;
+                default:
+                    out.append(getValueAsStringForObservedProperty(observation, definition));
+                    break;
             }
         }
-        return builder.toString();
     }
 
     /**
@@ -269,19 +320,20 @@ public class ResultHandlingHelper {
         return -1;
     }
 
-    private void addElementCount(final StringBuilder builder, final int size, final String blockSeparator) {
-        builder.append(String.valueOf(size));
-        builder.append(blockSeparator);
+    private void addElementCount(final Appendable out, final long size, final String blockSeparator)
+            throws IOException {
+        out.append(String.valueOf(size));
+        out.append(blockSeparator);
     }
 
-    private Object getTimeStringForResultTime(final Date resultTime, String noDataPlaceholder) {
+    private String getTimeStringForResultTime(final Date resultTime, String noDataPlaceholder) {
         if (resultTime != null) {
             return DateTimeHelper.formatDateTime2IsoString(new DateTime(resultTime, DateTimeZone.UTC));
         }
         return noDataPlaceholder;
     }
 
-    private Object getTimeStringForPhenomenonTime(final Date phenomenonTimeStart, final Date phenomenonTimeEnd, String noDataPlaceholder) {
+    private String getTimeStringForPhenomenonTime(final Date phenomenonTimeStart, final Date phenomenonTimeEnd, String noDataPlaceholder) {
         if (phenomenonTimeStart == null) {
             return noDataPlaceholder;
         }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Single pass tokenizer for result values encoded with a SWE text encoding.
+ * The blocks are created lazily on {@link #next()}, so only the current block
+ * is held in addition to the result values string. The string itself is the
+ * complete result values of the request as decoded by the binding, so the
+ * tokenizer bounds the memory of the blocks, not of the payload. The
+ * separators are matched literally and not as regular expressions. A
+ * preceding count value (a first block without token separator) and empty
+ * blocks are skipped.
+ *
+ * @since 5.0.2
+ */
+public class ResultValuesTokenizer implements Iterator<List<String>> {
+
+    private final String values;
+    private final String tokenSeparator;
+    private final String blockSeparator;
+    private int position;
+    private boolean separated;
+    private List<String> next;
+
+    public ResultValuesTokenizer(String values, String tokenSeparator, String blockSeparator) {
+        if (tokenSeparator == null || tokenSeparator.isEmpty() || blockSeparator == null
+                || blockSeparator.isEmpty()) {
+            throw new IllegalArgumentException("The token and block separator must not be empty!");
+        }
+        this.values = values == null ? "" : values;
+        this.tokenSeparator = tokenSeparator;
+        this.blockSeparator = blockSeparator;
+        this.next = advance();
+        if (this.next != null && !this.separated) {
+            // preceding count value
+            this.next = advance();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public List<String> next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        List<String> current = next;
+        next = advance();
+        return current;
+    }
+
+    private List<String> advance() {
+        while (position < values.length()) {
+            int end = values.indexOf(blockSeparator, position);
+            if (end < 0) {
+                end = values.length();
+            }
+            int start = position;
+            position = end + blockSeparator.length();
+            if (end > start) {
+                return tokenize(start, end);
+            }
+        }
+        return null;
+    }
+
+    private List<String> tokenize(int start, int end) {
+        List<String> tokens = new ArrayList<>();
+        int tokenStart = start;
+        while (tokenStart <= end) {
+            int tokenEnd = values.indexOf(tokenSeparator, tokenStart);
+            if (tokenEnd < 0 || tokenEnd > end) {
+                tokenEnd = end;
+            }
+            tokens.add(values.substring(tokenStart, tokenEnd));
+            tokenStart = tokenEnd + tokenSeparator.length();
+        }
+        separated = tokens.size() > 1;
+        // trailing empty tokens are ignored like String.split() does
+        int size = tokens.size();
+        while (size > 0 && tokens.get(size - 1).isEmpty()) {
+            tokens.remove(--size);
+        }
+        return tokens;
+    }
+
+}
@@ -45,12 +45,15 @@ public class HibernateStreamingConfiguration implements Constructable {
     public static int DEFAULT_CHUNK_SIZE = 10000;
     public static boolean DEFAULT_STREAMING_DATASOURCE = true;
     public static boolean DEFAULT_CHUNK_STREAMING_DATASOURCE = true;
+    public static boolean DEFAULT_SEEK_CHUNK_STREAMING_DATASOURCE = false;
+    public static boolean DEFAULT_GET_RESULT_STREAMING_DATASOURCE = false;
 
     @Deprecated
     private static HibernateStreamingConfiguration instance;
     private boolean streamingDatasource = DEFAULT_STREAMING_DATASOURCE;
     private boolean chunkDatasourceStreaming = DEFAULT_CHUNK_STREAMING_DATASOURCE;
     private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private boolean seekChunkDatasourceStreaming = DEFAULT_SEEK_CHUNK_STREAMING_DATASOURCE;
 
     @Override
     public void init() {
@@ -118,6 +121,29 @@ public class HibernateStreamingConfiguration implements Constructable {
         return chunkSize;
     }
 
+    /**
+     * Set the indicator to query the chunks with keyset (seek) pagination
+     * instead of offset pagination
+     *
+     * @param seekChunkDatasourceStreaming
+     *            Value to set
+     */
+    @Setting(HibernateStreamingSettings.CHUNK_STREAMING_SEEK)
+    public void setSeekChunkDatasourceStreaming(boolean seekChunkDatasourceStreaming) {
+        this.seekChunkDatasourceStreaming = seekChunkDatasourceStreaming;
+    }
+
+    /**
+     * Check for chunk pagination to use
+     *
+     * @return <code>true</code>, if the chunks should be queried with keyset
+     *         (seek) pagination <code>false</code>, if offset pagination
+     *         should be used
+     */
+    public boolean isSeekChunkDatasourceStreaming() {
+        return seekChunkDatasourceStreaming;
+    }
+
     /**
      * @return Returns a singleton instance of the ServiceConfiguration.
      */
@@ -44,4 +44,8 @@ public interface HibernateStreamingSettings {
 
     String CHUNK_SIZE = "service.streaming.datasource.chunkSize";
 
+    String CHUNK_STREAMING_SEEK = "service.streaming.datasource.chunk.seek";
+
+    String GET_RESULT_STREAMING = "service.streaming.datasource.getresult";
+
 }
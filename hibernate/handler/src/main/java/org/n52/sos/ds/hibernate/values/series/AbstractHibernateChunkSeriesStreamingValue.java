@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.values.series;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.hibernate.HibernateException;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.http.HTTPStatus;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.ows.exception.CodedException;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
+import org.n52.shetland.util.CollectionHelper;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.values.HibernateStreamingConfiguration;
+import org.n52.svalbard.decode.DecoderRepository;
+
+/**
+ * Abstract Hibernate series streaming value class for chunk results. The
+ * implementations define how the next chunk is queried and when the series
+ * is exhausted.
+ *
+ * @since 5.0.2
+ *
+ */
+public abstract class AbstractHibernateChunkSeriesStreamingValue extends HibernateSeriesStreamingValue {
+
+    private Iterator<DataEntity<?>> seriesValuesResult;
+
+    private final int chunkSize;
+
+    private boolean noChunk = false;
+
+    /**
+     * constructor
+     *
+     * @param connectionProvider the connection provider
+     * @param daoFactory the DAO factory
+     * @param request
+     *            {@link AbstractObservationRequest}
+     * @param series
+     *            Datasource series id
+     * @throws CodedException
+     */
+    public AbstractHibernateChunkSeriesStreamingValue(ConnectionProvider connectionProvider, DaoFactory daoFactory, AbstractObservationRequest request, long series, DecoderRepository decoderRepository) throws OwsExceptionReport {
+        super(connectionProvider, daoFactory, request, series, decoderRepository);
+        this.chunkSize = HibernateStreamingConfiguration.getInstance().getChunkSize();
+    }
+
+    @Override
+    public boolean hasNext() throws OwsExceptionReport {
+        boolean next = false;
+        if (seriesValuesResult == null || !seriesValuesResult.hasNext()) {
+            if (!noChunk) {
+                getNextResults();
+            }
+        }
+        if (seriesValuesResult != null) {
+            next = seriesValuesResult.hasNext();
+        }
+        if (!next) {
+            sessionHolder.returnSession(session);
+        }
+        return next;
+    }
+
+    @Override
+    public DataEntity<?> nextEntity() throws OwsExceptionReport {
+        return emit(seriesValuesResult.next());
+    }
+
+    @Override
+    public TimeValuePair nextValue() throws OwsExceptionReport {
+        try {
+            if (hasNext()) {
+                DataEntity<?> resultObject = emit(seriesValuesResult.next());
+                TimeValuePair value = createTimeValuePairFrom(resultObject);
+                session.evict(resultObject);
+                return value;
+            }
+            return null;
+        } catch (final HibernateException he) {
+            sessionHolder.returnSession(session);
+            throw new NoApplicableCodeException().causedBy(he).withMessage("Error while querying observation data!")
+                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Override
+    public OmObservation next() throws OwsExceptionReport {
+        try {
+            if (hasNext()) {
+                OmObservation observation = getObservationTemplate().cloneTemplate();
+                DataEntity<?> resultObject = emit(seriesValuesResult.next());
+                addValuesToObservation(resultObject, observation, getResponseFormat());
+                checkForModifications(observation);
+                session.evict(resultObject);
+                return observation;
+            }
+            return null;
+        } catch (final HibernateException he) {
+            sessionHolder.returnSession(session);
+            throw new NoApplicableCodeException().causedBy(he).withMessage("Error while querying observation data!")
+                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    protected int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Called for each value before it is returned.
+     *
+     * @param value
+     *            the value
+     * @return the value
+     */
+    protected DataEntity<?> emit(DataEntity<?> value) {
+        return value;
+    }
+
+    /**
+     * Query the next chunk with the current {@link #session}
+     *
+     * @return the next chunk
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying the next chunk
+     */
+    protected abstract Collection<DataEntity<?>> queryNextChunk() throws OwsExceptionReport;
+
+    /**
+     * Check if the chunk is the last one of the series
+     *
+     * @param size
+     *            the size of the queried chunk
+     * @return <code>true</code>, if no further chunk has to be queried
+     */
+    protected abstract boolean isLastChunk(int size);
+
+    /**
+     * Get the next results from database
+     *
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying the next results
+     */
+    private void getNextResults() throws OwsExceptionReport {
+        if (session == null) {
+            session = sessionHolder.getSession();
+        }
+        try {
+            Collection<DataEntity<?>> chunk = queryNextChunk();
+            checkMaxNumberOfReturnedValues(chunk.size());
+            if (CollectionHelper.isNotEmpty(chunk)) {
+                this.seriesValuesResult = chunk.iterator();
+            }
+            if (chunkSize <= 0 || isLastChunk(chunk.size())) {
+                noChunk = true;
+            }
+        } catch (final HibernateException he) {
+            sessionHolder.returnSession(session);
+            throw new NoApplicableCodeException().causedBy(he).withMessage("Error while querying observation data!")
+                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+}
@@ -28,23 +28,14 @@
  */
 package org.n52.sos.ds.hibernate.values.series;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 
-import org.hibernate.HibernateException;
 import org.n52.iceland.ds.ConnectionProvider;
-import org.n52.janmayen.http.HTTPStatus;
 import org.n52.series.db.beans.DataEntity;
-import org.n52.shetland.ogc.om.OmObservation;
-import org.n52.shetland.ogc.om.TimeValuePair;
 import org.n52.shetland.ogc.ows.exception.CodedException;
-import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
-import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
-import org.n52.sos.ds.hibernate.values.HibernateStreamingConfiguration;
 import org.n52.svalbard.decode.DecoderRepository;
 
 /**
@@ -54,18 +45,10 @@ import org.n52.svalbard.decode.DecoderRepository;
  * @since 4.0.2
  *
  */
-public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreamingValue {
-
-    private Iterator<DataEntity<?>> seriesValuesResult;
-
-    private int chunkSize;
+public class HibernateChunkSeriesStreamingValue extends AbstractHibernateChunkSeriesStreamingValue {
 
     private int currentRow;
 
-    private boolean noChunk = false;
-
-    private int currentResultSize = 0;
-
     /**
      * constructor
      *
@@ -79,116 +62,28 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
      */
     public HibernateChunkSeriesStreamingValue(ConnectionProvider connectionProvider, DaoFactory daoFactory, AbstractObservationRequest request, long series, DecoderRepository decoderRepository) throws OwsExceptionReport {
         super(connectionProvider, daoFactory, request, series, decoderRepository);
-        this.chunkSize = HibernateStreamingConfiguration.getInstance().getChunkSize();
     }
 
     @Override
-    public boolean hasNext() throws OwsExceptionReport {
-        boolean next = false;
-        if (seriesValuesResult == null || !seriesValuesResult.hasNext()) {
-            if (!noChunk) {
-                getNextResults();
-                if (chunkSize <= 0 || currentResultSize < chunkSize) {
-                    noChunk = true;
-                }
-            }
+    protected Collection<DataEntity<?>> queryNextChunk() throws OwsExceptionReport {
+        Collection<DataEntity<?>> seriesValuesResult;
+        // query with temporal filter
+        if (temporalFilterCriterion != null) {
+            seriesValuesResult = seriesValueDAO.getStreamingSeriesValuesFor(request, series,
+                    temporalFilterCriterion, getChunkSize(), currentRow, session);
         }
-        if (seriesValuesResult != null) {
-            next = seriesValuesResult.hasNext();
+        // query without temporal or indeterminate filters
+        else {
+            seriesValuesResult = seriesValueDAO.getStreamingSeriesValuesFor(request, series, getChunkSize(),
+                    currentRow, session);
         }
-        if (!next) {
-            sessionHolder.returnSession(session);
-        }
-
-
-        return next;
+        currentRow += getChunkSize();
+        return seriesValuesResult;
     }
 
     @Override
-    public DataEntity<?> nextEntity() throws OwsExceptionReport {
-        return (DataEntity<?>) seriesValuesResult.next();
-    }
-
-    @Override
-    public TimeValuePair nextValue() throws OwsExceptionReport {
-        try {
-            if (hasNext()) {
-                DataEntity<?> resultObject = seriesValuesResult.next();
-                TimeValuePair value = createTimeValuePairFrom(resultObject);
-                session.evict(resultObject);
-                return value;
-            }
-            return null;
-        } catch (final HibernateException he) {
-            sessionHolder.returnSession(session);
-            throw new NoApplicableCodeException().causedBy(he).withMessage("Error while querying observation data!")
-                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
-        }
-    }
-
-    @Override
-    public OmObservation next() throws OwsExceptionReport {
-        try {
-            if (hasNext()) {
-                OmObservation observation = getObservationTemplate().cloneTemplate();
-                DataEntity<?> resultObject = seriesValuesResult.next();
-                addValuesToObservation(resultObject, observation, getResponseFormat());
-                checkForModifications(observation);
-                session.evict(resultObject);
-                return observation;
-            }
-            return null;
-        } catch (final HibernateException he) {
-            sessionHolder.returnSession(session);
-            throw new NoApplicableCodeException().causedBy(he).withMessage("Error while querying observation data!")
-                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
-        }
-    }
-
-    /**
-     * Get the next results from database
-     *
-     * @throws OwsExceptionReport
-     *             If an error occurs when querying the next results
-     */
-    private void getNextResults() throws OwsExceptionReport {
-        if (session == null) {
-            session = sessionHolder.getSession();
-        }
-        try {
-            // query with temporal filter
-            Collection<DataEntity<?>> seriesValuesResult = new ArrayList<>();
-            if (temporalFilterCriterion != null) {
-                seriesValuesResult.addAll(seriesValueDAO.getStreamingSeriesValuesFor(request, series, temporalFilterCriterion,
-                                chunkSize, currentRow, session));
-            }
-            // query without temporal or indeterminate filters
-            else {
-                seriesValuesResult.addAll(seriesValueDAO.getStreamingSeriesValuesFor(request, series, chunkSize, currentRow, session));
-            }
-            currentRow += chunkSize;
-            checkMaxNumberOfReturnedValues(seriesValuesResult.size());
-            setSeriesValuesResult(seriesValuesResult);
-        } catch (final HibernateException he) {
-            sessionHolder.returnSession(session);
-            throw new NoApplicableCodeException().causedBy(he).withMessage("Error while querying observation data!")
-                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
-        }
-    }
-
-    /**
-     * Check the queried {@link AbstractValuedObservation}s for null and set them as
-     * iterator to local variable.
-     *
-     * @param seriesValuesResult
-     *            Queried {@link AbstractValuedObservation}s
-     */
-    private void setSeriesValuesResult(Collection<DataEntity<?>> seriesValuesResult) {
-        if (CollectionHelper.isNotEmpty(seriesValuesResult)) {
-            this.currentResultSize = seriesValuesResult.size();
-            this.seriesValuesResult = seriesValuesResult.iterator();
-        }
-
+    protected boolean isLastChunk(int size) {
+        return size < getChunkSize();
     }
 
 }
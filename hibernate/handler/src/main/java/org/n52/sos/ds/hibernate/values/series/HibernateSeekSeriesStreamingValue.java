@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.values.series;
+
+import java.util.Collection;
+
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.shetland.ogc.ows.exception.CodedException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.svalbard.decode.DecoderRepository;
+
+/**
+ * Hibernate series streaming value implementation for chunk results that are
+ * queried with keyset (seek) pagination. Instead of skipping the already
+ * queried rows with an offset, the next chunk is queried for the values after
+ * the (time, id) of the last emitted value, so the costs of a chunk query do
+ * not grow with the position in the series.
+ *
+ * @since 5.0.2
+ *
+ */
+public class HibernateSeekSeriesStreamingValue extends AbstractHibernateChunkSeriesStreamingValue {
+
+    private DataEntity<?> lastValue;
+
+    /**
+     * constructor
+     *
+     * @param connectionProvider the connection provider
+     * @param daoFactory the DAO factory
+     * @param request
+     *            {@link AbstractObservationRequest}
+     * @param series
+     *            Datasource series id
+     * @throws CodedException
+     */
+    public HibernateSeekSeriesStreamingValue(ConnectionProvider connectionProvider, DaoFactory daoFactory, AbstractObservationRequest request, long series, DecoderRepository decoderRepository) throws OwsExceptionReport {
+        super(connectionProvider, daoFactory, request, series, decoderRepository);
+    }
+
+    @Override
+    protected DataEntity<?> emit(DataEntity<?> value) {
+        this.lastValue = value;
+        return value;
+    }
+
+    @Override
+    protected Collection<DataEntity<?>> queryNextChunk() throws OwsExceptionReport {
+        // the temporal filter criterion is optional
+        return seriesValueDAO.getStreamingSeriesValuesFor(request, series, temporalFilterCriterion, getChunkSize(),
+                lastValue, session);
+    }
+
+    /**
+     * Chunks may shrink because of the distinct root entity transformer, so
+     * only an empty chunk indicates the end of the series.
+     */
+    @Override
+    protected boolean isLastChunk(int size) {
+        return size == 0;
+    }
+
+}
@@ -32,11 +32,13 @@ import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.xmlbeans.XmlObject;
 import org.apache.xmlbeans.XmlOptions;
 import org.hibernate.Session;
+import org.hibernate.criterion.Projections;
 import org.joda.time.DateTime;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -56,6 +58,7 @@ import org.n52.iceland.i18n.I18NDAORepository;
 import org.n52.iceland.ogc.ows.OwsServiceMetadataRepositoryImpl;
 import org.n52.iceland.ogc.ows.OwsServiceProviderFactory;
 import org.n52.janmayen.event.EventBus;
+import org.n52.series.db.beans.DatasetEntity;
 import org.n52.series.db.beans.ProcedureEntity;
 import org.n52.series.db.da.sos.SOSHibernateSessionHolder;
 import org.n52.shetland.ogc.filter.FilterConstants;
@@ -90,6 +93,7 @@ import org.n52.shetland.ogc.sos.SosOffering;
 import org.n52.shetland.ogc.sos.SosProcedureDescription;
 import org.n52.shetland.ogc.sos.SosResultEncoding;
 import org.n52.shetland.ogc.sos.SosResultStructure;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityRequest;
 import org.n52.shetland.ogc.sos.request.DeleteSensorRequest;
 import org.n52.shetland.ogc.sos.request.GetObservationRequest;
 import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
@@ -119,6 +123,7 @@ import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.cache.SosWritableContentCache;
 import org.n52.sos.ds.SosCacheFeederHandler;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.dao.GetDataAvailabilityDao;
 import org.n52.sos.ds.hibernate.dao.GetObservationDao;
 import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
 import org.n52.sos.ds.hibernate.util.TemporalRestrictions;
@@ -804,6 +809,41 @@ public class InsertDAOTest
         checkObservation(OFFERING1, PROCEDURE3, OBSPROP3, TIME3, PROCEDURE3, OBSPROP3, FEATURE3, VAL3, TEMP_UNIT);
     }
 
+    /**
+     * Checks the result times of the datasets of the three offerings of a
+     * procedure, queried at once and with one query per dataset.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetResultTimesOfDatasets()
+            throws OwsExceptionReport {
+        InsertResultRequest req = new InsertResultRequest();
+        req.setTemplateIdentifier(RESULT_TEMPLATE);
+        req.setResultValues(makeResultValueString(CollectionHelper.list(TIME1, TIME2, TIME3),
+                CollectionHelper.list(VAL1, VAL2, VAL3)));
+        insertResultDAO.insertResult(req);
+
+        Session session = getSession();
+        try {
+            List<Long> datasets = session.createCriteria(DatasetEntity.class)
+                    .setProjection(Projections.id()).list();
+            GetDataAvailabilityRequest request = new GetDataAvailabilityRequest();
+            GetDataAvailabilityDao dao = new GetDataAvailabilityDao();
+            Map<Long, List<TimeInstant>> resultTimes = dao.getResultTimes(datasets, request, session);
+            assertThat(resultTimes.size(), is(3));
+            for (List<TimeInstant> times : resultTimes.values()) {
+                assertThat(times.size(), is(3));
+                assertThat(times.get(0).getValue().getMillis(), is(TIME1.getMillis()));
+                assertThat(times.get(1).getValue().getMillis(), is(TIME2.getMillis()));
+                assertThat(times.get(2).getValue().getMillis(), is(TIME3.getMillis()));
+            }
+            dao.setChunkSize(1);
+            assertThat(dao.getResultTimes(datasets, request, session), is(resultTimes));
+        } finally {
+            returnSession(session);
+        }
+    }
+
     @Test
     public void testInsertObservationWithSamplingGeometry()
             throws OwsExceptionReport, ConverterException, InterruptedException {
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+import org.n52.shetland.ogc.sos.SosProcedureDescriptionUnknownType;
+import org.n52.shetland.ogc.sos.request.DescribeSensorRequest;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.shetland.ogc.sos.response.InsertObservationResponse;
+import org.n52.sos.event.events.ObservationInsertion;
+
+import com.google.common.collect.Lists;
+
+public class DescribeSensorDaoTest {
+
+    private static final String FORMAT = "http://www.opengis.net/sensorml/2.0";
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ProcedureDescriptionCache cache;
+
+    private DescribeSensorDao dao;
+
+    @Before
+    public void setUp() {
+        cache = new ProcedureDescriptionCache(10, new ProcedureDescriptionCache.Serializer() {
+            @Override
+            public String serialize(SosProcedureDescription<?> description) {
+                return description.getIdentifier();
+            }
+
+            @Override
+            public SosProcedureDescription<?> deserialize(String document) {
+                return new SosProcedureDescriptionUnknownType(document);
+            }
+        });
+        dao = new DescribeSensorDao();
+        dao.setDescriptionCache(cache);
+    }
+
+    @Test
+    public void shouldInvalidateProceduresOfInsertedObservations() throws OwsExceptionReport {
+        get("p1");
+        get("p2");
+        get("p3");
+        InsertObservationRequest request = new InsertObservationRequest();
+        request.setObservation(Lists.newArrayList(createObservation("p1"), createObservation("p2"),
+                createObservation("p1")));
+        dao.handle(new ObservationInsertion(request, new InsertObservationResponse()));
+        assertEquals(1, cache.size());
+        get("p1");
+        get("p2");
+        get("p3");
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    public void shouldInvalidateAllIfInsertedObservationsAreUnknown() throws OwsExceptionReport {
+        get("p1");
+        get("p2");
+        dao.handle(new ObservationInsertion(new InsertObservationRequest(), new InsertObservationResponse()));
+        assertEquals(0, cache.size());
+    }
+
+    private void get(String procedure) throws OwsExceptionReport {
+        DescribeSensorRequest request = new DescribeSensorRequest();
+        request.setService("SOS");
+        request.setVersion("2.0.0");
+        request.setProcedure(procedure);
+        request.setProcedureDescriptionFormat(FORMAT);
+        cache.get(new ProcedureDescriptionCache.Key(request, Locale.ENGLISH), () -> load(procedure));
+    }
+
+    private List<SosProcedureDescription<?>> load(String procedure) {
+        loads.incrementAndGet();
+        SosProcedureDescription<?> description = new SosProcedureDescriptionUnknownType(procedure);
+        description.setDescriptionFormat(FORMAT);
+        return Collections.singletonList(description);
+    }
+
+    private static OmObservation createObservation(String procedure) {
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setProcedure(new SosProcedureDescriptionUnknownType(procedure, FORMAT, null));
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(constellation);
+        return observation;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+import org.n52.shetland.ogc.sos.SosProcedureDescriptionUnknownType;
+import org.n52.shetland.ogc.sos.request.DescribeSensorRequest;
+
+public class ProcedureDescriptionCacheTest {
+
+    private static final String FORMAT = "http://www.opengis.net/sensorml/2.0";
+
+    private static final TimePeriod VALID_TIME =
+            new TimePeriod(new DateTime(2020, 1, 1, 0, 0), new DateTime(2020, 2, 1, 0, 0));
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private ProcedureDescriptionCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new ProcedureDescriptionCache(10, new ProcedureDescriptionCache.Serializer() {
+            @Override
+            public String serialize(SosProcedureDescription<?> description) {
+                return FORMAT.equals(description.getDescriptionFormat()) ? description.getIdentifier() : null;
+            }
+
+            @Override
+            public SosProcedureDescription<?> deserialize(String document) {
+                return new SosProcedureDescriptionUnknownType(document);
+            }
+        });
+    }
+
+    @Test
+    public void shouldReturnCachedDescriptions() throws OwsExceptionReport {
+        assertEquals("p1", get("p1", FORMAT).getIdentifier());
+        SosProcedureDescription<?> description = get("p1", FORMAT);
+        assertEquals(1, loads.get());
+        assertEquals("p1", description.getIdentifier());
+        assertEquals(FORMAT, description.getDescriptionFormat());
+        assertEquals(VALID_TIME, description.getValidTime());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void shouldIsolateRequests() throws OwsExceptionReport {
+        SosProcedureDescription<?> first = get("p1", FORMAT);
+        SosProcedureDescription<?> second = get("p1", FORMAT);
+        assertNotSame(first, second);
+        assertNotSame(first.getValidTime(), second.getValidTime());
+        second.setIdentifier("modified");
+        second.setDescriptionFormat("modified");
+        second.setValidTime(null);
+        SosProcedureDescription<?> third = get("p1", FORMAT);
+        assertEquals(1, loads.get());
+        assertEquals("p1", third.getIdentifier());
+        assertEquals(FORMAT, third.getDescriptionFormat());
+        assertEquals(VALID_TIME, third.getValidTime());
+    }
+
+    @Test
+    public void shouldInvalidateProcedure() throws OwsExceptionReport {
+        get("p1", FORMAT);
+        get("p2", FORMAT);
+        cache.invalidate("p1");
+        get("p1", FORMAT);
+        get("p2", FORMAT);
+        assertEquals(3, loads.get());
+        cache.invalidateAll();
+        get("p2", FORMAT);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void shouldNotCacheDescriptionsLoadedDuringInvalidation() throws OwsExceptionReport {
+        cache.get(key("p1", FORMAT), () -> {
+            List<SosProcedureDescription<?>> descriptions = load("p1", FORMAT);
+            cache.invalidate("p1");
+            return descriptions;
+        });
+        get("p1", FORMAT);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void shouldNotCacheUnserializableDescriptions() throws OwsExceptionReport {
+        get("p1", "unknown");
+        get("p1", "unknown");
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    private SosProcedureDescription<?> get(String procedure, String format) throws OwsExceptionReport {
+        List<SosProcedureDescription<?>> descriptions =
+                cache.get(key(procedure, format), () -> load(procedure, format));
+        assertEquals(1, descriptions.size());
+        return descriptions.get(0);
+    }
+
+    private List<SosProcedureDescription<?>> load(String procedure, String format) {
+        loads.incrementAndGet();
+        SosProcedureDescription<?> description = new SosProcedureDescriptionUnknownType(procedure);
+        description.setDescriptionFormat(format);
+        description.setValidTime(new TimePeriod(VALID_TIME.getStart(), VALID_TIME.getEnd()));
+        return Collections.singletonList(description);
+    }
+
+    private static ProcedureDescriptionCache.Key key(String procedure, String format) {
+        DescribeSensorRequest request = new DescribeSensorRequest();
+        request.setService("SOS");
+        request.setVersion("2.0.0");
+        request.setProcedure(procedure);
+        request.setProcedureDescriptionFormat(format);
+        return new ProcedureDescriptionCache.Key(request, Locale.ENGLISH);
+    }
+}
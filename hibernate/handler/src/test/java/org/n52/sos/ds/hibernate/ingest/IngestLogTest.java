@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.ingest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IngestLogTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldPollAppendedRecordsInOrder() throws Exception {
+        try (IngestLog log = new IngestLog(folder.getRoot().toPath(), 64, 1024)) {
+            append(log, "a", "b", "c");
+            List<IngestLog.Record> records = log.poll(2, 0, TimeUnit.MILLISECONDS);
+            assertEquals(2, records.size());
+            assertPayload("a", records.get(0));
+            assertPayload("b", records.get(1));
+            records = log.poll(2, 0, TimeUnit.MILLISECONDS);
+            assertEquals(1, records.size());
+            assertPayload("c", records.get(0));
+            assertTrue(log.poll(2, 0, TimeUnit.MILLISECONDS).isEmpty());
+        }
+    }
+
+    @Test
+    public void shouldRollSegments() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (IngestLog log = new IngestLog(directory, 32, 1024)) {
+            append(log, "0123456789", "0123456789", "0123456789012345678901234567890123456789");
+            List<IngestLog.Record> records = log.poll(10, 0, TimeUnit.MILLISECONDS);
+            assertEquals(3, records.size());
+            assertPayload("0123456789012345678901234567890123456789", records.get(2));
+            assertEquals(3, countSegments(directory));
+            log.commit(records);
+            assertEquals(1, countSegments(directory));
+            assertEquals(0, log.getPendingBytes());
+        }
+    }
+
+    @Test
+    public void shouldRecoverUncommittedRecords() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (IngestLog log = new IngestLog(directory, 64, 1024)) {
+            append(log, "a", "b", "c");
+            log.commit(log.poll(1, 0, TimeUnit.MILLISECONDS));
+            assertEquals(2, log.poll(10, 0, TimeUnit.MILLISECONDS).size());
+        }
+        try (IngestLog log = new IngestLog(directory, 64, 1024)) {
+            assertEquals(18, log.getPendingBytes());
+            List<IngestLog.Record> records = log.poll(10, 0, TimeUnit.MILLISECONDS);
+            assertEquals(2, records.size());
+            assertPayload("b", records.get(0));
+            assertPayload("c", records.get(1));
+            append(log, "d");
+            assertPayload("d", log.poll(10, 0, TimeUnit.MILLISECONDS).get(0));
+        }
+    }
+
+    @Test
+    public void shouldNotRecoverRecordsCommittedOutOfOrder() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (IngestLog log = new IngestLog(directory, 64, 1024)) {
+            append(log, "a", "b", "c");
+            List<IngestLog.Record> records = log.poll(10, 0, TimeUnit.MILLISECONDS);
+            log.commit(records.get(1));
+            assertEquals(18, log.getPendingBytes());
+        }
+        try (IngestLog log = new IngestLog(directory, 64, 1024)) {
+            assertEquals(18, log.getPendingBytes());
+            List<IngestLog.Record> records = log.poll(10, 0, TimeUnit.MILLISECONDS);
+            assertEquals(2, records.size());
+            assertPayload("a", records.get(0));
+            assertPayload("c", records.get(1));
+            log.commit(records);
+            assertEquals(0, log.getPendingBytes());
+        }
+        try (IngestLog log = new IngestLog(directory, 64, 1024)) {
+            assertEquals(0, log.getPendingBytes());
+            assertTrue(log.poll(10, 0, TimeUnit.MILLISECONDS).isEmpty());
+        }
+    }
+
+    @Test
+    public void shouldIgnoreTornRecord() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (IngestLog log = new IngestLog(directory, 64, 1024)) {
+            append(log, "a");
+        }
+        // a record header whose payload was not completely written
+        try (FileChannel channel = FileChannel.open(directory.resolve(String.format("%019d.log", 0)),
+                StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(9);
+            torn.putInt(2).putInt(42).put((byte) 'x').flip();
+            channel.write(torn, 9);
+        }
+        try (IngestLog log = new IngestLog(directory, 64, 1024)) {
+            List<IngestLog.Record> records = log.poll(10, 0, TimeUnit.MILLISECONDS);
+            assertEquals(1, records.size());
+            assertPayload("a", records.get(0));
+            append(log, "b");
+            assertPayload("b", log.poll(10, 0, TimeUnit.MILLISECONDS).get(0));
+        }
+    }
+
+    @Test
+    public void shouldApplyBackPressure() throws Exception {
+        try (IngestLog log = new IngestLog(folder.getRoot().toPath(), 64, 20)) {
+            append(log, "0123456789");
+            assertFalse(log.append(bytes("0123456789"), 10, TimeUnit.MILLISECONDS));
+            log.commit(log.poll(10, 0, TimeUnit.MILLISECONDS));
+            assertTrue(log.append(bytes("0123456789"), 10, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private static void append(IngestLog log, String... payloads) throws IOException, InterruptedException {
+        for (String payload : payloads) {
+            assertTrue(log.append(bytes(payload), 0, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private static void assertPayload(String expected, IngestLog.Record record) {
+        assertArrayEquals(bytes(expected), record.getPayload());
+    }
+
+    private static byte[] bytes(String payload) {
+        return payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long countSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.toString().endsWith(".log")).count();
+        }
+    }
+}
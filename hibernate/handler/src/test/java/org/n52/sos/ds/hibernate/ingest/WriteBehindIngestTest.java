@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.ingest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import javax.persistence.PersistenceException;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.n52.janmayen.event.EventBus;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.shetland.ogc.sos.request.InsertResultRequest;
+import org.n52.shetland.ogc.sos.response.InsertObservationResponse;
+import org.n52.shetland.ogc.sos.response.InsertResultResponse;
+import org.n52.sos.ds.hibernate.util.DatasetLocks;
+
+public class WriteBehindIngestTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<WriteBehindIngest> instances = new ArrayList<>();
+
+    private final List<String> written = new CopyOnWriteArrayList<>();
+
+    private TestCodec codec;
+
+    private Path directory;
+
+    @Before
+    public void setUp() {
+        codec = new TestCodec();
+        directory = folder.getRoot().toPath();
+    }
+
+    @After
+    public void tearDown() {
+        instances.forEach(WriteBehindIngest::destroy);
+    }
+
+    @Test
+    public void shouldRetryTransientFailures() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        WriteBehindIngest ingest = start();
+        ingest.setResultWriter(request -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new NoApplicableCodeException()
+                        .causedBy(new SQLTransientConnectionException("connection refused", "08001"));
+            }
+            return write(request);
+        });
+        ingest.submit(result("a"));
+        await(() -> ingest.getPendingBytes() == 0);
+        assertEquals(Collections.singletonList("a"), written);
+        assertEquals(3, attempts.get());
+        assertFalse(Files.exists(directory.resolve("dead-letter")));
+    }
+
+    @Test
+    public void shouldMoveRejectedRequestsToDeadLetterLog() throws Exception {
+        WriteBehindIngest ingest = start();
+        ingest.setResultWriter(request -> {
+            if (request.getTemplateIdentifier().equals("bad")) {
+                throw new NoApplicableCodeException().withMessage("invalid result values");
+            }
+            return write(request);
+        });
+        ingest.submit(result("bad"));
+        ingest.submit(result("good"));
+        await(() -> ingest.getPendingBytes() == 0);
+        assertEquals(Collections.singletonList("good"), written);
+        ingest.destroy();
+        try (IngestLog deadLetters = new IngestLog(directory.resolve("dead-letter"), 1024, Long.MAX_VALUE)) {
+            List<IngestLog.Record> records = deadLetters.poll(10, 0, TimeUnit.MILLISECONDS);
+            assertEquals(1, records.size());
+            assertEquals("bad", ((InsertResultRequest) codec.decode(records.get(0).getPayload()))
+                    .getTemplateIdentifier());
+        }
+    }
+
+    @Test
+    public void shouldWriteMergedRequestsOneByOneIfTheGroupFails() throws Exception {
+        OmObservation good = mock(OmObservation.class, RETURNS_DEEP_STUBS);
+        OmObservation bad = mock(OmObservation.class, RETURNS_DEEP_STUBS);
+        // both requests are polled at once and merged, as they belong to the same dataset
+        try (IngestLog log = new IngestLog(directory, 1024, Long.MAX_VALUE)) {
+            log.append(codec.encode(observations(good)), 0, TimeUnit.MILLISECONDS);
+            log.append(codec.encode(observations(bad)), 0, TimeUnit.MILLISECONDS);
+        }
+        List<List<OmObservation>> attempts = new CopyOnWriteArrayList<>();
+        WriteBehindIngest ingest = start();
+        ingest.setObservationWriter(request -> {
+            attempts.add(new ArrayList<>(request.getObservations()));
+            if (request.getObservations().contains(bad)) {
+                throw new NoApplicableCodeException().withMessage("invalid observation");
+            }
+            return new InsertObservationResponse();
+        });
+        await(() -> ingest.getPendingBytes() == 0);
+        assertEquals(Arrays.asList(Arrays.asList(good, bad), Arrays.asList(good), Arrays.asList(bad)), attempts);
+        ingest.destroy();
+        try (IngestLog deadLetters = new IngestLog(directory.resolve("dead-letter"), 1024, Long.MAX_VALUE)) {
+            assertEquals(1, deadLetters.poll(10, 0, TimeUnit.MILLISECONDS).size());
+        }
+    }
+
+    @Test
+    public void shouldNotReplayWrittenRequestsAfterRestart() throws Exception {
+        try (IngestLog log = new IngestLog(directory, 1024, Long.MAX_VALUE)) {
+            log.append(codec.encode(result("a")), 0, TimeUnit.MILLISECONDS);
+            log.append(codec.encode(result("b")), 0, TimeUnit.MILLISECONDS);
+        }
+        WriteBehindIngest ingest = start();
+        ingest.setResultWriter(request -> {
+            if (request.getTemplateIdentifier().equals("a")) {
+                throw new NoApplicableCodeException().causedBy(new SQLException("deadlock detected", "40P01"));
+            }
+            return write(request);
+        });
+        await(() -> written.contains("b"));
+        ingest.destroy();
+
+        WriteBehindIngest restarted = start();
+        restarted.setResultWriter(this::write);
+        await(() -> restarted.getPendingBytes() == 0);
+        assertEquals(Arrays.asList("b", "a"), written);
+    }
+
+    @Test
+    public void shouldRegardStoredObservationsAsWritten() throws Exception {
+        WriteBehindIngest ingest = start();
+        ingest.setResultWriter(request -> {
+            throw observationConflict();
+        }, request -> true);
+        ingest.submit(result("a"));
+        await(() -> ingest.getPendingBytes() == 0);
+        assertFalse(Files.exists(directory.resolve("dead-letter")));
+    }
+
+    @Test
+    public void shouldMovePartiallyStoredRequestsToDeadLetterLog() throws Exception {
+        WriteBehindIngest ingest = start();
+        ingest.setResultWriter(request -> {
+            throw observationConflict();
+        }, request -> false);
+        ingest.submit(result("a"));
+        await(() -> ingest.getPendingBytes() == 0);
+        ingest.destroy();
+        try (IngestLog deadLetters = new IngestLog(directory.resolve("dead-letter"), 1024, Long.MAX_VALUE)) {
+            assertEquals(1, deadLetters.poll(10, 0, TimeUnit.MILLISECONDS).size());
+        }
+    }
+
+    @Test
+    public void shouldMoveOtherConstraintViolationsToDeadLetterLog() throws Exception {
+        AtomicInteger checks = new AtomicInteger();
+        WriteBehindIngest ingest = start();
+        ingest.setResultWriter(request -> {
+            throw new NoApplicableCodeException().causedBy(
+                    new SQLException("duplicate key value violates unique constraint \"featureIdentifierUK\"",
+                            "23505"));
+        }, request -> checks.incrementAndGet() > 0);
+        ingest.submit(result("a"));
+        await(() -> ingest.getPendingBytes() == 0);
+        assertEquals(0, checks.get());
+        assertTrue(Files.exists(directory.resolve("dead-letter")));
+    }
+
+    @Test
+    public void shouldClassifyFailures() {
+        assertEquals(WriteBehindIngest.Failure.TRANSIENT, WriteBehindIngest.classify(
+                new NoApplicableCodeException().causedBy(new RuntimeException(new SQLException("", "57P01")))));
+        assertEquals(WriteBehindIngest.Failure.DUPLICATE, WriteBehindIngest.classify(observationConflict()));
+        assertEquals(WriteBehindIngest.Failure.PERMANENT,
+                WriteBehindIngest.classify(new SQLException("Duplicate entry 'a' for key 'codespaceUK'", "23000",
+                        1062)));
+        assertEquals(WriteBehindIngest.Failure.PERMANENT,
+                WriteBehindIngest.classify(new SQLException("", "23502")));
+        assertEquals(WriteBehindIngest.Failure.PERMANENT,
+                WriteBehindIngest.classify(new NoApplicableCodeException().withMessage("invalid")));
+    }
+
+    private static OwsExceptionReport observationConflict() {
+        return new NoApplicableCodeException().causedBy(new PersistenceException(new ConstraintViolationException(
+                "duplicate key", new SQLException("duplicate key value violates unique constraint", "23505"),
+                DatasetLocks.CONSTRAINT_OBSERVATION_IDENTITY)));
+    }
+
+    private WriteBehindIngest start() {
+        WriteBehindIngest ingest = new WriteBehindIngest(codec);
+        instances.add(ingest);
+        ingest.setServiceEventBus(new EventBus());
+        ingest.setFolder(directory.toFile());
+        ingest.setRetryDelay(10, 50);
+        ingest.setEnabled(true);
+        ingest.init();
+        return ingest;
+    }
+
+    private InsertResultResponse write(InsertResultRequest request) {
+        written.add(request.getTemplateIdentifier());
+        return new InsertResultResponse();
+    }
+
+    private static InsertResultRequest result(String template) {
+        InsertResultRequest request = new InsertResultRequest();
+        request.setService("SOS");
+        request.setVersion("2.0.0");
+        request.setTemplateIdentifier(template);
+        request.setResultValues("1@2020-01-01T00:00:00Z,1");
+        return request;
+    }
+
+    private static InsertObservationRequest observations(OmObservation... observations) {
+        InsertObservationRequest request = new InsertObservationRequest();
+        request.setService("SOS");
+        request.setVersion("2.0.0");
+        request.setOfferings(Collections.singletonList("offering"));
+        request.setObservation(new ArrayList<>(Arrays.asList(observations)));
+        return request;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Keeps the queued observations in memory instead of encoding them as
+     * O&amp;M documents.
+     */
+    private static final class TestCodec extends IngestRequestCodec {
+        private static final byte OBSERVATION = 3;
+        private final List<InsertObservationRequest> requests = new CopyOnWriteArrayList<>();
+
+        TestCodec() {
+            super(null, null, null);
+        }
+
+        @Override
+        byte[] encode(InsertObservationRequest request) {
+            requests.add(request);
+            return new byte[] { OBSERVATION, (byte) (requests.size() - 1) };
+        }
+
+        @Override
+        OwsServiceRequest decode(byte[] payload) throws OwsExceptionReport {
+            if (payload[0] != OBSERVATION) {
+                return super.decode(payload);
+            }
+            return observations(requests.get(payload[1]).getObservations().toArray(new OmObservation[0]));
+        }
+    }
+}
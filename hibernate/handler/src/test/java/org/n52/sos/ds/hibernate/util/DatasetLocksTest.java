@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.PersistenceException;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.n52.series.db.beans.CodespaceEntity;
+import org.n52.sos.ds.hibernate.H2Configuration;
+import org.n52.sos.ds.hibernate.HibernateTestCase;
+import org.n52.sos.ds.hibernate.dao.CodespaceDAO;
+
+/**
+ * Checks that concurrent insertions of the same reference data are repeated
+ * instead of failing.
+ *
+ * @since 5.0.2
+ */
+public class DatasetLocksTest extends HibernateTestCase {
+    private static final String CODESPACE = "http://www.example.org/concurrent";
+
+    private static final long TIMEOUT = 10;
+
+    @After
+    public void tearDown() {
+        H2Configuration.truncate();
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        H2Configuration.recreate();
+    }
+
+    @Test
+    public void should_not_retry_without_concurrent_ingest() {
+        DatasetLocks locks = new DatasetLocks();
+        assertThat(locks.retry(createConstraintViolation(), 1), is(false));
+    }
+
+    @Test
+    public void should_retry_conflicts_up_to_the_maximum_attempts() {
+        DatasetLocks locks = new DatasetLocks();
+        locks.setConcurrentIngest(true);
+        assertThat(locks.retry(createConstraintViolation(), 1), is(true));
+        assertThat(locks.retry(createConstraintViolation(), 5), is(false));
+        assertThat(locks.retry(new PersistenceException("other"), 1), is(false));
+    }
+
+    @Test
+    public void should_not_retry_observation_conflicts() {
+        DatasetLocks locks = new DatasetLocks();
+        locks.setConcurrentIngest(true);
+        ConstraintViolationException identity = new ConstraintViolationException("duplicate key",
+                new SQLException("duplicate key", "23505"), DatasetLocks.CONSTRAINT_OBSERVATION_IDENTITY);
+        PersistenceException identifier = new PersistenceException(new ConstraintViolationException("duplicate key",
+                new SQLException("violates unique constraint \"obsidentifieruk\"", "23505"), null));
+        assertThat(DatasetLocks.isObservationConflict(identity), is(true));
+        assertThat(DatasetLocks.isObservationConflict(identifier), is(true));
+        assertThat(DatasetLocks.isObservationConflict(createConstraintViolation()), is(false));
+        assertThat(locks.retry(identity, 1), is(false));
+        assertThat(locks.retry(identifier, 1), is(false));
+    }
+
+    @Test
+    public void should_repeat_concurrent_insertion_of_reference_data() throws Exception {
+        DatasetLocks locks = new DatasetLocks();
+        locks.setConcurrentIngest(true);
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch conflicted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // the first transaction inserts the codespace and commits only
+            // after the second one conflicted with it
+            Future<Long> first = executor.submit(() -> {
+                Session session = getSession();
+                try {
+                    Transaction transaction = session.beginTransaction();
+                    Long id = new CodespaceDAO().getOrInsertCodespace(CODESPACE, session).getId();
+                    inserted.countDown();
+                    conflicted.await(TIMEOUT, TimeUnit.SECONDS);
+                    transaction.commit();
+                    return id;
+                } finally {
+                    returnSession(session);
+                }
+            });
+            assertThat(inserted.await(TIMEOUT, TimeUnit.SECONDS), is(true));
+
+            // as done by the insertion handlers
+            int attempt = 0;
+            Long id = null;
+            while (id == null) {
+                if (++attempt > 1) {
+                    conflicted.countDown();
+                    first.get(TIMEOUT, TimeUnit.SECONDS);
+                }
+                try {
+                    id = insertCodespace();
+                } catch (PersistenceException e) {
+                    if (!locks.retry(e, attempt)) {
+                        throw e;
+                    }
+                }
+            }
+            assertThat(attempt, is(greaterThan(1)));
+            assertThat(id, is(first.get(TIMEOUT, TimeUnit.SECONDS)));
+            assertThat(countCodespaces(), is(1L));
+        } finally {
+            conflicted.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private Long insertCodespace() {
+        Session session = getSession();
+        Transaction transaction = session.beginTransaction();
+        try {
+            Long id = new CodespaceDAO().getOrInsertCodespace(CODESPACE, session).getId();
+            transaction.commit();
+            return id;
+        } catch (PersistenceException e) {
+            transaction.rollback();
+            throw e;
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private long countCodespaces() {
+        Session session = getSession();
+        try {
+            return session.createCriteria(CodespaceEntity.class)
+                    .add(Restrictions.eq(CodespaceEntity.PROPERTY_NAME, CODESPACE)).list().size();
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private static ConstraintViolationException createConstraintViolation() {
+        return new ConstraintViolationException("duplicate key", new SQLException("duplicate key", "23505"),
+                "codespaceUK");
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.beans.ProfileDataEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.QuantityDatasetEntity;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosResultEncoding;
+import org.n52.shetland.ogc.sos.SosResultStructure;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
+import org.n52.shetland.util.DateTimeHelper;
+import org.n52.svalbard.util.SweHelper;
+
+public class ResultHandlingHelperTest {
+    private static final String OBSERVABLE_PROPERTY = "http://example.org/temperature";
+    private static final String NO_DATA = "noData";
+    private static final DateTime TIME = new DateTime(2012, 11, 19, 13, 30, DateTimeZone.UTC);
+
+    private final ResultHandlingHelper helper = new ResultHandlingHelper(null, new SweHelper());
+    private DatasetEntity dataset;
+    private SosResultStructure resultStructure;
+    private long id;
+
+    @Before
+    public void setUp() {
+        PhenomenonEntity observableProperty = new PhenomenonEntity();
+        observableProperty.setIdentifier(OBSERVABLE_PROPERTY);
+        dataset = new QuantityDatasetEntity();
+        dataset.setObservableProperty(observableProperty);
+
+        SweDataRecord dataRecord = new SweDataRecord();
+        SweTime sweTime = new SweTime();
+        sweTime.setUom(OmConstants.PHEN_UOM_ISO8601);
+        sweTime.setDefinition(OmConstants.PHENOMENON_TIME);
+        dataRecord.addField(new SweField("time", sweTime));
+        SweQuantity quantity = new SweQuantity();
+        quantity.setDefinition(OBSERVABLE_PROPERTY);
+        quantity.setUom("Cel");
+        dataRecord.addField(new SweField("temperature", quantity));
+        resultStructure = new SosResultStructure(dataRecord, null);
+    }
+
+    @Test
+    public void shouldSeparateTokensAndBlocks() throws OwsExceptionReport {
+        String values = helper.createResultValuesFromObservations(
+                Arrays.<DataEntity<?>> asList(quantity(0, "1.5"), quantity(1, "2.5")), encoding("||", "##"),
+                resultStructure, NO_DATA);
+        assertEquals("2##" + time(0) + "||1.5##" + time(1) + "||2.5", values);
+    }
+
+    @Test
+    public void shouldWriteNoDataPlaceholderForMissingTime() throws OwsExceptionReport {
+        QuantityDataEntity observation = quantity(0, "1.5");
+        observation.setSamplingTimeStart(null);
+        observation.setSamplingTimeEnd(null);
+        String values = helper.createResultValuesFromObservations(
+                Collections.<DataEntity<?>> singletonList(observation), encoding(",", "@"), resultStructure,
+                NO_DATA);
+        assertEquals("1@" + NO_DATA + ",1.5", values);
+    }
+
+    @Test
+    public void shouldWriteProfileValuesAsBlocks() throws OwsExceptionReport {
+        String values = helper.createResultValuesFromObservations(
+                Arrays.<DataEntity<?>> asList(profile(quantity(0, "1.0"), quantity(1, "2.0")), profile(),
+                        quantity(2, "3.0")),
+                encoding(",", "@"), resultStructure, NO_DATA);
+        // the element count is the number of observations, an empty profile adds no block
+        assertEquals("3@" + time(0) + ",1.0@" + time(1) + ",2.0@" + time(2) + ",3.0", values);
+    }
+
+    @Test
+    public void shouldReturnEmptyValuesWithoutObservations() throws OwsExceptionReport {
+        assertEquals("", helper.createResultValuesFromObservations(Collections.emptyList(), encoding(",", "@"),
+                resultStructure, NO_DATA));
+    }
+
+    private QuantityDataEntity quantity(int hour, String value) {
+        Date time = TIME.plusHours(hour).toDate();
+        QuantityDataEntity observation = new QuantityDataEntity();
+        observation.setId(++id);
+        observation.setValue(new BigDecimal(value));
+        observation.setSamplingTimeStart(time);
+        observation.setSamplingTimeEnd(time);
+        observation.setResultTime(time);
+        observation.setDataset(dataset);
+        return observation;
+    }
+
+    private ProfileDataEntity profile(DataEntity<?>... levels) {
+        Set<DataEntity<?>> value = new LinkedHashSet<>(Arrays.asList(levels));
+        ProfileDataEntity profile = new ProfileDataEntity();
+        profile.setId(++id);
+        profile.setValue(value);
+        profile.setDataset(dataset);
+        return profile;
+    }
+
+    private static String time(int hour) {
+        return DateTimeHelper.formatDateTime2IsoString(TIME.plusHours(hour));
+    }
+
+    private static SosResultEncoding encoding(String tokenSeparator, String blockSeparator) {
+        SweTextEncoding textEncoding = new SweTextEncoding();
+        textEncoding.setTokenSeparator(tokenSeparator);
+        textEncoding.setBlockSeparator(blockSeparator);
+        return new SosResultEncoding(textEncoding, null);
+    }
+}
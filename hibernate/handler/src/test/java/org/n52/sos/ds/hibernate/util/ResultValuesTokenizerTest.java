@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ResultValuesTokenizerTest {
+
+    @Test
+    public void shouldSkipPrecedingCountValue() {
+        List<List<String>> blocks = Lists.newArrayList(
+                new ResultValuesTokenizer("2@2012-11-19T13:30:00Z,1.5@2012-11-19T13:31:00Z,2.5", ",", "@"));
+        assertEquals(2, blocks.size());
+        assertEquals(Arrays.asList("2012-11-19T13:30:00Z", "1.5"), blocks.get(0));
+        assertEquals(Arrays.asList("2012-11-19T13:31:00Z", "2.5"), blocks.get(1));
+    }
+
+    @Test
+    public void shouldHandleSeparatorsLiterally() {
+        List<List<String>> blocks = Lists.newArrayList(new ResultValuesTokenizer("a|b..c|d..", "|", ".."));
+        assertEquals(2, blocks.size());
+        assertEquals(Arrays.asList("a", "b"), blocks.get(0));
+        assertEquals(Arrays.asList("c", "d"), blocks.get(1));
+    }
+
+    @Test
+    public void shouldIgnoreEmptyBlocksAndTrailingEmptyTokens() {
+        List<List<String>> blocks = Lists.newArrayList(new ResultValuesTokenizer("a,b,,@@c,d@", ",", "@"));
+        assertEquals(2, blocks.size());
+        assertEquals(Arrays.asList("a", "b"), blocks.get(0));
+        assertEquals(Arrays.asList("c", "d"), blocks.get(1));
+    }
+
+    @Test
+    public void shouldKeepEmptyInnerTokens() {
+        List<List<String>> blocks = Lists.newArrayList(new ResultValuesTokenizer("a,,b", ",", "@"));
+        assertEquals(1, blocks.size());
+        assertEquals(Arrays.asList("a", "", "b"), blocks.get(0));
+    }
+
+    @Test
+    public void shouldReturnNoBlocksForEmptyValues() {
+        assertFalse(new ResultValuesTokenizer("", ",", "@").hasNext());
+    }
+}
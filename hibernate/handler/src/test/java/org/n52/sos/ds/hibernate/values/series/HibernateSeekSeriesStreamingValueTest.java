@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2012-2018 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.values.series;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hibernate.Session;
+import org.hibernate.criterion.Criterion;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesValueDAO;
+import org.n52.sos.ds.hibernate.values.HibernateStreamingConfiguration;
+
+/**
+ * Checks that {@link HibernateSeekSeriesStreamingValue} continues each chunk
+ * after the last emitted value, also if several values share the same time.
+ *
+ * @since 5.0.2
+ */
+public class HibernateSeekSeriesStreamingValueTest {
+    private static final int CHUNK_SIZE = 2;
+
+    private static final Comparator<DataEntity<?>> ORDER = Comparator
+            .comparing((DataEntity<?> v) -> v.getSamplingTimeStart())
+            .thenComparing(DataEntity::getId);
+
+    private final List<DataEntity<?>> values = new ArrayList<>();
+
+    private final List<DataEntity<?>> lastValues = new ArrayList<>();
+
+    private ConnectionProvider connectionProvider;
+
+    private DaoFactory daoFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        HibernateStreamingConfiguration configuration = new HibernateStreamingConfiguration();
+        configuration.setChunkSize(CHUNK_SIZE);
+        configuration.init();
+
+        // three values per time, the ids do not follow the times
+        long id = 0;
+        for (long time : new long[] { 2, 1, 0 }) {
+            for (int i = 0; i < 3; i++) {
+                values.add(createValue(++id, new Date(time * 1000)));
+            }
+        }
+
+        connectionProvider = mock(ConnectionProvider.class);
+        when(connectionProvider.getConnection()).thenReturn(mock(Session.class));
+        AbstractSeriesValueDAO valueDAO = mock(AbstractSeriesValueDAO.class);
+        when(valueDAO.getStreamingSeriesValuesFor(any(), anyLong(), nullable(Criterion.class), anyInt(),
+                nullable(DataEntity.class), any())).thenAnswer(invocation -> {
+                    int chunkSize = invocation.getArgument(3);
+                    DataEntity<?> lastValue = invocation.getArgument(4);
+                    lastValues.add(lastValue);
+                    return values.stream().sorted(ORDER)
+                            .filter(v -> lastValue == null || ORDER.compare(v, lastValue) > 0)
+                            .limit(chunkSize).collect(Collectors.toList());
+                });
+        daoFactory = mock(DaoFactory.class);
+        when(daoFactory.getValueDAO()).thenReturn(valueDAO);
+    }
+
+    @Test
+    public void should_page_across_equal_times() throws OwsExceptionReport {
+        HibernateSeekSeriesStreamingValue streamingValue = new HibernateSeekSeriesStreamingValue(
+                connectionProvider, daoFactory, new GetObservationRequest(), 1L, null);
+        List<DataEntity<?>> streamed = new ArrayList<>();
+        while (streamingValue.hasNext()) {
+            streamed.add(streamingValue.nextEntity());
+        }
+        assertThat(streamed, is(values.stream().sorted(ORDER).collect(Collectors.toList())));
+        // one query per chunk and a last, empty one
+        assertThat(lastValues, hasSize((values.size() + CHUNK_SIZE - 1) / CHUNK_SIZE + 1));
+        assertThat(lastValues.get(0) == null, is(true));
+        for (int i = 1; i < lastValues.size(); i++) {
+            assertThat(streamed.indexOf(lastValues.get(i)), is(i * CHUNK_SIZE - 1));
+        }
+    }
+
+    private static DataEntity<?> createValue(long id, Date time) {
+        QuantityDataEntity value = new QuantityDataEntity();
+        value.setId(id);
+        value.setSamplingTimeStart(time);
+        return value;
+    }
+}
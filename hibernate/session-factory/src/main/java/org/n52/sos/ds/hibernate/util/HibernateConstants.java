@@ -154,6 +154,16 @@ public interface HibernateConstants {
 
     String JDBC_BATCH_SIZE = AvailableSettings.STATEMENT_BATCH_SIZE;
 
+    /**
+     * Order inserts and updates by entity type so that they can be combined to
+     * JDBC batches.
+     */
+    String ORDER_INSERTS = AvailableSettings.ORDER_INSERTS;
+
+    String ORDER_UPDATES = AvailableSettings.ORDER_UPDATES;
+
+    String BATCH_VERSIONED_DATA = AvailableSettings.BATCH_VERSIONED_DATA;
+
     //FIXME Not a valid property, remove?
     @Deprecated
     String CONNECTION_AUTO_RECONNECT = "hibernate.connection.autoReconnect";
@@ -68,8 +68,11 @@ public class SosInsertResultOperatorV20 extends
 
     @Override
     public InsertResultResponse receive(InsertResultRequest request) throws OwsExceptionReport {
-        InsertResultResponse response = getOperationHandler().insertResult(request);
-        getServiceEventBus().submit(new ResultInsertion(request, response));
+        boolean writeBehind = getOperationHandler().isWriteBehind(request);
+        InsertResultResponse response = getOperationHandler().insertResult(request, writeBehind);
+        if (!writeBehind) {
+            getServiceEventBus().submit(new ResultInsertion(request, response));
+        }
         return response;
     }
 
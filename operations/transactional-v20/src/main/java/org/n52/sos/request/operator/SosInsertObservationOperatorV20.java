@@ -83,8 +83,11 @@ public class SosInsertObservationOperatorV20 extends
 
     @Override
     public InsertObservationResponse receive(final InsertObservationRequest request) throws OwsExceptionReport {
-        InsertObservationResponse response = getOperationHandler().insertObservation(request);
-        getServiceEventBus().submit(new ObservationInsertion(request, response));
+        boolean writeBehind = getOperationHandler().isWriteBehind(request);
+        InsertObservationResponse response = getOperationHandler().insertObservation(request, writeBehind);
+        if (!writeBehind) {
+            getServiceEventBus().submit(new ObservationInsertion(request, response));
+        }
         return response;
     }
 
@@ -31,8 +31,10 @@ package org.n52.sos.web.admin;
 import javax.inject.Inject;
 
 import org.n52.iceland.cache.ContentCacheController;
+import org.n52.janmayen.event.EventBus;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.cache.SosContentCache;
+import org.n52.sos.event.events.ServiceConfigurationChanged;
 import org.n52.sos.web.common.AbstractController;
 
 /**
@@ -43,11 +45,25 @@ public abstract class AbstractAdminController extends AbstractController {
 
     private ContentCacheController contentCacheController;
 
+    private EventBus serviceEventBus;
+
     @Inject
     public void setContentCacheController(ContentCacheController ctrl) {
         this.contentCacheController = ctrl;
     }
 
+    @Inject
+    public void setServiceEventBus(EventBus serviceEventBus) {
+        this.serviceEventBus = serviceEventBus;
+    }
+
+    /**
+     * Notify the listeners that the service configuration was changed.
+     */
+    protected void fireServiceConfigurationChanged() {
+        serviceEventBus.submit(new ServiceConfigurationChanged());
+    }
+
     protected boolean cacheIsLoading() {
         return contentCacheController.isUpdateInProgress();
     }
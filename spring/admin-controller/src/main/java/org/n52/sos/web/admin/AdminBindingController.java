@@ -116,6 +116,7 @@ public class AdminBindingController extends AbstractAdminController {
         if (json.has(JSONConstants.BINDING_KEY)) {
             BindingKey key = getKey(json.path(JSONConstants.BINDING_KEY).asText());
             this.bindingRepository.setActive(key, json.path(JSONConstants.ACTIVE_KEY).asBoolean());
+            fireServiceConfigurationChanged();
         } else {
             throw new JSONException("Invalid JSON");
         }
@@ -29,10 +29,14 @@
 package org.n52.sos.web.admin;
 
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -41,18 +45,32 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
-import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.iceland.exception.ows.concrete.NoImplementationFoundException;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.Json;
 import org.n52.sos.ds.DeleteDeletedObservationDAO;
+import org.n52.sos.ds.DeleteDeletedObservationsProgress;
 import org.n52.sos.web.common.ControllerConstants;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 /**
+ * Runs the deletion of deleted observations in the background. {@code POST}
+ * starts a run (or returns the current one), {@code GET} returns the progress
+ * and {@code DELETE} cancels the run after the current chunk.
+ *
  * @author <a href="mailto:c.autermann@52north.org">Christian Autermann</a>
  * @since 4.0.0
  */
 @Controller
 @RequestMapping(ControllerConstants.Paths.ADMIN_DATABASE_DELETE_DELETED_OBSERVATIONS)
 public class AdminDeleteDeletedObservationsController extends AbstractAdminController {
+    private static final Logger LOG = LoggerFactory.getLogger(AdminDeleteDeletedObservationsController.class);
+
+    private final ExecutorService executor = Executors
+            .newSingleThreadExecutor(new GroupedAndNamedThreadFactory("52n-delete-deleted-observations"));
+
+    private DeleteDeletedObservationsProgress progress;
 
     @Inject
     private Optional<DeleteDeletedObservationDAO> dao;
@@ -72,9 +90,73 @@ public class AdminDeleteDeletedObservationsController extends AbstractAdminContr
         return "The operation is not supported by this SOS";
     }
 
-    @RequestMapping(method = RequestMethod.POST)
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete() throws NoImplementationFoundException, OwsExceptionReport {
-        getDAO().deleteDeletedObservations();
+    @ResponseBody
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @RequestMapping(method = RequestMethod.POST, produces = "application/json; charset=UTF-8")
+    public synchronized String delete() throws NoImplementationFoundException {
+        DeleteDeletedObservationDAO deleteDAO = getDAO();
+        if (progress == null || !progress.isRunning()) {
+            DeleteDeletedObservationsProgress current = new DeleteDeletedObservationsProgress();
+            this.progress = current;
+            executor.execute(() -> run(deleteDAO, current));
+        }
+        return encode(progress);
+    }
+
+    @ResponseBody
+    @RequestMapping(method = RequestMethod.GET, produces = "application/json; charset=UTF-8")
+    public synchronized String getProgress() {
+        return encode(progress);
+    }
+
+    @ResponseBody
+    @RequestMapping(method = RequestMethod.DELETE, produces = "application/json; charset=UTF-8")
+    public synchronized String cancel() {
+        if (progress != null && progress.isRunning()) {
+            progress.cancel();
+        }
+        return encode(progress);
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        if (progress != null) {
+            progress.cancel();
+        }
+        executor.shutdown();
+    }
+
+    private void run(DeleteDeletedObservationDAO deleteDAO, DeleteDeletedObservationsProgress current) {
+        current.start();
+        try {
+            deleteDAO.deleteDeletedObservations(current);
+            current.finish();
+        } catch (Exception e) {
+            LOG.error("Error while deleting deleted observations", e);
+            current.fail(e);
+        }
+    }
+
+    private String encode(DeleteDeletedObservationsProgress progress) {
+        ObjectNode node = Json.nodeFactory().objectNode();
+        if (progress != null) {
+            node.put("state", progress.getState().name());
+            node.put("running", progress.isRunning());
+            node.put("datasets", progress.getDatasets());
+            node.put("processedDatasets", progress.getProcessedDatasets());
+            node.put("deletedObservations", progress.getDeletedObservations());
+            if (progress.getStart() != null) {
+                node.put("start", progress.getStart().toString());
+            }
+            if (progress.getEnd() != null) {
+                node.put("end", progress.getEnd().toString());
+            }
+            if (progress.getError() != null) {
+                node.put("error", progress.getError());
+            }
+        } else {
+            node.put("running", false);
+        }
+        return Json.print(node);
     }
 }
@@ -114,6 +114,7 @@ public class AdminEncodingController extends AbstractAdminController {
         } else {
             throw new JSONException("Invalid JSON");
         }
+        fireServiceConfigurationChanged();
     }
 
     protected ArrayNode getObservationEncodings() {
@@ -132,6 +132,7 @@ public class AdminExtensionController extends AbstractAdminController {
         } else {
             throw new JSONException("Invalid JSON");
         }
+        fireServiceConfigurationChanged();
     }
 
     protected ArrayNode getExtendedCapabilitiesExtensions() throws ConnectionProviderException, ConfigurationError,
@@ -29,6 +29,8 @@
 package org.n52.sos.web.admin;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.inject.Inject;
 
@@ -43,10 +45,13 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 
 import org.n52.iceland.ds.ConnectionProviderException;
 import org.n52.iceland.exception.JSONException;
+import org.n52.iceland.request.operator.RequestOperator;
 import org.n52.iceland.request.operator.RequestOperatorKey;
 import org.n52.iceland.request.operator.RequestOperatorRepository;
 import org.n52.shetland.ogc.ows.service.OwsServiceKey;
 import org.n52.janmayen.Json;
+import org.n52.sos.request.operator.AbstractRequestOperator;
+import org.n52.sos.request.operator.RequestResponseModifierTimings;
 import org.n52.sos.web.common.ControllerConstants;
 import org.n52.sos.web.common.JSONConstants;
 
@@ -84,6 +89,7 @@ public class AdminOperationController extends AbstractAdminController {
     public String getAll() throws JSONException {
         ObjectNode json = Json.nodeFactory().objectNode();
         ArrayNode array = json.putArray(JSONConstants.OPERATIONS_KEY);
+        Map<RequestOperatorKey, RequestResponseModifierTimings> timings = getModifierTimings();
 
         for (RequestOperatorKey key : this.requestOperatorRepository.getKeys()) {
             String service = key.getServiceOperatorKey().getService();
@@ -91,16 +97,32 @@ public class AdminOperationController extends AbstractAdminController {
             String operation = key.getOperationName();
             boolean active = this.requestOperatorRepository.isActive(key);
 
-            array.addObject()
+            ObjectNode node = array.addObject()
                     .put(JSONConstants.SERVICE_KEY, service)
                     .put(JSONConstants.VERSION_KEY, version)
                     .put(JSONConstants.OPERATION_KEY, operation)
                     .put(JSONConstants.ACTIVE_KEY, active);
+            ObjectNode modifiers = node.putObject(JSONConstants.MODIFIERS_KEY);
+            if (timings.containsKey(key)) {
+                timings.get(key).getTimings().forEach((name, timing) -> modifiers.put(name, timing.toString()));
+            }
         }
 
         return Json.print(json);
     }
 
+    private Map<RequestOperatorKey, RequestResponseModifierTimings> getModifierTimings() {
+        Map<RequestOperatorKey, RequestResponseModifierTimings> timings = new HashMap<>();
+        for (RequestOperator operator : this.requestOperatorRepository.getRequestOperators()) {
+            if (operator instanceof AbstractRequestOperator) {
+                for (RequestOperatorKey key : operator.getKeys()) {
+                    timings.put(key, ((AbstractRequestOperator<?, ?, ?>) operator).getModifierTimings());
+                }
+            }
+        }
+        return timings;
+    }
+
     @ResponseBody
     @RequestMapping(value = ControllerConstants.Paths.ADMIN_OPERATIONS_JSON_ENDPOINT,
                     method = RequestMethod.POST,
@@ -115,5 +137,6 @@ public class AdminOperationController extends AbstractAdminController {
         OwsServiceKey sokt = new OwsServiceKey(service, version);
         RequestOperatorKey rokt = new RequestOperatorKey(sokt, operation);
         this.requestOperatorRepository.setActive(rokt, active);
+        fireServiceConfigurationChanged();
     }
 }
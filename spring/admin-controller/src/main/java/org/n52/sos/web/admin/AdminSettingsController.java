@@ -61,6 +61,8 @@ import org.n52.iceland.ds.ConnectionProviderException;
 import org.n52.faroe.ConfigurationError;
 import org.n52.iceland.exception.JSONException;
 import org.n52.janmayen.Json;
+import org.n52.janmayen.event.EventBus;
+import org.n52.sos.event.events.ServiceConfigurationChanged;
 import org.n52.sos.web.common.AbstractController;
 import org.n52.sos.web.common.ControllerConstants;
 import org.n52.sos.web.common.auth.DefaultAdministratorUser;
@@ -81,6 +83,9 @@ public class AdminSettingsController extends AbstractController {
     @Inject
     private SettingsService settingsManager;
 
+    @Inject
+    private EventBus serviceEventBus;
+
     public SosAuthenticationProvider getUserService() {
         return userService;
     }
@@ -148,6 +153,7 @@ public class AdminSettingsController extends AbstractController {
         for (SettingValue<?> e : changedSettings.values()) {
             settingsManager.changeSetting(e);
         }
+        serviceEventBus.submit(new ServiceConfigurationChanged());
     }
 
     private void updateAdminUser(HttpServletRequest request, Principal user) throws AuthenticationException,
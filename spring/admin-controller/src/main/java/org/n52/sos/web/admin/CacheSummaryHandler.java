@@ -32,6 +32,8 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.n52.sos.cache.CacheMemoryReport;
+import org.n52.sos.cache.InMemoryCacheImpl;
 import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.service.Configurator;
 
@@ -59,6 +61,9 @@ public class CacheSummaryHandler {
     public static final String NUM_RESULT_TEMPLATES = "num_result_templates";
     public static final String DEFAULT_EPSG = "default_epsg";
     public static final String NUM_EPSGS = "num_epsgs";
+    public static final String NUM_RELATION_IDENTIFIERS = "num_relation_identifiers";
+    public static final String RELATIONS_ESTIMATED_BYTES = "relations_estimated_bytes";
+    public static final String RELATIONS_ESTIMATED_HASH_BYTES = "relations_estimated_hash_bytes";
 
 
 
@@ -85,6 +90,12 @@ public class CacheSummaryHandler {
         values.put(NUM_RESULT_TEMPLATES, nullSafeToString(cache.getResultTemplates()));
         values.put(DEFAULT_EPSG, Integer.toString(cache.getDefaultEPSGCode()));
         values.put(NUM_EPSGS, nullSafeToString(cache.getEpsgCodes()));
+        if (cache instanceof InMemoryCacheImpl) {
+            CacheMemoryReport report = ((InMemoryCacheImpl) cache).getMemoryReport();
+            values.put(NUM_RELATION_IDENTIFIERS, Integer.toString(report.getDictionarySize()));
+            values.put(RELATIONS_ESTIMATED_BYTES, Long.toString(report.getEncodedBytes()));
+            values.put(RELATIONS_ESTIMATED_HASH_BYTES, Long.toString(report.getHashBytesWithStrings()));
+        }
         return values;
     }
 
@@ -101,6 +101,7 @@ public class CapabilitiesExtensionAjaxEndpoint extends AbstractAdminCapabiltiesA
 
         if (request.has(DISABLED_PROPERTY)) {
             getCapabilitiesExtensionService().disableCapabilitiesExtension(identifier, request.path(DISABLED_PROPERTY).asBoolean());
+            fireServiceConfigurationChanged();
         }
     }
 
@@ -116,6 +117,7 @@ public class CapabilitiesExtensionAjaxEndpoint extends AbstractAdminCapabiltiesA
 
         XmlObject.Factory.parse(extension);
         getCapabilitiesExtensionService().saveCapabilitiesExtension(identifier, extension);
+        fireServiceConfigurationChanged();
     }
 
     public boolean contains(String name) {
@@ -142,6 +144,7 @@ public class CapabilitiesExtensionAjaxEndpoint extends AbstractAdminCapabiltiesA
     public void deleteCapabilitiesExtension(
             @PathVariable("identifier") String identifier) throws NoSuchExtensionException {
         getCapabilitiesExtensionService().deleteCapabiltiesExtension(identifier);
+        fireServiceConfigurationChanged();
     }
 
     @ResponseBody
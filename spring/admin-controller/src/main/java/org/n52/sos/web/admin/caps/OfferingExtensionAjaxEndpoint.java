@@ -117,6 +117,7 @@ public class OfferingExtensionAjaxEndpoint extends AbstractAdminCapabiltiesAjaxE
         checkOffering(offeringId);
         XmlObject.Factory.parse(extensionContent);
         getCapabilitiesExtensionService().saveOfferingExtension(offeringId, extensionId, extensionContent);
+        fireServiceConfigurationChanged();
     }
 
     @ResponseStatus(HttpStatus.NO_CONTENT)
@@ -130,6 +131,7 @@ public class OfferingExtensionAjaxEndpoint extends AbstractAdminCapabiltiesAjaxE
 
         if (request.has(DISABLED_PROPERTY)) {
             getCapabilitiesExtensionService().disableOfferingExtension(offeringId, extensionId, request.path(DISABLED_PROPERTY).asBoolean());
+            fireServiceConfigurationChanged();
         }
     }
 
@@ -142,5 +144,6 @@ public class OfferingExtensionAjaxEndpoint extends AbstractAdminCapabiltiesAjaxE
         final String offeringId = request.path(OFFERING).asText();
         final String extensionId = request.path(IDENTIFIER).asText();
         getCapabilitiesExtensionService().deleteOfferingExtension(offeringId, extensionId);
+        fireServiceConfigurationChanged();
     }
 }
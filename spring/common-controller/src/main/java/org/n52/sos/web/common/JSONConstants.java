@@ -49,4 +49,5 @@ public interface JSONConstants {
     String ACTIVE_KEY = "active";
     String VERSION_KEY = "version";
     String OPERATION_KEY = "operation";
+    String MODIFIERS_KEY = "modifiers";
 }
@@ -115,9 +115,11 @@
     </div>
     <div class="modal-body">
         <p><span class="label label-important">Warning!</span> This will remove all deleted observations from the datasource!</p>
+        <p id="deleteDeletedProgress" class="hide"></p>
     </div>
     <div class="modal-footer">
         <button type="button" class="btn" data-dismiss="modal" aria-hidden="true">Cancel</button>
+        <button type="button" id="cancelDelete" class="btn btn-warning hide">Stop deletion</button>
         <button type="button" id="delete" class="btn btn-danger">Do it!</button>
     </div>
 </div>
@@ -188,25 +190,59 @@
         }*/
 
         if (supportsDeleteDeleted) {
+            var deleteDeletedUrl = "<c:url value="/admin/datasource/deleteDeletedObservations" />";
+            var $deleteDeletedProgress = $("#deleteDeletedProgress");
+            var $cancelDelete = $("#cancelDelete");
+            var onDeleteDeletedError = function(error) {
+                if (error.responseText) {
+                    showError(error.responseText);
+                } else {
+                    showError("Request failed: " + error.status + " " + error.statusText);
+                }
+                $deleteDeletedDialog.find("button").removeAttr("disabled");
+                $cancelDelete.addClass("hide");
+                $deleteDeletedProgress.addClass("hide");
+                $deleteDeletedDialog.modal("hide");
+            };
+            var onDeleteDeletedProgress = function(status) {
+                if ((typeof status) === "string") {
+                    status = JSON.parse(status);
+                }
+                $deleteDeletedProgress.removeClass("hide").text("Processed " + status.processedDatasets
+                    + " of " + status.datasets + " datasets, deleted " + status.deletedObservations
+                    + " observations.");
+                if (status.running) {
+                    $cancelDelete.removeClass("hide").removeAttr("disabled");
+                    setTimeout(function() {
+                        $.get(deleteDeletedUrl).fail(onDeleteDeletedError).done(onDeleteDeletedProgress);
+                    }, 2000);
+                    return;
+                }
+                if (status.state === "FAILED") {
+                    showError("Deleting the deleted observations failed: " + status.error);
+                } else if (status.state === "CANCELLED") {
+                    showSuccess("The deletion was stopped after " + status.deletedObservations + " observations.");
+                } else {
+                    showSuccess("The deleted observation were deleted.");
+                }
+                $deleteDeletedDialog.find("button").removeAttr("disabled");
+                $cancelDelete.addClass("hide");
+                $deleteDeletedProgress.addClass("hide");
+                $deleteDeletedDialog.modal("hide");
+            };
             $("#delete").click(function() {
                 $deleteDeletedDialog.find("button").attr("disabled", true);
                 $.ajax({
-                    "url": "<c:url value="/admin/datasource/deleteDeletedObservations" />",
+                    "url": deleteDeletedUrl,
                     "type": "POST"
-                }).fail(function(error) {
-                    if (error.responseText) {
-                        showError(error.responseText);
-                    } else {
-                        showError("Request failed: " + error.status + " " + error.statusText);
-                    }
-
-                    $deleteDeletedDialog.find("button").removeAttr("disabled");
-                    $deleteDeletedDialog.modal("hide");
-                }).done(function() {
-                    showSuccess("The deleted observation were deleted.");
-                    $deleteDeletedDialog.find("button").removeAttr("disabled");
-                    $deleteDeletedDialog.modal("hide");
-                });
+                }).fail(onDeleteDeletedError).done(onDeleteDeletedProgress);
+            });
+            $cancelDelete.click(function() {
+                $cancelDelete.attr("disabled", true);
+                $.ajax({
+                    "url": deleteDeletedUrl,
+                    "type": "DELETE"
+                }).fail(onDeleteDeletedError);
             });
         } else {
             $("button[data-target=#confirmDialogDelete]").attr("disabled", true);
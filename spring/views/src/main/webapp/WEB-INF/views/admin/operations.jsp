@@ -69,6 +69,7 @@ jQuery(document).ready(function($) {
             <th>Version</th>
             <th>Operation</th>
             <th>Status</th>
+            <th>Modifiers</th>
         </tr>
     </thead>
     <tbody></tbody>
@@ -78,7 +79,7 @@ jQuery(document).ready(function($) {
 jQuery(document).ready(function($) {
     $.getJSON("<c:url value='/admin/operations/json'/>", function(j) {
         var $tbody = $("#operationsTable tbody"),
-        operations = j.operations, i, o, $row, $button;
+        operations = j.operations, i, o, $row, $button, $modifiers;
         for (i = 0; i < operations.length; ++i) {
             o = operations[i];
             $row = $("<tr>");
@@ -118,6 +119,10 @@ jQuery(document).ready(function($) {
                 
             }
             $("<td>").addClass("status").append($button).appendTo($row);
+            $modifiers = $("<td>").addClass("modifiers").appendTo($row);
+            $.each(o.modifiers || {}, function(name, timing) {
+                $("<div>").text(name + ": " + timing).appendTo($modifiers);
+            });
             
             $tbody.append($row);    
         }
@@ -137,7 +142,8 @@ jQuery(document).ready(function($) {
                 0: { sorter: "text" },
                 1: { sorter: "text" },
                 2: { sorter: "text" },
-                3: { sorter: "text" } 
+                3: { sorter: "text" },
+                4: { sorter: false }
             },
             sortList: [ [0,0], [1,1], [2,0] ]
         });